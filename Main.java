@@ -1,4 +1,7 @@
 import controller.FruitController;
+import controller.ServerController;
+
+import java.io.IOException;
 
 /**
  * The main entry point for the Fruit Management System
@@ -6,7 +9,14 @@ import controller.FruitController;
  */
 public class Main {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // "--http [port]" and/or "--binary [port]" serve the saved fruits instead of opening the dialogs
+        ServerController server = ServerController.fromArguments(args);
+        if (server != null) {
+            server.run();
+            return;
+        }
+
         // Direct instantiation and execution - no need for intermediate launcher
         FruitController controller = new FruitController();
         controller.run();
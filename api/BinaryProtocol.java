@@ -0,0 +1,96 @@
+package api;
+
+import model.Fruit;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wire format shared by FruitBinaryServer and FruitBinaryClient
+ *
+ * Every message is a frame: a 4-byte big-endian length followed by that many bytes.
+ *   request:  opcode (1 byte), request id (4 bytes), arguments
+ *   response: request id (4 bytes), status (1 byte), result
+ * Responses come back in the order of the requests, so a client can send many requests before
+ * reading any response (pipelining).
+ *
+ * Strings are a 2-byte unsigned length and that many UTF-8 bytes. A fruit is name, color,
+ * weight (4 bytes), calories per 100g (4 bytes) and edible (1 byte). Lists are a 4-byte count
+ * followed by the items. BAD_REQUEST and FAILED responses carry a string with the reason.
+ */
+public final class BinaryProtocol {
+    public static final int MAX_FRAME_BYTES = 16 << 20;
+    public static final int MAX_STRING_BYTES = 0xFFFF;
+
+    // Opcodes; arguments -> result on OK
+    /** fruit -> nothing */
+    public static final byte ADD = 1;
+    /** list of fruits -> nothing */
+    public static final byte ADD_ALL = 2;
+    /** name -> fruit, NOT_FOUND if none */
+    public static final byte GET = 3;
+    /** name, offset, limit -> list of fruits */
+    public static final byte SEARCH = 4;
+    /** offset, limit -> total (4 bytes), list of fruits */
+    public static final byte PAGE = 5;
+    /** old name, fruit with the new values -> nothing, REJECTED if not found or the name is taken */
+    public static final byte UPDATE = 6;
+    /** list of (old name, fruit) -> nothing, REJECTED if any update would fail */
+    public static final byte UPDATE_ALL = 7;
+    /** name -> nothing, NOT_FOUND if none */
+    public static final byte REMOVE = 8;
+    /** list of names -> nothing, REJECTED if any name would match nothing */
+    public static final byte REMOVE_ALL = 9;
+    /** name -> 1 if a fruit has it ignoring case, else 0 */
+    public static final byte EXISTS = 10;
+    /** nothing -> size (4 bytes) */
+    public static final byte SIZE = 11;
+    /** nothing -> total, healthy, edible (4 bytes each), healthy %, edible %, average calories
+     *  (8-byte doubles), heaviest fruit present (1 byte) and the fruit */
+    public static final byte STATISTICS = 12;
+
+    // Response status
+    public static final byte OK = 0;
+    public static final byte NOT_FOUND = 1;
+    public static final byte REJECTED = 2;
+    public static final byte BAD_REQUEST = 3;
+    /** the request was valid but the collection could not carry it out */
+    public static final byte FAILED = 4;
+
+    // Private constructor to prevent instantiation
+    private BinaryProtocol() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * @return true if the operation changes the collection
+     */
+    static boolean isWrite(byte opcode) {
+        return opcode == ADD || opcode == ADD_ALL || opcode == UPDATE || opcode == UPDATE_ALL
+                || opcode == REMOVE || opcode == REMOVE_ALL;
+    }
+
+    /**
+     * Decodes a string in place from the frame, without copying the bytes first
+     * @throws BufferUnderflowException if the frame is shorter than the string claims
+     */
+    static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    static Fruit getFruit(ByteBuffer buffer) {
+        String name = getString(buffer);
+        String color = getString(buffer);
+        int weight = buffer.getInt();
+        int calories = buffer.getInt();
+        boolean edible = buffer.get() != 0;
+        return new Fruit(name, weight, color, edible, calories);
+    }
+}
@@ -0,0 +1,152 @@
+package api;
+
+import model.Fruit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Growable output buffer that frames are written into before they go to the socket
+ * Each frame is started with begin, filled with the put methods and closed with end, which fills
+ * in its length. Strings are encoded straight into the buffer.
+ */
+final class FrameBuffer {
+    private ByteBuffer buffer;
+    private int frameStart = -1;
+
+    FrameBuffer(int initialCapacity) {
+        this.buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    /**
+     * Starts a frame by reserving room for its length
+     */
+    FrameBuffer begin() {
+        ensure(4);
+        frameStart = buffer.position();
+        buffer.putInt(0);
+        return this;
+    }
+
+    /**
+     * Closes the current frame
+     * @throws IllegalArgumentException if the frame is larger than the protocol allows
+     */
+    void end() {
+        int length = buffer.position() - frameStart - 4;
+        if (length > BinaryProtocol.MAX_FRAME_BYTES) {
+            buffer.position(frameStart);
+            frameStart = -1;
+            throw new IllegalArgumentException("Message of " + length + " bytes exceeds the limit of "
+                    + BinaryProtocol.MAX_FRAME_BYTES);
+        }
+        buffer.putInt(frameStart, length);
+        frameStart = -1;
+    }
+
+    /**
+     * Drops the frame being written, for example after an argument turned out to be invalid
+     */
+    void abandon() {
+        if (frameStart >= 0) {
+            buffer.position(frameStart);
+            frameStart = -1;
+        }
+    }
+
+    FrameBuffer putByte(byte value) {
+        ensure(1);
+        buffer.put(value);
+        return this;
+    }
+
+    FrameBuffer putBoolean(boolean value) {
+        return putByte((byte) (value ? 1 : 0));
+    }
+
+    FrameBuffer putInt(int value) {
+        ensure(4);
+        buffer.putInt(value);
+        return this;
+    }
+
+    FrameBuffer putDouble(double value) {
+        ensure(8);
+        buffer.putDouble(value);
+        return this;
+    }
+
+    FrameBuffer putString(String value) {
+        // Each char takes at most 3 UTF-8 bytes
+        ensure(2 + value.length() * 3);
+        int lengthPosition = buffer.position();
+        buffer.position(lengthPosition + 2);
+        int length;
+        if (isAscii(value)) {
+            for (int i = 0; i < value.length(); i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+            length = value.length();
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.put(bytes);
+            length = bytes.length;
+        }
+        if (length > BinaryProtocol.MAX_STRING_BYTES) {
+            buffer.position(lengthPosition);
+            throw new IllegalArgumentException("Text longer than " + BinaryProtocol.MAX_STRING_BYTES + " bytes");
+        }
+        buffer.putShort(lengthPosition, (short) length);
+        return this;
+    }
+
+    FrameBuffer putFruit(Fruit fruit) {
+        putString(fruit.getName());
+        putString(fruit.getColor());
+        putInt(fruit.getWeight());
+        putInt(fruit.getCaloriesPer100g());
+        return putBoolean(fruit.isEdible());
+    }
+
+    /**
+     * @return Bytes written and not yet sent
+     */
+    int pending() {
+        return buffer.position();
+    }
+
+    /**
+     * Writes as much as the channel accepts and keeps the rest
+     * @return true if everything was sent
+     */
+    boolean writeTo(WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        try {
+            channel.write(buffer);
+            return !buffer.hasRemaining();
+        } finally {
+            buffer.compact();
+        }
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < bytes) {
+            capacity *= 2;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+}
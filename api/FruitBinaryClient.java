@@ -0,0 +1,329 @@
+package api;
+
+import model.Fruit;
+import model.FruitUpdate;
+import service.FruitManager;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Client for FruitBinaryServer
+ *
+ * The async methods only queue a request and return a future; queued requests are sent together
+ * when flush or sync is called, when the send buffer fills up or when maxInFlight requests are
+ * waiting, so many requests share one round trip. The plain methods send a single request and
+ * wait for its answer. A client is not thread-safe; give each thread its own connection.
+ *
+ * A request the server refuses as malformed completes with an IllegalArgumentException.
+ */
+public class FruitBinaryClient implements Closeable {
+    private static final int BUFFER_SIZE = 64 << 10;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+
+    private final SocketChannel channel;
+    private final FrameBuffer out = new FrameBuffer(BUFFER_SIZE);
+    private final ArrayDeque<Pending<?>> pending = new ArrayDeque<>();
+    private final int maxInFlight;
+    private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+    private int nextRequestId;
+
+    /**
+     * Reads the result of one response; the buffer is limited to the response frame
+     */
+    private interface Decoder<T> {
+        T decode(byte status, ByteBuffer result);
+    }
+
+    private record Pending<T>(int requestId, Decoder<T> decoder, CompletableFuture<T> future) {
+        void complete(byte status, ByteBuffer result) {
+            if (status == BinaryProtocol.BAD_REQUEST) {
+                future.completeExceptionally(new IllegalArgumentException(BinaryProtocol.getString(result)));
+            } else if (status == BinaryProtocol.FAILED) {
+                future.completeExceptionally(new IllegalStateException(BinaryProtocol.getString(result)));
+            } else {
+                future.complete(decoder.decode(status, result));
+            }
+        }
+    }
+
+    /**
+     * Connects with the default limit of queued requests
+     * @param host Server host name
+     * @param port Server port
+     * @throws IOException if the connection fails
+     */
+    public FruitBinaryClient(String host, int port) throws IOException {
+        this(host, port, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param host Server host name
+     * @param port Server port
+     * @param maxInFlight Number of unanswered requests after which the client waits for the answers
+     * @throws IOException if the connection fails
+     */
+    public FruitBinaryClient(String host, int port, int maxInFlight) throws IOException {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    // Pipelined requests
+
+    public CompletableFuture<Void> addFruitAsync(Fruit fruit) throws IOException {
+        return send(BinaryProtocol.ADD, frame -> frame.putFruit(fruit), FruitBinaryClient::none);
+    }
+
+    public CompletableFuture<Void> addAllAsync(List<Fruit> fruits) throws IOException {
+        return send(BinaryProtocol.ADD_ALL, frame -> {
+            frame.putInt(fruits.size());
+            fruits.forEach(frame::putFruit);
+        }, FruitBinaryClient::none);
+    }
+
+    /**
+     * @return Future of the fruit with exactly this name, or null if there is none
+     */
+    public CompletableFuture<Fruit> searchFruitByExactNameAsync(String name) throws IOException {
+        return send(BinaryProtocol.GET, frame -> frame.putString(name),
+                (status, result) -> status == BinaryProtocol.OK ? BinaryProtocol.getFruit(result) : null);
+    }
+
+    public CompletableFuture<List<Fruit>> searchFruitsByNameAsync(String name, int offset, int limit) throws IOException {
+        return send(BinaryProtocol.SEARCH, frame -> frame.putString(name).putInt(offset).putInt(limit),
+                (status, result) -> getFruits(result));
+    }
+
+    public CompletableFuture<List<Fruit>> getFruitsAsync(int offset, int limit) throws IOException {
+        return send(BinaryProtocol.PAGE, frame -> frame.putInt(offset).putInt(limit), (status, result) -> {
+            result.getInt(); // total, use getSize for it
+            return getFruits(result);
+        });
+    }
+
+    public CompletableFuture<Integer> getSizeAsync() throws IOException {
+        return send(BinaryProtocol.SIZE, frame -> { }, (status, result) -> result.getInt());
+    }
+
+    public CompletableFuture<Boolean> fruitExistsAsync(String name) throws IOException {
+        return send(BinaryProtocol.EXISTS, frame -> frame.putString(name), (status, result) -> result.get() != 0);
+    }
+
+    /**
+     * @param oldName Name of the fruit to update
+     * @param newValues Fruit holding the new name and attributes
+     * @return Future of true if updated, false if the fruit was not found or the new name is taken
+     */
+    public CompletableFuture<Boolean> updateFruitAsync(String oldName, Fruit newValues) throws IOException {
+        return send(BinaryProtocol.UPDATE, frame -> frame.putString(oldName).putFruit(newValues),
+                FruitBinaryClient::isOk);
+    }
+
+    public CompletableFuture<Boolean> updateAllAsync(List<FruitUpdate> updates) throws IOException {
+        return send(BinaryProtocol.UPDATE_ALL, frame -> {
+            frame.putInt(updates.size());
+            for (FruitUpdate update : updates) {
+                frame.putString(update.oldName()).putFruit(new Fruit(update.newName(), update.weight(),
+                        update.color(), update.isEdible(), update.caloriesPer100g()));
+            }
+        }, FruitBinaryClient::isOk);
+    }
+
+    public CompletableFuture<Boolean> removeFruitByNameAsync(String name) throws IOException {
+        return send(BinaryProtocol.REMOVE, frame -> frame.putString(name), FruitBinaryClient::isOk);
+    }
+
+    public CompletableFuture<Boolean> removeAllAsync(List<String> names) throws IOException {
+        return send(BinaryProtocol.REMOVE_ALL, frame -> {
+            frame.putInt(names.size());
+            names.forEach(frame::putString);
+        }, FruitBinaryClient::isOk);
+    }
+
+    public CompletableFuture<FruitManager.FruitStatistics> calculateStatisticsAsync() throws IOException {
+        return send(BinaryProtocol.STATISTICS, frame -> { }, (status, result) -> new FruitManager.FruitStatistics(
+                result.getInt(), result.getInt(), result.getInt(),
+                result.getDouble(), result.getDouble(), result.getDouble(),
+                result.get() != 0 ? BinaryProtocol.getFruit(result) : null));
+    }
+
+    // Single requests
+
+    public void addFruit(Fruit fruit) throws IOException {
+        await(addFruitAsync(fruit));
+    }
+
+    public void addAll(List<Fruit> fruits) throws IOException {
+        await(addAllAsync(fruits));
+    }
+
+    public Fruit searchFruitByExactName(String name) throws IOException {
+        return await(searchFruitByExactNameAsync(name));
+    }
+
+    public List<Fruit> searchFruitsByName(String name, int offset, int limit) throws IOException {
+        return await(searchFruitsByNameAsync(name, offset, limit));
+    }
+
+    public List<Fruit> getFruits(int offset, int limit) throws IOException {
+        return await(getFruitsAsync(offset, limit));
+    }
+
+    public int getSize() throws IOException {
+        return await(getSizeAsync());
+    }
+
+    public boolean fruitExists(String name) throws IOException {
+        return await(fruitExistsAsync(name));
+    }
+
+    public boolean updateFruit(String oldName, Fruit newValues) throws IOException {
+        return await(updateFruitAsync(oldName, newValues));
+    }
+
+    public boolean updateAll(List<FruitUpdate> updates) throws IOException {
+        return await(updateAllAsync(updates));
+    }
+
+    public boolean removeFruitByName(String name) throws IOException {
+        return await(removeFruitByNameAsync(name));
+    }
+
+    public boolean removeAll(List<String> names) throws IOException {
+        return await(removeAllAsync(names));
+    }
+
+    public FruitManager.FruitStatistics calculateStatistics() throws IOException {
+        return await(calculateStatisticsAsync());
+    }
+
+    /**
+     * Sends every queued request without waiting for the answers
+     */
+    public void flush() throws IOException {
+        // The channel is blocking, so this returns once everything is sent
+        out.writeTo(channel);
+    }
+
+    /**
+     * Sends every queued request and waits until all of them are answered
+     */
+    public void sync() throws IOException {
+        flush();
+        while (!pending.isEmpty()) {
+            readResponse();
+        }
+    }
+
+    /**
+     * Waits for the outstanding answers and closes the connection
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private <T> CompletableFuture<T> send(byte opcode, Consumer<FrameBuffer> arguments, Decoder<T> decoder)
+            throws IOException {
+        int requestId = nextRequestId++;
+        out.begin().putByte(opcode).putInt(requestId);
+        try {
+            arguments.accept(out);
+            out.end();
+        } catch (IllegalArgumentException e) {
+            out.abandon();
+            throw e;
+        }
+
+        Pending<T> request = new Pending<>(requestId, decoder, new CompletableFuture<>());
+        pending.add(request);
+        if (pending.size() >= maxInFlight) {
+            sync();
+        } else if (out.pending() >= BUFFER_SIZE) {
+            flush();
+        }
+        return request.future();
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws IOException {
+        sync();
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads one response frame and completes the oldest pending request with it
+     */
+    private void readResponse() throws IOException {
+        while (in.position() < 4 || in.position() < 4 + in.getInt(0)) {
+            if (in.position() >= 4) {
+                int length = in.getInt(0);
+                if (length < 5 || length > BinaryProtocol.MAX_FRAME_BYTES) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                if (length + 4 > in.capacity()) {
+                    ByteBuffer larger = ByteBuffer.allocate(Math.max(length + 4, in.capacity() * 2));
+                    in.flip();
+                    larger.put(in);
+                    in = larger;
+                }
+            }
+            if (channel.read(in) < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+        }
+
+        int end = 4 + in.getInt(0);
+        int filled = in.position();
+        in.flip();
+        in.position(4).limit(end);
+        int requestId = in.getInt();
+        byte status = in.get();
+        Pending<?> request = pending.poll();
+        if (request == null || request.requestId() != requestId) {
+            throw new IOException("Response " + requestId + " does not match the oldest request");
+        }
+        request.complete(status, in);
+        in.limit(filled).position(end);
+        in.compact();
+    }
+
+    private static List<Fruit> getFruits(ByteBuffer result) {
+        int count = result.getInt();
+        List<Fruit> fruits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            fruits.add(BinaryProtocol.getFruit(result));
+        }
+        return fruits;
+    }
+
+    private static Void none(byte status, ByteBuffer result) {
+        return null;
+    }
+
+    private static Boolean isOk(byte status, ByteBuffer result) {
+        return status == BinaryProtocol.OK;
+    }
+}
@@ -0,0 +1,449 @@
+package api;
+
+import interfaces.IFruitManager;
+import model.Fruit;
+import model.FruitUpdate;
+import persistence.DurableFruitManager;
+import service.FruitManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * NIO server speaking the length-prefixed BinaryProtocol, for clients that move many fruits
+ *
+ * One selector thread serves every connection. Requests are decoded in place from the
+ * connection's read buffer; all complete frames that arrived together are executed under one
+ * lock acquisition and their responses leave in a single write, so pipelined requests cost one
+ * system call per round instead of one per request. The batch opcodes map to addAll, updateAll
+ * and removeAll, which the managers apply with shared index and log maintenance.
+ * Changes to a DurableFruitManager are not waited for on the selector thread: the lock is released
+ * at once and the connection's responses are held back until the log reports them durable.
+ */
+public class FruitBinaryServer implements Closeable {
+    private static final int READ_BUFFER_SIZE = 64 << 10;
+    private static final int WRITE_BUFFER_SIZE = 64 << 10;
+    // A client that keeps sending without reading its responses is disconnected past this
+    private static final int MAX_PENDING_OUTPUT = 64 << 20;
+
+    private final IFruitManager fruitManager;
+    private final ReadWriteLock lock;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Thread eventLoop;
+    // Connections whose logged changes became durable, or failed to, since the selector last woke up
+    private final Queue<Durability> durable;
+    private volatile boolean running;
+
+    /**
+     * Per-connection buffers; only touched by the selector thread
+     */
+    private static final class Connection {
+        private ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private final FrameBuffer out = new FrameBuffer(WRITE_BUFFER_SIZE);
+        // Logged changes whose responses are buffered until the log has made them durable
+        private int awaitingDurability;
+    }
+
+    private record Durability(SelectionKey key, Throwable error) {
+    }
+
+    /**
+     * Binds the port; call start to accept connections
+     * @param fruitManager Collection to serve
+     * @param port TCP port, or 0 for any free port
+     * @param lock Lock shared with the other front-ends serving the same collection
+     * @throws IOException if the port cannot be bound
+     */
+    public FruitBinaryServer(IFruitManager fruitManager, int port, ReadWriteLock lock) throws IOException {
+        this.fruitManager = fruitManager;
+        this.lock = lock;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        this.eventLoop = new Thread(this::runEventLoop, "fruit-binary-server");
+        this.durable = new ConcurrentLinkedQueue<>();
+    }
+
+    public void start() {
+        running = true;
+        eventLoop.start();
+    }
+
+    /**
+     * @return Port the server listens on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Stops the selector thread and closes every connection
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            eventLoop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+    }
+
+    private void runEventLoop() {
+        try {
+            while (running) {
+                selector.select();
+                releaseDurableResponses();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) continue;
+                    try {
+                        if (key.isAcceptable()) {
+                            accept();
+                        } else {
+                            if (key.isWritable()) {
+                                flush(key);
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                read(key);
+                            }
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // The client went away, broke the protocol or left its buffers in an unknown
+                        // state; the other connections carry on
+                        disconnect(key);
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            running = false;
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection());
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        SocketChannel channel = (SocketChannel) key.channel();
+        if (channel.read(connection.in) < 0) {
+            channel.close();
+            return;
+        }
+
+        connection.in.flip();
+        processFrames(key, connection);
+        connection.in.compact();
+        flush(key);
+    }
+
+    /**
+     * Sends the responses held back for changes the log has since made durable
+     */
+    private void releaseDurableResponses() {
+        Durability notice;
+        while ((notice = durable.poll()) != null) {
+            SelectionKey key = notice.key();
+            if (!key.isValid()) continue;
+            if (notice.error() != null) {
+                // The responses already claim success, so the client must not receive them
+                disconnect(key);
+                continue;
+            }
+            ((Connection) key.attachment()).awaitingDurability--;
+            try {
+                flush(key);
+            } catch (IOException | RuntimeException e) {
+                disconnect(key);
+            }
+        }
+    }
+
+    /**
+     * Executes every complete frame in the read buffer and grows it if the next frame does not fit
+     */
+    private void processFrames(SelectionKey key, Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        List<Integer> frames = new ArrayList<>();
+        boolean writes = false;
+        int position = in.position();
+        while (in.limit() - position >= 4) {
+            int length = in.getInt(position);
+            if (length < 5 || length > BinaryProtocol.MAX_FRAME_BYTES) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            if (in.limit() - position - 4 < length) {
+                if (length + 4 > in.capacity()) {
+                    connection.in = grow(in, length + 4);
+                    in = connection.in;
+                }
+                break;
+            }
+            frames.add(position);
+            writes |= BinaryProtocol.isWrite(in.get(position + 4));
+            position += 4 + length;
+        }
+        if (frames.isEmpty()) return;
+
+        ByteBuffer request = in;
+        int end = position;
+        Supplier<Void> executeFrames = () -> executeFrames(request, frames, end, connection.out);
+        if (!writes || !(fruitManager instanceof DurableFruitManager durableManager)) {
+            Lock held = writes ? lock.writeLock() : lock.readLock();
+            held.lock();
+            try {
+                executeFrames.get();
+            } finally {
+                held.unlock();
+            }
+        } else {
+            long logPosition;
+            lock.writeLock().lock();
+            try {
+                logPosition = durableManager.applyDeferred(executeFrames).position();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            CompletableFuture<Void> logged = durableManager.whenDurable(logPosition);
+            if (!logged.isDone() || logged.isCompletedExceptionally()) {
+                connection.awaitingDurability++;
+                logged.whenComplete((ignored, error) -> {
+                    durable.add(new Durability(key, error));
+                    selector.wakeup();
+                });
+            }
+        }
+        if (connection.out.pending() > MAX_PENDING_OUTPUT) {
+            throw new IOException("Client is not reading its responses");
+        }
+    }
+
+    /**
+     * Runs the complete frames starting at the given positions and leaves the buffer past the last one
+     */
+    private Void executeFrames(ByteBuffer in, List<Integer> frames, int end, FrameBuffer out) {
+        int limit = in.limit();
+        for (int start : frames) {
+            in.limit(start + 4 + in.getInt(start));
+            in.position(start + 4);
+            execute(in, out);
+            in.limit(limit);
+        }
+        in.position(end);
+        return null;
+    }
+
+    /**
+     * Runs one request and appends its response
+     */
+    private void execute(ByteBuffer request, FrameBuffer out) {
+        byte opcode = request.get();
+        int requestId = request.getInt();
+        out.begin().putInt(requestId);
+        try {
+            respond(opcode, request, out);
+            if (request.hasRemaining()) {
+                throw new IllegalArgumentException("Unexpected bytes after the arguments");
+            }
+            out.end();
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            out.abandon();
+            String message = e instanceof BufferUnderflowException ? "Truncated request" : e.getMessage();
+            out.begin().putInt(requestId).putByte(BinaryProtocol.BAD_REQUEST).putString(String.valueOf(message));
+            out.end();
+        } catch (RuntimeException e) {
+            // The manager failed, for example because the log cannot be written; the frame was
+            // consumed whole, so the connection stays in step and the next request still runs
+            out.abandon();
+            String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            out.begin().putInt(requestId).putByte(BinaryProtocol.FAILED).putString(message);
+            out.end();
+        }
+    }
+
+    private void respond(byte opcode, ByteBuffer request, FrameBuffer out) {
+        switch (opcode) {
+            case BinaryProtocol.ADD -> {
+                fruitManager.addFruit(validate(BinaryProtocol.getFruit(request)));
+                out.putByte(BinaryProtocol.OK);
+            }
+            case BinaryProtocol.ADD_ALL -> {
+                int count = count(request);
+                List<Fruit> fruits = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    fruits.add(validate(BinaryProtocol.getFruit(request)));
+                }
+                fruitManager.addAll(fruits);
+                out.putByte(BinaryProtocol.OK);
+            }
+            case BinaryProtocol.GET -> {
+                Fruit fruit = fruitManager.searchFruitByExactName(BinaryProtocol.getString(request));
+                if (fruit == null) {
+                    out.putByte(BinaryProtocol.NOT_FOUND);
+                } else {
+                    out.putByte(BinaryProtocol.OK).putFruit(fruit);
+                }
+            }
+            case BinaryProtocol.SEARCH -> {
+                String name = BinaryProtocol.getString(request);
+                List<Fruit> fruits = fruitManager.searchFruitsByName(name, nonNegative(request), nonNegative(request));
+                putFruits(out.putByte(BinaryProtocol.OK), fruits);
+            }
+            case BinaryProtocol.PAGE -> {
+                int offset = nonNegative(request);
+                int limit = nonNegative(request);
+                out.putByte(BinaryProtocol.OK).putInt(fruitManager.getSize());
+                putFruits(out, fruitManager.getFruits(offset, limit));
+            }
+            case BinaryProtocol.UPDATE -> {
+                FruitUpdate update = getUpdate(request);
+                boolean updated = fruitManager.updateFruit(update.oldName(), update.newName(), update.weight(),
+                        update.color(), update.isEdible(), update.caloriesPer100g());
+                out.putByte(updated ? BinaryProtocol.OK : BinaryProtocol.REJECTED);
+            }
+            case BinaryProtocol.UPDATE_ALL -> {
+                int count = count(request);
+                List<FruitUpdate> updates = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    updates.add(getUpdate(request));
+                }
+                out.putByte(fruitManager.updateAll(updates) ? BinaryProtocol.OK : BinaryProtocol.REJECTED);
+            }
+            case BinaryProtocol.REMOVE -> {
+                boolean removed = fruitManager.removeFruitByName(BinaryProtocol.getString(request));
+                out.putByte(removed ? BinaryProtocol.OK : BinaryProtocol.NOT_FOUND);
+            }
+            case BinaryProtocol.REMOVE_ALL -> {
+                int count = count(request);
+                List<String> names = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    names.add(BinaryProtocol.getString(request));
+                }
+                out.putByte(fruitManager.removeAll(names) ? BinaryProtocol.OK : BinaryProtocol.REJECTED);
+            }
+            case BinaryProtocol.EXISTS -> {
+                boolean exists = fruitManager.fruitExists(BinaryProtocol.getString(request));
+                out.putByte(BinaryProtocol.OK).putBoolean(exists);
+            }
+            case BinaryProtocol.SIZE -> out.putByte(BinaryProtocol.OK).putInt(fruitManager.getSize());
+            case BinaryProtocol.STATISTICS -> {
+                FruitManager.FruitStatistics statistics = fruitManager.calculateStatistics();
+                out.putByte(BinaryProtocol.OK)
+                        .putInt(statistics.getTotalFruits())
+                        .putInt(statistics.getHealthyFruits())
+                        .putInt(statistics.getEdibleFruits())
+                        .putDouble(statistics.getHealthyPercentage())
+                        .putDouble(statistics.getEdiblePercentage())
+                        .putDouble(statistics.getAverageCaloriesPer100g());
+                Fruit heaviest = statistics.getHeaviestFruit();
+                out.putBoolean(heaviest != null);
+                if (heaviest != null) {
+                    out.putFruit(heaviest);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown opcode " + opcode);
+        }
+    }
+
+    private static FruitUpdate getUpdate(ByteBuffer request) {
+        String oldName = BinaryProtocol.getString(request);
+        Fruit values = validate(BinaryProtocol.getFruit(request));
+        return new FruitUpdate(oldName, values.getName(), values.getWeight(), values.getColor(),
+                values.isEdible(), values.getCaloriesPer100g());
+    }
+
+    private static void putFruits(FrameBuffer out, List<Fruit> fruits) {
+        out.putInt(fruits.size());
+        for (Fruit fruit : fruits) {
+            out.putFruit(fruit);
+        }
+    }
+
+    /**
+     * Applies the same rules as the add dialog
+     */
+    private static Fruit validate(Fruit fruit) {
+        if (fruit.getName().isBlank() || fruit.getColor().isBlank()) {
+            throw new IllegalArgumentException("Name and color cannot be empty");
+        }
+        if (fruit.getWeight() <= 0 || fruit.getCaloriesPer100g() <= 0) {
+            throw new IllegalArgumentException("Weight and calories must be greater than 0");
+        }
+        return fruit;
+    }
+
+    private static int count(ByteBuffer request) {
+        int count = nonNegative(request);
+        // Every item takes at least 4 bytes, which bounds the list before it is allocated
+        if (count > request.remaining() / 4) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    private static int nonNegative(ByteBuffer request) {
+        int value = request.getInt();
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative count, offset or limit");
+        }
+        return value;
+    }
+
+    private static void flush(SelectionKey key) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        if (connection.awaitingDurability > 0) {
+            key.interestOps(SelectionKey.OP_READ);
+            return;
+        }
+        boolean sent = connection.out.writeTo((SocketChannel) key.channel());
+        key.interestOps(sent ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+    }
+
+    /**
+     * Closes a connection whose state can no longer be trusted, without disturbing the others
+     */
+    private static void disconnect(SelectionKey key) {
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // The key is cancelled either way, so the selector forgets the connection
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(capacity, buffer.capacity() * 2));
+        larger.put(buffer);
+        larger.flip();
+        return larger;
+    }
+}
@@ -0,0 +1,432 @@
+package api;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import constants.FruitConstants;
+import interfaces.IFruitManager;
+import model.Fruit;
+import persistence.DurableFruitManager;
+import service.FruitManager;
+import util.JsonObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Headless JSON-over-HTTP front-end for an IFruitManager, built on the JDK HttpServer
+ *
+ *   GET    /fruits?offset=0&limit=50       one page of the collection, with the total
+ *   GET    /fruits?name=app&offset&limit   partial, case-insensitive name search
+ *   GET    /fruits/{name}                  fruit with exactly this name
+ *   POST   /fruits[?duplicates=allow]      add the fruit in the body
+ *   PUT    /fruits/{name}                  replace every attribute of a fruit
+ *   PATCH  /fruits/{name}                  change only the attributes in the body
+ *   DELETE /fruits/{name}                  remove every fruit with exactly this name
+ *   GET    /compare?first=A&second=B       compare two fruits
+ *   GET    /statistics                     collection statistics and fruits per color
+ *   GET    /statistics/grouped             statistics per color, health and weight range
+ *   GET    /statistics/approximate         sketch estimates with their error bounds
+ *   GET    /statistics/distributions       percentiles and histograms of weight and calories
+ *
+ * Fruit bodies are flat JSON objects with "name", "color", "weight", "calories" and "edible".
+ * Each request is handled on its own virtual thread. The managers are not thread-safe, so reads
+ * share a read lock and changes take the write lock; responses are built while the lock is held
+ * because fruits returned by some managers are views that a later change can move. Changes to a
+ * DurableFruitManager wait for its log only after the write lock is released, so concurrent
+ * writers share one fsync.
+ */
+public class FruitHttpServer {
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final IFruitManager fruitManager;
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ReadWriteLock lock;
+
+    /**
+     * Creates a server bound to a port; call start to accept requests
+     * @param fruitManager Collection to serve
+     * @param port TCP port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public FruitHttpServer(IFruitManager fruitManager, int port) throws IOException {
+        this(fruitManager, port, new ReentrantReadWriteLock());
+    }
+
+    /**
+     * Creates a server that shares its lock with other front-ends serving the same collection
+     * @param fruitManager Collection to serve
+     * @param port TCP port, or 0 for any free port
+     * @param lock Lock guarding the collection
+     * @throws IOException if the port cannot be bound
+     */
+    public FruitHttpServer(IFruitManager fruitManager, int port, ReadWriteLock lock) throws IOException {
+        this.fruitManager = fruitManager;
+        this.lock = lock;
+        // Headers and body are written separately; without TCP_NODELAY every kept-alive request
+        // waits about 40 ms for the client's delayed ACK. Read once, when the first server is created.
+        System.getProperties().putIfAbsent("sun.net.httpserver.nodelay", "true");
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.handlers = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(handlers);
+        server.createContext("/fruits", exchange -> handle(exchange, this::fruits));
+        server.createContext("/compare", exchange -> handle(exchange, this::compare));
+        server.createContext("/statistics", exchange -> handle(exchange, this::statistics));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits up to a second for the running ones
+     */
+    public void stop() {
+        server.stop(1);
+        handlers.close();
+    }
+
+    /**
+     * @return Port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Status and JSON body of a response
+     */
+    private record Response(int status, String body) {
+        static Response ok(String body) {
+            return new Response(200, body);
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, FruitJson.error(message));
+        }
+    }
+
+    private interface Handler {
+        Response handle(HttpExchange exchange) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        Response response;
+        try {
+            response = handler.handle(exchange);
+        } catch (IllegalArgumentException e) {
+            response = Response.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            response = Response.error(500, "Internal error: " + e.getMessage());
+        }
+
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", JSON);
+            if (response.body() == null) {
+                exchange.sendResponseHeaders(response.status(), -1);
+                return;
+            }
+            byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(response.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private Response fruits(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        if (path.equals("/fruits") || path.equals("/fruits/")) {
+            return switch (method) {
+                case "GET" -> query.containsKey("name") ? search(query) : page(query);
+                case "POST" -> add(readBody(exchange), "allow".equals(query.get("duplicates")), exchange);
+                default -> methodNotAllowed(exchange, "GET, POST");
+            };
+        }
+
+        if (!path.startsWith("/fruits/")) {
+            return Response.error(404, "Unknown path " + path);
+        }
+        String name = path.substring("/fruits/".length());
+        return switch (method) {
+            case "GET" -> read(() -> {
+                Fruit fruit = fruitManager.searchFruitByExactName(name);
+                return fruit == null ? notFound(name) : Response.ok(FruitJson.appendFruit(new StringBuilder(), fruit).toString());
+            });
+            case "PUT" -> update(name, readBody(exchange), false);
+            case "PATCH" -> update(name, readBody(exchange), true);
+            case "DELETE" -> write(() -> fruitManager.removeFruitByName(name)) ? new Response(204, null) : notFound(name);
+            default -> methodNotAllowed(exchange, "GET, PUT, PATCH, DELETE");
+        };
+    }
+
+    private Response page(Map<String, String> query) {
+        int offset = intParameter(query, "offset", 0);
+        int limit = limitParameter(query);
+        StringBuilder sb = new StringBuilder(256 + limit * 160);
+        read(() -> {
+            int total = fruitManager.getSize();
+            List<Fruit> fruits = fruitManager.getFruits(offset, limit);
+            sb.append("{\"offset\":").append(offset).append(",\"limit\":").append(limit);
+            sb.append(",\"total\":").append(total);
+            sb.append(",\"hasMore\":").append(offset + fruits.size() < total);
+            sb.append(",\"fruits\":");
+            FruitJson.appendFruits(sb, fruits).append('}');
+            return null;
+        });
+        return Response.ok(sb.toString());
+    }
+
+    private Response search(Map<String, String> query) {
+        String name = query.get("name");
+        int offset = intParameter(query, "offset", 0);
+        int limit = limitParameter(query);
+        StringBuilder sb = new StringBuilder(256 + limit * 160);
+        read(() -> {
+            // One extra match tells whether another page exists without counting every match
+            List<Fruit> matches = fruitManager.searchFruitsByName(name, offset, limit + 1);
+            boolean hasMore = matches.size() > limit;
+            sb.append("{\"offset\":").append(offset).append(",\"limit\":").append(limit);
+            sb.append(",\"hasMore\":").append(hasMore);
+            sb.append(",\"fruits\":");
+            return FruitJson.appendFruits(sb, hasMore ? matches.subList(0, limit) : matches).append('}');
+        });
+        return Response.ok(sb.toString());
+    }
+
+    private Response add(String body, boolean allowDuplicates, HttpExchange exchange) {
+        Map<String, Object> fields = JsonObjectReader.readObject(body);
+        Fruit fruit = new Fruit(requireText(fields, "name"), requirePositive(fields, "weight"),
+                requireText(fields, "color"), requireBoolean(fields, "edible"), requirePositive(fields, "calories"));
+
+        String name = fruit.getName();
+        Response response = write(() -> {
+            if (!allowDuplicates && fruitManager.fruitExists(name)) {
+                return Response.error(409, "A fruit named '" + name + "' already exists; add ?duplicates=allow to add it anyway");
+            }
+            fruitManager.addFruit(fruit);
+            return new Response(201, FruitJson.appendFruit(new StringBuilder(), fruit).toString());
+        });
+        if (response.status() == 201) {
+            exchange.getResponseHeaders().set("Location", "/fruits/" + URLEncoder.encode(name, StandardCharsets.UTF_8).replace("+", "%20"));
+        }
+        return response;
+    }
+
+    /**
+     * Replaces or patches a fruit with one updateFruit call, so the change is logged and applied at once
+     */
+    private Response update(String name, String body, boolean partial) {
+        Map<String, Object> fields = JsonObjectReader.readObject(body);
+        return write(() -> {
+            Fruit current = fruitManager.searchFruitByExactName(name);
+            if (current == null) {
+                return notFound(name);
+            }
+            String newName = partial && !fields.containsKey("name") ? current.getName() : requireText(fields, "name");
+            String color = partial && !fields.containsKey("color") ? current.getColor() : requireText(fields, "color");
+            int weight = partial && !fields.containsKey("weight") ? current.getWeight() : requirePositive(fields, "weight");
+            int calories = partial && !fields.containsKey("calories") ? current.getCaloriesPer100g() : requirePositive(fields, "calories");
+            boolean edible = partial && !fields.containsKey("edible") ? current.isEdible() : requireBoolean(fields, "edible");
+            if (!fruitManager.updateFruit(name, newName, weight, color, edible, calories)) {
+                return Response.error(409, "A fruit named '" + newName + "' already exists");
+            }
+            Fruit updated = fruitManager.searchFruitByExactName(newName);
+            return Response.ok(FruitJson.appendFruit(new StringBuilder(), updated).toString());
+        });
+    }
+
+    private Response compare(HttpExchange exchange) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return methodNotAllowed(exchange, "GET");
+        }
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String firstName = requireParameter(query, "first");
+        String secondName = requireParameter(query, "second");
+        return read(() -> {
+            Fruit first = fruitManager.searchFruitByExactName(firstName);
+            Fruit second = fruitManager.searchFruitByExactName(secondName);
+            if (first == null) return notFound(firstName);
+            if (second == null) return notFound(secondName);
+            return compare(first, second);
+        });
+    }
+
+    private static Response compare(Fruit first, Fruit second) {
+        StringBuilder sb = new StringBuilder("{\"first\":");
+        FruitJson.appendFruit(sb, first).append(",\"second\":");
+        FruitJson.appendFruit(sb, second).append(",\"heavier\":");
+        if (first.isHeavierThan(second)) {
+            FruitJson.appendString(sb, first.getName());
+        } else if (second.isHeavierThan(first)) {
+            FruitJson.appendString(sb, second.getName());
+        } else {
+            sb.append("null");
+        }
+        sb.append(",\"weightDifference\":").append(Math.abs(first.getWeight() - second.getWeight()));
+        sb.append(",\"calorieDifference\":").append(Math.round(Math.abs(first.getTotalCalories() - second.getTotalCalories()) * 10) / 10.0);
+        return Response.ok(sb.append('}').toString());
+    }
+
+    private Response statistics(HttpExchange exchange) {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            return methodNotAllowed(exchange, "GET");
+        }
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals("/statistics/grouped")) {
+            StringBuilder sb = new StringBuilder(4096);
+            read(() -> FruitJson.appendGroupedStatistics(sb, fruitManager.calculateGroupedStatistics()));
+            return Response.ok(sb.toString());
+        }
+        if (path.equals("/statistics/approximate")) {
+            StringBuilder sb = new StringBuilder(1024);
+            read(() -> FruitJson.appendApproximateStatistics(sb, fruitManager.calculateApproximateStatistics()));
+            return Response.ok(sb.toString());
+        }
+        if (path.equals("/statistics/distributions")) {
+            StringBuilder sb = new StringBuilder(2048);
+            read(() -> FruitJson.appendDistributionStatistics(sb, fruitManager.calculateDistributionStatistics()));
+            return Response.ok(sb.toString());
+        }
+        if (!path.equals("/statistics") && !path.equals("/statistics/")) {
+            return Response.error(404, "Unknown path " + path);
+        }
+        StringBuilder sb = new StringBuilder(512);
+        read(() -> {
+            FruitManager.FruitStatistics statistics = fruitManager.calculateStatistics();
+            return FruitJson.appendStatistics(sb, statistics, fruitManager.countFruitsByColor());
+        });
+        return Response.ok(sb.toString());
+    }
+
+    private <T> T read(Supplier<T> operation) {
+        lock.readLock().lock();
+        try {
+            return operation.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs changes under the write lock; a durable manager is only waited for once the lock is
+     * released, so writers queued behind it share the next log flush
+     */
+    private <T> T write(Supplier<T> operation) {
+        if (!(fruitManager instanceof DurableFruitManager durable)) {
+            lock.writeLock().lock();
+            try {
+                return operation.get();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        DurableFruitManager.Deferred<T> applied;
+        lock.writeLock().lock();
+        try {
+            applied = durable.applyDeferred(operation);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        durable.awaitDurable(applied.position());
+        return applied.result();
+    }
+
+    private static Response notFound(String name) {
+        return Response.error(404, "No fruit named '" + name + "'");
+    }
+
+    private static Response methodNotAllowed(HttpExchange exchange, String allowed) {
+        exchange.getResponseHeaders().set("Allow", allowed);
+        return Response.error(405, "Method " + exchange.getRequestMethod() + " not allowed, use " + allowed);
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static String requireParameter(Map<String, String> query, String key) {
+        String value = query.get(key);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing query parameter '" + key + "'");
+        }
+        return value;
+    }
+
+    private static int intParameter(Map<String, String> query, String key, int defaultValue) {
+        String value = query.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int number = Integer.parseInt(value);
+            if (number < 0) {
+                throw new IllegalArgumentException("'" + key + "' cannot be negative");
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + key + "' must be a whole number");
+        }
+    }
+
+    private static int limitParameter(Map<String, String> query) {
+        int limit = intParameter(query, "limit", FruitConstants.API_DEFAULT_PAGE_SIZE);
+        if (limit < 1 || limit > FruitConstants.API_MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("'limit' must be between 1 and " + FruitConstants.API_MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    private static String requireText(Map<String, Object> fields, String key) {
+        if (!(fields.get(key) instanceof String text) || text.isBlank()) {
+            throw new IllegalArgumentException("\"" + key + "\" must be a non-empty string");
+        }
+        return text.trim();
+    }
+
+    private static int requirePositive(Map<String, Object> fields, String key) {
+        if (!(fields.get(key) instanceof Long number) || number <= 0 || number > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("\"" + key + "\" must be a whole number greater than 0");
+        }
+        return number.intValue();
+    }
+
+    private static boolean requireBoolean(Map<String, Object> fields, String key) {
+        if (!(fields.get(key) instanceof Boolean value)) {
+            throw new IllegalArgumentException("\"" + key + "\" must be true or false");
+        }
+        return value;
+    }
+}
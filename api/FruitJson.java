@@ -0,0 +1,196 @@
+package api;
+
+import model.Fruit;
+import service.ApproximateStatistics;
+import service.DistributionStatistics;
+import service.FruitManager;
+import service.GroupedStatistics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleToIntFunction;
+
+/**
+ * Writes fruits and statistics as JSON for the network front-ends
+ */
+final class FruitJson {
+
+    // Private constructor to prevent instantiation
+    private FruitJson() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Appends one fruit as a JSON object, including its derived values
+     */
+    static StringBuilder appendFruit(StringBuilder sb, Fruit fruit) {
+        sb.append("{\"name\":");
+        appendString(sb, fruit.getName());
+        sb.append(",\"color\":");
+        appendString(sb, fruit.getColor());
+        sb.append(",\"weight\":").append(fruit.getWeight());
+        sb.append(",\"calories\":").append(fruit.getCaloriesPer100g());
+        sb.append(",\"edible\":").append(fruit.isEdible());
+        sb.append(",\"totalCalories\":").append(fruit.getTotalCalories());
+        sb.append(",\"healthy\":").append(fruit.isHealthy());
+        sb.append(",\"canBeEaten\":").append(fruit.canBeEaten());
+        return sb.append('}');
+    }
+
+    /**
+     * Appends a JSON array of fruits
+     */
+    static StringBuilder appendFruits(StringBuilder sb, List<Fruit> fruits) {
+        sb.append('[');
+        for (int i = 0; i < fruits.size(); i++) {
+            if (i > 0) sb.append(',');
+            appendFruit(sb, fruits.get(i));
+        }
+        return sb.append(']');
+    }
+
+    /**
+     * Appends the statistics and the number of fruits per color as a JSON object
+     */
+    static StringBuilder appendStatistics(StringBuilder sb, FruitManager.FruitStatistics statistics,
+                                          Map<String, Integer> countByColor) {
+        sb.append('{');
+        appendStatisticsFields(sb, statistics);
+        sb.append(",\"countByColor\":{");
+        boolean first = true;
+        for (Map.Entry<String, Integer> entry : countByColor.entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            appendString(sb, entry.getKey()).append(':').append(entry.getValue());
+        }
+        return sb.append("}}");
+    }
+
+    /**
+     * Appends the overall statistics and each group of them as a JSON object keyed by group name
+     */
+    static StringBuilder appendGroupedStatistics(StringBuilder sb, GroupedStatistics statistics) {
+        sb.append("{\"overall\":{");
+        appendStatisticsFields(sb, statistics.getOverall()).append('}');
+        appendGroups(sb.append(",\"byColor\":"), statistics.getByColor());
+        appendGroups(sb.append(",\"byHealth\":"), statistics.getByHealth());
+        appendGroups(sb.append(",\"byWeight\":"), statistics.getByWeight());
+        return sb.append('}');
+    }
+
+    /**
+     * Appends the sketch estimates, the p50, p90 and p99 quantiles and the error bounds as a JSON object
+     */
+    static StringBuilder appendApproximateStatistics(StringBuilder sb, ApproximateStatistics statistics) {
+        sb.append("{\"totalFruits\":").append(statistics.getTotalFruits());
+        sb.append(",\"distinctNames\":").append(statistics.getDistinctNames());
+        sb.append(",\"distinctColors\":").append(statistics.getDistinctColors());
+        sb.append(",\"weightQuantiles\":");
+        appendQuantiles(sb, statistics::getWeightQuantile);
+        sb.append(",\"calorieQuantiles\":");
+        appendQuantiles(sb, statistics::getCalorieQuantile);
+        sb.append(",\"mostCommonColors\":{");
+        boolean first = true;
+        for (Map.Entry<String, Long> color : statistics.getMostCommonColors().entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            appendString(sb, color.getKey()).append(':').append(color.getValue());
+        }
+        sb.append("},\"errors\":{\"distinctRelative\":").append(statistics.getDistinctError());
+        sb.append(",\"quantileRank\":").append(statistics.getRankError());
+        sb.append(",\"colorCount\":").append(statistics.getColorCountError());
+        sb.append(",\"colorCountFailureProbability\":").append(statistics.getColorCountFailureProbability());
+        return sb.append("}}");
+    }
+
+    /**
+     * Appends the percentiles and histograms of each attribute as a JSON object
+     */
+    static StringBuilder appendDistributionStatistics(StringBuilder sb, DistributionStatistics statistics) {
+        appendDistribution(sb.append("{\"weight\":"), statistics.getWeight());
+        appendDistribution(sb.append(",\"caloriesPer100g\":"), statistics.getCaloriesPer100g());
+        appendDistribution(sb.append(",\"totalCalories\":"), statistics.getTotalCalories());
+        return sb.append('}');
+    }
+
+    private static void appendDistribution(StringBuilder sb, DistributionStatistics.Distribution distribution) {
+        sb.append("{\"unit\":");
+        appendString(sb, distribution.getUnit());
+        sb.append(",\"count\":").append(distribution.getCount());
+        sb.append(",\"min\":").append(distribution.getMin());
+        sb.append(",\"p50\":").append(distribution.getP50());
+        sb.append(",\"p90\":").append(distribution.getP90());
+        sb.append(",\"p99\":").append(distribution.getP99());
+        sb.append(",\"max\":").append(distribution.getMax());
+        sb.append(",\"histogram\":{");
+        boolean first = true;
+        for (Map.Entry<String, Long> bucket : distribution.getHistogram().entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            appendString(sb, bucket.getKey()).append(':').append(bucket.getValue());
+        }
+        sb.append("}}");
+    }
+
+    private static void appendQuantiles(StringBuilder sb, DoubleToIntFunction quantile) {
+        sb.append("{\"p50\":").append(quantile.applyAsInt(0.5));
+        sb.append(",\"p90\":").append(quantile.applyAsInt(0.9));
+        sb.append(",\"p99\":").append(quantile.applyAsInt(0.99)).append('}');
+    }
+
+    private static void appendGroups(StringBuilder sb, Map<String, FruitManager.FruitStatistics> groups) {
+        sb.append('{');
+        boolean first = true;
+        for (Map.Entry<String, FruitManager.FruitStatistics> group : groups.entrySet()) {
+            if (!first) sb.append(',');
+            first = false;
+            appendString(sb, group.getKey()).append(":{");
+            appendStatisticsFields(sb, group.getValue()).append('}');
+        }
+        sb.append('}');
+    }
+
+    private static StringBuilder appendStatisticsFields(StringBuilder sb, FruitManager.FruitStatistics statistics) {
+        sb.append("\"totalFruits\":").append(statistics.getTotalFruits());
+        sb.append(",\"healthyFruits\":").append(statistics.getHealthyFruits());
+        sb.append(",\"edibleFruits\":").append(statistics.getEdibleFruits());
+        sb.append(",\"healthyPercentage\":").append(statistics.getHealthyPercentage());
+        sb.append(",\"ediblePercentage\":").append(statistics.getEdiblePercentage());
+        sb.append(",\"averageCaloriesPer100g\":").append(statistics.getAverageCaloriesPer100g());
+        sb.append(",\"heaviestFruit\":");
+        Fruit heaviest = statistics.getHeaviestFruit();
+        return heaviest == null ? sb.append("null") : appendString(sb, heaviest.getName());
+    }
+
+    /**
+     * Builds an error body
+     */
+    static String error(String message) {
+        return appendString(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+
+    /**
+     * Appends a quoted, escaped JSON string
+     */
+    static StringBuilder appendString(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"');
+    }
+}
@@ -0,0 +1,128 @@
+package benchmark;
+
+import interfaces.IFruitManager;
+import model.Fruit;
+import model.FruitUpdate;
+import service.ColumnarFruitManager;
+import service.ConcurrentFruitManager;
+import service.IndexedFruitManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Measures the per-item cost of addAll, updateAll and removeAll at batch sizes from 1 to 100k
+ * Each run starts from a collection of baseSize fruits, then adds, renames and removes itemCount
+ * more fruits in batches of the given size. The "single" row uses addFruit, updateFruit and
+ * removeFruitByName one item at a time for comparison.
+ *
+ * Usage: java benchmark.BatchMutationBenchmark [baseSize] [itemCount]
+ */
+public class BatchMutationBenchmark {
+    private static final int[] BATCH_SIZES = {1, 10, 100, 1_000, 10_000, 100_000};
+    private static final String[] COLORS = {"Red", "Green", "Brown", "Yellow", "Orange", "Purple"};
+
+    public static void main(String[] args) {
+        int baseSize = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int itemCount = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        run("IndexedFruitManager", IndexedFruitManager::new, baseSize, itemCount);
+        run("ConcurrentFruitManager", ConcurrentFruitManager::new, baseSize, itemCount);
+        run("ColumnarFruitManager", ColumnarFruitManager::new, baseSize, itemCount);
+    }
+
+    private static void run(String label, Supplier<IFruitManager> factory, int baseSize, int itemCount) {
+        System.out.printf("%n%s, %,d fruits + %,d items (ns per item)%n", label, baseSize, itemCount);
+        System.out.printf("%10s %10s %10s %10s%n", "batch", "add", "update", "remove");
+
+        // Warm up the JIT on the batch path and the single-item path
+        measure(factory, Math.min(baseSize, 10_000), Math.min(itemCount, 10_000), 100);
+        measure(factory, Math.min(baseSize, 10_000), Math.min(itemCount, 10_000), 0);
+
+        print("single", measure(factory, baseSize, itemCount, 0), itemCount);
+        for (int batchSize : BATCH_SIZES) {
+            if (batchSize > itemCount) break;
+            print(String.format("%,d", batchSize), measure(factory, baseSize, itemCount, batchSize), itemCount);
+        }
+    }
+
+    /**
+     * Times the three phases; a batch size of 0 means single-item calls
+     * @return Elapsed nanoseconds of add, update and remove
+     */
+    private static long[] measure(Supplier<IFruitManager> factory, int baseSize, int itemCount, int batchSize) {
+        IFruitManager manager = factory.get();
+        for (int i = 0; i < baseSize; i++) {
+            manager.addFruit(fruit("Fruit-" + i, i));
+        }
+
+        long[] elapsed = new long[3];
+        int step = batchSize == 0 ? 1 : batchSize;
+
+        long start = System.nanoTime();
+        for (int from = 0; from < itemCount; from += step) {
+            int to = Math.min(itemCount, from + step);
+            if (batchSize == 0) {
+                manager.addFruit(fruit("Batch-" + from, from));
+            } else {
+                List<Fruit> fruits = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    fruits.add(fruit("Batch-" + i, i));
+                }
+                manager.addAll(fruits);
+            }
+        }
+        elapsed[0] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int from = 0; from < itemCount; from += step) {
+            int to = Math.min(itemCount, from + step);
+            if (batchSize == 0) {
+                check(manager.updateFruit("Batch-" + from, "Moved-" + from, 300, "Green", true, 60));
+            } else {
+                List<FruitUpdate> updates = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    updates.add(new FruitUpdate("Batch-" + i, "Moved-" + i, 300, "Green", true, 60));
+                }
+                check(manager.updateAll(updates));
+            }
+        }
+        elapsed[1] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int from = 0; from < itemCount; from += step) {
+            int to = Math.min(itemCount, from + step);
+            if (batchSize == 0) {
+                check(manager.removeFruitByName("Moved-" + from));
+            } else {
+                List<String> names = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    names.add("Moved-" + i);
+                }
+                check(manager.removeAll(names));
+            }
+        }
+        elapsed[2] = System.nanoTime() - start;
+
+        if (manager.getSize() != baseSize) {
+            throw new IllegalStateException("Expected " + baseSize + " fruits but found " + manager.getSize());
+        }
+        return elapsed;
+    }
+
+    private static void print(String label, long[] elapsed, int itemCount) {
+        System.out.printf("%10s %10.0f %10.0f %10.0f%n", label,
+                (double) elapsed[0] / itemCount, (double) elapsed[1] / itemCount, (double) elapsed[2] / itemCount);
+    }
+
+    private static void check(boolean succeeded) {
+        if (!succeeded) {
+            throw new IllegalStateException("Batch operation was rejected");
+        }
+    }
+
+    private static Fruit fruit(String name, int i) {
+        return new Fruit(name, 50 + i % 4000, COLORS[i % COLORS.length], i % 7 != 0, 20 + i % 200);
+    }
+}
@@ -0,0 +1,134 @@
+package benchmark;
+
+import api.FruitBinaryClient;
+import api.FruitBinaryServer;
+import model.Fruit;
+import service.FruitManager;
+import service.IndexedFruitManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Throughput of the binary protocol over loopback
+ * An in-process FruitBinaryServer serves an IndexedFruitManager with fruitCount fruits. Each row
+ * runs one access pattern for a fixed number of operations: one round trip per request, pipelined
+ * requests at several depths, and addAll batches. The rows that change the collection include the
+ * time the manager itself needs for the changes. Every answer is checked against the manager, so
+ * the run also fails if a response is decoded wrongly.
+ *
+ * Usage: java benchmark.BinaryProtocolBenchmark [fruitCount] [operations]
+ */
+public class BinaryProtocolBenchmark {
+    private static final String[] COLORS = {"Red", "Green", "Brown", "Yellow", "Orange", "Purple"};
+    private static final int BATCH_SIZE = 1000;
+
+    private interface Workload {
+        void run(FruitBinaryClient client, int operations) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int fruitCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        IndexedFruitManager manager = new IndexedFruitManager();
+        List<Fruit> fruits = new ArrayList<>(fruitCount);
+        for (int i = 0; i < fruitCount; i++) {
+            fruits.add(newFruit("Fruit-" + i, i));
+        }
+        manager.addAll(fruits);
+
+        try (FruitBinaryServer server = new FruitBinaryServer(manager, 0, new ReentrantReadWriteLock())) {
+            server.start();
+            int port = server.getPort();
+            System.out.printf("%,d fruits, %,d operations per row, loopback port %d%n", fruitCount, operations, port);
+            System.out.printf("%-36s %14s %12s%n", "workload", "ops/s", "us/op");
+
+            // Round trips are far slower; a tenth of the operations gives a stable figure
+            measure("get, one round trip each", port, 1, operations / 10, (client, count) -> {
+                for (int i = 0; i < count; i++) {
+                    check(client.searchFruitByExactName("Fruit-" + i % fruitCount), i % fruitCount);
+                }
+            });
+            for (int depth : new int[]{16, 256, 1024}) {
+                measure("get, pipelined x" + depth, port, depth, operations, (client, count) -> {
+                    List<CompletableFuture<Fruit>> answers = new ArrayList<>(depth);
+                    for (int i = 0; i < count; i++) {
+                        answers.add(client.searchFruitByExactNameAsync("Fruit-" + i % fruitCount));
+                        if (answers.size() == depth || i == count - 1) {
+                            client.sync();
+                            for (int j = 0; j < answers.size(); j++) {
+                                check(answers.get(j).join(), (i - answers.size() + 1 + j) % fruitCount);
+                            }
+                            answers.clear();
+                        }
+                    }
+                });
+            }
+            measure("add + remove, pipelined x1024", port, 1024, operations, (client, count) -> {
+                for (int i = 0; i < count / 2; i++) {
+                    client.addFruitAsync(newFruit("Extra-" + i, i));
+                    client.removeFruitByNameAsync("Extra-" + i);
+                }
+                client.sync();
+            });
+            measure("addAll + removeAll, batches of " + BATCH_SIZE, port, 16, operations, (client, count) -> {
+                List<String> names = new ArrayList<>(count);
+                for (int start = 0; start < count; start += BATCH_SIZE) {
+                    List<Fruit> batch = new ArrayList<>(BATCH_SIZE);
+                    for (int i = start; i < Math.min(count, start + BATCH_SIZE); i++) {
+                        batch.add(newFruit("Batch-" + i, i));
+                        names.add("Batch-" + i);
+                    }
+                    client.addAllAsync(batch);
+                }
+                client.sync();
+                if (client.getSize() != fruitCount + count) {
+                    throw new IllegalStateException("addAll lost fruits");
+                }
+                client.removeAll(names);
+            });
+
+            try (FruitBinaryClient client = new FruitBinaryClient("localhost", port)) {
+                if (client.getSize() != fruitCount || manager.getSize() != fruitCount) {
+                    throw new IllegalStateException("Collection size changed: " + manager.getSize());
+                }
+                FruitManager.FruitStatistics remote = client.calculateStatistics();
+                if (!remote.toString().equals(manager.calculateStatistics().toString())) {
+                    throw new IllegalStateException("Statistics differ:\n" + remote);
+                }
+            }
+        }
+        System.out.println("All responses matched the collection");
+    }
+
+    private static void measure(String label, int port, int maxInFlight, int operations, Workload workload)
+            throws IOException {
+        try (FruitBinaryClient client = new FruitBinaryClient("localhost", port, maxInFlight)) {
+            // Warm up the server and client code paths before timing
+            workload.run(client, Math.min(operations, 20_000));
+            long start = System.nanoTime();
+            workload.run(client, operations);
+            long nanos = System.nanoTime() - start;
+            System.out.printf(Locale.ROOT, "%-36s %,14.0f %12.2f%n", label, operations / (nanos / 1e9),
+                    nanos / 1e3 / operations);
+        }
+    }
+
+    private static Fruit newFruit(String name, int i) {
+        return new Fruit(name, 50 + i % 4000, COLORS[i % COLORS.length], i % 7 != 0, 20 + i % 200);
+    }
+
+    private static void check(Fruit fruit, int i) {
+        Fruit expected = newFruit("Fruit-" + i, i);
+        if (fruit == null || !fruit.getName().equals(expected.getName()) || fruit.getWeight() != expected.getWeight()
+                || !fruit.getColor().equals(expected.getColor()) || fruit.isEdible() != expected.isEdible()
+                || fruit.getCaloriesPer100g() != expected.getCaloriesPer100g()) {
+            throw new IllegalStateException("Wrong answer for Fruit-" + i + ": " + fruit);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package benchmark;
+
+import persistence.FruitImporter;
+import service.IndexedFruitManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures FruitImporter throughput on generated CSV and JSON-lines files
+ * Every 100th row is invalid and every 50th row repeats an earlier name, so rejection and
+ * duplicate handling are part of the measurement.
+ *
+ * Usage: java benchmark.BulkImportBenchmark [rowCount] [workerCount]
+ */
+public class BulkImportBenchmark {
+    private static final String[] COLORS = {"Red", "Green", "Brown", "Yellow", "Orange", "Purple"};
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        Path directory = Files.createTempDirectory("fruit-import");
+        Path csv = directory.resolve("fruits.csv");
+        Path jsonLines = directory.resolve("fruits.jsonl");
+        try {
+            writeCsv(csv, rows);
+            writeJsonLines(jsonLines, rows);
+            System.out.printf("Rows: %,d, workers: %d%n", rows, workers);
+            for (Path file : new Path[]{csv, jsonLines}) {
+                // The first run warms up the JIT
+                run(file, workers);
+                FruitImporter.ImportReport report = run(file, workers);
+                System.out.printf("%-13s %,10.0f rows/s  imported %,d, rejected %,d, duplicates %,d (%d MB file)%n",
+                        file.getFileName(), report.rowsPerSecond(), report.imported(), report.rejected(),
+                        report.duplicates(), Files.size(file) >> 20);
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(jsonLines);
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static FruitImporter.ImportReport run(Path file, int workers) throws IOException {
+        FruitImporter importer = new FruitImporter(new IndexedFruitManager(), workers, FruitImporter.DEFAULT_BATCH_SIZE);
+        return importer.importFile(file, FruitImporter.DuplicatePolicy.SKIP);
+    }
+
+    private static void writeCsv(Path file, int rows) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("name,weight,color,edible,calories\n");
+            for (int i = 0; i < rows; i++) {
+                String weight = i % 100 == 99 ? "heavy" : Integer.toString(50 + i % 4000);
+                out.write(name(i) + "," + weight + "," + COLORS[i % COLORS.length] + ","
+                        + (i % 7 != 0) + "," + (20 + i % 200) + "\n");
+            }
+        }
+    }
+
+    private static void writeJsonLines(Path file, int rows) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                String weight = i % 100 == 99 ? "-1" : Integer.toString(50 + i % 4000);
+                out.write("{\"name\":\"" + name(i) + "\",\"weight\":" + weight + ",\"color\":\""
+                        + COLORS[i % COLORS.length] + "\",\"edible\":" + (i % 7 != 0)
+                        + ",\"calories\":" + (20 + i % 200) + "}\n");
+            }
+        }
+    }
+
+    private static String name(int row) {
+        return "Fruit-" + (row % 50 == 49 ? row - 1 : row);
+    }
+}
@@ -0,0 +1,217 @@
+package benchmark;
+
+import model.Fruit;
+import service.ConcurrentFruitManager;
+import util.NameFolding;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stress test for ConcurrentFruitManager
+ * Runs a mixed write-heavy workload with 1..N threads, reports throughput per thread count
+ * and checks that name uniqueness and the running statistics survived the contention, then that
+ * readers racing with updates only ever see whole fruits and versions that do not change.
+ *
+ * Usage: java benchmark.ConcurrentStressBenchmark [secondsPerRun] [maxThreads]
+ */
+public class ConcurrentStressBenchmark {
+    private static final int NAMES_PER_THREAD = 10_000;
+    private static final int SHARED_NAMES = 1_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        // Warm up the JIT so the single-threaded baseline isn't measured on interpreted code
+        runMixedWorkload(Math.max(1, maxThreads), seconds);
+
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+            double opsPerSecond = runMixedWorkload(threads, seconds);
+            if (threads == 1) baseline = opsPerSecond;
+            System.out.printf("threads=%-3d ops/s=%,14.0f speedup=%.2fx%n", threads, opsPerSecond, opsPerSecond / baseline);
+        }
+
+        verifyAtomicClaims(Math.max(2, maxThreads));
+        verifySnapshotReads(Math.max(2, maxThreads), seconds);
+        System.out.println("All invariants held");
+    }
+
+    /**
+     * Each thread adds, renames, updates, looks up and removes fruits, mostly in its own name range
+     * but also on a shared range to force contention on the same stripes.
+     */
+    private static double runMixedWorkload(int threads, int seconds) throws InterruptedException {
+        ConcurrentFruitManager manager = new ConcurrentFruitManager();
+        LongAdder operations = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        for (int t = 0; t < threads; t++) {
+            int threadId = t;
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    long count = 0;
+                    while ((count & 255) != 0 || System.nanoTime() < deadline) {
+                        String name = random.nextInt(10) == 0
+                                ? "shared-" + random.nextInt(SHARED_NAMES)
+                                : "t" + threadId + "-" + random.nextInt(NAMES_PER_THREAD);
+                        switch (random.nextInt(6)) {
+                            case 0 -> manager.addFruitIfAbsent(randomFruit(name, random));
+                            case 1 -> manager.updateFruitAttribute(name, "weight", random.nextInt(1, 5000));
+                            case 2 -> manager.updateFruitAttribute(name, "name", name + "-r");
+                            case 3 -> manager.updateFruit(name + "-r", name, random.nextInt(1, 5000),
+                                    "Green", random.nextBoolean(), random.nextInt(1, 300));
+                            case 4 -> manager.removeFruitByName(name);
+                            default -> manager.searchFruitByExactName(name);
+                        }
+                        count++;
+                    }
+                    operations.add(count);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        double elapsedSeconds = (System.nanoTime() - begin) / 1e9;
+
+        verifyConsistency(manager);
+        return operations.sum() / elapsedSeconds;
+    }
+
+    /**
+     * All threads race to claim the same names; exactly one claim per name may win
+     */
+    private static void verifyAtomicClaims(int threads) throws InterruptedException {
+        ConcurrentFruitManager manager = new ConcurrentFruitManager();
+        AtomicInteger wins = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < SHARED_NAMES; i++) {
+                    // Mixed case so claims only collide through the case-insensitive check
+                    String name = random.nextBoolean() ? "Fruit" + i : "FRUIT" + i;
+                    if (manager.addFruitIfAbsent(randomFruit(name, random))) wins.incrementAndGet();
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) worker.join();
+
+        check(wins.get() == SHARED_NAMES, "expected " + SHARED_NAMES + " winning claims but got " + wins.get());
+        verifyConsistency(manager);
+    }
+
+    private static void verifyConsistency(ConcurrentFruitManager manager) {
+        List<Fruit> fruits = manager.getAllFruits();
+        check(fruits.size() == manager.getSize(), "size counter drifted from the store");
+        check(manager.calculateStatistics().toString().contains("Total fruits: " + fruits.size() + "\n"),
+                "statistics total drifted from the store");
+
+        Set<String> folded = new HashSet<>();
+        for (Fruit fruit : fruits) {
+            check(folded.add(NameFolding.fold(fruit.getName())), "duplicate name " + fruit.getName());
+            check(manager.searchFruitByExactName(fruit.getName()) == fruit, "name index lost " + fruit.getName());
+        }
+    }
+
+    /**
+     * Writers keep rewriting every attribute of a fixed set of fruits from a single number while
+     * readers scan versions; each fruit read must have all its attributes from one write, and a
+     * version scanned twice must read the same both times
+     */
+    private static void verifySnapshotReads(int threads, int seconds) throws InterruptedException {
+        ConcurrentFruitManager manager = new ConcurrentFruitManager();
+        for (int i = 0; i < SHARED_NAMES; i++) {
+            manager.addFruit(tiedFruit("Fruit" + i, i + 1));
+        }
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicInteger scans = new AtomicInteger();
+        AtomicReference<IllegalStateException> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            boolean writer = t % 2 == 0;
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (failure.get() == null && System.nanoTime() < deadline) {
+                    if (writer) {
+                        String name = "Fruit" + random.nextInt(SHARED_NAMES);
+                        int seed = random.nextInt(1, 5000);
+                        manager.updateFruit(name, name, seed, "Color" + seed, seed % 2 == 0, seed % 300 + 1);
+                        continue;
+                    }
+                    try {
+                        scanVersion(manager.getAllFruits());
+                        scans.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) worker.join();
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        check(scans.get() > 0, "no version was scanned");
+        verifyConsistency(manager);
+    }
+
+    private static void scanVersion(List<Fruit> version) {
+        check(version.size() == SHARED_NAMES, "version has " + version.size() + " fruits");
+        long first = 0;
+        for (Fruit fruit : version) {
+            int seed = fruit.getWeight();
+            check(fruit.getColor().equals("Color" + seed) && fruit.isEdible() == (seed % 2 == 0)
+                    && fruit.getCaloriesPer100g() == seed % 300 + 1, "torn fruit " + fruit.getInfo());
+            first += seed;
+        }
+        long second = 0;
+        for (Fruit fruit : version) {
+            second += fruit.getWeight();
+        }
+        check(first == second, "version changed while it was read");
+    }
+
+    private static Fruit tiedFruit(String name, int seed) {
+        return new Fruit(name, seed, "Color" + seed, seed % 2 == 0, seed % 300 + 1);
+    }
+
+    /**
+     * Doubles the thread count, finishing exactly on the maximum
+     */
+    private static int nextThreadCount(int threads, int maxThreads) {
+        if (threads == maxThreads) return maxThreads + 1;
+        return Math.min(threads * 2, maxThreads);
+    }
+
+    private static Fruit randomFruit(String name, ThreadLocalRandom random) {
+        return new Fruit(name, random.nextInt(1, 5000), "Red", random.nextBoolean(), random.nextInt(1, 300));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException("Invariant violated: " + message);
+        }
+    }
+}
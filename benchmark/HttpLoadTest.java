@@ -0,0 +1,215 @@
+package benchmark;
+
+import api.FruitHttpServer;
+import interfaces.IFruitManager;
+import model.Fruit;
+import service.IndexedFruitManager;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test for the HTTP API: concurrent clients send a mix of reads and writes for a fixed time
+ * and the report shows requests per second and latency percentiles per request type.
+ *
+ * By default it starts an in-process server over an IndexedFruitManager with fruitCount fruits;
+ * -Dload.url=http://host:port targets a running server instead (started with "java Main --http").
+ *
+ * Usage: java benchmark.HttpLoadTest [fruitCount] [clients] [seconds]
+ */
+public class HttpLoadTest {
+    private static final String[] COLORS = {"Red", "Green", "Brown", "Yellow", "Orange", "Purple"};
+    private static final String[] TYPES = {"get", "search", "page", "statistics", "compare", "add+delete"};
+    // Share of each request type in percent, in the order of TYPES
+    private static final int[] MIX = {40, 20, 15, 5, 5, 15};
+    private static final long WARMUP_NANOS = 2_000_000_000L;
+
+    public static void main(String[] args) throws Exception {
+        int fruitCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 32;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        String baseUrl = System.getProperty("load.url");
+        FruitHttpServer server = null;
+        if (baseUrl == null) {
+            IFruitManager manager = new IndexedFruitManager();
+            List<Fruit> fruits = new ArrayList<>(fruitCount);
+            for (int i = 0; i < fruitCount; i++) {
+                fruits.add(new Fruit("Fruit-" + i, 50 + i % 4000, COLORS[i % COLORS.length], i % 7 != 0, 20 + i % 200));
+            }
+            manager.addAll(fruits);
+            server = new FruitHttpServer(manager, 0);
+            server.start();
+            baseUrl = "http://localhost:" + server.getPort();
+        }
+
+        System.out.printf("%s, %d clients, %d s (+%d s warmup)%n", baseUrl, clients, seconds, WARMUP_NANOS / 1_000_000_000L);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder().executor(executor).version(HttpClient.Version.HTTP_1_1).build();
+            long measureStart = System.nanoTime() + WARMUP_NANOS;
+            long deadline = measureStart + seconds * 1_000_000_000L;
+            AtomicLong errors = new AtomicLong();
+
+            List<Future<Latencies[]>> results = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                String url = baseUrl;
+                results.add(executor.submit(() -> runClient(client, url, fruitCount, measureStart, deadline, errors)));
+            }
+
+            Latencies[] total = newLatencies();
+            for (Future<Latencies[]> result : results) {
+                Latencies[] latencies = result.get();
+                for (int type = 0; type < TYPES.length; type++) {
+                    total[type].addAll(latencies[type]);
+                }
+            }
+            report(total, seconds, errors.get());
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+    /**
+     * Sends requests until the deadline, recording the latencies after the warmup
+     */
+    private static Latencies[] runClient(HttpClient client, String baseUrl, int fruitCount,
+                                         long measureStart, long deadline, AtomicLong errors) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Latencies[] latencies = newLatencies();
+        long now;
+        while ((now = System.nanoTime()) < deadline) {
+            int type = pickType(random.nextInt(100));
+            try {
+                boolean ok = send(client, baseUrl, type, random, fruitCount);
+                if (!ok) errors.incrementAndGet();
+            } catch (IOException e) {
+                errors.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (now >= measureStart) {
+                latencies[type].add(System.nanoTime() - now);
+            }
+        }
+        return latencies;
+    }
+
+    private static boolean send(HttpClient client, String baseUrl, int type, ThreadLocalRandom random,
+                                int fruitCount) throws IOException, InterruptedException {
+        String name = "Fruit-" + random.nextInt(Math.max(1, fruitCount));
+        return switch (TYPES[type]) {
+            case "get" -> get(client, baseUrl + "/fruits/" + name) == 200;
+            case "search" -> get(client, baseUrl + "/fruits?limit=20&name=" + encode("uit-" + random.nextInt(1000))) == 200;
+            case "page" -> get(client, baseUrl + "/fruits?limit=50&offset=" + random.nextInt(Math.max(1, fruitCount))) == 200;
+            case "statistics" -> get(client, baseUrl + "/statistics") == 200;
+            case "compare" -> get(client, baseUrl + "/compare?first=" + name + "&second=Fruit-0") == 200;
+            default -> {
+                String extra = "Load-" + Thread.currentThread().threadId() + "-" + random.nextInt(1_000_000);
+                HttpRequest add = HttpRequest.newBuilder(URI.create(baseUrl + "/fruits?duplicates=allow"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"" + extra
+                                + "\",\"weight\":120,\"color\":\"Red\",\"edible\":true,\"calories\":50}"))
+                        .build();
+                HttpRequest delete = HttpRequest.newBuilder(URI.create(baseUrl + "/fruits/" + extra)).DELETE().build();
+                yield client.send(add, HttpResponse.BodyHandlers.discarding()).statusCode() == 201
+                        && client.send(delete, HttpResponse.BodyHandlers.discarding()).statusCode() == 204;
+            }
+        };
+    }
+
+    private static int get(HttpClient client, String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+    }
+
+    private static int pickType(int percent) {
+        for (int type = 0; type < MIX.length; type++) {
+            percent -= MIX[type];
+            if (percent < 0) return type;
+        }
+        return MIX.length - 1;
+    }
+
+    private static String encode(String text) {
+        return URLEncoder.encode(text, StandardCharsets.UTF_8);
+    }
+
+    private static void report(Latencies[] latencies, int seconds, long errors) {
+        System.out.printf("%n%-12s %10s %10s %10s %10s %10s%n", "request", "count", "req/s", "p50 ms", "p99 ms", "max ms");
+        Latencies all = new Latencies();
+        for (int type = 0; type < TYPES.length; type++) {
+            print(TYPES[type], latencies[type], seconds);
+            all.addAll(latencies[type]);
+        }
+        print("all", all, seconds);
+        System.out.printf("%nErrors: %d%n", errors);
+    }
+
+    private static void print(String label, Latencies latencies, int seconds) {
+        long[] sorted = latencies.sorted();
+        if (sorted.length == 0) {
+            System.out.printf("%-12s %10d%n", label, 0);
+            return;
+        }
+        System.out.printf(Locale.ROOT, "%-12s %10d %10.0f %10.2f %10.2f %10.2f%n", label, sorted.length,
+                (double) sorted.length / seconds, percentile(sorted, 0.50), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static Latencies[] newLatencies() {
+        Latencies[] latencies = new Latencies[TYPES.length];
+        for (int type = 0; type < TYPES.length; type++) {
+            latencies[type] = new Latencies();
+        }
+        return latencies;
+    }
+
+    /**
+     * Growable list of latencies in nanoseconds
+     */
+    private static final class Latencies {
+        private long[] values = new long[1024];
+        private int size;
+
+        private void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        private void addAll(Latencies other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        private long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark;
+
+import interfaces.IFruitManager;
+import model.Fruit;
+import service.ColumnarFruitManager;
+import service.FruitManager;
+import service.IndexedFruitManager;
+
+import java.lang.ref.Reference;
+import java.util.function.Supplier;
+
+/**
+ * Compares the retained heap of the ArrayList-backed FruitManager with ColumnarFruitManager
+ * IndexedFruitManager is included as the object-per-fruit store that also indexes names.
+ * Colors are created as fresh strings per row, the way they arrive from user input or a file.
+ *
+ * Usage: java benchmark.MemoryFootprintBenchmark [fruitCount]
+ */
+public class MemoryFootprintBenchmark {
+    private static final String[] COLORS = {"Red", "Green", "Brown", "Yellow", "Orange", "Purple"};
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long nameBytes = measure(() -> names(count));
+        long listBytes = measure(() -> fill(new FruitManager(), count));
+        long indexedBytes = measure(() -> fill(new IndexedFruitManager(), count));
+        long columnarBytes = measure(() -> fill(new ColumnarFruitManager(), count));
+
+        System.out.printf("Fruits: %,d%n", count);
+        System.out.printf("Name strings alone:      %,14d bytes (%5.1f bytes/fruit)%n", nameBytes, (double) nameBytes / count);
+        System.out.printf("FruitManager:            %,14d bytes (%5.1f bytes/fruit)%n", listBytes, (double) listBytes / count);
+        System.out.printf("IndexedFruitManager:     %,14d bytes (%5.1f bytes/fruit)%n", indexedBytes, (double) indexedBytes / count);
+        System.out.printf("ColumnarFruitManager:    %,14d bytes (%5.1f bytes/fruit)%n", columnarBytes, (double) columnarBytes / count);
+        System.out.printf("Excluding names:         list %5.1f, indexed %5.1f, columnar %5.1f bytes/fruit%n",
+                (double) (listBytes - nameBytes) / count, (double) (indexedBytes - nameBytes) / count,
+                (double) (columnarBytes - nameBytes) / count);
+    }
+
+    private static IFruitManager fill(IFruitManager manager, int count) {
+        for (int i = 0; i < count; i++) {
+            String color = new String(COLORS[i % COLORS.length]);
+            manager.addFruit(new Fruit("Fruit-" + i, 50 + i % 4000, color, i % 7 != 0, 20 + i % 200));
+        }
+        return manager;
+    }
+
+    private static String[] names(int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "Fruit-" + i;
+        }
+        return names;
+    }
+
+    /**
+     * Heap retained by the object built by the supplier, measured after full collections
+     */
+    private static long measure(Supplier<Object> builder) {
+        long before = usedHeap();
+        Object retained = builder.get();
+        long after = usedHeap();
+        // Keep the structure reachable until it has been measured
+        Reference.reachabilityFence(retained);
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,318 @@
+package benchmark;
+
+import interfaces.IFruitManager;
+import model.Fruit;
+import model.FruitQuery;
+import service.ColumnarFruitManager;
+import service.ConcurrentFruitManager;
+import service.FruitManager;
+import service.IndexedFruitManager;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Measures every IFruitManager operation on every implementation at several collection sizes
+ *
+ * Each operation is warmed up, then called repeatedly for a fixed time; the report shows the
+ * average time and the bytes allocated per call on the benchmark thread. Results can be written
+ * to a CSV file and compared with an earlier run to catch regressions:
+ *
+ *   java benchmark.OperationBenchmark [sizes] [managers]
+ *       -Dbench.out=results.csv        write the results
+ *       -Dbench.baseline=previous.csv  flag operations more than 10% slower than the baseline
+ *       -Dbench.warmupMillis=300 -Dbench.measureMillis=1000
+ *
+ * sizes is a comma-separated list (default 1000,100000,10000000) and managers a comma-separated
+ * list of simple class names (default all). Sizes that would not fit in the heap are skipped.
+ */
+public class OperationBenchmark {
+    private static final String[] COLORS = {"Red", "Green", "Brown", "Yellow", "Orange", "Purple"};
+    private static final double REGRESSION_THRESHOLD = 1.10;
+    // Rough retained bytes per fruit including its name, from MemoryFootprintBenchmark
+    private static final Map<String, Integer> BYTES_PER_FRUIT = Map.of(
+            "FruitManager", 120,
+            "IndexedFruitManager", 750,
+            "ConcurrentFruitManager", 420,
+            "ColumnarFruitManager", 110);
+
+    private static final long WARMUP_NANOS = Long.getLong("bench.warmupMillis", 300) * 1_000_000;
+    private static final long MEASURE_NANOS = Long.getLong("bench.measureMillis", 1000) * 1_000_000;
+
+    // Results are folded into this field so the JIT cannot drop the calls
+    private static long sink;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = parseSizes(args.length > 0 ? args[0] : "1000,100000,10000000");
+        List<String> managers = List.of((args.length > 1 ? args[1]
+                : "FruitManager,IndexedFruitManager,ConcurrentFruitManager,ColumnarFruitManager").split(","));
+
+        Map<String, Double> baseline = readBaseline(System.getProperty("bench.baseline"));
+        List<Result> results = new ArrayList<>();
+
+        for (String manager : managers) {
+            for (int size : sizes) {
+                long needed = (long) size * BYTES_PER_FRUIT.getOrDefault(manager, 650);
+                if (needed > Runtime.getRuntime().maxMemory() * 7 / 10) {
+                    System.out.printf("%n%s @ %,d fruits: skipped, needs about %,d MB of heap (-Xmx)%n",
+                            manager, size, needed >> 20);
+                    continue;
+                }
+                results.addAll(run(manager, size, baseline));
+            }
+        }
+
+        String out = System.getProperty("bench.out");
+        if (out != null) {
+            writeResults(Path.of(out), results);
+            System.out.println("\nResults written to " + out);
+        }
+    }
+
+    private static List<Result> run(String managerName, int size, Map<String, Double> baseline) {
+        IFruitManager manager = create(managerName);
+        fill(manager, size);
+        System.gc();
+
+        System.out.printf("%n%s @ %,d fruits%n", managerName, size);
+        System.out.printf("%-26s %14s %14s %10s%n", "operation", "ns/op", "bytes/op", "vs base");
+
+        List<Result> results = new ArrayList<>();
+        for (Map.Entry<String, Runnable> operation : operations(manager, size).entrySet()) {
+            Result result = measure(managerName, size, operation.getKey(), operation.getValue());
+            results.add(result);
+
+            Double previous = baseline.get(result.key());
+            String comparison = "";
+            if (previous != null && previous > 0) {
+                double ratio = result.nanosPerOp() / previous;
+                comparison = String.format(Locale.ROOT, "%+.0f%%%s", (ratio - 1) * 100,
+                        ratio > REGRESSION_THRESHOLD ? " SLOWER" : "");
+            }
+            System.out.printf(Locale.ROOT, "%-26s %,14.1f %,14.0f %10s%n",
+                    result.operation(), result.nanosPerOp(), result.bytesPerOp(), comparison);
+        }
+        return results;
+    }
+
+    /**
+     * Operations to measure; every call leaves the collection as it found it
+     */
+    private static Map<String, Runnable> operations(IFruitManager manager, int size) {
+        Random random = new Random(42);
+        Map<String, Runnable> operations = new LinkedHashMap<>();
+
+        operations.put("fruitExists", () -> sink += manager.fruitExists(name(random.nextInt(size)).toUpperCase()) ? 1 : 0);
+        operations.put("searchFruitByExactName", () -> sink += hash(manager.searchFruitByExactName(name(random.nextInt(size)))));
+        operations.put("searchFruitByName", () -> sink += hash(manager.searchFruitByName("uit-" + random.nextInt(size))));
+        operations.put("searchFruitByName (miss)", () -> sink += hash(manager.searchFruitByName("Mango")));
+        operations.put("searchFruitsByName page", () -> sink += manager.searchFruitsByName("fruit-1", 20, 20).size());
+        operations.put("getFruitsByColor", () -> sink += manager.getFruitsByColor(COLORS[random.nextInt(COLORS.length)]).size());
+        operations.put("countFruitsByColor", () -> sink += manager.countFruitsByColor().size());
+        // Four of the 4000 weights and one of the 200 calorie values, about 0.1% and 0.5% of the fruits
+        operations.put("getFruitsByWeight", () -> {
+            int min = weight(random.nextInt(4000));
+            sink += manager.getFruitsByWeight(min, min + 3).size();
+        });
+        operations.put("getFruitsByCalories", () -> {
+            int calories = 20 + random.nextInt(200);
+            sink += manager.getFruitsByCalories(calories, calories).size();
+        });
+        operations.put("getHeaviestFruits (10)", () -> sink += manager.getHeaviestFruits(10).size());
+        operations.put("getMostCaloricFruits (100)", () -> sink += manager.getMostCaloricFruits(100).size());
+        // The weight range is the selective condition; the planner should read only its candidates
+        operations.put("query (3 conditions)", () -> {
+            int min = weight(random.nextInt(4000));
+            sink += manager.query(new FruitQuery().color(COLORS[random.nextInt(COLORS.length)])
+                    .weightBetween(min, min + 3).healthy(true)).toList().size();
+        });
+        operations.put("query (edible, limit 20)", () ->
+                sink += manager.query(new FruitQuery().edible(true).canBeEaten(true).limit(20)).toList().size());
+        operations.put("calculateStatistics", () -> sink += manager.calculateStatistics().hashCode());
+        operations.put("calculateGroupedStatistics", () ->
+                sink += manager.calculateGroupedStatistics().getByColor().size());
+        operations.put("approximate statistics", () ->
+                sink += manager.calculateApproximateStatistics().getWeightQuantile(0.5));
+        operations.put("distribution statistics", () ->
+                sink += (long) manager.calculateDistributionStatistics().getWeight().getP99());
+        operations.put("getFruitNames", () -> sink += manager.getFruitNames().length);
+        operations.put("getAllFruits", () -> sink += manager.getAllFruits().size());
+        operations.put("getSize/isEmpty", () -> sink += manager.getSize() + (manager.isEmpty() ? 1 : 0));
+        operations.put("updateFruit", () -> {
+            int i = random.nextInt(size);
+            sink += manager.updateFruit(name(i), name(i), weight(i + 1), color(i), true, 60) ? 1 : 0;
+        });
+        operations.put("updateFruit (rename)", () -> {
+            int i = random.nextInt(size);
+            manager.updateFruit(name(i), "Renamed", weight(i), color(i), true, 60);
+            sink += manager.updateFruit("Renamed", name(i), weight(i), color(i), true, 60) ? 1 : 0;
+        });
+        operations.put("updateFruitAttribute", () -> {
+            int i = random.nextInt(size);
+            sink += manager.updateFruitAttribute(name(i), "weight", weight(i + 2)) ? 1 : 0;
+        });
+        operations.put("addFruit + removeFruitByName", () -> {
+            manager.addFruit(new Fruit("Extra", 100, "Red", true, 50));
+            sink += manager.removeFruitByName("Extra") ? 1 : 0;
+        });
+        return operations;
+    }
+
+    /**
+     * Warms an operation up, then runs it for the measurement time in growing batches
+     */
+    private static Result measure(String manager, int size, String name, Runnable operation) {
+        runFor(operation, WARMUP_NANOS);
+
+        com.sun.management.ThreadMXBean threads = allocationCounter();
+        long threadId = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long calls = runFor(operation, MEASURE_NANOS);
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        return new Result(manager, size, name, (double) elapsed / calls, (double) allocated / calls);
+    }
+
+    private static long runFor(Runnable operation, long nanos) {
+        long calls = 0;
+        int batch = 1;
+        long deadline = System.nanoTime() + nanos;
+        do {
+            for (int i = 0; i < batch; i++) {
+                operation.run();
+            }
+            calls += batch;
+            if (batch < 1 << 16) batch <<= 1;
+        } while (System.nanoTime() < deadline);
+        return calls;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        return (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    }
+
+    private static IFruitManager create(String name) {
+        Map<String, Supplier<IFruitManager>> factories = new HashMap<>();
+        factories.put("FruitManager", FruitManager::new);
+        factories.put("IndexedFruitManager", IndexedFruitManager::new);
+        factories.put("ConcurrentFruitManager", ConcurrentFruitManager::new);
+        factories.put("ColumnarFruitManager", ColumnarFruitManager::new);
+        Supplier<IFruitManager> factory = factories.get(name);
+        if (factory == null) {
+            throw new IllegalArgumentException("Unknown manager " + name + ", expected one of " + factories.keySet());
+        }
+        return factory.get();
+    }
+
+    private static void fill(IFruitManager manager, int size) {
+        List<Fruit> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < size; i++) {
+            batch.add(new Fruit(name(i), weight(i), color(i), i % 7 != 0, 20 + i % 200));
+            if (batch.size() == 10_000) {
+                manager.addAll(batch);
+                batch.clear();
+            }
+        }
+        manager.addAll(batch);
+    }
+
+    private static String name(int i) {
+        return "Fruit-" + i;
+    }
+
+    private static int weight(int i) {
+        return 50 + i % 4000;
+    }
+
+    private static String color(int i) {
+        return COLORS[i % COLORS.length];
+    }
+
+    private static int hash(Fruit fruit) {
+        return fruit == null ? 0 : fruit.getWeight();
+    }
+
+    private static int[] parseSizes(String text) {
+        String[] parts = text.split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = Integer.parseInt(parts[i].trim().replace("_", ""));
+        }
+        return sizes;
+    }
+
+    private static Map<String, Double> readBaseline(String file) throws IOException {
+        Map<String, Double> baseline = new HashMap<>();
+        if (file == null) {
+            return baseline;
+        }
+        List<String> lines = Files.readAllLines(Path.of(file));
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> fields = splitCsv(line);
+            baseline.put(key(fields.get(0), fields.get(1), fields.get(2)), Double.parseDouble(fields.get(3)));
+        }
+        return baseline;
+    }
+
+    private static void writeResults(Path file, List<Result> results) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("manager,size,operation,nanosPerOp,bytesPerOp");
+            for (Result result : results) {
+                out.printf(Locale.ROOT, "%s,%.2f,%.1f%n", result.key(), result.nanosPerOp(), result.bytesPerOp());
+            }
+        }
+    }
+
+    /**
+     * Splits a CSV line into its fields, unquoting the ones written by quote
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted && c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                field.append('"');
+                i++;
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Operation names such as "query (edible, limit 20)" contain commas, so they are written quoted
+    private static String quote(String field) {
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    private static String key(String manager, String size, String operation) {
+        return manager + "," + size + "," + quote(operation);
+    }
+
+    private record Result(String manager, int size, String operation, double nanosPerOp, double bytesPerOp) {
+        private String key() {
+            return OperationBenchmark.key(manager, String.valueOf(size), operation);
+        }
+    }
+}
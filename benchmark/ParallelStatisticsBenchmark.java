@@ -0,0 +1,110 @@
+package benchmark;
+
+import model.Fruit;
+import service.ColumnarFruitManager;
+import service.FruitManager;
+import service.StatisticsAggregator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Scaling of the fork-join statistics aggregation from 1 to N threads
+ * Aggregates a list of fruitCount fruits on pools of 1, 2, 4 ... maxThreads threads and reports the
+ * time per full recompute and the speedup over one thread. Every result is compared with the
+ * single-threaded one, so a wrong merge fails the run. The last rows time calculateStatistics of
+ * FruitManager and ColumnarFruitManager, which pick sequential or parallel by size on their own,
+ * and the grouped statistics of ColumnarFruitManager, whose overall part must match as well.
+ *
+ * Usage: java benchmark.ParallelStatisticsBenchmark [fruitCount] [maxThreads] [rounds]
+ */
+public class ParallelStatisticsBenchmark {
+    private static final String[] COLORS = {"Red", "Green", "Brown", "Yellow", "Orange", "Purple"};
+
+    // Results are folded into this field so the JIT cannot drop the calls
+    private static long sink;
+
+    private interface Aggregation {
+        FruitManager.FruitStatistics run();
+    }
+
+    public static void main(String[] args) {
+        int fruitCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        List<Fruit> fruits = new ArrayList<>(fruitCount);
+        for (int i = 0; i < fruitCount; i++) {
+            fruits.add(new Fruit("Fruit-" + i, 50 + (i * 7919) % 4000, COLORS[i % COLORS.length],
+                    i % 7 != 0, 20 + i % 200));
+        }
+        System.out.printf("Available processors: %d, %,d fruits, %d rounds per row%n",
+                Runtime.getRuntime().availableProcessors(), fruitCount, rounds);
+        System.out.printf("%-34s %12s %10s%n", "aggregation", "ms/op", "speedup");
+
+        String expected = null;
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                String label = "fork-join, " + threads + (threads == 1 ? " thread" : " threads");
+                FruitManager.FruitStatistics result = StatisticsAggregator.compute(fruits, pool);
+                if (expected == null) {
+                    expected = result.toString();
+                } else {
+                    check(label, result, expected);
+                }
+                double millis = measure(rounds, () -> StatisticsAggregator.compute(fruits, pool));
+                if (threads == 1) baseline = millis;
+                print(label, millis, baseline);
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        FruitManager listManager = new FruitManager();
+        listManager.addAll(fruits);
+        check("FruitManager", listManager.calculateStatistics(), expected);
+        print("FruitManager (automatic)", measure(rounds, listManager::calculateStatistics), baseline);
+
+        ColumnarFruitManager columnar = new ColumnarFruitManager();
+        columnar.addAll(fruits);
+        check("ColumnarFruitManager", columnar.calculateStatistics(), expected);
+        print("ColumnarFruitManager (automatic)", measure(rounds, columnar::calculateStatistics), baseline);
+        check("ColumnarFruitManager grouped", columnar.calculateGroupedStatistics().getOverall(), expected);
+        print("ColumnarFruitManager (grouped)",
+                measure(rounds, () -> columnar.calculateGroupedStatistics().getOverall()), baseline);
+        System.out.println("All results matched the single-threaded aggregation");
+    }
+
+    /**
+     * Warms an aggregation up, then averages it over the given number of rounds
+     */
+    private static double measure(int rounds, Aggregation aggregation) {
+        for (int i = 0; i < Math.max(3, rounds / 4); i++) {
+            sink += aggregation.run().getHealthyFruits();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            sink += aggregation.run().getHealthyFruits();
+        }
+        return (System.nanoTime() - start) / 1e6 / rounds;
+    }
+
+    private static void print(String label, double millis, double baseline) {
+        System.out.printf(Locale.ROOT, "%-34s %12.2f %9.2fx%n", label, millis, baseline / millis);
+    }
+
+    private static void check(String label, FruitManager.FruitStatistics result, String expected) {
+        if (!result.toString().equals(expected)) {
+            throw new IllegalStateException(label + " computed different statistics:\n" + result);
+        }
+    }
+
+    private static int nextThreadCount(int threads, int maxThreads) {
+        if (threads == maxThreads) return maxThreads + 1;
+        return Math.min(threads * 2, maxThreads);
+    }
+}
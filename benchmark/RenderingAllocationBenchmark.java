@@ -0,0 +1,112 @@
+package benchmark;
+
+import model.Fruit;
+import service.FruitManager;
+import util.FruitDisplayFormatter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the garbage and time per fruit of the text rendering paths
+ * The String.format row reproduces the former getInfo for comparison. The buffer rows write into
+ * one StringBuilder that is cleared between rounds, so once it has grown to its final capacity
+ * anything they allocate is garbage produced by the rendering itself. The run fails if one of
+ * them allocates more than ZERO_TOLERANCE bytes per fruit.
+ *
+ * Usage: java benchmark.RenderingAllocationBenchmark [fruitCount] [rounds]
+ */
+public class RenderingAllocationBenchmark {
+    private static final String[] COLORS = {"Red", "Green", "Brown", "Yellow", "Orange", "Purple"};
+    // Allows for the odd allocation of the measuring code itself, amortized over the fruits
+    private static final double ZERO_TOLERANCE = 0.01;
+
+    private interface Renderer {
+        void render(StringBuilder out, List<Fruit> fruits) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int fruitCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        List<Fruit> fruits = new ArrayList<>(fruitCount);
+        for (int i = 0; i < fruitCount; i++) {
+            fruits.add(new Fruit("Fruit-" + i, 50 + i % 4000, COLORS[i % COLORS.length], i % 7 != 0, 20 + i % 200));
+        }
+        FruitManager.FruitStatistics statistics = new FruitManager.FruitStatistics(
+                fruitCount, fruitCount / 2, fruitCount - fruitCount / 7, 50.0, 85.7, 119.5, fruits.get(0));
+
+        System.out.printf("%,d fruits, %d rounds%n", fruitCount, rounds);
+        System.out.printf("%-34s %12s %12s%n", "rendering", "ns/fruit", "bytes/fruit");
+
+        measure("String.format (former getInfo)", false, fruits, rounds, (out, list) -> {
+            for (Fruit fruit : list) {
+                out.append(String.format("Name: %s, Color: %s, Weight: %dg, Calories per 100g: %d, Total calories: %.1f, Edible: %s",
+                        fruit.getName(), fruit.getColor(), fruit.getWeight(), fruit.getCaloriesPer100g(),
+                        fruit.getTotalCalories(), fruit.isEdible() ? "Yes" : "No"));
+            }
+        });
+        measure("getInfo", false, fruits, rounds, (out, list) -> {
+            for (Fruit fruit : list) {
+                out.append(fruit.getInfo());
+            }
+        });
+        boolean passed = measure("appendInfo into buffer", true, fruits, rounds, (out, list) -> {
+            for (Fruit fruit : list) {
+                fruit.appendInfo(out);
+            }
+        });
+        passed &= measure("writeFruitDetails into buffer", true, fruits, rounds, (out, list) -> {
+            for (Fruit fruit : list) {
+                FruitDisplayFormatter.writeFruitDetails(out, fruit);
+            }
+        });
+        passed &= measure("writeAllFruits into buffer", true, fruits, rounds, FruitDisplayFormatter::writeAllFruits);
+        passed &= measure("FruitStatistics.appendTo", true, fruits, rounds, (out, list) -> {
+            for (int i = 0; i < list.size(); i++) {
+                statistics.appendTo(out);
+            }
+        });
+
+        if (!passed) {
+            System.out.println("\nFAILED: a buffer rendering path allocates per fruit");
+            System.exit(1);
+        }
+        System.out.println("\nAll buffer rendering paths are allocation-free");
+    }
+
+    /**
+     * Renders every fruit once per round into the same buffer
+     * @return false if the path should be allocation-free but is not
+     */
+    private static boolean measure(String label, boolean mustBeFree, List<Fruit> fruits, int rounds,
+                                   Renderer renderer) throws IOException {
+        StringBuilder out = new StringBuilder();
+        // Warm up the JIT and grow the buffer to its final capacity
+        for (int i = 0; i < 5; i++) {
+            out.setLength(0);
+            renderer.render(out, fruits);
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            out.setLength(0);
+            renderer.render(out, fruits);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        long rendered = (long) fruits.size() * rounds;
+        double bytesPerFruit = (double) allocated / rendered;
+        boolean passed = !mustBeFree || bytesPerFruit <= ZERO_TOLERANCE;
+        System.out.printf(Locale.ROOT, "%-34s %12.1f %12.2f%s%n", label, (double) elapsed / rendered,
+                bytesPerFruit, passed ? "" : "  NOT ZERO");
+        return passed;
+    }
+}
@@ -0,0 +1,159 @@
+package benchmark;
+
+import model.Fruit;
+import service.ApproximateStatistics;
+import service.FruitSketches;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Cost per mutation and accuracy of the sketches behind calculateApproximateStatistics
+ * Streams fruitCount fruits with repeated names, skewed colors and a long tail of heavy fruits
+ * through FruitSketches, then removes removePercent of them again. Reports the time per add and per
+ * remove after a warm-up pass, then compares every estimate with the exact answer computed on the
+ * side, and fails the run if an error exceeds three times its documented bound.
+ *
+ * Usage: java benchmark.SketchAccuracyBenchmark [fruitCount] [removePercent]
+ */
+public class SketchAccuracyBenchmark {
+    private static final double[] QUANTILES = {0.01, 0.1, 0.5, 0.9, 0.99};
+    private static final int COLORS = 50;
+
+    public static void main(String[] args) {
+        int fruitCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int removePercent = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Random random = new Random(42);
+        Fruit[] fruits = new Fruit[fruitCount];
+        for (int i = 0; i < fruitCount; i++) {
+            // About half as many names as fruits; colors and weights skewed towards a few common values
+            int color = (int) Math.min(COLORS - 1, Math.abs(random.nextGaussian()) * 10);
+            int weight = random.nextInt(100) == 0 ? 1000 + random.nextInt(3000) : 50 + random.nextInt(300);
+            fruits[i] = new Fruit("Fruit-" + random.nextInt(Math.max(1, fruitCount / 2)), weight,
+                    "Color-" + color, random.nextBoolean(), 20 + random.nextInt(200));
+        }
+        int removed = (int) ((long) fruitCount * removePercent / 100);
+
+        // Warm up on a throwaway instance so the timings below are of compiled code
+        FruitSketches warmup = FruitSketches.of(Arrays.asList(fruits).subList(0, Math.min(fruitCount, 200_000)));
+        warmup.toStatistics();
+
+        FruitSketches sketches = new FruitSketches();
+        long start = System.nanoTime();
+        for (Fruit fruit : fruits) {
+            sketches.add(fruit);
+        }
+        double addNanos = (double) (System.nanoTime() - start) / fruitCount;
+        start = System.nanoTime();
+        for (int i = 0; i < removed; i++) {
+            sketches.remove(fruits[i]);
+        }
+        double removeNanos = removed == 0 ? 0 : (double) (System.nanoTime() - start) / removed;
+        List<Fruit> live = Arrays.asList(fruits).subList(removed, fruitCount);
+        sketches.rebuildIfStale(target -> live.forEach(target::add));
+        ApproximateStatistics estimate = sketches.toStatistics();
+
+        System.out.printf(Locale.ROOT, "%,d fruits added, %,d removed: %.1f ns per add, %.1f ns per remove%n",
+                fruitCount, removed, addNanos, removeNanos);
+        System.out.printf("%-24s %14s %14s %10s %10s%n", "estimate", "exact", "estimated", "error", "bound");
+
+        Set<String> names = new HashSet<>();
+        Map<String, Integer> colorCounts = new HashMap<>();
+        int[] weights = new int[live.size()];
+        int[] calories = new int[live.size()];
+        for (int i = 0; i < live.size(); i++) {
+            Fruit fruit = live.get(i);
+            names.add(fruit.getName());
+            colorCounts.merge(fruit.getColor(), 1, Integer::sum);
+            weights[i] = fruit.getWeight();
+            calories[i] = fruit.getCaloriesPer100g();
+        }
+        Arrays.sort(weights);
+        Arrays.sort(calories);
+
+        double distinctBound = estimate.getDistinctError();
+        check("distinct names", names.size(), estimate.getDistinctNames(),
+                relative(names.size(), estimate.getDistinctNames()), distinctBound);
+        check("distinct colors", colorCounts.size(), estimate.getDistinctColors(),
+                relative(colorCounts.size(), estimate.getDistinctColors()), distinctBound);
+        for (double quantile : QUANTILES) {
+            String label = "p" + Math.round(quantile * 100);
+            int weight = estimate.getWeightQuantile(quantile);
+            check("weight " + label, weights[rankIndex(weights.length, quantile)], weight,
+                    rankError(weights, weight, quantile), estimate.getRankError());
+            int caloriesPer100g = estimate.getCalorieQuantile(quantile);
+            check("calories " + label, calories[rankIndex(calories.length, quantile)], caloriesPer100g,
+                    rankError(calories, caloriesPer100g, quantile), estimate.getRankError());
+        }
+        long worst = 0;
+        String worstColor = null;
+        for (Map.Entry<String, Integer> color : colorCounts.entrySet()) {
+            long over = estimate.getColorCount(color.getKey()) - color.getValue();
+            if (over < 0) {
+                throw new IllegalStateException("Color count below the true count for " + color.getKey());
+            }
+            if (worstColor == null || over > worst) {
+                worst = over;
+                worstColor = color.getKey();
+            }
+        }
+        if (worstColor != null) {
+            check("worst color count", colorCounts.get(worstColor), estimate.getColorCount(worstColor),
+                    (double) worst / live.size(), (double) estimate.getColorCountError() / Math.max(1, live.size()));
+        }
+        System.out.println("All estimates within three times their documented bounds");
+    }
+
+    private static void check(String label, long exact, long estimated, double error, double bound) {
+        System.out.printf(Locale.ROOT, "%-24s %,14d %,14d %9.3f%% %9.3f%%%n", label, exact, estimated,
+                error * 100, bound * 100);
+        if (error > 3 * bound) {
+            throw new IllegalStateException(label + " is off by " + error + ", more than three times " + bound);
+        }
+    }
+
+    private static double relative(long exact, long estimated) {
+        return exact == 0 ? 0 : (double) Math.abs(estimated - exact) / exact;
+    }
+
+    private static int rankIndex(int length, double quantile) {
+        return Math.max(0, Math.min(length - 1, (int) Math.ceil(quantile * length) - 1));
+    }
+
+    /**
+     * Distance between the requested rank and the nearest true rank of the estimated value, as a share of the values
+     */
+    private static double rankError(int[] sorted, int value, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int below = lowerBound(sorted, value);
+        int atOrBelow = lowerBound(sorted, value + 1);
+        double target = quantile * sorted.length;
+        if (target >= below && target <= atOrBelow) {
+            return 0;
+        }
+        return Math.min(Math.abs(target - below), Math.abs(target - atOrBelow)) / sorted.length;
+    }
+
+    private static int lowerBound(int[] sorted, int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
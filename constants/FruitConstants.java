@@ -10,6 +10,29 @@ public final class FruitConstants {
     public static final int MIN_WEIGHT_FOR_CONSUMPTION = 0;
     public static final double CALORIES_PER_100G_TO_GRAM_RATIO = 100.0;
     
+    // Grouped statistics and histograms: weight buckets of this many grams, the last one open-ended
+    public static final int WEIGHT_BUCKET_GRAMS = 100;
+    public static final int WEIGHT_BUCKETS = 10;
+    // Histograms of calories per 100g and of total calories per fruit, the last bucket open-ended
+    public static final int CALORIE_BUCKET_WIDTH = 20;
+    public static final int CALORIE_BUCKETS = 10;
+    public static final int TOTAL_CALORIE_BUCKET_WIDTH = 50;
+    public static final int TOTAL_CALORIE_BUCKETS = 10;
+    
+    // Persistence: snapshot file in the working directory, loaded at startup and saved on exit
+    public static final String SNAPSHOT_FILE = "fruits.snapshot";
+    // Write-ahead log segments next to the snapshot, replayed at startup and folded into it by compaction
+    public static final String WAL_FILE_PREFIX = "fruits.wal.";
+    public static final long WAL_FLUSH_INTERVAL_MILLIS = 100;
+
+    // HTTP API
+    public static final int HTTP_DEFAULT_PORT = 8080;
+    public static final int API_DEFAULT_PAGE_SIZE = 50;
+    public static final int API_MAX_PAGE_SIZE = 1000;
+
+    // Binary protocol
+    public static final int BINARY_DEFAULT_PORT = 9090;
+    
     // Private constructor to prevent instantiation
     private FruitConstants() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
@@ -27,9 +27,32 @@ public final class UIConstants {
             "Show statistics",
             "Update fruit",
             "Delete fruit",
+            "Import fruits from file",
             "Exit"
     };
 
+    // Paged fruit list
+    public static final int FRUITS_PER_PAGE = 50;
+    public static final String[] PAGE_OPTIONS = {"Previous", "Next", "Close"};
+    public static final int PAGE_PREVIOUS = 0;
+    public static final int PAGE_NEXT = 1;
+    public static final int PAGE_ROWS = 30;
+    public static final int PAGE_COLUMNS = 100;
+    public static final String[] CLOSE_OPTIONS = {"Close"};
+
+    // Progress dialog for background work
+    public static final int PROGRESS_DELAY_MILLIS = 300;
+    public static final int PROGRESS_REFRESH_MILLIS = 100;
+    public static final String[] PROGRESS_OPTIONS = {"Cancel"};
+
+    // Fruit table
+    public static final String[] FRUIT_TABLE_COLUMNS = {
+            "Name", "Color", "Weight (g)", "Calories/100g", "Total calories", "Edible", "Healthy"
+    };
+    public static final int FRUIT_TABLE_WIDTH = 900;
+    public static final int FRUIT_TABLE_HEIGHT = 600;
+    public static final int FILTER_DELAY_MILLIS = 250;
+
     public static final String[] UPDATE_MENU_OPTIONS = {
             "Update all attributes",
             "Update name only",
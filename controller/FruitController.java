@@ -1,33 +1,109 @@
 package controller;
 
+import constants.FruitConstants;
+import constants.UIConstants;
 import factory.FruitFactory;
 import interfaces.IFruitManager;
 import interfaces.IUserInterface;
 import model.Fruit;
-import service.FruitManager;
-import service.UserInterface;
+import persistence.DurableFruitManager;
+import persistence.FruitImporter;
+import persistence.FruitSnapshotStore;
+import persistence.FruitWriteAheadLog;
+import service.IndexedFruitManager;
+import service.TableUserInterface;
 import util.FruitDisplayFormatter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+
 public class FruitController {
-    private final IFruitManager fruitManager;
     private final IUserInterface ui;
+    private final IFruitManager fruitManager;
+    // Runs every manager operation, one at a time, so the dialogs stay responsive during long scans
+    private final ExecutorService worker;
 
     public FruitController() {
-        this.fruitManager = new FruitManager();
-        this.ui = new UserInterface();
-        initializeExampleFruits();
+        this.ui = new TableUserInterface();
+        this.fruitManager = openFruitManager();
+        this.worker = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("fruit-worker").factory());
+    }
+
+    /**
+     * Restores the saved fruits from the snapshot and write-ahead log, or starts with the example fruits
+     * If the saved data cannot be read, the application runs in memory only.
+     */
+    private IFruitManager openFruitManager() {
+        IFruitManager manager;
+        boolean recovered = false;
+        try {
+            DurableFruitManager durable = openSavedFruits();
+            recovered = durable.wasRecovered();
+            manager = durable;
+        } catch (IOException e) {
+            ui.showErrorMessage("Could not load saved fruits: " + e.getMessage()
+                    + "\n\nStarting with the example fruits. Changes will not be saved.", "Error");
+            manager = new IndexedFruitManager();
+        }
+
+        if (!recovered) {
+            initializeExampleFruits(manager);
+        }
+        return manager;
+    }
+
+    /**
+     * Opens the collection saved in the working directory, replaying its write-ahead log
+     * @return Durable manager over an IndexedFruitManager
+     * @throws IOException if the snapshot or the log cannot be read
+     */
+    static DurableFruitManager openSavedFruits() throws IOException {
+        FruitSnapshotStore snapshotStore = new FruitSnapshotStore(Path.of(FruitConstants.SNAPSHOT_FILE));
+        return DurableFruitManager.open(new IndexedFruitManager(), snapshotStore,
+                FruitConstants.WAL_FILE_PREFIX, FruitWriteAheadLog.SyncPolicy.EVERY_WRITE,
+                FruitConstants.WAL_FLUSH_INTERVAL_MILLIS, DurableFruitManager.DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Folds the write-ahead log into the snapshot and closes it
+     */
+    private void saveFruits() {
+        // Cancelled work may still be running; let it finish before closing the log
+        worker.shutdown();
+        try {
+            worker.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!(fruitManager instanceof DurableFruitManager durable)) return;
+        try {
+            durable.close();
+        } catch (IOException e) {
+            ui.showErrorMessage("Could not save fruits: " + e.getMessage(), "Error");
+        }
     }
 
     /**
      * Initializes the application with some example fruits
+     * @param manager Manager to fill
      */
-    private void initializeExampleFruits() {
+    static void initializeExampleFruits(IFruitManager manager) {
         // Use factory to create example fruits
         Fruit[] exampleFruits = FruitFactory.createExampleFruits();
         
         // Add example fruits to the manager
         for (Fruit fruit : exampleFruits) {
-            fruitManager.addFruit(fruit);
+            manager.addFruit(fruit);
         }
     }
 
@@ -41,21 +117,67 @@ public class FruitController {
         while (continueProgram) {
             int option = ui.showMainMenu();
 
-            switch (option) {
-                case 1 -> addFruits();
-                case 2 -> showAllFruits();
-                case 3 -> searchFruitByName();
-                case 4 -> compareFruits();
-                case 5 -> showStatistics();
-                case 6 -> updateFruit();
-                case 7 -> deleteFruit();
-                case 0 -> {
-                    continueProgram = false;
-                    ui.showInfoMessage("Thank you for using the fruit system!", "Goodbye");
+            try {
+                switch (option) {
+                    case 1 -> addFruits();
+                    case 2 -> showAllFruits();
+                    case 3 -> searchFruitByName();
+                    case 4 -> compareFruits();
+                    case 5 -> showStatistics();
+                    case 6 -> updateFruit();
+                    case 7 -> deleteFruit();
+                    case 8 -> importFruits();
+                    case 0 -> {
+                        continueProgram = false;
+                        ui.showInfoMessage("Thank you for using the fruit system!", "Goodbye");
+                    }
+                    default -> continueProgram = false;
                 }
-                default -> continueProgram = false;
+            } catch (CancellationException e) {
+                ui.showInfoMessage("The operation was cancelled.", "Cancelled");
             }
         }
+
+        saveFruits();
+    }
+
+    /**
+     * Runs manager work on the background worker and waits for it while the user interface shows progress
+     * @param message Message shown if the work takes a moment
+     * @param work Work to run
+     * @return Result of the work
+     * @throws CancellationException if the user cancelled the work
+     */
+    private <T> T inBackground(String message, Callable<T> work) {
+        return inBackground(message, work, () -> -1);
+    }
+
+    /**
+     * Runs manager work on the background worker and waits for it while the user interface shows progress
+     * @param message Message shown if the work takes a moment
+     * @param work Work to run
+     * @param progress Fraction of the work done, or a negative value if unknown
+     * @return Result of the work
+     * @throws CancellationException if the user cancelled the work
+     */
+    private <T> T inBackground(String message, Callable<T> work, DoubleSupplier progress) {
+        Future<T> task = worker.submit(work);
+        if (!ui.awaitTask(task, message, "Please wait", progress)) {
+            throw new CancellationException(message);
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel(true);
+            throw new CancellationException(message);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            if (cause instanceof Error error) throw error;
+            if (cause instanceof IOException io) throw new UncheckedIOException(io);
+            throw new IllegalStateException(cause);
+        }
     }
 
     /**
@@ -71,9 +193,14 @@ public class FruitController {
                 Fruit newFruit = createFruitFromUserInput();
                 if (newFruit == null) return;
 
-                fruitManager.addFruit(newFruit);
+                inBackground("Adding fruit...", () -> {
+                    fruitManager.addFruit(newFruit);
+                    return null;
+                });
                 ui.showInfoMessage("Fruit '" + newFruit.getName() + "' added successfully!", "Success");
             }
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             ui.showErrorMessage("Error adding fruits: " + e.getMessage(), "Error");
         }
@@ -86,7 +213,7 @@ public class FruitController {
         String name = ui.requestText("Fruit name:", "Fruit name");
         if (name == null) return null;
 
-        if (fruitManager.fruitExists(name)) {
+        if (inBackground("Checking name...", () -> fruitManager.fruitExists(name))) {
             boolean addAnyway = ui.requestBoolean(
                     "A fruit with the name '" + name + "' already exists. Do you want to add it anyway?",
                     "Duplicate fruit"
@@ -104,24 +231,54 @@ public class FruitController {
         return new Fruit(name, weight, color, isEdible, caloriesPer100g);
     }
 
+    /**
+     * Imports fruits in bulk from a CSV or JSON-lines file
+     */
+    private void importFruits() {
+        String path = ui.requestText("Path of the CSV or JSON-lines file to import\n"
+                + "(columns: name, weight, color, edible, calories):", "Import fruits");
+        if (path == null) return;
+
+        boolean addDuplicates = ui.requestBoolean(
+                "Fruits in the file may have names that already exist. Do you want to add them anyway?",
+                "Duplicate fruits"
+        );
+        FruitImporter.DuplicatePolicy policy = addDuplicates
+                ? FruitImporter.DuplicatePolicy.ADD
+                : FruitImporter.DuplicatePolicy.SKIP;
+
+        FruitImporter importer = new FruitImporter(fruitManager);
+        try {
+            FruitImporter.ImportReport report = inBackground("Importing " + path + "...",
+                    () -> importer.importFile(Path.of(path), policy), importer::getProgress);
+            ui.showInfoMessage(report.toString(), "Import finished");
+        } catch (CancellationException e) {
+            ui.showInfoMessage("Import cancelled. Fruits read before cancelling were kept.", "Import cancelled");
+        } catch (UncheckedIOException e) {
+            ui.showErrorMessage("Error importing fruits: " + e.getCause().getMessage(), "Error");
+        } catch (RuntimeException e) {
+            ui.showErrorMessage("Error importing fruits: " + e.getMessage(), "Error");
+        }
+    }
+
     /**
      * Shows all fruits in the collection with improved display options
      */
     private void showAllFruits() {
-        if (fruitManager.isEmpty()) {
+        if (inBackground("Loading fruits...", fruitManager::isEmpty)) {
             ui.showInfoMessage("No fruits registered. Add some first!", "No fruits");
             return;
         }
 
-        String formattedList = FruitDisplayFormatter.formatAllFruits(fruitManager.getAllFruits());
-        ui.showInfoMessage(formattedList, "All Fruits");
+        // The worker is idle now, so the list can read the collection from its own threads
+        ui.showFruitList(fruitManager, "All Fruits");
     }
 
     /**
      * Searches for a fruit by name
      */
     private void searchFruitByName() {
-        if (fruitManager.isEmpty()) {
+        if (inBackground("Loading fruits...", fruitManager::isEmpty)) {
             ui.showInfoMessage("No fruits registered.", "No fruits");
             return;
         }
@@ -129,7 +286,7 @@ public class FruitController {
         String name = ui.requestText("Enter the name of the fruit to search:", "Search fruit");
         if (name == null) return;
 
-        Fruit fruit = fruitManager.searchFruitByName(name);
+        Fruit fruit = inBackground("Searching for '" + name + "'...", () -> fruitManager.searchFruitByName(name));
         if (fruit != null) {
             String formattedFruit = "FRUIT FOUND\n\n" + FruitDisplayFormatter.formatFruitDetails(fruit);
             ui.showInfoMessage(formattedFruit, "Search result");
@@ -142,12 +299,12 @@ public class FruitController {
      * Compares two fruits
      */
     private void compareFruits() {
-        if (fruitManager.getSize() < 2) {
+        if (inBackground("Loading fruits...", fruitManager::getSize) < 2) {
             ui.showInfoMessage("You need at least 2 fruits to make comparisons.", "Insufficient fruits");
             return;
         }
 
-        String[] names = fruitManager.getFruitNames();
+        String[] names = inBackground("Loading fruit names...", fruitManager::getFruitNames);
 
         int selection1 = ui.showSelectionDialog(names, "Select First Fruit",
                 "FRUIT COMPARISON\n\nSelect the FIRST fruit to compare:");
@@ -171,8 +328,8 @@ public class FruitController {
             return;
         }
 
-        Fruit f1 = fruitManager.searchFruitByExactName(fruit1Name);
-        Fruit f2 = fruitManager.searchFruitByExactName(fruit2Name);
+        Fruit f1 = inBackground("Loading fruits...", () -> fruitManager.searchFruitByExactName(fruit1Name));
+        Fruit f2 = inBackground("Loading fruits...", () -> fruitManager.searchFruitByExactName(fruit2Name));
 
         if (f1 != null && f2 != null) {
             String comparison = FruitDisplayFormatter.formatFruitComparison(f1, f2, fruit1Name, fruit2Name);
@@ -184,32 +341,33 @@ public class FruitController {
      * Shows statistics about the fruit collection
      */
     private void showStatistics() {
-        if (fruitManager.isEmpty()) {
+        if (inBackground("Loading fruits...", fruitManager::isEmpty)) {
             ui.showInfoMessage("No fruits registered.", "No fruits");
             return;
         }
 
-        FruitManager.FruitStatistics stats = fruitManager.calculateStatistics();
-        ui.showInfoMessage(stats.toString(), "Statistics");
+        String report = inBackground("Calculating statistics...", () ->
+                fruitManager.calculateGroupedStatistics() + "\n" + fruitManager.calculateDistributionStatistics());
+        ui.showPagedMessage(report, "Statistics", UIConstants.CLOSE_OPTIONS);
     }
 
     /**
      * Updates an existing fruit's information
      */
     private void updateFruit() {
-        if (fruitManager.isEmpty()) {
+        if (inBackground("Loading fruits...", fruitManager::isEmpty)) {
             ui.showInfoMessage("No fruits to update.", "No fruits");
             return;
         }
 
-        String[] names = fruitManager.getFruitNames();
+        String[] names = inBackground("Loading fruit names...", fruitManager::getFruitNames);
 
         int selection = ui.showSelectionDialog(names, "Update Fruit",
                 "UPDATE FRUIT\n\nSelect the fruit you want to update:");
         if (selection == -1) return;
 
         String fruitToUpdate = names[selection];
-        Fruit existingFruit = fruitManager.searchFruitByExactName(fruitToUpdate);
+        Fruit existingFruit = inBackground("Loading fruit...", () -> fruitManager.searchFruitByExactName(fruitToUpdate));
 
         if (existingFruit == null) {
             ui.showErrorMessage("Fruit not found.", "Error");
@@ -250,6 +408,8 @@ public class FruitController {
                 ui.showErrorMessage("Failed to update fruit. The new name might already exist.", "Update failed");
             }
 
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             ui.showErrorMessage("Error updating fruit: " + e.getMessage(), "Error");
         }
@@ -271,7 +431,8 @@ public class FruitController {
 
         int newCalories = ui.requestPositiveNumber("New calories per 100g (current: " + fruit.getCaloriesPer100g() + "):", "Calories");
 
-        return fruitManager.updateFruit(originalName, newName, newWeight, newColor, newIsEdible, newCalories);
+        return inBackground("Updating fruit...",
+                () -> fruitManager.updateFruit(originalName, newName, newWeight, newColor, newIsEdible, newCalories));
     }
 
     /**
@@ -300,19 +461,20 @@ public class FruitController {
                 break;
         }
 
-        return fruitManager.updateFruitAttribute(fruitName, attribute, newValue);
+        Object value = newValue;
+        return inBackground("Updating fruit...", () -> fruitManager.updateFruitAttribute(fruitName, attribute, value));
     }
 
     /**
      * Deletes a fruit from the collection
      */
     private void deleteFruit() {
-        if (fruitManager.isEmpty()) {
+        if (inBackground("Loading fruits...", fruitManager::isEmpty)) {
             ui.showInfoMessage("No fruits to delete.", "No fruits");
             return;
         }
 
-        String[] names = fruitManager.getFruitNames();
+        String[] names = inBackground("Loading fruit names...", fruitManager::getFruitNames);
 
         int selection = ui.showSelectionDialog(names, "Delete Fruit",
                 "DELETE FRUIT\n\nSelect the fruit you want to delete:");
@@ -326,7 +488,7 @@ public class FruitController {
         );
 
         if (confirmed) {
-            if (fruitManager.removeFruitByName(fruitToDelete)) {
+            if (inBackground("Deleting fruit...", () -> fruitManager.removeFruitByName(fruitToDelete))) {
                 ui.showInfoMessage("Fruit '" + fruitToDelete + "' deleted successfully!", "Deletion successful");
             } else {
                 ui.showErrorMessage("Failed to delete fruit.", "Error");
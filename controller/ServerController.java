@@ -0,0 +1,99 @@
+package controller;
+
+import api.FruitBinaryServer;
+import api.FruitHttpServer;
+import constants.FruitConstants;
+import persistence.DurableFruitManager;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Runs the application without dialogs, serving the saved collection over the network
+ * It opens the same snapshot and write-ahead log as the desktop application, so the two must not
+ * run at the same time in one directory. Stopping the process (Ctrl+C) saves the collection.
+ */
+public class ServerController {
+    // Port value for a front-end that is not started
+    public static final int DISABLED = -1;
+
+    private final DurableFruitManager fruitManager;
+    private final FruitHttpServer httpServer;
+    private final FruitBinaryServer binaryServer;
+
+    /**
+     * Opens the saved fruits and binds the requested ports
+     * @param httpPort Port of the JSON API, or DISABLED
+     * @param binaryPort Port of the binary protocol, or DISABLED
+     * @throws IOException if the saved fruits cannot be read or a port cannot be bound
+     */
+    public ServerController(int httpPort, int binaryPort) throws IOException {
+        this.fruitManager = FruitController.openSavedFruits();
+        if (!fruitManager.wasRecovered()) {
+            FruitController.initializeExampleFruits(fruitManager);
+        }
+        // Both front-ends serve the same collection, so they share one lock
+        ReadWriteLock lock = new ReentrantReadWriteLock();
+        this.httpServer = httpPort == DISABLED ? null : new FruitHttpServer(fruitManager, httpPort, lock);
+        this.binaryServer = binaryPort == DISABLED ? null : new FruitBinaryServer(fruitManager, binaryPort, lock);
+    }
+
+    /**
+     * Reads "--http [port]" and "--binary [port]" from the command line
+     * @param args Command line arguments
+     * @return Controller serving the requested front-ends, or null if none was requested
+     * @throws IOException if the saved fruits cannot be read or a port cannot be bound
+     */
+    public static ServerController fromArguments(String[] args) throws IOException {
+        int httpPort = DISABLED;
+        int binaryPort = DISABLED;
+        for (int i = 0; i < args.length; i++) {
+            boolean portFollows = i + 1 < args.length && !args[i + 1].startsWith("--");
+            if (args[i].equals("--http")) {
+                httpPort = portFollows ? Integer.parseInt(args[++i]) : FruitConstants.HTTP_DEFAULT_PORT;
+            } else if (args[i].equals("--binary")) {
+                binaryPort = portFollows ? Integer.parseInt(args[++i]) : FruitConstants.BINARY_DEFAULT_PORT;
+            }
+        }
+        if (httpPort == DISABLED && binaryPort == DISABLED) {
+            return null;
+        }
+        return new ServerController(httpPort, binaryPort);
+    }
+
+    /**
+     * Starts serving and returns; the server threads keep the process alive until it is stopped
+     */
+    public void run() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "fruit-server-shutdown"));
+        if (httpServer != null) {
+            httpServer.start();
+            System.out.println("Serving " + fruitManager.getSize() + " fruits on http://localhost:"
+                    + httpServer.getPort() + "/fruits");
+        }
+        if (binaryServer != null) {
+            binaryServer.start();
+            System.out.println("Serving " + fruitManager.getSize() + " fruits on binary port "
+                    + binaryServer.getPort());
+        }
+        System.out.println("Press Ctrl+C to stop");
+    }
+
+    /**
+     * Stops accepting requests, then folds the write-ahead log into the snapshot
+     */
+    private void stop() {
+        if (httpServer != null) {
+            httpServer.stop();
+        }
+        try {
+            if (binaryServer != null) {
+                binaryServer.close();
+            }
+            fruitManager.close();
+        } catch (IOException e) {
+            System.err.println("Could not save fruits: " + e.getMessage());
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package interfaces;
 
 import model.Fruit;
+import model.FruitQuery;
+import model.FruitUpdate;
+import service.ApproximateStatistics;
+import service.DistributionStatistics;
 import service.FruitManager;
+import service.FruitQueryPlan;
+import service.GroupedStatistics;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface for fruit management operations
@@ -17,6 +24,26 @@ public interface IFruitManager {
      */
     void addFruit(Fruit fruit);
     
+    /**
+     * Adds several fruits to the collection, in order, as addFruit would one by one
+     * @param fruits Fruits to add
+     */
+    void addAll(List<Fruit> fruits);
+    
+    /**
+     * Applies several updates in order, as updateFruit would one by one, but only if every one succeeds
+     * @param updates Updates to apply
+     * @return true if all updates were applied, false if none was because one would fail
+     */
+    boolean updateAll(List<FruitUpdate> updates);
+    
+    /**
+     * Removes fruits by name in order, as removeFruitByName would one by one, but only if every one succeeds
+     * @param names Names of the fruits to remove
+     * @return true if all were removed, false if nothing was removed because a name would not be found
+     */
+    boolean removeAll(List<String> names);
+    
     /**
      * Checks if a fruit with the given name already exists
      * @param name Name to search for
@@ -26,10 +53,20 @@ public interface IFruitManager {
     
     /**
      * Gets all fruits in the collection
+     * The list may be a read-only snapshot that the manager shares with other readers; copy it
+     * before changing it.
      * @return List of all fruits
      */
     List<Fruit> getAllFruits();
     
+    /**
+     * Gets one page of the collection without copying the rest
+     * @param offset Number of fruits to skip
+     * @param limit Maximum number of fruits to return
+     * @return Fruits in collection order
+     */
+    List<Fruit> getFruits(int offset, int limit);
+    
     /**
      * Checks if the collection is empty
      * @return true if empty, false otherwise
@@ -49,6 +86,15 @@ public interface IFruitManager {
      */
     Fruit searchFruitByName(String name);
     
+    /**
+     * Searches for all fruits matching a name (case-insensitive partial match), one page at a time
+     * @param name Name to search for
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of matches to return
+     * @return Matching fruits in collection order
+     */
+    List<Fruit> searchFruitsByName(String name, int offset, int limit);
+    
     /**
      * Searches for a fruit by exact name match
      * @param name Exact name to search for
@@ -56,6 +102,63 @@ public interface IFruitManager {
      */
     Fruit searchFruitByExactName(String name);
     
+    /**
+     * Gets all fruits of a color
+     * @param color Exact color to search for
+     * @return Fruits of that color in collection order
+     */
+    List<Fruit> getFruitsByColor(String color);
+    
+    /**
+     * Counts the fruits of each color
+     * @return Color -> number of fruits of that color
+     */
+    Map<String, Integer> countFruitsByColor();
+    
+    /**
+     * Gets the fruits whose weight lies in a range
+     * @param minWeight Lowest weight in grams, inclusive
+     * @param maxWeight Highest weight in grams, inclusive
+     * @return Matching fruits from lightest to heaviest, equal weights in collection order
+     */
+    List<Fruit> getFruitsByWeight(int minWeight, int maxWeight);
+    
+    /**
+     * Gets the fruits whose calories per 100g lie in a range
+     * @param minCalories Lowest calories per 100g, inclusive
+     * @param maxCalories Highest calories per 100g, inclusive
+     * @return Matching fruits from fewest to most calories, equal values in collection order
+     */
+    List<Fruit> getFruitsByCalories(int minCalories, int maxCalories);
+    
+    /**
+     * Gets the heaviest fruits without sorting the whole collection
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from heaviest down, equal weights in collection order
+     */
+    List<Fruit> getHeaviestFruits(int count);
+    
+    /**
+     * Gets the lightest fruits without sorting the whole collection
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from lightest up, equal weights in collection order
+     */
+    List<Fruit> getLightestFruits(int count);
+    
+    /**
+     * Gets the fruits with the most calories per 100g without sorting the whole collection
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from most calories down, equal values in collection order
+     */
+    List<Fruit> getMostCaloricFruits(int count);
+    
+    /**
+     * Plans a query, choosing the cheapest way this manager has to find the matches
+     * @param query Conditions every match must meet, plus offset and limit
+     * @return Plan that finds the matches in collection order when iterated, and can explain itself
+     */
+    FruitQueryPlan query(FruitQuery query);
+    
     /**
      * Gets array of all fruit names
      * @return Array of fruit names
@@ -75,6 +178,24 @@ public interface IFruitManager {
      */
     FruitManager.FruitStatistics calculateStatistics();
     
+    /**
+     * Calculates the statistics of the collection and of each color, health and weight group in one pass
+     * @return GroupedStatistics holding the overall and per-group stats
+     */
+    GroupedStatistics calculateGroupedStatistics();
+    
+    /**
+     * Estimates distinct counts, weight and calorie quantiles and color counts from bounded-memory sketches
+     * @return ApproximateStatistics with the estimates and their error bounds
+     */
+    ApproximateStatistics calculateApproximateStatistics();
+    
+    /**
+     * Gets exact percentiles and fixed-bucket histograms of weight, calories per 100g and total calories
+     * @return DistributionStatistics of the whole collection
+     */
+    DistributionStatistics calculateDistributionStatistics();
+    
     /**
      * Updates a fruit's attributes
      * @param oldName Original name of the fruit to update
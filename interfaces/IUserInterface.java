@@ -1,5 +1,8 @@
 package interfaces;
 
+import java.util.concurrent.Future;
+import java.util.function.DoubleSupplier;
+
 /**
  * Interface for user interface operations
  * Provides abstraction for different UI implementations (Swing, Console, Web, etc.)
@@ -13,7 +16,7 @@ public interface IUserInterface {
     
     /**
      * Displays the main menu and returns the selected option
-     * @return Selected menu option (1-7) or 0 for exit, -1 for cancel
+     * @return Selected menu option (1-8) or 0 for exit, -1 for cancel
      */
     int showMainMenu();
     
@@ -64,6 +67,33 @@ public interface IUserInterface {
      */
     void showInfoMessage(String message, String title);
     
+    /**
+     * Shows one page of a long text with navigation buttons
+     * @param message Text of the page
+     * @param title Dialog title
+     * @param options Button labels
+     * @return Index of the chosen button, or -1 if the dialog was closed
+     */
+    int showPagedMessage(String message, String title, String[] options);
+    
+    /**
+     * Shows the fruits of a collection, reading only the part that is on screen
+     * @param fruitManager Collection to show
+     * @param title Dialog title
+     */
+    void showFruitList(IFruitManager fruitManager, String title);
+    
+    /**
+     * Waits for a task running on another thread, showing its progress and a button to cancel it
+     * The dialog only appears if the task does not finish almost immediately.
+     * @param task Task to wait for
+     * @param message Message to display
+     * @param title Dialog title
+     * @param progress Fraction of the task done from 0 to 1, or a negative value if unknown
+     * @return true once the task has finished, false if the user cancelled it
+     */
+    boolean awaitTask(Future<?> task, String message, String title, DoubleSupplier progress);
+    
     /**
      * Shows an error message to the user
      * @param message Error message to display
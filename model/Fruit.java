@@ -1,6 +1,10 @@
 package model;
 
 import constants.FruitConstants;
+import util.DecimalAppender;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 public class Fruit {
     // Constants
@@ -63,28 +67,52 @@ public class Fruit {
     }
 
     // Business logic methods
+    // These go through the getters so subclasses backed by other storage stay consistent
     public String getInfo() {
-        return String.format("Name: %s, Color: %s, Weight: %dg, Calories per 100g: %d, Total calories: %.1f, Edible: %s",
-                           name, color, weight, caloriesPer100g, getTotalCalories(), isEdible ? "Yes" : "No");
+        StringBuilder sb = new StringBuilder(128);
+        try {
+            appendInfo(sb);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the same text as getInfo into a caller-supplied buffer or writer, without allocating
+     * @param out Destination of the text
+     * @throws IOException if the destination cannot be written
+     */
+    public void appendInfo(Appendable out) throws IOException {
+        out.append("Name: ").append(getName());
+        out.append(", Color: ").append(getColor());
+        out.append(", Weight: ");
+        DecimalAppender.appendLong(out, getWeight());
+        out.append("g, Calories per 100g: ");
+        DecimalAppender.appendLong(out, getCaloriesPer100g());
+        out.append(", Total calories: ");
+        DecimalAppender.append(out, getTotalCalories(), 1);
+        out.append(", Edible: ").append(isEdible() ? "Yes" : "No");
     }
 
     public double getTotalCalories() {
-        return (double) (caloriesPer100g * weight) / FruitConstants.CALORIES_PER_100G_TO_GRAM_RATIO;
+        return (double) (getCaloriesPer100g() * getWeight()) / FruitConstants.CALORIES_PER_100G_TO_GRAM_RATIO;
     }
 
     public double getCaloriesPerGram() {
-        return (double) caloriesPer100g / FruitConstants.CALORIES_PER_100G_TO_GRAM_RATIO;
+        return (double) getCaloriesPer100g() / FruitConstants.CALORIES_PER_100G_TO_GRAM_RATIO;
     }
 
     public boolean isHealthy() {
-        return caloriesPer100g < HEALTHY_CALORIE_THRESHOLD;
+        return getCaloriesPer100g() < HEALTHY_CALORIE_THRESHOLD;
     }
 
     public boolean isHeavierThan(Fruit other) {
-        return this.weight > other.weight;
+        return this.getWeight() > other.getWeight();
     }
 
     public boolean canBeEaten() {
-        return isEdible && weight > FruitConstants.MIN_WEIGHT_FOR_CONSUMPTION;
+        return isEdible() && getWeight() > FruitConstants.MIN_WEIGHT_FOR_CONSUMPTION;
     }
 }
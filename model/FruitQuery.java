@@ -0,0 +1,265 @@
+package model;
+
+import util.NameFolding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Conditions on fruit attributes, all of which a fruit must meet, plus the page of matches wanted
+ * Built fluently, for example new FruitQuery().edible(true).healthy(true).color("Red").weightAtLeast(101)
+ * and run with IFruitManager.query, which decides how to find the matches.
+ */
+public class FruitQuery {
+    private final List<Condition> conditions;
+    private int offset;
+    private int limit;
+
+    /**
+     * One condition on a fruit
+     */
+    public sealed interface Condition permits NameIs, NameContains, ColorIs, WeightBetween, CaloriesBetween,
+            Edible, Healthy, CanBeEaten {
+        boolean test(Fruit fruit);
+    }
+
+    /** Exact name */
+    public record NameIs(String name) implements Condition {
+        public boolean test(Fruit fruit) {
+            return fruit.getName().equals(name);
+        }
+
+        @Override
+        public String toString() {
+            return "name = \"" + name + "\"";
+        }
+    }
+
+    /** Name contains the text, ignoring case */
+    public record NameContains(String text, String foldedText) implements Condition {
+        public NameContains(String text) {
+            this(text, NameFolding.fold(text));
+        }
+
+        public boolean test(Fruit fruit) {
+            return NameFolding.fold(fruit.getName()).contains(foldedText);
+        }
+
+        @Override
+        public String toString() {
+            return "name contains \"" + text + "\"";
+        }
+    }
+
+    /** Exact color */
+    public record ColorIs(String color) implements Condition {
+        public boolean test(Fruit fruit) {
+            return fruit.getColor().equals(color);
+        }
+
+        @Override
+        public String toString() {
+            return "color = " + color;
+        }
+    }
+
+    /** Weight in grams from min to max, inclusive */
+    public record WeightBetween(int min, int max) implements Condition {
+        public boolean test(Fruit fruit) {
+            return fruit.getWeight() >= min && fruit.getWeight() <= max;
+        }
+
+        @Override
+        public String toString() {
+            return describeRange("weight", min, max);
+        }
+    }
+
+    /** Calories per 100g from min to max, inclusive */
+    public record CaloriesBetween(int min, int max) implements Condition {
+        public boolean test(Fruit fruit) {
+            return fruit.getCaloriesPer100g() >= min && fruit.getCaloriesPer100g() <= max;
+        }
+
+        @Override
+        public String toString() {
+            return describeRange("calories", min, max);
+        }
+    }
+
+    public record Edible(boolean value) implements Condition {
+        public boolean test(Fruit fruit) {
+            return fruit.isEdible() == value;
+        }
+
+        @Override
+        public String toString() {
+            return value ? "edible" : "not edible";
+        }
+    }
+
+    public record Healthy(boolean value) implements Condition {
+        public boolean test(Fruit fruit) {
+            return fruit.isHealthy() == value;
+        }
+
+        @Override
+        public String toString() {
+            return value ? "healthy" : "not healthy";
+        }
+    }
+
+    public record CanBeEaten(boolean value) implements Condition {
+        public boolean test(Fruit fruit) {
+            return fruit.canBeEaten() == value;
+        }
+
+        @Override
+        public String toString() {
+            return value ? "can be eaten" : "cannot be eaten";
+        }
+    }
+
+    /**
+     * Creates a query matching every fruit
+     */
+    public FruitQuery() {
+        this.conditions = new ArrayList<>();
+        this.limit = Integer.MAX_VALUE;
+    }
+
+    public FruitQuery nameIs(String name) {
+        return where(new NameIs(name));
+    }
+
+    public FruitQuery nameContains(String text) {
+        return where(new NameContains(text));
+    }
+
+    public FruitQuery color(String color) {
+        return where(new ColorIs(color));
+    }
+
+    public FruitQuery weightBetween(int min, int max) {
+        return where(new WeightBetween(min, max));
+    }
+
+    public FruitQuery weightAtLeast(int min) {
+        return weightBetween(min, Integer.MAX_VALUE);
+    }
+
+    public FruitQuery weightAtMost(int max) {
+        return weightBetween(Integer.MIN_VALUE, max);
+    }
+
+    public FruitQuery caloriesBetween(int min, int max) {
+        return where(new CaloriesBetween(min, max));
+    }
+
+    public FruitQuery caloriesAtLeast(int min) {
+        return caloriesBetween(min, Integer.MAX_VALUE);
+    }
+
+    public FruitQuery caloriesAtMost(int max) {
+        return caloriesBetween(Integer.MIN_VALUE, max);
+    }
+
+    public FruitQuery edible(boolean value) {
+        return where(new Edible(value));
+    }
+
+    public FruitQuery healthy(boolean value) {
+        return where(new Healthy(value));
+    }
+
+    public FruitQuery canBeEaten(boolean value) {
+        return where(new CanBeEaten(value));
+    }
+
+    /**
+     * Adds a condition
+     * @param condition Condition every match must meet as well
+     * @return This query
+     */
+    public FruitQuery where(Condition condition) {
+        conditions.add(condition);
+        return this;
+    }
+
+    /**
+     * @param offset Number of matches to skip
+     * @return This query
+     */
+    public FruitQuery offset(int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset cannot be negative");
+        }
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * @param limit Maximum number of matches to return
+     * @return This query
+     */
+    public FruitQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    public List<Condition> getConditions() {
+        return List.copyOf(conditions);
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param fruit Fruit to test
+     * @return true if the fruit meets every condition
+     */
+    public boolean matches(Fruit fruit) {
+        for (Condition condition : conditions) {
+            if (!condition.test(fruit)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner text = new StringJoiner(" and ");
+        for (Condition condition : conditions) {
+            text.add(condition.toString());
+        }
+        String description = conditions.isEmpty() ? "all fruits" : text.toString();
+        if (offset > 0) {
+            description += ", offset " + offset;
+        }
+        if (limit < Integer.MAX_VALUE) {
+            description += ", limit " + limit;
+        }
+        return description;
+    }
+
+    private static String describeRange(String attribute, int min, int max) {
+        if (min == Integer.MIN_VALUE && max == Integer.MAX_VALUE) {
+            return attribute + " any";
+        }
+        if (min == Integer.MIN_VALUE) {
+            return attribute + " <= " + max;
+        }
+        if (max == Integer.MAX_VALUE) {
+            return attribute + " >= " + min;
+        }
+        return min == max ? attribute + " = " + min : attribute + " " + min + ".." + max;
+    }
+}
@@ -0,0 +1,14 @@
+package model;
+
+/**
+ * New attribute values for the fruit currently named oldName, as passed to updateFruit
+ * @param oldName Name of the fruit to update
+ * @param newName New name (can be same as old)
+ * @param weight New weight in grams
+ * @param color New color
+ * @param isEdible New edible status
+ * @param caloriesPer100g New calories per 100g
+ */
+public record FruitUpdate(String oldName, String newName, int weight, String color,
+                          boolean isEdible, int caloriesPer100g) {
+}
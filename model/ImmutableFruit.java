@@ -0,0 +1,76 @@
+package model;
+
+/**
+ * Fruit whose attributes never change once it is built
+ * Managers that hand out snapshots replace such a fruit with a new one instead of changing it, so a
+ * reader holding it always sees every attribute from the same version. The setters throw.
+ */
+public final class ImmutableFruit extends Fruit {
+
+    public ImmutableFruit(String name, int weight, String color, boolean isEdible, int caloriesPer100g) {
+        super(name, weight, color, isEdible, caloriesPer100g);
+    }
+
+    /**
+     * Gets an immutable fruit with the same attributes
+     * @param fruit Fruit to copy
+     * @return The fruit itself if it is already immutable, otherwise a copy
+     */
+    public static ImmutableFruit copyOf(Fruit fruit) {
+        if (fruit instanceof ImmutableFruit immutable) {
+            return immutable;
+        }
+        return new ImmutableFruit(fruit.getName(), fruit.getWeight(), fruit.getColor(), fruit.isEdible(),
+                fruit.getCaloriesPer100g());
+    }
+
+    // Copies with one attribute changed
+    public ImmutableFruit withName(String name) {
+        return new ImmutableFruit(name, getWeight(), getColor(), isEdible(), getCaloriesPer100g());
+    }
+
+    public ImmutableFruit withWeight(int weight) {
+        return new ImmutableFruit(getName(), weight, getColor(), isEdible(), getCaloriesPer100g());
+    }
+
+    public ImmutableFruit withColor(String color) {
+        return new ImmutableFruit(getName(), getWeight(), color, isEdible(), getCaloriesPer100g());
+    }
+
+    public ImmutableFruit withEdible(boolean edible) {
+        return new ImmutableFruit(getName(), getWeight(), getColor(), edible, getCaloriesPer100g());
+    }
+
+    public ImmutableFruit withCaloriesPer100g(int caloriesPer100g) {
+        return new ImmutableFruit(getName(), getWeight(), getColor(), isEdible(), caloriesPer100g);
+    }
+
+    @Override
+    public void setName(String name) {
+        throw immutable();
+    }
+
+    @Override
+    public void setColor(String color) {
+        throw immutable();
+    }
+
+    @Override
+    public void setWeight(int weight) {
+        throw immutable();
+    }
+
+    @Override
+    public void setCaloriesPer100g(int caloriesPer100g) {
+        throw immutable();
+    }
+
+    @Override
+    public void setEdible(boolean edible) {
+        throw immutable();
+    }
+
+    private UnsupportedOperationException immutable() {
+        return new UnsupportedOperationException("This fruit is immutable; update it through its manager");
+    }
+}
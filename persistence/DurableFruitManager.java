@@ -0,0 +1,624 @@
+package persistence;
+
+import interfaces.IFruitManager;
+import model.Fruit;
+import model.FruitQuery;
+import model.FruitUpdate;
+import service.ApproximateStatistics;
+import service.ColumnarFruitManager;
+import service.DistributionStatistics;
+import service.FruitManager;
+import service.FruitQueryPlan;
+import service.FruitVersion;
+import service.GroupedStatistics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Fruit manager that makes every mutation of another manager durable
+ * Successful adds, updates and removals are appended to a write-ahead log before the call returns;
+ * at startup the log is replayed on top of the latest snapshot. Once the log grows past a threshold
+ * it is folded into a new snapshot in the background, rebuilt from the files rather than copied
+ * from memory, so writers only wait for the log to switch segments.
+ */
+public class DurableFruitManager implements IFruitManager, Closeable {
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 64L * 1024 * 1024;
+
+    private static final byte ADD = 1;
+    private static final byte UPDATE = 2;
+    private static final byte UPDATE_ATTRIBUTE = 3;
+    private static final byte REMOVE = 4;
+    private static final byte ADD_ALL = 5;
+    private static final byte UPDATE_ALL = 6;
+    private static final byte REMOVE_ALL = 7;
+    private static final byte STRING_VALUE = 'S';
+    private static final byte INTEGER_VALUE = 'I';
+    private static final byte BOOLEAN_VALUE = 'B';
+
+    private final IFruitManager delegate;
+    private final FruitSnapshotStore snapshotStore;
+    private final FruitWriteAheadLog log;
+    private final Path logDirectory;
+    private final String logPrefix;
+    private final long compactionThreshold;
+    private final boolean recovered;
+    // Orders applying a mutation and appending its record, so the log replays in the same order
+    private final Object writeLock;
+    // Set from the moment a compaction is queued until it finishes, so writers queue at most one
+    private final AtomicBoolean compacting;
+    private final ExecutorService compactor;
+    private volatile Future<?> scheduledCompaction;
+    // Set when a change was applied but could not be logged; every later change is refused
+    private volatile RuntimeException failure;
+    // Highest log position appended by the current thread inside applyDeferred, unset outside it
+    private final ThreadLocal<long[]> deferredPosition;
+
+    private DurableFruitManager(IFruitManager delegate, FruitSnapshotStore snapshotStore, FruitWriteAheadLog log,
+                                Path logDirectory, String logPrefix, long compactionThreshold, boolean recovered) {
+        this.delegate = delegate;
+        this.snapshotStore = snapshotStore;
+        this.log = log;
+        this.logDirectory = logDirectory;
+        this.logPrefix = logPrefix;
+        this.compactionThreshold = compactionThreshold;
+        this.recovered = recovered;
+        this.writeLock = new Object();
+        this.compacting = new AtomicBoolean();
+        this.scheduledCompaction = CompletableFuture.completedFuture(null);
+        this.deferredPosition = new ThreadLocal<>();
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fruit-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Restores the delegate from the snapshot and log, then starts logging to a new segment
+     * @param delegate Empty manager that holds the fruits in memory
+     * @param snapshotStore Snapshot to load and to fold the log into
+     * @param logPrefix File name prefix of the log segments, next to the snapshot file
+     * @param syncPolicy When log records are forced to disk
+     * @param intervalMillis Flush interval for the INTERVAL and NONE policies
+     * @param compactionThreshold Segment size in bytes that triggers a background compaction
+     * @return Manager whose mutations are logged
+     * @throws IOException if the snapshot or the log cannot be read or created
+     */
+    public static DurableFruitManager open(IFruitManager delegate, FruitSnapshotStore snapshotStore, String logPrefix,
+                                           FruitWriteAheadLog.SyncPolicy syncPolicy, long intervalMillis,
+                                           long compactionThreshold) throws IOException {
+        Path logDirectory = snapshotStore.getFile().toAbsolutePath().getParent();
+        boolean recovered = snapshotStore.exists() || !FruitWriteAheadLog.listSegments(logDirectory, logPrefix).isEmpty();
+        long nextSegment = restore(delegate, snapshotStore, logDirectory, logPrefix, Long.MAX_VALUE);
+
+        FruitWriteAheadLog log = new FruitWriteAheadLog(logDirectory, logPrefix, nextSegment, syncPolicy, intervalMillis);
+        return new DurableFruitManager(delegate, snapshotStore, log, logDirectory, logPrefix,
+                compactionThreshold, recovered);
+    }
+
+    /**
+     * Tells whether a snapshot or log existed when this manager was opened
+     * @return true if fruits were restored from disk
+     */
+    public boolean wasRecovered() {
+        return recovered;
+    }
+
+    /**
+     * Runs calls to this manager whose changes do not wait for their log records to become durable
+     * A caller that serializes writers with a lock of its own runs the calls under that lock,
+     * releases it and only then calls awaitDurable, so the writers queued behind it can share
+     * the next fsync instead of each waiting for its own.
+     * @param operation Calls to this manager, made on the current thread
+     * @return Result of the operation and the log position to wait for
+     */
+    public <T> Deferred<T> applyDeferred(Supplier<T> operation) {
+        long[] position = {0};
+        deferredPosition.set(position);
+        try {
+            return new Deferred<>(operation.get(), position[0]);
+        } finally {
+            deferredPosition.remove();
+        }
+    }
+
+    /**
+     * Waits until the changes made by applyDeferred are as durable as the sync policy requires
+     * @param position Log position returned by applyDeferred
+     * @throws UncheckedIOException if the log could not be written
+     */
+    public void awaitDurable(long position) {
+        log.awaitDurable(position);
+    }
+
+    /**
+     * Completes once the changes made by applyDeferred are as durable as the sync policy requires
+     * For callers such as event loops that must not block while the log is written.
+     * @param position Log position returned by applyDeferred
+     * @return Future that fails with an UncheckedIOException if the log could not be written
+     */
+    public CompletableFuture<Void> whenDurable(long position) {
+        return log.whenDurable(position);
+    }
+
+    /**
+     * Result of applyDeferred
+     * @param result Value returned by the operation
+     * @param position Log position of the last record the operation appended, or 0 if it changed nothing
+     */
+    public record Deferred<T>(T result, long position) {
+    }
+
+    public void addFruit(Fruit fruit) {
+        logged(() -> {
+            delegate.addFruit(fruit);
+            return true;
+        }, () -> encodeAdd(fruit));
+    }
+
+    /**
+     * Adds several fruits with a single log record, so a crash never leaves the batch half applied
+     * The same holds for updateAll and removeAll.
+     */
+    public void addAll(List<Fruit> fruits) {
+        if (fruits.isEmpty()) return;
+        logged(() -> {
+            delegate.addAll(fruits);
+            return true;
+        }, () -> encodeAddAll(fruits));
+    }
+
+    public boolean fruitExists(String name) {
+        return delegate.fruitExists(name);
+    }
+
+    public List<Fruit> getAllFruits() {
+        return delegate.getAllFruits();
+    }
+
+    public List<Fruit> getFruits(int offset, int limit) {
+        return delegate.getFruits(offset, limit);
+    }
+
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    public int getSize() {
+        return delegate.getSize();
+    }
+
+    public Fruit searchFruitByName(String name) {
+        return delegate.searchFruitByName(name);
+    }
+
+    public List<Fruit> searchFruitsByName(String name, int offset, int limit) {
+        return delegate.searchFruitsByName(name, offset, limit);
+    }
+
+    public Fruit searchFruitByExactName(String name) {
+        return delegate.searchFruitByExactName(name);
+    }
+
+    public List<Fruit> getFruitsByColor(String color) {
+        return delegate.getFruitsByColor(color);
+    }
+
+    public Map<String, Integer> countFruitsByColor() {
+        return delegate.countFruitsByColor();
+    }
+
+    public List<Fruit> getFruitsByWeight(int minWeight, int maxWeight) {
+        return delegate.getFruitsByWeight(minWeight, maxWeight);
+    }
+
+    public List<Fruit> getFruitsByCalories(int minCalories, int maxCalories) {
+        return delegate.getFruitsByCalories(minCalories, maxCalories);
+    }
+
+    public List<Fruit> getHeaviestFruits(int count) {
+        return delegate.getHeaviestFruits(count);
+    }
+
+    public List<Fruit> getLightestFruits(int count) {
+        return delegate.getLightestFruits(count);
+    }
+
+    public List<Fruit> getMostCaloricFruits(int count) {
+        return delegate.getMostCaloricFruits(count);
+    }
+
+    public FruitQueryPlan query(FruitQuery query) {
+        return delegate.query(query);
+    }
+
+    public String[] getFruitNames() {
+        return delegate.getFruitNames();
+    }
+
+    public boolean removeFruitByName(String name) {
+        return logged(() -> delegate.removeFruitByName(name), () -> encodeRemove(name));
+    }
+
+    public boolean removeAll(List<String> names) {
+        return logged(() -> delegate.removeAll(names), () -> encodeRemoveAll(names));
+    }
+
+    public boolean updateAll(List<FruitUpdate> updates) {
+        return logged(() -> delegate.updateAll(updates), () -> encodeUpdateAll(updates));
+    }
+
+    public FruitManager.FruitStatistics calculateStatistics() {
+        return delegate.calculateStatistics();
+    }
+
+    public GroupedStatistics calculateGroupedStatistics() {
+        return delegate.calculateGroupedStatistics();
+    }
+
+    public ApproximateStatistics calculateApproximateStatistics() {
+        return delegate.calculateApproximateStatistics();
+    }
+
+    public DistributionStatistics calculateDistributionStatistics() {
+        return delegate.calculateDistributionStatistics();
+    }
+
+    public boolean updateFruit(String oldName, String newName, int newWeight,
+                               String newColor, boolean newIsEdible, int newCaloriesPer100g) {
+        return logged(() -> delegate.updateFruit(oldName, newName, newWeight, newColor, newIsEdible, newCaloriesPer100g),
+                () -> encodeUpdate(oldName, newName, newWeight, newColor, newIsEdible, newCaloriesPer100g));
+    }
+
+    public boolean updateFruitAttribute(String fruitName, String attribute, Object newValue) {
+        return logged(() -> delegate.updateFruitAttribute(fruitName, attribute, newValue),
+                () -> encodeUpdateAttribute(fruitName, attribute, newValue));
+    }
+
+    /**
+     * Folds the log into a new snapshot and deletes the folded segments
+     * Writers are held only while the log switches to a new segment. The snapshot is then rebuilt
+     * by replaying the retired segments on top of the previous snapshot in a scratch manager, unless
+     * the delegate hands out immutable versions of the collection that can be saved as they are.
+     * @throws IOException if the snapshot or the log cannot be read, or the snapshot cannot be written
+     */
+    public synchronized void compact() throws IOException {
+        long nextSegment;
+        List<Fruit> version = null;
+        synchronized (writeLock) {
+            nextSegment = log.rotate();
+            List<Fruit> fruits = delegate.getAllFruits();
+            if (fruits instanceof FruitVersion) {
+                // Neither the version nor its fruits change, so it is saved as it is
+                version = fruits;
+            }
+        }
+
+        // The retired segments must be fully written before they can be replayed or deleted
+        log.flush();
+        if (version == null) {
+            IFruitManager scratch = new ColumnarFruitManager();
+            restore(scratch, snapshotStore, logDirectory, logPrefix, nextSegment);
+            version = scratch.getAllFruits();
+        }
+        snapshotStore.save(version, nextSegment);
+        for (long segment : FruitWriteAheadLog.listSegments(logDirectory, logPrefix)) {
+            if (segment < nextSegment) {
+                Files.deleteIfExists(FruitWriteAheadLog.segmentFile(logDirectory, logPrefix, segment));
+            }
+        }
+    }
+
+    /**
+     * Starts a compaction on the background thread unless one is already queued or running
+     * @return Future completing when the compaction is done, or the one already queued or running
+     */
+    public Future<?> compactAsync() {
+        if (!compacting.compareAndSet(false, true)) {
+            return scheduledCompaction;
+        }
+        Future<?> compaction;
+        try {
+            compaction = compactor.submit(() -> {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            compacting.set(false);
+            throw e;
+        }
+        scheduledCompaction = compaction;
+        return compaction;
+    }
+
+    /**
+     * Folds the log into the snapshot one last time and closes the log
+     * Must not be called while other threads are still writing.
+     */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            compact();
+        } finally {
+            log.close();
+        }
+        // Nothing was appended after the final compaction, so the open segment is empty
+        Files.deleteIfExists(FruitWriteAheadLog.segmentFile(logDirectory, logPrefix, log.getSegment()));
+    }
+
+    /**
+     * Applies a mutation and, if it succeeded, logs it and waits for the configured durability
+     * The record is encoded and the log checked before the mutation runs, so a change is only
+     * left unlogged if the append itself fails; the manager then refuses every later change.
+     */
+    private boolean logged(Mutation mutation, RecordEncoder encoder) {
+        byte[] record = encoder.encode();
+        long lsn;
+        synchronized (writeLock) {
+            if (failure != null) {
+                throw new IllegalStateException("An earlier change could not be logged; reopen the saved fruits", failure);
+            }
+            log.ensureUsable();
+            if (!mutation.apply()) {
+                return false;
+            }
+            try {
+                lsn = log.append(record);
+            } catch (RuntimeException e) {
+                failure = e;
+                throw e;
+            }
+        }
+        long[] deferred = deferredPosition.get();
+        if (deferred != null) {
+            deferred[0] = lsn;
+        } else {
+            log.awaitDurable(lsn);
+        }
+        if (log.getSegmentBytes() > compactionThreshold && !compacting.get()) {
+            compactAsync();
+        }
+        return true;
+    }
+
+    private static byte[] encodeAdd(Fruit fruit) {
+        return encode(out -> {
+            out.writeByte(ADD);
+            writeFruit(out, fruit);
+        });
+    }
+
+    private static byte[] encodeAddAll(List<Fruit> fruits) {
+        return encode(out -> {
+            out.writeByte(ADD_ALL);
+            out.writeInt(fruits.size());
+            for (Fruit fruit : fruits) {
+                writeFruit(out, fruit);
+            }
+        });
+    }
+
+    private static byte[] encodeUpdate(String oldName, String newName, int newWeight,
+                                       String newColor, boolean newIsEdible, int newCaloriesPer100g) {
+        return encode(out -> {
+            out.writeByte(UPDATE);
+            writeString(out, oldName);
+            writeString(out, newName);
+            out.writeInt(newWeight);
+            writeString(out, newColor);
+            out.writeBoolean(newIsEdible);
+            out.writeInt(newCaloriesPer100g);
+        });
+    }
+
+    private static byte[] encodeUpdateAll(List<FruitUpdate> updates) {
+        return encode(out -> {
+            out.writeByte(UPDATE_ALL);
+            out.writeInt(updates.size());
+            for (FruitUpdate update : updates) {
+                writeString(out, update.oldName());
+                writeString(out, update.newName());
+                out.writeInt(update.weight());
+                writeString(out, update.color());
+                out.writeBoolean(update.isEdible());
+                out.writeInt(update.caloriesPer100g());
+            }
+        });
+    }
+
+    private static byte[] encodeRemoveAll(List<String> names) {
+        return encode(out -> {
+            out.writeByte(REMOVE_ALL);
+            out.writeInt(names.size());
+            for (String name : names) {
+                writeString(out, name);
+            }
+        });
+    }
+
+    private static byte[] encodeUpdateAttribute(String fruitName, String attribute, Object newValue) {
+        return encode(out -> {
+            out.writeByte(UPDATE_ATTRIBUTE);
+            writeString(out, fruitName);
+            writeString(out, attribute);
+            if (newValue instanceof String value) {
+                out.writeByte(STRING_VALUE);
+                writeString(out, value);
+            } else if (newValue instanceof Integer value) {
+                out.writeByte(INTEGER_VALUE);
+                out.writeInt(value);
+            } else if (newValue instanceof Boolean value) {
+                out.writeByte(BOOLEAN_VALUE);
+                out.writeBoolean(value);
+            } else {
+                throw new IllegalArgumentException("Unsupported attribute value: " + newValue);
+            }
+        });
+    }
+
+    private static byte[] encodeRemove(String name) {
+        return encode(out -> {
+            out.writeByte(REMOVE);
+            writeString(out, name);
+        });
+    }
+
+    /**
+     * Loads the snapshot into a manager and replays the log segments written after it
+     * Segments already folded into the snapshot by a compaction that did not finish cleaning up are deleted.
+     * @param endSegment First segment not to replay
+     * @return Number of the segment after the last one replayed, or the snapshot's first segment if none was
+     */
+    private static long restore(IFruitManager target, FruitSnapshotStore snapshotStore, Path logDirectory,
+                                String logPrefix, long endSegment) throws IOException {
+        long firstSegment = 0;
+        if (snapshotStore.exists()) {
+            FruitSnapshotStore.Snapshot snapshot = snapshotStore.readSnapshot();
+            target.addAll(snapshot.fruits());
+            firstSegment = snapshot.nextLogSegment();
+        }
+
+        long nextSegment = firstSegment;
+        for (long segment : FruitWriteAheadLog.listSegments(logDirectory, logPrefix)) {
+            Path file = FruitWriteAheadLog.segmentFile(logDirectory, logPrefix, segment);
+            if (segment < firstSegment) {
+                Files.deleteIfExists(file);
+                continue;
+            }
+            if (segment >= endSegment) {
+                break;
+            }
+            FruitWriteAheadLog.readSegment(file, record -> replay(target, record));
+            nextSegment = segment + 1;
+        }
+        return nextSegment;
+    }
+
+    /**
+     * Re-applies one logged mutation to the manager being restored
+     */
+    private static void replay(IFruitManager manager, ByteBuffer record) {
+        byte type = record.get();
+        switch (type) {
+            case ADD -> manager.addFruit(readFruit(record));
+            case ADD_ALL -> {
+                int count = record.getInt();
+                List<Fruit> fruits = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    fruits.add(readFruit(record));
+                }
+                manager.addAll(fruits);
+            }
+            case UPDATE -> manager.updateFruit(readString(record), readString(record), record.getInt(),
+                    readString(record), record.get() != 0, record.getInt());
+            case UPDATE_ATTRIBUTE -> {
+                String fruitName = readString(record);
+                String attribute = readString(record);
+                byte valueType = record.get();
+                Object value = switch (valueType) {
+                    case STRING_VALUE -> readString(record);
+                    case INTEGER_VALUE -> record.getInt();
+                    case BOOLEAN_VALUE -> record.get() != 0;
+                    default -> throw new IllegalStateException("Unknown value type " + valueType + " in log");
+                };
+                manager.updateFruitAttribute(fruitName, attribute, value);
+            }
+            case REMOVE -> manager.removeFruitByName(readString(record));
+            case UPDATE_ALL -> {
+                int count = record.getInt();
+                List<FruitUpdate> updates = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    updates.add(new FruitUpdate(readString(record), readString(record), record.getInt(),
+                            readString(record), record.get() != 0, record.getInt()));
+                }
+                manager.updateAll(updates);
+            }
+            case REMOVE_ALL -> {
+                int count = record.getInt();
+                List<String> names = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    names.add(readString(record));
+                }
+                manager.removeAll(names);
+            }
+            default -> throw new IllegalStateException("Unknown record type " + type + " in log");
+        }
+    }
+
+    private static byte[] encode(RecordWriter writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writer.write(out);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // Writing to a byte array never fails
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeFruit(DataOutputStream out, Fruit fruit) throws IOException {
+        writeString(out, fruit.getName());
+        out.writeInt(fruit.getWeight());
+        writeString(out, fruit.getColor());
+        out.writeBoolean(fruit.isEdible());
+        out.writeInt(fruit.getCaloriesPer100g());
+    }
+
+    private static Fruit readFruit(ByteBuffer buffer) {
+        return new Fruit(readString(buffer), buffer.getInt(), readString(buffer), buffer.get() != 0, buffer.getInt());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private interface Mutation {
+        boolean apply();
+    }
+
+    private interface RecordEncoder {
+        byte[] encode();
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
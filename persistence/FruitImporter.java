@@ -0,0 +1,448 @@
+package persistence;
+
+import interfaces.IFruitManager;
+import model.Fruit;
+import util.JsonObjectReader;
+import util.NameFolding;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams fruits from a CSV or JSON-lines file into a manager
+ *
+ * The calling thread reads the file in batches of lines, worker threads parse and validate each batch,
+ * and the calling thread adds the valid fruits batch by batch in file order. Only a few batches are in
+ * flight at a time, so memory stays bounded whatever the size of the file. Another thread can follow
+ * the import with getProgress, and interrupting the calling thread stops it after the current batch.
+ *
+ * CSV rows have the columns name, weight, color, edible, calories (an optional header row is skipped);
+ * JSON lines are objects with the keys "name", "weight", "color", "edible" and "calories".
+ * Rows are validated like the add dialog: non-empty name and color, weight and calories greater than 0.
+ */
+public class FruitImporter {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_REJECTIONS = 10;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * File formats the importer understands
+     */
+    public enum Format {
+        CSV,
+        JSON_LINES;
+
+        /**
+         * Picks the format from a file extension: .jsonl, .ndjson and .json are JSON lines, anything else CSV
+         * @param file File to import
+         * @return Format of the file
+         */
+        public static Format fromFileName(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json") ? JSON_LINES : CSV;
+        }
+    }
+
+    /**
+     * What to do with a fruit whose name already exists (case-insensitive), in the collection or earlier in the file
+     */
+    public enum DuplicatePolicy {
+        /** Add it anyway, like answering yes in the duplicate dialog */
+        ADD,
+        /** Leave it out, like answering no in the duplicate dialog */
+        SKIP
+    }
+
+    private final IFruitManager manager;
+    private final int workerCount;
+    private final int batchSize;
+    // Length of the source being imported, or -1 if unknown, and characters read from it so far
+    private volatile long expectedLength = -1;
+    private volatile long readLength;
+
+    public FruitImporter(IFruitManager manager) {
+        this(manager, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param manager Manager receiving the fruits
+     * @param workerCount Number of parsing threads
+     * @param batchSize Number of rows parsed and added together
+     */
+    public FruitImporter(IFruitManager manager, int workerCount, int batchSize) {
+        if (workerCount < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Worker count and batch size must be greater than 0");
+        }
+        this.manager = manager;
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports a UTF-8 file, choosing the format from its extension
+     * @param file CSV or JSON-lines file
+     * @param duplicatePolicy What to do with duplicate names
+     * @return Counts and throughput of the import
+     * @throws IOException if the file cannot be read
+     */
+    public ImportReport importFile(Path file, DuplicatePolicy duplicatePolicy) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return importFrom(reader, Format.fromFileName(file), duplicatePolicy, Files.size(file));
+        }
+    }
+
+    /**
+     * Imports fruits from a stream of text
+     * @param reader Source of the rows, read to the end but not closed
+     * @param format Format of the rows
+     * @param duplicatePolicy What to do with duplicate names
+     * @return Counts and throughput of the import
+     * @throws IOException if the source cannot be read
+     */
+    public ImportReport importFrom(Reader reader, Format format, DuplicatePolicy duplicatePolicy) throws IOException {
+        return importFrom(reader, format, duplicatePolicy, -1);
+    }
+
+    /**
+     * Gets how far the current import has got
+     * @return Fraction of the file read, from 0 to 1, or -1 if the length of the source is unknown
+     */
+    public double getProgress() {
+        long expected = expectedLength;
+        return expected <= 0 ? -1 : Math.min(1.0, (double) readLength / expected);
+    }
+
+    private ImportReport importFrom(Reader reader, Format format, DuplicatePolicy duplicatePolicy,
+                                    long length) throws IOException {
+        long start = System.nanoTime();
+        expectedLength = length;
+        readLength = 0;
+        Tally tally = new Tally(duplicatePolicy);
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "fruit-import-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Batches parsed or being parsed, oldest first; its size bounds the memory of the import
+        Deque<Future<ParsedBatch>> inFlight = new ArrayDeque<>();
+        int maxInFlight = 2 * workerCount;
+
+        try {
+            BufferedReader in = new BufferedReader(reader, READ_BUFFER_SIZE);
+            RawBatch batch = new RawBatch(batchSize);
+            long lineNumber = 0;
+            // Characters including line breaks; counted locally and published once per batch
+            long charsRead = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                charsRead += line.length() + 1;
+                if (line.isBlank() || (lineNumber == 1 && format == Format.CSV && isCsvHeader(line))) {
+                    continue;
+                }
+                batch.add(lineNumber, line);
+                if (batch.size == batchSize) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Import interrupted");
+                    }
+                    readLength = charsRead;
+                    RawBatch full = batch;
+                    inFlight.add(workers.submit(() -> parse(full, format)));
+                    batch = new RawBatch(batchSize);
+                    if (inFlight.size() >= maxInFlight) {
+                        insert(await(inFlight.removeFirst()), tally);
+                    }
+                }
+            }
+            if (batch.size > 0) {
+                RawBatch last = batch;
+                inFlight.add(workers.submit(() -> parse(last, format)));
+            }
+            while (!inFlight.isEmpty()) {
+                insert(await(inFlight.removeFirst()), tally);
+            }
+            readLength = charsRead;
+        } finally {
+            workers.shutdownNow();
+        }
+        return tally.toReport(System.nanoTime() - start);
+    }
+
+    /**
+     * Adds the valid fruits of a batch, applying the duplicate policy
+     */
+    private void insert(ParsedBatch batch, Tally tally) {
+        tally.rowsRead += batch.rowCount();
+        tally.rejected += batch.rejections().size();
+        for (String rejection : batch.rejections()) {
+            if (tally.rejectionSamples.size() == MAX_REPORTED_REJECTIONS) break;
+            tally.rejectionSamples.add(rejection);
+        }
+
+        List<Fruit> accepted = new ArrayList<>(batch.fruits().size());
+        // Names accepted from this batch, which the manager does not know about yet
+        Set<String> batchNames = new HashSet<>();
+        for (Fruit fruit : batch.fruits()) {
+            boolean duplicate = !batchNames.add(NameFolding.fold(fruit.getName()))
+                    || manager.fruitExists(fruit.getName());
+            if (duplicate) {
+                tally.duplicates++;
+                if (tally.duplicatePolicy == DuplicatePolicy.SKIP) continue;
+            }
+            accepted.add(fruit);
+        }
+        manager.addAll(accepted);
+        tally.imported += accepted.size();
+    }
+
+    private static ParsedBatch await(Future<ParsedBatch> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parsing failed unexpectedly", e.getCause());
+        }
+    }
+
+    /**
+     * Parses and validates every line of a batch; runs on a worker thread
+     */
+    private static ParsedBatch parse(RawBatch batch, Format format) {
+        List<Fruit> fruits = new ArrayList<>(batch.size);
+        List<String> rejections = new ArrayList<>();
+        for (int i = 0; i < batch.size; i++) {
+            try {
+                fruits.add(format == Format.CSV ? parseCsv(batch.lines[i]) : parseJson(batch.lines[i]));
+            } catch (IllegalArgumentException e) {
+                rejections.add("Line " + batch.lineNumbers[i] + ": " + e.getMessage());
+            }
+        }
+        return new ParsedBatch(batch.size, fruits, rejections);
+    }
+
+    private static boolean isCsvHeader(String line) {
+        List<String> fields = splitCsv(line);
+        return !fields.isEmpty() && fields.getFirst().equalsIgnoreCase("name");
+    }
+
+    private static Fruit parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != 5) {
+            throw new IllegalArgumentException("expected 5 columns (name, weight, color, edible, calories) but found "
+                    + fields.size());
+        }
+        return createFruit(fields.get(0), parsePositive(fields.get(1), "weight"), fields.get(2),
+                parseBoolean(fields.get(3)), parsePositive(fields.get(4), "calories"));
+    }
+
+    /**
+     * Splits a CSV line on commas outside double quotes; "" inside quotes is a literal quote
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    private static Fruit parseJson(String line) {
+        JsonObjectReader reader = new JsonObjectReader(line);
+        String name = null;
+        String color = null;
+        Object weight = null;
+        Object edible = null;
+        Object calories = null;
+        reader.begin();
+        while (reader.hasNextField()) {
+            String key = reader.readKey();
+            Object value = reader.readValue();
+            switch (key) {
+                case "name" -> name = value instanceof String s ? s : null;
+                case "color" -> color = value instanceof String s ? s : null;
+                case "weight" -> weight = value;
+                case "edible", "isEdible" -> edible = value;
+                case "calories", "caloriesPer100g" -> calories = value;
+                default -> {
+                    // Unknown keys are ignored
+                }
+            }
+        }
+        reader.end();
+
+        if (!(edible instanceof Boolean isEdible)) {
+            throw new IllegalArgumentException("\"edible\" must be true or false");
+        }
+        return createFruit(name, jsonPositive(weight, "weight"), color, isEdible, jsonPositive(calories, "calories"));
+    }
+
+    private static Fruit createFruit(String name, int weight, String color, boolean isEdible, int caloriesPer100g) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("name cannot be empty");
+        }
+        if (color == null || color.isBlank()) {
+            throw new IllegalArgumentException("color cannot be empty");
+        }
+        return new Fruit(name.trim(), weight, color.trim(), isEdible, caloriesPer100g);
+    }
+
+    private static int parsePositive(String value, String field) {
+        int number;
+        try {
+            number = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " must be a whole number but was '" + value + "'");
+        }
+        if (number <= 0) {
+            throw new IllegalArgumentException(field + " must be greater than 0");
+        }
+        return number;
+    }
+
+    private static int jsonPositive(Object value, String field) {
+        if (value instanceof String text) {
+            return parsePositive(text, field);
+        }
+        if (!(value instanceof Long number) || number > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(field + " must be a whole number");
+        }
+        if (number <= 0) {
+            throw new IllegalArgumentException(field + " must be greater than 0");
+        }
+        return number.intValue();
+    }
+
+    private static boolean parseBoolean(String value) {
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "yes", "y", "1" -> true;
+            case "false", "no", "n", "0" -> false;
+            default -> throw new IllegalArgumentException("edible must be true/false or yes/no but was '" + value + "'");
+        };
+    }
+
+    /**
+     * Outcome of an import
+     * @param rowsRead Non-blank data rows read from the file
+     * @param imported Fruits added to the collection
+     * @param rejected Rows that failed to parse or validate
+     * @param duplicates Valid rows whose name already existed
+     * @param duplicatePolicy Whether duplicates were added or skipped
+     * @param elapsedNanos Wall-clock time of the import
+     * @param rejectionSamples Reasons for the first few rejected rows
+     */
+    public record ImportReport(long rowsRead, long imported, long rejected, long duplicates,
+                               DuplicatePolicy duplicatePolicy, long elapsedNanos, List<String> rejectionSamples) {
+
+        /**
+         * Gets the import throughput
+         * @return Rows read per second
+         */
+        public double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("IMPORT FINISHED\n\n");
+            sb.append("Rows read: ").append(rowsRead).append("\n");
+            sb.append("Fruits imported: ").append(imported).append("\n");
+            sb.append("Rows rejected: ").append(rejected).append("\n");
+            sb.append("Duplicate names: ").append(duplicates)
+                    .append(duplicatePolicy == DuplicatePolicy.ADD ? " (added)" : " (skipped)").append("\n");
+            sb.append(String.format("Time: %.2f s (%.0f rows/s)", elapsedNanos / 1_000_000_000.0, rowsPerSecond()));
+            if (!rejectionSamples.isEmpty()) {
+                sb.append("\n\nFirst rejected rows:\n");
+                for (String rejection : rejectionSamples) {
+                    sb.append("• ").append(rejection).append("\n");
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Running counts of an import, touched only by the calling thread
+     */
+    private static class Tally {
+        private final DuplicatePolicy duplicatePolicy;
+        private final List<String> rejectionSamples = new ArrayList<>();
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+        private long duplicates;
+
+        private Tally(DuplicatePolicy duplicatePolicy) {
+            this.duplicatePolicy = duplicatePolicy;
+        }
+
+        private ImportReport toReport(long elapsedNanos) {
+            return new ImportReport(rowsRead, imported, rejected, duplicates, duplicatePolicy, elapsedNanos,
+                    List.copyOf(rejectionSamples));
+        }
+    }
+
+    /**
+     * Lines read from the file, waiting to be parsed
+     */
+    private static class RawBatch {
+        private final long[] lineNumbers;
+        private final String[] lines;
+        private int size;
+
+        private RawBatch(int capacity) {
+            this.lineNumbers = new long[capacity];
+            this.lines = new String[capacity];
+        }
+
+        private void add(long lineNumber, String line) {
+            lineNumbers[size] = lineNumber;
+            lines[size] = line;
+            size++;
+        }
+    }
+
+    private record ParsedBatch(int rowCount, List<Fruit> fruits, List<String> rejections) {
+    }
+}
@@ -0,0 +1,202 @@
+package persistence;
+
+import model.Fruit;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Saves the fruit collection to a compact binary snapshot file and loads it back through a memory map
+ *
+ * File layout (big-endian):
+ *   int magic "FRUT", int version, long first write-ahead log segment not folded into this snapshot
+ *   (version 2 only), int fruit count,
+ *   int color count, then each color as (int length, UTF-8 bytes),
+ *   each fruit as (int name length, UTF-8 name, int weight, int calories per 100g,
+ *   int color code, byte edible),
+ *   int CRC32C of every preceding byte.
+ * Snapshots are written to a temporary file and moved into place, so a crash never leaves a torn file.
+ */
+public class FruitSnapshotStore {
+    public static final int MAGIC = 0x46525554; // "FRUT"
+    public static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_LOG_SEGMENT = 1;
+    private static final int CHECKSUM_BYTES = Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Path file;
+
+    public FruitSnapshotStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Checks whether a snapshot has been written
+     * @return true if the snapshot file exists
+     */
+    public boolean exists() {
+        return Files.isRegularFile(file);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the given fruits to the snapshot file, replacing the previous snapshot
+     * @param fruits Fruits to save, in collection order
+     * @param nextLogSegment First write-ahead log segment whose changes are not in this snapshot
+     * @throws IOException if the file cannot be written
+     */
+    public void save(List<Fruit> fruits, long nextLogSegment) throws IOException {
+        Map<String, Integer> colorCodes = new HashMap<>();
+        List<String> colors = new ArrayList<>();
+        for (Fruit fruit : fruits) {
+            if (colorCodes.putIfAbsent(fruit.getColor(), colors.size()) == null) {
+                colors.add(fruit.getColor());
+            }
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                CRC32C checksum = new CRC32C();
+                OutputStream buffered = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(buffered, checksum));
+
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(nextLogSegment);
+                out.writeInt(fruits.size());
+                out.writeInt(colors.size());
+                for (String color : colors) {
+                    writeString(out, color);
+                }
+                for (Fruit fruit : fruits) {
+                    writeString(out, fruit.getName());
+                    out.writeInt(fruit.getWeight());
+                    out.writeInt(fruit.getCaloriesPer100g());
+                    out.writeInt(colorCodes.get(fruit.getColor()));
+                    out.writeByte(fruit.isEdible() ? 1 : 0);
+                }
+                // The checksum itself is written past the checked stream
+                out.flush();
+                DataOutputStream trailer = new DataOutputStream(buffered);
+                trailer.writeInt((int) checksum.getValue());
+                trailer.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads the snapshot file together with its write-ahead log position
+     * @return Fruits in the order they were saved and the first log segment to replay on top
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public Snapshot readSnapshot() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file + " is larger than 2 GB and cannot be mapped");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return read(buffer);
+        }
+    }
+
+    private Snapshot read(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 4 * Integer.BYTES + CHECKSUM_BYTES) {
+            throw new IOException("Snapshot " + file + " is truncated");
+        }
+        int magic = buffer.getInt();
+        if (magic != MAGIC) {
+            throw new IOException("File " + file + " is not a fruit snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION && version != VERSION_WITHOUT_LOG_SEGMENT) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + file);
+        }
+        verifyChecksum(buffer);
+
+        try {
+            long nextLogSegment = version == VERSION_WITHOUT_LOG_SEGMENT ? 0 : buffer.getLong();
+            int fruitCount = buffer.getInt();
+            int colorCount = buffer.getInt();
+            String[] colors = new String[colorCount];
+            for (int i = 0; i < colorCount; i++) {
+                colors[i] = readString(buffer);
+            }
+
+            List<Fruit> fruits = new ArrayList<>(fruitCount);
+            for (int i = 0; i < fruitCount; i++) {
+                String name = readString(buffer);
+                int weight = buffer.getInt();
+                int caloriesPer100g = buffer.getInt();
+                String color = colors[buffer.getInt()];
+                boolean isEdible = buffer.get() != 0;
+                fruits.add(new Fruit(name, weight, color, isEdible, caloriesPer100g));
+            }
+            return new Snapshot(fruits, nextLogSegment);
+        } catch (RuntimeException e) {
+            throw new IOException("Snapshot " + file + " is corrupt", e);
+        }
+    }
+
+    /**
+     * Compares the stored CRC32C with one computed over the whole mapped payload
+     */
+    private void verifyChecksum(ByteBuffer buffer) throws IOException {
+        int checksumPosition = buffer.limit() - CHECKSUM_BYTES;
+        ByteBuffer payload = buffer.duplicate().position(0).limit(checksumPosition);
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload);
+        if ((int) checksum.getValue() != buffer.getInt(checksumPosition)) {
+            throw new IOException("Snapshot " + file + " failed its checksum");
+        }
+        buffer.limit(checksumPosition);
+    }
+
+    /**
+     * Contents of a snapshot file
+     * @param fruits Fruits in the order they were saved
+     * @param nextLogSegment First write-ahead log segment whose changes must be replayed on top
+     */
+    public record Snapshot(List<Fruit> fruits, long nextLogSegment) {
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,447 @@
+package persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of encoded records, split into numbered segment files
+ *
+ * Each record is framed as (int payload length, payload, int CRC32C of the payload).
+ * Appends only copy the record into memory; a background flusher writes the pending records
+ * in one batch and, depending on the sync policy, forces them to disk. Writers that wait for
+ * durability while a flush is running are served together by the next one (group commit).
+ */
+public class FruitWriteAheadLog implements Closeable {
+    private static final int FRAME_OVERHEAD = 2 * Integer.BYTES;
+
+    /**
+     * When appended records are forced to disk
+     */
+    public enum SyncPolicy {
+        /** Writers wait until their record has been fsynced; concurrent writers share one fsync */
+        EVERY_WRITE,
+        /** Records are fsynced in the background every interval; a crash may lose the last interval */
+        INTERVAL,
+        /** Records are handed to the operating system in the background but never fsynced */
+        NONE
+    }
+
+    private final Path directory;
+    private final String filePrefix;
+    private final SyncPolicy syncPolicy;
+    private final long intervalMillis;
+    private final ReentrantLock lock;
+    private final Condition workAvailable;
+    private final Condition flushed;
+    // Records of retired segments that still have to be written before those files are closed
+    private final Deque<Batch> sealed;
+    private final ByteArrayOutputStream pending;
+    // Futures of whenDurable callers, lowest log sequence number first
+    private final PriorityQueue<Waiter> waiters;
+    private final Thread flusher;
+    private FileChannel channel;
+    private long segment;
+    private long segmentBytes;
+    // Log sequence numbers count bytes appended since the log was opened
+    private long appendedLsn;
+    private long flushedLsn;
+    private IOException failure;
+    private boolean closed;
+
+    /**
+     * Opens a new, empty segment and starts the background flusher
+     * @param directory Directory holding the segment files
+     * @param filePrefix File name prefix, followed by the segment number
+     * @param segment Number of the segment to create
+     * @param syncPolicy When records are forced to disk
+     * @param intervalMillis Flush interval for the INTERVAL and NONE policies
+     * @throws IOException if the segment cannot be created
+     */
+    public FruitWriteAheadLog(Path directory, String filePrefix, long segment,
+                              SyncPolicy syncPolicy, long intervalMillis) throws IOException {
+        this.directory = directory;
+        this.filePrefix = filePrefix;
+        this.syncPolicy = syncPolicy;
+        this.intervalMillis = intervalMillis;
+        this.lock = new ReentrantLock();
+        this.workAvailable = lock.newCondition();
+        this.flushed = lock.newCondition();
+        this.sealed = new ArrayDeque<>();
+        this.pending = new ByteArrayOutputStream();
+        this.waiters = new PriorityQueue<>(Comparator.comparingLong(Waiter::lsn));
+        this.segment = segment;
+        this.channel = openSegment(segment);
+        this.flusher = new Thread(this::runFlusher, "fruit-wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Appends a record to the current segment
+     * @param payload Encoded record
+     * @return Log sequence number to pass to awaitDurable
+     */
+    public long append(byte[] payload) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(payload.length + FRAME_OVERHEAD);
+        frame.putInt(payload.length).put(payload).putInt((int) checksum.getValue());
+
+        lock.lock();
+        try {
+            checkUsable();
+            pending.write(frame.array(), 0, frame.capacity());
+            appendedLsn += frame.capacity();
+            segmentBytes += frame.capacity();
+            if (syncPolicy == SyncPolicy.EVERY_WRITE) {
+                workAvailable.signal();
+            }
+            return appendedLsn;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a record is on disk if the sync policy requires it
+     * @param lsn Log sequence number returned by append
+     * @throws UncheckedIOException if the log could not be written
+     */
+    public void awaitDurable(long lsn) {
+        if (syncPolicy == SyncPolicy.EVERY_WRITE) {
+            awaitFlushed(lsn);
+        }
+    }
+
+    /**
+     * Completes once a record is on disk if the sync policy requires it, without blocking the caller
+     * @param lsn Log sequence number returned by append
+     * @return Future completed by the flusher, or failed with an UncheckedIOException if the log could not be written
+     */
+    public CompletableFuture<Void> whenDurable(long lsn) {
+        if (syncPolicy != SyncPolicy.EVERY_WRITE) {
+            return CompletableFuture.completedFuture(null);
+        }
+        lock.lock();
+        try {
+            if (failure != null) {
+                return CompletableFuture.failedFuture(new UncheckedIOException("Write-ahead log failed", failure));
+            }
+            if (flushedLsn >= lsn) {
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            waiters.add(new Waiter(lsn, future));
+            return future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks that appends are accepted, before the caller makes a change it has to log
+     * @throws UncheckedIOException if an earlier write failed
+     * @throws IllegalStateException if the log is closed
+     */
+    public void ensureUsable() {
+        lock.lock();
+        try {
+            checkUsable();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Switches appends to a new segment; records already appended stay in the previous one
+     * @return Number of the new segment
+     * @throws IOException if the new segment cannot be created
+     */
+    public long rotate() throws IOException {
+        lock.lock();
+        try {
+            checkUsable();
+            FileChannel next = openSegment(segment + 1);
+            sealed.add(new Batch(channel, drainPending(), appendedLsn, true));
+            channel = next;
+            segment++;
+            segmentBytes = 0;
+            workAvailable.signal();
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until everything appended so far has been written out, whatever the sync policy
+     * @throws UncheckedIOException if the log could not be written
+     */
+    public void flush() {
+        long target;
+        lock.lock();
+        try {
+            target = appendedLsn;
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        awaitFlushed(target);
+    }
+
+    /**
+     * Gets the size of the segment currently receiving appends
+     * @return Bytes appended to the current segment
+     */
+    public long getSegmentBytes() {
+        lock.lock();
+        try {
+            return segmentBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSegment() {
+        lock.lock();
+        try {
+            return segment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes out pending records, stops the flusher and closes the current segment
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Lists the segment numbers present in a directory, in ascending order
+     * @param directory Directory holding the segment files
+     * @param filePrefix File name prefix of the segments
+     * @return Segment numbers
+     * @throws IOException if the directory cannot be read
+     */
+    public static List<Long> listSegments(Path directory, String filePrefix) throws IOException {
+        List<Long> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, filePrefix + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(filePrefix.length());
+                try {
+                    segments.add(Long.parseLong(suffix));
+                } catch (NumberFormatException e) {
+                    // Not a segment, e.g. a temporary file
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Gets the file of a segment
+     */
+    public static Path segmentFile(Path directory, String filePrefix, long segment) {
+        return directory.resolve(filePrefix + segment);
+    }
+
+    /**
+     * Reads every intact record of a segment in order
+     * Reading stops at the first truncated or damaged record, which is where a crash cut the segment.
+     * @param file Segment file
+     * @param consumer Receives each record payload
+     * @return Number of records read
+     * @throws IOException if the file cannot be read
+     */
+    public static int readSegment(Path file, Consumer<ByteBuffer> consumer) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Log segment " + file + " is larger than 2 GB and cannot be mapped");
+            }
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int records = 0;
+            while (buffer.remaining() >= FRAME_OVERHEAD) {
+                int length = buffer.getInt(buffer.position());
+                if (length < 0 || length > buffer.remaining() - FRAME_OVERHEAD) break;
+
+                ByteBuffer payload = buffer.slice(buffer.position() + Integer.BYTES, length);
+                CRC32C checksum = new CRC32C();
+                checksum.update(payload.duplicate());
+                if ((int) checksum.getValue() != buffer.getInt(buffer.position() + Integer.BYTES + length)) break;
+
+                consumer.accept(payload);
+                buffer.position(buffer.position() + length + FRAME_OVERHEAD);
+                records++;
+            }
+            return records;
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            List<Batch> batches = new ArrayList<>();
+            lock.lock();
+            try {
+                // EVERY_WRITE flushes as soon as anything is pending, the other policies once per interval
+                while (!closed && sealed.isEmpty()) {
+                    if (syncPolicy == SyncPolicy.EVERY_WRITE) {
+                        if (pending.size() > 0) break;
+                        workAvailable.await();
+                    } else {
+                        workAvailable.await(intervalMillis, TimeUnit.MILLISECONDS);
+                        if (pending.size() > 0) break;
+                    }
+                }
+                batches.addAll(sealed);
+                sealed.clear();
+                if (pending.size() > 0) {
+                    batches.add(new Batch(channel, drainPending(), appendedLsn, false));
+                }
+                if (batches.isEmpty() && closed) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            long written = -1;
+            IOException error = null;
+            try {
+                for (Batch batch : batches) {
+                    write(batch);
+                    written = batch.endLsn();
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+
+            List<Waiter> served = new ArrayList<>();
+            lock.lock();
+            try {
+                if (error != null) failure = error;
+                if (written > flushedLsn) flushedLsn = written;
+                flushed.signalAll();
+                while (!waiters.isEmpty() && (error != null || waiters.peek().lsn() <= flushedLsn)) {
+                    served.add(waiters.poll());
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            // Completed outside the lock, since completing runs the callers' callbacks
+            for (Waiter waiter : served) {
+                if (error != null) {
+                    waiter.future().completeExceptionally(new UncheckedIOException("Write-ahead log failed", error));
+                } else {
+                    waiter.future().complete(null);
+                }
+            }
+            if (error != null) return;
+        }
+    }
+
+    private void write(Batch batch) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(batch.bytes());
+        while (buffer.hasRemaining()) {
+            batch.channel().write(buffer);
+        }
+        if (syncPolicy != SyncPolicy.NONE) {
+            batch.channel().force(false);
+        }
+        if (batch.closeAfter()) {
+            batch.channel().close();
+        }
+    }
+
+    private void awaitFlushed(long lsn) {
+        lock.lock();
+        try {
+            while (flushedLsn < lsn && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Write-ahead log failed", failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private byte[] drainPending() {
+        byte[] bytes = pending.toByteArray();
+        pending.reset();
+        return bytes;
+    }
+
+    private void checkUsable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        Files.createDirectories(directory);
+        return FileChannel.open(segmentFile(directory, filePrefix, number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Records to write to one segment file
+     */
+    private record Batch(FileChannel channel, byte[] bytes, long endLsn, boolean closeAfter) {
+    }
+
+    private record Waiter(long lsn, CompletableFuture<Void> future) {
+    }
+}
@@ -0,0 +1,162 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Estimates read from FruitSketches, with the error bound of each kind of estimate
+ * The number of fruits is exact. Distinct counts are within a few standard errors of the truth,
+ * quantiles are values whose true rank is within the rank error of the one asked for, and color
+ * counts are never below the truth and above it by at most the color count error except with the
+ * stated failure probability.
+ */
+public final class ApproximateStatistics {
+    private static final double[] REPORTED_QUANTILES = {0.5, 0.9, 0.99};
+
+    private final long totalFruits;
+    private final long distinctNames;
+    private final long distinctColors;
+    private final KllSketch.SortedView weights;
+    private final KllSketch.SortedView calories;
+    private final CountMinSketch colorCounts;
+    private final Map<String, Long> mostCommonColors;
+    private final double distinctError;
+    private final double rankError;
+    private final double colorCountErrorRate;
+    private final double colorCountFailureProbability;
+
+    public ApproximateStatistics(long totalFruits, long distinctNames, long distinctColors,
+                                 KllSketch.SortedView weights, KllSketch.SortedView calories,
+                                 CountMinSketch colorCounts, Collection<String> candidateColors,
+                                 double distinctError, double rankError,
+                                 double colorCountErrorRate, double colorCountFailureProbability) {
+        this.totalFruits = totalFruits;
+        this.distinctNames = distinctNames;
+        this.distinctColors = distinctColors;
+        this.weights = weights;
+        this.calories = calories;
+        this.colorCounts = colorCounts;
+        this.distinctError = distinctError;
+        this.rankError = rankError;
+        this.colorCountErrorRate = colorCountErrorRate;
+        this.colorCountFailureProbability = colorCountFailureProbability;
+
+        List<Map.Entry<String, Long>> ranked = new ArrayList<>();
+        for (String color : candidateColors) {
+            long count = getColorCount(color);
+            if (count > 0) {
+                ranked.add(Map.entry(color, count));
+            }
+        }
+        ranked.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Long> common = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : ranked) {
+            common.put(entry.getKey(), entry.getValue());
+        }
+        this.mostCommonColors = Collections.unmodifiableMap(common);
+    }
+
+    public long getTotalFruits() {
+        return totalFruits;
+    }
+
+    /**
+     * @return Estimated number of distinct fruit names
+     */
+    public long getDistinctNames() {
+        return distinctNames;
+    }
+
+    /**
+     * @return Estimated number of distinct colors
+     */
+    public long getDistinctColors() {
+        return distinctColors;
+    }
+
+    /**
+     * Estimates a weight quantile
+     * @param fraction Rank from 0 to 1, such as 0.9 for the 90th percentile
+     * @return Weight in grams, or 0 if there are no fruits
+     */
+    public int getWeightQuantile(double fraction) {
+        return weights.quantile(fraction);
+    }
+
+    /**
+     * Estimates a calories per 100g quantile
+     * @param fraction Rank from 0 to 1, such as 0.9 for the 90th percentile
+     * @return Calories per 100g, or 0 if there are no fruits
+     */
+    public int getCalorieQuantile(double fraction) {
+        return calories.quantile(fraction);
+    }
+
+    /**
+     * Estimates how many fruits have a color
+     * @param color Exact color value
+     * @return Estimated count, never below the true count
+     */
+    public long getColorCount(String color) {
+        return colorCounts.estimate(HyperLogLog.hash(color));
+    }
+
+    /**
+     * @return Color -> estimated count for the most common colors, most common first
+     */
+    public Map<String, Long> getMostCommonColors() {
+        return mostCommonColors;
+    }
+
+    /**
+     * @return Relative standard error of the distinct counts
+     */
+    public double getDistinctError() {
+        return distinctError;
+    }
+
+    /**
+     * @return Largest expected error in the rank of a quantile, as a share of the fruits
+     */
+    public double getRankError() {
+        return rankError;
+    }
+
+    /**
+     * @return Largest expected overestimate of a color count, in fruits
+     */
+    public long getColorCountError() {
+        return (long) Math.ceil(colorCountErrorRate * totalFruits);
+    }
+
+    /**
+     * @return Probability that a color count exceeds its error bound
+     */
+    public double getColorCountFailureProbability() {
+        return colorCountFailureProbability;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("APPROXIMATE STATISTICS\n\n");
+        sb.append("Total fruits: ").append(totalFruits).append('\n');
+        sb.append(String.format(Locale.ROOT, "Distinct names: ~%d (±%.1f%%)%n", distinctNames, distinctError * 100));
+        sb.append(String.format(Locale.ROOT, "Distinct colors: ~%d (±%.1f%%)%n", distinctColors, distinctError * 100));
+        sb.append(String.format(Locale.ROOT, "%nQuantiles (rank ±%.1f%%)  %8s %8s%n", rankError * 100, "Weight", "Kcal"));
+        for (double quantile : REPORTED_QUANTILES) {
+            sb.append(String.format(Locale.ROOT, "p%-23s %8d %8d%n", Math.round(quantile * 100),
+                    getWeightQuantile(quantile), getCalorieQuantile(quantile)));
+        }
+        sb.append(String.format(Locale.ROOT, "%nMost common colors (+%d at most)%n", getColorCountError()));
+        for (Map.Entry<String, Long> color : mostCommonColors.entrySet()) {
+            sb.append(String.format(Locale.ROOT, "%-24s %8d%n", color.getKey(), color.getValue()));
+        }
+        return sb.toString();
+    }
+}
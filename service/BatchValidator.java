@@ -0,0 +1,117 @@
+package service;
+
+import model.FruitUpdate;
+import util.NameFolding;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks up front whether every operation of a batch would succeed when applied in order
+ * Only name counts decide whether an update or removal succeeds, so the check replays the batch
+ * against an overlay of the counts it changes instead of touching the fruits. Managers use it to
+ * give their batch operations all-or-nothing semantics.
+ */
+final class BatchValidator {
+    private final NameCounts base;
+    // Exact name -> number of fruits with that name after the operations checked so far
+    private final Map<String, Integer> exactCounts;
+    // Folded name -> number of fruits whose name folds to it after the operations checked so far
+    private final Map<String, Integer> foldedCounts;
+
+    /**
+     * Name counts of the collection before the batch
+     */
+    interface NameCounts {
+        /**
+         * @param name Exact name
+         * @return Number of fruits with exactly this name
+         */
+        int exactCount(String name);
+
+        /**
+         * @param foldedName Name already passed through NameFolding.fold
+         * @return Number of fruits whose name folds to it
+         */
+        int foldedCount(String foldedName);
+    }
+
+    private BatchValidator(NameCounts base) {
+        this.base = base;
+        this.exactCounts = new HashMap<>();
+        this.foldedCounts = new HashMap<>();
+    }
+
+    /**
+     * Checks that every update would find its fruit and not collide with another name, in order
+     * @param base Name counts before the batch
+     * @param updates Updates in the order they will be applied
+     * @return true if applying the updates one by one would succeed for each of them
+     */
+    static boolean canUpdateAll(NameCounts base, List<FruitUpdate> updates) {
+        BatchValidator validator = new BatchValidator(base);
+        for (FruitUpdate update : updates) {
+            if (!validator.checkUpdate(update.oldName(), update.newName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that every name would still match at least one fruit when its removal comes up
+     * @param base Name counts before the batch
+     * @param names Names in the order they will be removed
+     * @return true if removing the names one by one would succeed for each of them
+     */
+    static boolean canRemoveAll(NameCounts base, List<String> names) {
+        BatchValidator validator = new BatchValidator(base);
+        for (String name : names) {
+            if (!validator.checkRemoval(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean checkUpdate(String oldName, String newName) {
+        if (exactCount(oldName) == 0) {
+            return false;
+        }
+        if (oldName.equals(newName)) {
+            return true;
+        }
+        String foldedNew = NameFolding.fold(newName);
+        if (foldedCount(foldedNew) > 0) {
+            return false;
+        }
+        exactCounts.put(oldName, exactCount(oldName) - 1);
+        exactCounts.put(newName, exactCount(newName) + 1);
+        String foldedOld = NameFolding.fold(oldName);
+        foldedCounts.put(foldedOld, foldedCount(foldedOld) - 1);
+        foldedCounts.put(foldedNew, foldedCount(foldedNew) + 1);
+        return true;
+    }
+
+    private boolean checkRemoval(String name) {
+        int removed = exactCount(name);
+        if (removed == 0) {
+            return false;
+        }
+        exactCounts.put(name, 0);
+        String folded = NameFolding.fold(name);
+        foldedCounts.put(folded, foldedCount(folded) - removed);
+        return true;
+    }
+
+    private int exactCount(String name) {
+        Integer count = exactCounts.get(name);
+        return count != null ? count : base.exactCount(name);
+    }
+
+    private int foldedCount(String foldedName) {
+        Integer count = foldedCounts.get(foldedName);
+        return count != null ? count : base.foldedCount(foldedName);
+    }
+}
@@ -0,0 +1,62 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns color values to small integer codes
+ * Each distinct color string is stored once; codes are assigned in order of first use and never reused.
+ */
+public class ColorDictionary {
+    private final Map<String, Integer> codes;
+    private final List<String> colors;
+
+    public ColorDictionary() {
+        this.codes = new HashMap<>();
+        this.colors = new ArrayList<>();
+    }
+
+    /**
+     * Gets the code for a color, assigning a new one on first use
+     * @param color Color value
+     * @return Code of the color
+     */
+    public int encode(String color) {
+        Integer code = codes.get(color);
+        if (code != null) {
+            return code;
+        }
+        int newCode = colors.size();
+        colors.add(color);
+        codes.put(color, newCode);
+        return newCode;
+    }
+
+    /**
+     * Gets the code of a known color without assigning one
+     * @param color Color value
+     * @return Code of the color or -1 if it was never encoded
+     */
+    public int codeOf(String color) {
+        return codes.getOrDefault(color, -1);
+    }
+
+    /**
+     * Gets the color value for a code
+     * @param code Code returned by encode
+     * @return Interned color value
+     */
+    public String decode(int code) {
+        return colors.get(code);
+    }
+
+    /**
+     * Gets the number of distinct colors encoded so far
+     * @return Number of codes
+     */
+    public int size() {
+        return colors.size();
+    }
+}
@@ -0,0 +1,115 @@
+package service;
+
+import model.Fruit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-color posting lists over a dictionary of interned colors
+ * Each fruit's color is replaced with the interned instance, so equal colors share one string,
+ * and lookups and grouping work on the integer color codes.
+ */
+public class ColorIndex {
+    private final ColorDictionary dictionary;
+    // Color code -> fruits of that color, ordered by insertion sequence
+    private final List<PostingList<Fruit>> postings;
+
+    public ColorIndex() {
+        this.dictionary = new ColorDictionary();
+        this.postings = new ArrayList<>();
+    }
+
+    /**
+     * Adds a fruit under its current color
+     * @param fruit Fruit to add
+     * @param sequence Insertion sequence of the fruit in its manager
+     */
+    public void add(Fruit fruit, long sequence) {
+        int code = dictionary.encode(fruit.getColor());
+        fruit.setColor(dictionary.decode(code));
+        if (code == postings.size()) {
+            postings.add(new PostingList<>());
+        }
+        postings.get(code).add(sequence, fruit);
+    }
+
+    /**
+     * Removes a fruit from the list of its current color
+     * Must be called before the color is changed
+     * @param fruit Fruit to remove
+     * @param sequence Insertion sequence of the fruit in its manager
+     */
+    public void remove(Fruit fruit, long sequence) {
+        int code = dictionary.codeOf(fruit.getColor());
+        if (code >= 0) {
+            postings.get(code).remove(sequence);
+        }
+    }
+
+    /**
+     * Removes several fruits, rewriting the list of each affected color once
+     * @param fruits Fruits to remove, under their current colors
+     * @param sequences Insertion sequence of each fruit, at the same position
+     */
+    public void removeAll(List<Fruit> fruits, long[] sequences) {
+        Map<Integer, List<Long>> removedByCode = new HashMap<>();
+        for (int i = 0; i < fruits.size(); i++) {
+            int code = dictionary.codeOf(fruits.get(i).getColor());
+            if (code >= 0) {
+                removedByCode.computeIfAbsent(code, k -> new ArrayList<>()).add(sequences[i]);
+            }
+        }
+        for (Map.Entry<Integer, List<Long>> removed : removedByCode.entrySet()) {
+            postings.get(removed.getKey()).removeAll(PostingList.sorted(removed.getValue()));
+        }
+    }
+
+    /**
+     * Gets all fruits of a color
+     * @param color Exact color value
+     * @return Fruits of that color in insertion order
+     */
+    public List<Fruit> find(String color) {
+        int code = dictionary.codeOf(color);
+        return code < 0 ? new ArrayList<>() : new ArrayList<>(postings.get(code).items());
+    }
+
+    /**
+     * Counts the fruits of a color from the size of its posting list
+     * @param color Exact color value
+     * @return Number of fruits of that color
+     */
+    public int count(String color) {
+        int code = dictionary.codeOf(color);
+        return code < 0 ? 0 : postings.get(code).size();
+    }
+
+    /**
+     * Gets the fruits of a color without copying them
+     * @param color Exact color value
+     * @return Read-only view in insertion order, valid until the index is next modified
+     */
+    public List<Fruit> view(String color) {
+        int code = dictionary.codeOf(color);
+        return code < 0 ? List.of() : postings.get(code).items();
+    }
+
+    /**
+     * Counts fruits per color without touching the fruits themselves
+     * @return Color -> number of fruits, in order of first use, omitting colors with no fruits
+     */
+    public Map<String, Integer> countByColor() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int code = 0; code < postings.size(); code++) {
+            int size = postings.get(code).size();
+            if (size > 0) {
+                counts.put(dictionary.decode(code), size);
+            }
+        }
+        return counts;
+    }
+}
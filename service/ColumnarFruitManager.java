@@ -0,0 +1,1083 @@
+package service;
+
+import constants.FruitConstants;
+import interfaces.IFruitManager;
+import model.Fruit;
+import model.FruitQuery;
+import model.FruitUpdate;
+import util.NameFolding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntPredicate;
+
+/**
+ * Fruit manager that stores attributes in primitive columns instead of one object per fruit
+ * Weights and calories live in int arrays, edibility in a bitset and colors as dictionary codes,
+ * and names are indexed by an open-addressing table of row numbers, so millions of rows cost
+ * a few dozen bytes each besides the name itself.
+ * Fruits returned by this manager are read-only views over a row; update them through the manager.
+ * Removed rows leave a gap that is reclaimed once gaps outnumber live rows. Every row keeps the id
+ * it was added with, so a view finds its row again after that compaction has moved it.
+ */
+public class ColumnarFruitManager implements IFruitManager {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_ROW = -1;
+
+    private String[] names;
+    private int[] weights;
+    private int[] caloriesPer100g;
+    private int[] colorCodes;
+    // Spread hash of the folded name of each row
+    private int[] nameHashes;
+    // Next live row whose name folds to the same value, in row order
+    private int[] nextWithName;
+    // Id given to each row when it was added; ids only grow, and compaction keeps rows in order,
+    // so the ids of rows 0 to rowCount stay sorted
+    private long[] rowIds;
+    private long nextRowId;
+    private final BitSet edible;
+    private final BitSet live;
+    private final ColorDictionary colors;
+    private final FruitSketches sketches;
+    private final FruitDistributions distributions;
+    // Linear-probing table holding the first row of each folded-name chain
+    private int[] nameTable;
+    private int nameTableUsed;
+    private int rowCount;
+    private int liveCount;
+    // Bumped by every compaction so older views can detect that their row moved
+    private int generation;
+
+    public ColumnarFruitManager() {
+        this.names = new String[INITIAL_CAPACITY];
+        this.weights = new int[INITIAL_CAPACITY];
+        this.caloriesPer100g = new int[INITIAL_CAPACITY];
+        this.colorCodes = new int[INITIAL_CAPACITY];
+        this.nameHashes = new int[INITIAL_CAPACITY];
+        this.nextWithName = new int[INITIAL_CAPACITY];
+        this.rowIds = new long[INITIAL_CAPACITY];
+        this.edible = new BitSet();
+        this.live = new BitSet();
+        this.colors = new ColorDictionary();
+        this.sketches = new FruitSketches();
+        this.distributions = new FruitDistributions();
+        this.nameTable = newNameTable(INITIAL_CAPACITY * 2);
+    }
+
+    /**
+     * Adds a fruit to the collection by copying its attributes into a new row
+     *
+     * @param fruit Fruit to add
+     */
+    public void addFruit(Fruit fruit) {
+        ensureCapacity(rowCount + 1);
+        int row = rowCount++;
+        rowIds[row] = nextRowId++;
+        names[row] = fruit.getName();
+        weights[row] = fruit.getWeight();
+        caloriesPer100g[row] = fruit.getCaloriesPer100g();
+        colorCodes[row] = colors.encode(fruit.getColor());
+        edible.set(row, fruit.isEdible());
+        live.set(row);
+        liveCount++;
+        indexName(row);
+        accountRow(row);
+    }
+
+    /**
+     * Adds several fruits to the collection, growing the columns once for the whole batch
+     *
+     * @param fruits Fruits to add
+     */
+    public void addAll(List<Fruit> fruits) {
+        ensureCapacity(rowCount + fruits.size());
+        for (Fruit fruit : fruits) {
+            addFruit(fruit);
+        }
+    }
+
+    /**
+     * Checks if a fruit with the given name already exists (case-insensitive)
+     *
+     * @param name Name to search for
+     * @return true if fruit exists, false otherwise
+     */
+    public boolean fruitExists(String name) {
+        return nameTable[findSlot(name)] != NO_ROW;
+    }
+
+    /**
+     * Gets views of all fruits in the collection
+     *
+     * @return List of all fruits
+     */
+    public List<Fruit> getAllFruits() {
+        List<Fruit> result = new ArrayList<>(liveCount);
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            result.add(new FruitView(row));
+        }
+        return result;
+    }
+
+    /**
+     * Gets views of one page of the collection
+     * Without gaps from removals the page starts at row offset directly.
+     *
+     * @param offset Number of fruits to skip
+     * @param limit Maximum number of fruits to return
+     * @return Fruits in collection order
+     */
+    public List<Fruit> getFruits(int offset, int limit) {
+        List<Fruit> result = new ArrayList<>(Math.max(0, Math.min(limit, liveCount - offset)));
+        int row;
+        if (liveCount == rowCount) {
+            row = offset < rowCount ? offset : -1;
+        } else {
+            row = live.nextSetBit(0);
+            for (int skipped = 0; skipped < offset && row >= 0; skipped++) {
+                row = live.nextSetBit(row + 1);
+            }
+        }
+        for (; row >= 0 && result.size() < limit; row = live.nextSetBit(row + 1)) {
+            result.add(new FruitView(row));
+        }
+        return result;
+    }
+
+    /**
+     * Checks if the collection is empty
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return liveCount == 0;
+    }
+
+    /**
+     * Gets the total number of fruits
+     *
+     * @return Number of fruits in collection
+     */
+    public int getSize() {
+        return liveCount;
+    }
+
+    /**
+     * Searches for a fruit by name (case-insensitive partial match)
+     *
+     * @param name Name to search for
+     * @return First matching fruit or null if not found
+     */
+    public Fruit searchFruitByName(String name) {
+        List<Fruit> matches = searchFruitsByName(name, 0, 1);
+        return matches.isEmpty() ? null : matches.getFirst();
+    }
+
+    /**
+     * Searches for all fruits whose name contains the given text (case-insensitive), one page at a time
+     * Scans the name column without allocating per row.
+     *
+     * @param name Name to search for
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of matches to return
+     * @return Matching fruits in insertion order
+     */
+    public List<Fruit> searchFruitsByName(String name, int offset, int limit) {
+        List<Fruit> result = new ArrayList<>();
+        int skipped = 0;
+        for (int row = live.nextSetBit(0); row >= 0 && result.size() < limit; row = live.nextSetBit(row + 1)) {
+            if (!containsIgnoreCase(names[row], name)) continue;
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            result.add(new FruitView(row));
+        }
+        return result;
+    }
+
+    /**
+     * Searches for a fruit by exact name match
+     *
+     * @param name Exact name to search for
+     * @return Matching fruit or null if not found
+     */
+    public Fruit searchFruitByExactName(String name) {
+        int row = firstRowNamed(name);
+        return row == NO_ROW ? null : new FruitView(row);
+    }
+
+    /**
+     * Gets all fruits of a color by comparing color codes
+     *
+     * @param color Exact color to search for
+     * @return Fruits of that color in collection order
+     */
+    public List<Fruit> getFruitsByColor(String color) {
+        List<Fruit> result = new ArrayList<>();
+        int code = colors.codeOf(color);
+        if (code < 0) {
+            return result;
+        }
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            if (colorCodes[row] == code) {
+                result.add(new FruitView(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts the fruits of each color with one pass over the color codes
+     *
+     * @return Color -> number of fruits of that color
+     */
+    public Map<String, Integer> countFruitsByColor() {
+        int[] counts = new int[colors.size()];
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            counts[colorCodes[row]]++;
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(colors.decode(code), counts[code]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the fruits whose weight lies in a range by scanning the weight column
+     *
+     * @param minWeight Lowest weight in grams, inclusive
+     * @param maxWeight Highest weight in grams, inclusive
+     * @return Matching fruits from lightest to heaviest, equal weights in collection order
+     */
+    public List<Fruit> getFruitsByWeight(int minWeight, int maxWeight) {
+        return rowsInRange(weights, minWeight, maxWeight);
+    }
+
+    /**
+     * Gets the fruits whose calories per 100g lie in a range by scanning the calorie column
+     *
+     * @param minCalories Lowest calories per 100g, inclusive
+     * @param maxCalories Highest calories per 100g, inclusive
+     * @return Matching fruits from fewest to most calories, equal values in collection order
+     */
+    public List<Fruit> getFruitsByCalories(int minCalories, int maxCalories) {
+        return rowsInRange(caloriesPer100g, minCalories, maxCalories);
+    }
+
+    /**
+     * Gets the heaviest fruits with one pass over the weight column
+     *
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from heaviest down, equal weights in collection order
+     */
+    public List<Fruit> getHeaviestFruits(int count) {
+        return topRows(weights, true, count);
+    }
+
+    /**
+     * Gets the lightest fruits with one pass over the weight column
+     *
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from lightest up, equal weights in collection order
+     */
+    public List<Fruit> getLightestFruits(int count) {
+        return topRows(weights, false, count);
+    }
+
+    /**
+     * Gets the fruits with the most calories per 100g with one pass over the calorie column
+     *
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from most calories down, equal values in collection order
+     */
+    public List<Fruit> getMostCaloricFruits(int count) {
+        return topRows(caloriesPer100g, true, count);
+    }
+
+    /**
+     * Plans a query over the columns: an exact name is looked up in its folded-name chain, anything
+     * else scans the columns, testing every condition on 64 rows at a time so a view is created
+     * only for the rows that match
+     *
+     * @param query Conditions, offset and limit
+     * @return Plan that finds the matches in row order when iterated
+     */
+    public FruitQueryPlan query(FruitQuery query) {
+        List<FruitQuery.Condition> conditions = query.getConditions();
+        List<FruitQueryPlan.AccessPath> paths = new ArrayList<>();
+        paths.add(new FruitQueryPlan.AccessPath("column scan", conditions, true, liveCount,
+                () -> new ColumnScan(conditions)));
+        for (FruitQuery.Condition condition : query.getConditions()) {
+            if (condition instanceof FruitQuery.NameIs name) {
+                List<Fruit> named = new ArrayList<>();
+                for (int row = nameTable[findSlot(name.name())]; row != NO_ROW; row = nextWithName[row]) {
+                    if (names[row].equals(name.name())) {
+                        named.add(new FruitView(row));
+                    }
+                }
+                paths.add(new FruitQueryPlan.AccessPath("name hash chain", condition, true, named.size(),
+                        named::iterator));
+            }
+        }
+        return FruitQueryPlan.choose(query, liveCount, paths);
+    }
+
+    /**
+     * Gets array of all fruit names
+     *
+     * @return Array of fruit names
+     */
+    public String[] getFruitNames() {
+        String[] result = new String[liveCount];
+        int i = 0;
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            result[i++] = names[row];
+        }
+        return result;
+    }
+
+    /**
+     * Removes every fruit with the given name
+     *
+     * @param name Name of fruit to remove
+     * @return true if fruit was removed, false if not found
+     */
+    public boolean removeFruitByName(String name) {
+        if (firstRowNamed(name) == NO_ROW) {
+            return false;
+        }
+        deleteRowsNamed(name);
+        compactIfSparse();
+        return true;
+    }
+
+    /**
+     * Removes fruits by name, only if every name is found
+     * The columns are compacted at most once for the whole batch.
+     *
+     * @param fruitNames Names of the fruits to remove
+     * @return true if all were removed, false if none was
+     */
+    public boolean removeAll(List<String> fruitNames) {
+        if (!BatchValidator.canRemoveAll(nameCounts(), fruitNames)) {
+            return false;
+        }
+        for (String name : fruitNames) {
+            deleteRowsNamed(name);
+        }
+        compactIfSparse();
+        return true;
+    }
+
+    /**
+     * Applies several updates in order, only if every one of them succeeds
+     *
+     * @param updates Updates to apply
+     * @return true if all updates were applied, false if none was
+     */
+    public boolean updateAll(List<FruitUpdate> updates) {
+        if (!BatchValidator.canUpdateAll(nameCounts(), updates)) {
+            return false;
+        }
+        for (FruitUpdate update : updates) {
+            updateFruit(update.oldName(), update.newName(), update.weight(), update.color(),
+                    update.isEdible(), update.caloriesPer100g());
+        }
+        return true;
+    }
+
+    /**
+     * Calculates statistics from the primitive columns, splitting large tables across the common pool
+     *
+     * @return FruitStatistics object containing calculated stats
+     */
+    public FruitManager.FruitStatistics calculateStatistics() {
+        return StatisticsAggregator.compute(rowCount, (from, to, partial) -> {
+            for (int row = live.nextSetBit(from); row >= 0 && row < to; row = live.nextSetBit(row + 1)) {
+                partial.add(row, weights[row], caloriesPer100g[row], edible.get(row));
+            }
+        }, FruitView::new, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Calculates overall and per-group statistics in one pass over the primitive columns,
+     * splitting large tables across the common pool
+     *
+     * @return GroupedStatistics holding the overall and per-group stats
+     */
+    public GroupedStatistics calculateGroupedStatistics() {
+        int colorCount = colors.size();
+        return StatisticsAggregator.computeGrouped(rowCount, (from, to, partial) -> {
+            // Color code -> slot in this piece's partial, filled the first time the piece meets the code
+            int[] slots = new int[colorCount];
+            Arrays.fill(slots, -1);
+            for (int row = live.nextSetBit(from); row >= 0 && row < to; row = live.nextSetBit(row + 1)) {
+                int code = colorCodes[row];
+                int slot = slots[code];
+                if (slot < 0) {
+                    slot = slots[code] = partial.colorSlot(colors.decode(code));
+                }
+                partial.add(row, weights[row], caloriesPer100g[row], edible.get(row), slot);
+            }
+        }, FruitView::new, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads the sketches kept up to date by every mutation, first rebuilding them from the live
+     * rows if too many rows were removed since the last rebuild
+     *
+     * @return ApproximateStatistics with the estimates and their error bounds
+     */
+    public ApproximateStatistics calculateApproximateStatistics() {
+        sketches.rebuildIfStale(target -> {
+            for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+                target.add(names[row], colors.decode(colorCodes[row]), weights[row], caloriesPer100g[row]);
+            }
+        });
+        return sketches.toStatistics();
+    }
+
+    /**
+     * Reads the percentiles and histograms kept up to date by every mutation
+     *
+     * @return DistributionStatistics with the percentiles and histograms
+     */
+    public DistributionStatistics calculateDistributionStatistics() {
+        return distributions.toStatistics();
+    }
+
+    /**
+     * Updates a fruit's attributes
+     *
+     * @param oldName Original name of the fruit to update
+     * @param newName New name (can be same as old)
+     * @param newWeight New weight
+     * @param newColor New color
+     * @param newIsEdible New edible status
+     * @param newCaloriesPer100g New calories per 100g
+     * @return true if fruit was updated successfully, false if not found
+     */
+    public boolean updateFruit(String oldName, String newName, int newWeight,
+                               String newColor, boolean newIsEdible, int newCaloriesPer100g) {
+        int row = firstRowNamed(oldName);
+        if (row == NO_ROW) {
+            return false;
+        }
+
+        // Check if new name conflicts with existing fruit (only if name is changing)
+        if (!oldName.equals(newName) && fruitExists(newName)) {
+            return false;
+        }
+
+        unaccountRow(row);
+        renameRow(row, newName);
+        weights[row] = newWeight;
+        colorCodes[row] = colors.encode(newColor);
+        edible.set(row, newIsEdible);
+        caloriesPer100g[row] = newCaloriesPer100g;
+        accountRow(row);
+
+        return true;
+    }
+
+    /**
+     * Updates only specific attributes of a fruit
+     *
+     * @param fruitName Name of the fruit to update
+     * @param attribute Attribute to update ("name", "weight", "color", "edible", "calories")
+     * @param newValue New value for the attribute
+     * @return true if updated successfully, false otherwise
+     */
+    public boolean updateFruitAttribute(String fruitName, String attribute, Object newValue) {
+        int row = firstRowNamed(fruitName);
+        if (row == NO_ROW) {
+            return false;
+        }
+
+        // Re-account the row even if the new value has the wrong type
+        unaccountRow(row);
+        try {
+            switch (attribute.toLowerCase()) {
+                case "name":
+                    String newName = (String) newValue;
+                    if (!fruitName.equals(newName) && fruitExists(newName)) {
+                        return false; // Name conflict
+                    }
+                    renameRow(row, newName);
+                    break;
+                case "weight":
+                    weights[row] = (Integer) newValue;
+                    break;
+                case "color":
+                    colorCodes[row] = colors.encode((String) newValue);
+                    break;
+                case "edible":
+                    edible.set(row, (Boolean) newValue);
+                    break;
+                case "calories":
+                    caloriesPer100g[row] = (Integer) newValue;
+                    break;
+                default:
+                    return false;
+            }
+        } finally {
+            accountRow(row);
+        }
+
+        return true;
+    }
+
+    /**
+     * Views of the live rows whose value in a column lies in a range, ordered by value then row
+     * Each match is packed into one long, value in the high half and row in the low half, so the
+     * sort is a primitive sort with no boxing.
+     */
+    private List<Fruit> rowsInRange(int[] column, int min, int max) {
+        long[] matches = new long[16];
+        int count = 0;
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            int value = column[row];
+            if (value < min || value > max) continue;
+            if (count == matches.length) {
+                matches = Arrays.copyOf(matches, count * 2);
+            }
+            matches[count++] = ((long) value << 32) | row;
+        }
+        Arrays.sort(matches, 0, count);
+        List<Fruit> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new FruitView((int) matches[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Views of the count live rows with the highest or lowest values in a column, in O(n log count)
+     * Each row is scored as one long that is larger for a better row: the value (or its complement
+     * when looking for the lowest) in the high half, and the complement of the row in the low half
+     * so that earlier rows win ties. A primitive min-heap keeps the best scores seen so far.
+     */
+    private List<Fruit> topRows(int[] column, boolean highest, int count) {
+        long[] heap = new long[Math.max(0, Math.min(count, liveCount))];
+        int size = 0;
+        for (int row = live.nextSetBit(0); row >= 0 && heap.length > 0; row = live.nextSetBit(row + 1)) {
+            int value = highest ? column[row] : ~column[row];
+            long score = ((long) value << 32) | (Integer.MAX_VALUE - row);
+            if (size < heap.length) {
+                heap[size] = score;
+                siftUp(heap, size++);
+            } else if (score > heap[0]) {
+                heap[0] = score;
+                siftDown(heap, size);
+            }
+        }
+        Arrays.sort(heap, 0, size);
+        List<Fruit> result = new ArrayList<>(size);
+        for (int i = size - 1; i >= 0; i--) {
+            result.add(new FruitView(Integer.MAX_VALUE - (int) heap[i]));
+        }
+        return result;
+    }
+
+    private static void siftUp(long[] heap, int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heap[parent] <= heap[position]) break;
+            long swap = heap[parent];
+            heap[parent] = heap[position];
+            heap[position] = swap;
+            position = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int position = 0;
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            if (left < size && heap[left] < heap[smallest]) smallest = left;
+            if (left + 1 < size && heap[left + 1] < heap[smallest]) smallest = left + 1;
+            if (smallest == position) break;
+            long swap = heap[smallest];
+            heap[smallest] = heap[position];
+            heap[position] = swap;
+            position = smallest;
+        }
+    }
+
+    /**
+     * Translates a query condition into a test on a block of 64 rows
+     * @param edibleWords Edible flags as words, taken when the scan starts
+     */
+    private BlockTest blockTest(FruitQuery.Condition condition, long[] edibleWords) {
+        return switch (condition) {
+            case FruitQuery.NameIs name -> (first, candidates) ->
+                    keepRows(first, candidates, row -> names[row].equals(name.name()));
+            case FruitQuery.NameContains name -> (first, candidates) ->
+                    keepRows(first, candidates, row -> containsIgnoreCase(names[row], name.text()));
+            case FruitQuery.ColorIs color -> {
+                int code = colors.codeOf(color.color());
+                yield (first, candidates) -> keepRows(first, candidates, row -> colorCodes[row] == code);
+            }
+            case FruitQuery.WeightBetween range -> (first, candidates) ->
+                    keepInRange(weights, first, candidates, range.min(), range.max());
+            case FruitQuery.CaloriesBetween range -> (first, candidates) ->
+                    keepInRange(caloriesPer100g, first, candidates, range.min(), range.max());
+            case FruitQuery.Edible value -> (first, candidates) -> {
+                long flags = word(edibleWords, first);
+                return candidates & (value.value() ? flags : ~flags);
+            };
+            case FruitQuery.Healthy value -> (first, candidates) -> value.value()
+                    ? keepInRange(caloriesPer100g, first, candidates, Integer.MIN_VALUE,
+                            FruitConstants.HEALTHY_CALORIE_THRESHOLD - 1)
+                    : keepInRange(caloriesPer100g, first, candidates,
+                            FruitConstants.HEALTHY_CALORIE_THRESHOLD, Integer.MAX_VALUE);
+            case FruitQuery.CanBeEaten value -> (first, candidates) -> {
+                long eatable = keepInRange(weights, first, candidates & word(edibleWords, first),
+                        FruitConstants.MIN_WEIGHT_FOR_CONSUMPTION + 1, Integer.MAX_VALUE);
+                return value.value() ? eatable : candidates & ~eatable;
+            };
+        };
+    }
+
+    /**
+     * Clears the candidate bits of the rows whose value lies outside a range
+     */
+    private static long keepInRange(int[] column, int first, long candidates, int min, int max) {
+        long kept = candidates;
+        for (long bits = candidates; bits != 0; bits &= bits - 1) {
+            int bit = Long.numberOfTrailingZeros(bits);
+            int value = column[first + bit];
+            if (value < min || value > max) {
+                kept &= ~(1L << bit);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Clears the candidate bits of the rows failing a test
+     */
+    private static long keepRows(int first, long candidates, IntPredicate test) {
+        long kept = candidates;
+        for (long bits = candidates; bits != 0; bits &= bits - 1) {
+            int bit = Long.numberOfTrailingZeros(bits);
+            if (!test.test(first + bit)) {
+                kept &= ~(1L << bit);
+            }
+        }
+        return kept;
+    }
+
+    private static long word(long[] words, int first) {
+        int index = first >>> 6;
+        return index < words.length ? words[index] : 0;
+    }
+
+    /**
+     * Case-insensitive substring test without allocating folded copies
+     */
+    private static boolean containsIgnoreCase(String text, String query) {
+        int last = text.length() - query.length();
+        for (int i = 0; i <= last; i++) {
+            if (text.regionMatches(true, i, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void renameRow(int row, String newName) {
+        if (names[row].equals(newName)) {
+            return;
+        }
+        unindexName(row);
+        names[row] = newName;
+        indexName(row);
+    }
+
+    /**
+     * Clears every row with exactly this name, leaving gaps for a later compaction
+     */
+    private void deleteRowsNamed(String name) {
+        int row = nameTable[findSlot(name)];
+        while (row != NO_ROW) {
+            int next = nextWithName[row];
+            if (names[row].equals(name)) {
+                unindexName(row);
+                unaccountRow(row);
+                live.clear(row);
+                edible.clear(row);
+                names[row] = null;
+                liveCount--;
+            }
+            row = next;
+        }
+    }
+
+    /**
+     * Accounts for a row in the sketches and distributions; call again after the row changes
+     */
+    private void accountRow(int row) {
+        sketches.add(names[row], colors.decode(colorCodes[row]), weights[row], caloriesPer100g[row]);
+        distributions.add(weights[row], caloriesPer100g[row]);
+    }
+
+    /**
+     * Stops accounting for a row; call before the row changes or is deleted
+     */
+    private void unaccountRow(int row) {
+        sketches.remove(colors.decode(colorCodes[row]), weights[row], caloriesPer100g[row]);
+        distributions.remove(weights[row], caloriesPer100g[row]);
+    }
+
+    private void compactIfSparse() {
+        if (rowCount - liveCount > liveCount && rowCount > INITIAL_CAPACITY) {
+            compact();
+        }
+    }
+
+    /**
+     * Name counts from walking the folded-name chains, for batch validation
+     */
+    private BatchValidator.NameCounts nameCounts() {
+        return new BatchValidator.NameCounts() {
+            @Override
+            public int exactCount(String name) {
+                int count = 0;
+                for (int row = nameTable[findSlot(name)]; row != NO_ROW; row = nextWithName[row]) {
+                    if (names[row].equals(name)) count++;
+                }
+                return count;
+            }
+
+            @Override
+            public int foldedCount(String foldedName) {
+                int count = 0;
+                for (int row = nameTable[findSlot(foldedName)]; row != NO_ROW; row = nextWithName[row]) {
+                    count++;
+                }
+                return count;
+            }
+        };
+    }
+
+    /**
+     * Finds the first live row with exactly this name
+     */
+    private int firstRowNamed(String name) {
+        int row = nameTable[findSlot(name)];
+        while (row != NO_ROW && !names[row].equals(name)) {
+            row = nextWithName[row];
+        }
+        return row;
+    }
+
+    /**
+     * Finds the table slot holding the chain for a name, or the empty slot where it would go
+     */
+    private int findSlot(String name) {
+        int hash = spread(NameFolding.foldedHashCode(name));
+        int mask = nameTable.length - 1;
+        int slot = hash & mask;
+        while (nameTable[slot] != NO_ROW) {
+            int head = nameTable[slot];
+            if (nameHashes[head] == hash && names[head].equalsIgnoreCase(name)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Links a row into the chain of its folded name, keeping the chain in row order
+     */
+    private void indexName(int row) {
+        nameHashes[row] = spread(NameFolding.foldedHashCode(names[row]));
+        int slot = findSlot(names[row]);
+        int first = nameTable[slot];
+        if (first == NO_ROW || first > row) {
+            nextWithName[row] = first;
+            nameTable[slot] = row;
+            if (first == NO_ROW && ++nameTableUsed * 2 > nameTable.length) {
+                resizeNameTable(nameTable.length * 2);
+            }
+        } else {
+            int previous = first;
+            while (nextWithName[previous] != NO_ROW && nextWithName[previous] < row) {
+                previous = nextWithName[previous];
+            }
+            nextWithName[row] = nextWithName[previous];
+            nextWithName[previous] = row;
+        }
+    }
+
+    /**
+     * Unlinks a row from the chain of its current name
+     */
+    private void unindexName(int row) {
+        int slot = findSlot(names[row]);
+        int first = nameTable[slot];
+        if (first == row) {
+            if (nextWithName[row] == NO_ROW) {
+                deleteSlot(slot);
+            } else {
+                nameTable[slot] = nextWithName[row];
+            }
+        } else {
+            int previous = first;
+            while (nextWithName[previous] != row) {
+                previous = nextWithName[previous];
+            }
+            nextWithName[previous] = nextWithName[row];
+        }
+    }
+
+    /**
+     * Empties a slot and shifts back later entries of the probe run so lookups never hit a gap
+     */
+    private void deleteSlot(int slot) {
+        int mask = nameTable.length - 1;
+        int gap = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int head = nameTable[next];
+            if (head == NO_ROW) break;
+            int home = nameHashes[head] & mask;
+            // Move the entry if its home slot is not cyclically inside (gap, next]
+            boolean inside = gap <= next ? (gap < home && home <= next) : (gap < home || home <= next);
+            if (!inside) {
+                nameTable[gap] = head;
+                gap = next;
+            }
+        }
+        nameTable[gap] = NO_ROW;
+        nameTableUsed--;
+    }
+
+    private void resizeNameTable(int size) {
+        int[] old = nameTable;
+        nameTable = newNameTable(size);
+        int mask = size - 1;
+        for (int head : old) {
+            if (head == NO_ROW) continue;
+            int slot = nameHashes[head] & mask;
+            while (nameTable[slot] != NO_ROW) {
+                slot = (slot + 1) & mask;
+            }
+            nameTable[slot] = head;
+        }
+    }
+
+    private static int[] newNameTable(int size) {
+        int[] table = new int[size];
+        Arrays.fill(table, NO_ROW);
+        return table;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= names.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, names.length + (names.length >> 1));
+        names = Arrays.copyOf(names, newCapacity);
+        weights = Arrays.copyOf(weights, newCapacity);
+        caloriesPer100g = Arrays.copyOf(caloriesPer100g, newCapacity);
+        colorCodes = Arrays.copyOf(colorCodes, newCapacity);
+        nameHashes = Arrays.copyOf(nameHashes, newCapacity);
+        nextWithName = Arrays.copyOf(nextWithName, newCapacity);
+        rowIds = Arrays.copyOf(rowIds, newCapacity);
+    }
+
+    /**
+     * Moves live rows down over the gaps left by removals and rebuilds the name chains
+     */
+    private void compact() {
+        int target = 0;
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+            names[target] = names[row];
+            weights[target] = weights[row];
+            caloriesPer100g[target] = caloriesPer100g[row];
+            colorCodes[target] = colorCodes[row];
+            rowIds[target] = rowIds[row];
+            edible.set(target, edible.get(row));
+            target++;
+        }
+        Arrays.fill(names, target, rowCount, null);
+        edible.clear(target, rowCount);
+        live.clear(target, rowCount);
+        live.set(0, target);
+        rowCount = target;
+        generation++;
+
+        Arrays.fill(nameTable, NO_ROW);
+        nameTableUsed = 0;
+        for (int row = 0; row < rowCount; row++) {
+            indexName(row);
+        }
+    }
+
+    /**
+     * Test of one condition on the 64 rows starting at first
+     */
+    private interface BlockTest {
+        /**
+         * @return The candidate bits whose rows meet the condition
+         */
+        long keep(int first, long candidates);
+    }
+
+    /**
+     * Lazy scan over the live rows in blocks of 64
+     * Each condition narrows the block's bit mask of candidates in turn, and a block whose mask
+     * empties skips the remaining conditions. Views are created for the surviving rows only.
+     */
+    private final class ColumnScan implements Iterator<Fruit> {
+        private final long[] liveWords;
+        private final List<BlockTest> tests;
+        private int block = -1;
+        // Matching rows of the current block not returned yet
+        private long pending;
+
+        private ColumnScan(List<FruitQuery.Condition> conditions) {
+            this.liveWords = live.toLongArray();
+            long[] edibleWords = edible.toLongArray();
+            this.tests = new ArrayList<>(conditions.size());
+            for (FruitQuery.Condition condition : conditions) {
+                tests.add(blockTest(condition, edibleWords));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (pending == 0) {
+                if (++block >= liveWords.length) {
+                    block = liveWords.length;
+                    return false;
+                }
+                long candidates = liveWords[block];
+                for (int i = 0; i < tests.size() && candidates != 0; i++) {
+                    candidates = tests.get(i).keep(block << 6, candidates);
+                }
+                pending = candidates;
+            }
+            return true;
+        }
+
+        @Override
+        public Fruit next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int row = (block << 6) + Long.numberOfTrailingZeros(pending);
+            pending &= pending - 1;
+            return new FruitView(row);
+        }
+    }
+
+    /**
+     * Read-only fruit backed by one row of the columns
+     * The view remembers the row's id and looks the row up again once a compaction has moved rows.
+     */
+    private final class FruitView extends Fruit {
+        private final long id;
+        // Generation in the upper half and the row in it in the lower half, in one field so
+        // readers sharing the view never pair a row with the wrong generation
+        private volatile long location;
+
+        private FruitView(int row) {
+            super(null, 0, null, false, 0);
+            this.id = rowIds[row];
+            this.location = locate(row);
+        }
+
+        private int row() {
+            long current = location;
+            if ((int) (current >>> 32) != generation) {
+                current = locate(Arrays.binarySearch(rowIds, 0, rowCount, id));
+                location = current;
+            }
+            int row = (int) current;
+            if (row < 0 || !live.get(row)) {
+                throw new IllegalStateException("This fruit was removed from the collection");
+            }
+            return row;
+        }
+
+        private long locate(int row) {
+            return (long) generation << 32 | (row & 0xFFFFFFFFL);
+        }
+
+        @Override
+        public String getName() {
+            return names[row()];
+        }
+
+        @Override
+        public String getColor() {
+            return colors.decode(colorCodes[row()]);
+        }
+
+        @Override
+        public int getWeight() {
+            return weights[row()];
+        }
+
+        @Override
+        public int getCaloriesPer100g() {
+            return caloriesPer100g[row()];
+        }
+
+        @Override
+        public boolean isEdible() {
+            return edible.get(row());
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setColor(String color) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setWeight(int weight) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCaloriesPer100g(int caloriesPer100g) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setEdible(boolean edible) {
+            throw readOnly();
+        }
+
+        private UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Update fruits through ColumnarFruitManager");
+        }
+    }
+}
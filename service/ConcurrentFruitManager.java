@@ -0,0 +1,836 @@
+package service;
+
+import interfaces.IFruitManager;
+import model.Fruit;
+import model.FruitQuery;
+import model.FruitUpdate;
+import model.ImmutableFruit;
+import util.NameFolding;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe fruit manager for workloads with several writer threads
+ * Writers lock only the stripe of the case-folded names they touch, so name checks, renames
+ * and removals are atomic while writers on other names proceed in parallel.
+ * Readers never lock. The collection itself is a FruitVersion that every writer replaces with a
+ * compare-and-set, so getAllFruits hands out the current version without copying it and every scan
+ * reads one consistent version. Stored fruits are immutable and an update swaps in a new fruit, so
+ * a fruit never shows some attributes before and some after a change. The name, weight and calorie
+ * indexes are updated next to the version and may briefly lag it; range queries may miss a fruit
+ * whose weight or calories are being changed at that moment.
+ */
+public class ConcurrentFruitManager implements IFruitManager {
+    private static final int DEFAULT_STRIPES = 64;
+    // Range lengths counted exactly when planning a query; longer ranges are estimated
+    private static final int EXACT_COUNT_LIMIT = 1024;
+
+    // Current version of the collection in insertion order, replaced by every writer
+    private final AtomicReference<FruitVersion> fruits;
+    // Exact name -> immutable list of fruits with that name, replaced on every change
+    private final ConcurrentHashMap<String, List<Entry>> exactNameIndex;
+    // Folded name -> number of fruits whose name folds to it
+    private final ConcurrentHashMap<String, Integer> foldedNameIndex;
+    // (weight, sequence) and (calories per 100g, sequence) -> fruit, for range queries
+    private final ConcurrentSkipListMap<RangeKey, Entry> weightIndex;
+    private final ConcurrentSkipListMap<RangeKey, Entry> calorieIndex;
+    private final FruitStatisticsAccumulator statistics;
+    private final FruitSketches sketches;
+    private final ReentrantLock[] stripes;
+    private final AtomicLong nextSequence;
+
+    public ConcurrentFruitManager() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripeCount Number of lock stripes, rounded up to a power of two
+     */
+    public ConcurrentFruitManager(int stripeCount) {
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.fruits = new AtomicReference<>(FruitVersion.empty());
+        this.exactNameIndex = new ConcurrentHashMap<>();
+        this.foldedNameIndex = new ConcurrentHashMap<>();
+        this.weightIndex = new ConcurrentSkipListMap<>();
+        this.calorieIndex = new ConcurrentSkipListMap<>();
+        this.statistics = new FruitStatisticsAccumulator();
+        this.sketches = new FruitSketches();
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.nextSequence = new AtomicLong();
+    }
+
+    /**
+     * Adds a fruit to the collection, even if its name already exists
+     *
+     * @param fruit Fruit to add
+     */
+    public void addFruit(Fruit fruit) {
+        withLocks(fruit.getName(), fruit.getName(), () -> {
+            insert(fruit);
+            return null;
+        });
+    }
+
+    /**
+     * Adds several fruits to the collection, in order
+     * The stripes of all names are locked once for the batch, so no other writer interleaves with it;
+     * readers may still observe the batch partially added.
+     *
+     * @param fruits Fruits to add
+     */
+    public void addAll(List<Fruit> fruits) {
+        List<String> names = new ArrayList<>(fruits.size());
+        for (Fruit fruit : fruits) {
+            names.add(fruit.getName());
+        }
+        withLocks(names, () -> {
+            for (Fruit fruit : fruits) {
+                insert(fruit);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Adds a fruit only if no fruit with the same name exists (case-insensitive)
+     * The check and the insertion happen atomically.
+     *
+     * @param fruit Fruit to add
+     * @return true if the fruit was added, false if the name was taken
+     */
+    public boolean addFruitIfAbsent(Fruit fruit) {
+        return withLocks(fruit.getName(), fruit.getName(), () -> {
+            if (fruitExists(fruit.getName())) {
+                return false;
+            }
+            insert(fruit);
+            return true;
+        });
+    }
+
+    /**
+     * Checks if a fruit with the given name already exists (case-insensitive)
+     *
+     * @param name Name to search for
+     * @return true if fruit exists, false otherwise
+     */
+    public boolean fruitExists(String name) {
+        return foldedNameIndex.containsKey(NameFolding.fold(name));
+    }
+
+    /**
+     * Gets the current version of the collection in O(1), without copying it
+     * The list never changes and its fruits are immutable; later writes publish new versions.
+     *
+     * @return List of all fruits
+     */
+    public List<Fruit> getAllFruits() {
+        return fruits.get();
+    }
+
+    /**
+     * Gets one page of the current version, found by position in O(log n)
+     *
+     * @param offset Number of fruits to skip
+     * @param limit Maximum number of fruits to return
+     * @return Fruits in collection order
+     */
+    public List<Fruit> getFruits(int offset, int limit) {
+        FruitVersion version = fruits.get();
+        int from = Math.min(Math.max(0, offset), version.size());
+        int to = (int) Math.min(version.size(), (long) from + Math.max(0, limit));
+        return version.subList(from, to);
+    }
+
+    /**
+     * Checks if the collection is empty
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return fruits.get().isEmpty();
+    }
+
+    /**
+     * Gets the total number of fruits
+     *
+     * @return Number of fruits in collection
+     */
+    public int getSize() {
+        return fruits.get().size();
+    }
+
+    /**
+     * Searches for a fruit by name (case-insensitive partial match)
+     *
+     * @param name Name to search for
+     * @return First matching fruit or null if not found
+     */
+    public Fruit searchFruitByName(String name) {
+        List<Fruit> matches = searchFruitsByName(name, 0, 1);
+        return matches.isEmpty() ? null : matches.getFirst();
+    }
+
+    /**
+     * Searches for all fruits whose name contains the given text (case-insensitive), one page at a time
+     *
+     * @param name Name to search for
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of matches to return
+     * @return Matching fruits in insertion order
+     */
+    public List<Fruit> searchFruitsByName(String name, int offset, int limit) {
+        String query = name.toLowerCase();
+        return fruits.get().stream()
+                .filter(f -> f.getName().toLowerCase().contains(query))
+                .skip(offset)
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Searches for a fruit by exact name match
+     *
+     * @param name Exact name to search for
+     * @return Matching fruit or null if not found
+     */
+    public Fruit searchFruitByExactName(String name) {
+        List<Entry> matches = exactNameIndex.get(name);
+        return matches == null ? null : matches.getFirst().fruit();
+    }
+
+    /**
+     * Gets all fruits of a color
+     *
+     * @param color Exact color to search for
+     * @return Fruits of that color in collection order
+     */
+    public List<Fruit> getFruitsByColor(String color) {
+        return fruits.get().stream()
+                .filter(f -> f.getColor().equals(color))
+                .toList();
+    }
+
+    /**
+     * Counts the fruits of each color
+     *
+     * @return Color -> number of fruits of that color
+     */
+    public Map<String, Integer> countFruitsByColor() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Fruit fruit : fruits.get()) {
+            counts.merge(fruit.getColor(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the fruits whose weight lies in a range from the weight skip list
+     *
+     * @param minWeight Lowest weight in grams, inclusive
+     * @param maxWeight Highest weight in grams, inclusive
+     * @return Matching fruits from lightest to heaviest, equal weights in collection order
+     */
+    public List<Fruit> getFruitsByWeight(int minWeight, int maxWeight) {
+        return findInRange(weightIndex, minWeight, maxWeight);
+    }
+
+    /**
+     * Gets the fruits whose calories per 100g lie in a range from the calorie skip list
+     *
+     * @param minCalories Lowest calories per 100g, inclusive
+     * @param maxCalories Highest calories per 100g, inclusive
+     * @return Matching fruits from fewest to most calories, equal values in collection order
+     */
+    public List<Fruit> getFruitsByCalories(int minCalories, int maxCalories) {
+        return findInRange(calorieIndex, minCalories, maxCalories);
+    }
+
+    /**
+     * Gets the heaviest fruits by walking down the weight skip list
+     *
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from heaviest down, equal weights in collection order
+     */
+    public List<Fruit> getHeaviestFruits(int count) {
+        return highest(weightIndex, count);
+    }
+
+    /**
+     * Gets the lightest fruits from the head of the weight skip list
+     *
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from lightest up, equal weights in collection order
+     */
+    public List<Fruit> getLightestFruits(int count) {
+        List<Fruit> result = new ArrayList<>();
+        for (Entry entry : weightIndex.values()) {
+            if (result.size() >= count) break;
+            result.add(entry.fruit());
+        }
+        return result;
+    }
+
+    /**
+     * Gets the fruits with the most calories per 100g by walking down the calorie skip list
+     *
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from most calories down, equal values in collection order
+     */
+    public List<Fruit> getMostCaloricFruits(int count) {
+        return highest(calorieIndex, count);
+    }
+
+    /**
+     * Plans a query over the exact name index and the weight and calorie skip lists
+     * Counting a skip list range means walking it, so short ranges are counted and long ones
+     * estimated. A full scan reads the version current when the plan was made; the indexes are
+     * weakly consistent.
+     *
+     * @param query Conditions, offset and limit
+     * @return Plan that finds the matches in collection order when iterated
+     */
+    public FruitQueryPlan query(FruitQuery query) {
+        FruitVersion version = fruits.get();
+        List<FruitQueryPlan.AccessPath> paths = new ArrayList<>();
+        int cheapest = version.size();
+        paths.add(FruitQueryPlan.AccessPath.fullScan(cheapest, version::iterator));
+        for (FruitQuery.Condition condition : query.getConditions()) {
+            if (condition instanceof FruitQuery.NameIs name) {
+                List<Entry> matches = exactNameIndex.getOrDefault(name.name(), List.of());
+                paths.add(new FruitQueryPlan.AccessPath("exact name index", condition, true, matches.size(),
+                        () -> matches.stream()
+                                .sorted(Comparator.comparingLong(Entry::sequence))
+                                .<Fruit>map(Entry::fruit)
+                                .iterator()));
+            }
+            FruitQueryPlan.Bounds weight = FruitQueryPlan.weightBounds(condition);
+            if (weight != null) {
+                paths.add(rangePath("weight index", condition, weight, weightIndex, cheapest, version.size()));
+            }
+            FruitQueryPlan.Bounds calories = FruitQueryPlan.calorieBounds(condition);
+            if (calories != null) {
+                paths.add(rangePath("calorie index", condition, calories, calorieIndex, cheapest, version.size()));
+            }
+            for (FruitQueryPlan.AccessPath path : paths) {
+                cheapest = Math.min(cheapest, path.estimate());
+            }
+        }
+        return FruitQueryPlan.choose(query, version.size(), paths);
+    }
+
+    /**
+     * Gets array of all fruit names
+     *
+     * @return Array of fruit names
+     */
+    public String[] getFruitNames() {
+        return fruits.get().stream()
+                .map(Fruit::getName)
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Removes every fruit with the given name
+     *
+     * @param name Name of fruit to remove
+     * @return true if fruit was removed, false if not found
+     */
+    public boolean removeFruitByName(String name) {
+        return withLocks(name, name, () -> {
+            List<Entry> matches = exactNameIndex.get(name);
+            if (matches == null) {
+                return false;
+            }
+            for (Entry entry : matches) {
+                delete(entry);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Removes fruits by name, only if every name is found
+     * The check and the removals happen atomically with respect to other writers.
+     *
+     * @param names Names of the fruits to remove
+     * @return true if all were removed, false if none was
+     */
+    public boolean removeAll(List<String> names) {
+        return withLocks(names, () -> {
+            if (!BatchValidator.canRemoveAll(nameCounts(), names)) {
+                return false;
+            }
+            for (String name : names) {
+                List<Entry> matches = exactNameIndex.get(name);
+                if (matches == null) continue;
+                for (Entry entry : matches) {
+                    delete(entry);
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Returns statistics about the fruit collection from the running totals
+     *
+     * @return FruitStatistics object containing calculated stats
+     */
+    public FruitManager.FruitStatistics calculateStatistics() {
+        return statistics.toStatistics();
+    }
+
+    /**
+     * Calculates overall and per-group statistics in one pass over the current version, splitting
+     * large collections across the common pool
+     *
+     * @return GroupedStatistics holding the overall and per-group stats
+     */
+    public GroupedStatistics calculateGroupedStatistics() {
+        return StatisticsAggregator.computeGrouped(fruits.get());
+    }
+
+    /**
+     * Reads the sketches kept up to date by every writer without locking. If too many fruits were
+     * removed since the last rebuild, every stripe is locked while the sketches are rebuilt.
+     *
+     * @return ApproximateStatistics with the estimates and their error bounds
+     */
+    public ApproximateStatistics calculateApproximateStatistics() {
+        if (sketches.isStale()) {
+            withAllLocks(() -> {
+                sketches.rebuildIfStale(target -> fruits.get().forEach(target::add));
+                return null;
+            });
+        }
+        return sketches.toStatistics();
+    }
+
+    /**
+     * Reads the percentiles and histograms kept up to date by every mutation
+     *
+     * @return DistributionStatistics with the percentiles and histograms
+     */
+    public DistributionStatistics calculateDistributionStatistics() {
+        return statistics.toDistributionStatistics();
+    }
+
+    /**
+     * Updates a fruit's attributes
+     * The name conflict check and the rename happen atomically.
+     *
+     * @param oldName Original name of the fruit to update
+     * @param newName New name (can be same as old)
+     * @param newWeight New weight
+     * @param newColor New color
+     * @param newIsEdible New edible status
+     * @param newCaloriesPer100g New calories per 100g
+     * @return true if fruit was updated successfully, false if not found
+     */
+    public boolean updateFruit(String oldName, String newName, int newWeight,
+                               String newColor, boolean newIsEdible, int newCaloriesPer100g) {
+        return withLocks(oldName, newName,
+                () -> update(oldName, newName, newWeight, newColor, newIsEdible, newCaloriesPer100g));
+    }
+
+    /**
+     * Applies several updates in order, only if every one of them succeeds
+     * The stripes of every old and new name are locked once for the whole batch.
+     *
+     * @param updates Updates to apply
+     * @return true if all updates were applied, false if none was
+     */
+    public boolean updateAll(List<FruitUpdate> updates) {
+        List<String> names = new ArrayList<>(2 * updates.size());
+        for (FruitUpdate update : updates) {
+            names.add(update.oldName());
+            names.add(update.newName());
+        }
+        return withLocks(names, () -> {
+            if (!BatchValidator.canUpdateAll(nameCounts(), updates)) {
+                return false;
+            }
+            for (FruitUpdate update : updates) {
+                update(update.oldName(), update.newName(), update.weight(), update.color(),
+                        update.isEdible(), update.caloriesPer100g());
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Updates only specific attributes of a fruit by swapping in a copy with the new value
+     * A value of the wrong type fails before anything changes.
+     *
+     * @param fruitName Name of the fruit to update
+     * @param attribute Attribute to update ("name", "weight", "color", "edible", "calories")
+     * @param newValue New value for the attribute
+     * @return true if updated successfully, false otherwise
+     */
+    public boolean updateFruitAttribute(String fruitName, String attribute, Object newValue) {
+        String key = attribute.toLowerCase();
+        String newName = key.equals("name") ? (String) newValue : fruitName;
+
+        return withLocks(fruitName, newName, () -> {
+            List<Entry> matches = exactNameIndex.get(fruitName);
+            if (matches == null) {
+                return false;
+            }
+
+            Entry entry = matches.getFirst();
+            ImmutableFruit fruit = entry.fruit();
+            ImmutableFruit updated;
+            switch (key) {
+                case "name":
+                    if (!fruitName.equals(newName) && fruitExists(newName)) {
+                        return false; // Name conflict
+                    }
+                    updated = fruit.withName(newName);
+                    break;
+                case "weight":
+                    updated = fruit.withWeight((Integer) newValue);
+                    break;
+                case "color":
+                    updated = fruit.withColor((String) newValue);
+                    break;
+                case "edible":
+                    updated = fruit.withEdible((Boolean) newValue);
+                    break;
+                case "calories":
+                    updated = fruit.withCaloriesPer100g((Integer) newValue);
+                    break;
+                default:
+                    return false;
+            }
+            replace(entry, updated);
+            return true;
+        });
+    }
+
+    /**
+     * Runs an action while holding the stripes of both names, always locking in stripe order
+     */
+    private <T> T withLocks(String firstName, String secondName, Supplier<T> action) {
+        int first = stripeOf(firstName);
+        int second = stripeOf(secondName);
+        ReentrantLock outer = stripes[Math.min(first, second)];
+        ReentrantLock inner = stripes[Math.max(first, second)];
+
+        outer.lock();
+        try {
+            if (inner != outer) inner.lock();
+            try {
+                return action.get();
+            } finally {
+                if (inner != outer) inner.unlock();
+            }
+        } finally {
+            outer.unlock();
+        }
+    }
+
+    /**
+     * Runs an action while holding the stripes of all the names, locking them in stripe order
+     */
+    private <T> T withLocks(List<String> names, Supplier<T> action) {
+        BitSet needed = new BitSet(stripes.length);
+        for (String name : names) {
+            needed.set(stripeOf(name));
+        }
+        return withStripes(needed, action);
+    }
+
+    /**
+     * Runs an action while holding every stripe, so no writer is active until it returns
+     */
+    private <T> T withAllLocks(Supplier<T> action) {
+        BitSet all = new BitSet(stripes.length);
+        all.set(0, stripes.length);
+        return withStripes(all, action);
+    }
+
+    /**
+     * Locks the given stripes in stripe order, runs the action and unlocks them
+     */
+    private <T> T withStripes(BitSet needed, Supplier<T> action) {
+        int locked = 0;
+        int[] order = new int[needed.cardinality()];
+        try {
+            for (int stripe = needed.nextSetBit(0); stripe >= 0; stripe = needed.nextSetBit(stripe + 1)) {
+                stripes[stripe].lock();
+                order[locked++] = stripe;
+            }
+            return action.get();
+        } finally {
+            while (locked > 0) {
+                stripes[order[--locked]].unlock();
+            }
+        }
+    }
+
+    private int stripeOf(String name) {
+        int hash = NameFolding.fold(name).hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * Updates the first fruit with the old name; the caller holds the stripes of both names
+     */
+    private boolean update(String oldName, String newName, int newWeight,
+                           String newColor, boolean newIsEdible, int newCaloriesPer100g) {
+        List<Entry> matches = exactNameIndex.get(oldName);
+        if (matches == null) {
+            return false;
+        }
+
+        // Check if new name conflicts with existing fruit (only if name is changing)
+        if (!oldName.equals(newName) && fruitExists(newName)) {
+            return false;
+        }
+
+        replace(matches.getFirst(), new ImmutableFruit(newName, newWeight, newColor, newIsEdible, newCaloriesPer100g));
+        return true;
+    }
+
+    /**
+     * Name counts from the concurrent indexes; the caller holds the stripes of the names it asks about
+     */
+    private BatchValidator.NameCounts nameCounts() {
+        return new BatchValidator.NameCounts() {
+            @Override
+            public int exactCount(String name) {
+                List<Entry> matches = exactNameIndex.get(name);
+                return matches == null ? 0 : matches.size();
+            }
+
+            @Override
+            public int foldedCount(String foldedName) {
+                return foldedNameIndex.getOrDefault(foldedName, 0);
+            }
+        };
+    }
+
+    /**
+     * Stores an immutable copy of a new fruit; the caller holds the stripe of its name
+     */
+    private void insert(Fruit fruit) {
+        ImmutableFruit stored = ImmutableFruit.copyOf(fruit);
+        Entry entry = new Entry(nextSequence.getAndIncrement(), stored);
+        indexName(entry, stored.getName());
+        weightIndex.put(new RangeKey(stored.getWeight(), entry.sequence()), entry);
+        calorieIndex.put(new RangeKey(stored.getCaloriesPer100g(), entry.sequence()), entry);
+        statistics.add(stored, entry.sequence());
+        sketches.add(stored);
+        fruits.updateAndGet(version -> version.with(entry.sequence(), stored));
+    }
+
+    /**
+     * Drops a fruit; the caller holds the stripe of its name
+     */
+    private void delete(Entry entry) {
+        fruits.updateAndGet(version -> version.without(entry.sequence()));
+        statistics.remove(entry.fruit(), entry.sequence());
+        sketches.remove(entry.fruit());
+        weightIndex.remove(new RangeKey(entry.fruit().getWeight(), entry.sequence()));
+        calorieIndex.remove(new RangeKey(entry.fruit().getCaloriesPer100g(), entry.sequence()));
+        unindexName(entry, entry.fruit().getName());
+    }
+
+    /**
+     * Swaps an updated copy in for a fruit, keeping its sequence
+     * The indexes share the entry, so they all see the new fruit at once and readers holding the
+     * old one keep a whole old fruit. Only keys that changed are moved; a fruit leaves a range index
+     * before its entry changes, so a range query never returns it under a value it no longer has.
+     * The caller holds the stripes of the old and new names.
+     */
+    private void replace(Entry entry, ImmutableFruit updated) {
+        ImmutableFruit fruit = entry.fruit();
+        boolean reweighed = fruit.getWeight() != updated.getWeight();
+        boolean caloriesChanged = fruit.getCaloriesPer100g() != updated.getCaloriesPer100g();
+        boolean renamed = !fruit.getName().equals(updated.getName());
+        statistics.remove(fruit, entry.sequence());
+        sketches.remove(fruit);
+        if (reweighed) {
+            weightIndex.remove(new RangeKey(fruit.getWeight(), entry.sequence()));
+        }
+        if (caloriesChanged) {
+            calorieIndex.remove(new RangeKey(fruit.getCaloriesPer100g(), entry.sequence()));
+        }
+        if (renamed) {
+            indexName(entry, updated.getName());
+        }
+        entry.fruit = updated;
+        fruits.updateAndGet(version -> version.with(entry.sequence(), updated));
+        if (renamed) {
+            unindexName(entry, fruit.getName());
+        }
+        if (reweighed) {
+            weightIndex.put(new RangeKey(updated.getWeight(), entry.sequence()), entry);
+        }
+        if (caloriesChanged) {
+            calorieIndex.put(new RangeKey(updated.getCaloriesPer100g(), entry.sequence()), entry);
+        }
+        statistics.add(updated, entry.sequence());
+        sketches.add(updated);
+    }
+
+    private static List<Fruit> findInRange(ConcurrentSkipListMap<RangeKey, Entry> index, int min, int max) {
+        List<Fruit> result = new ArrayList<>();
+        if (min > max) {
+            return result;
+        }
+        for (Entry entry : index.subMap(new RangeKey(min, Long.MIN_VALUE), true,
+                new RangeKey(max, Long.MAX_VALUE), true).values()) {
+            result.add(entry.fruit());
+        }
+        return result;
+    }
+
+    /**
+     * Access path over a range of an index
+     * Up to EXACT_COUNT_LIMIT entries, and never past cap, are counted; a longer range is estimated
+     * as the share of the size fruits matching the share of the span between the lowest and highest
+     * indexed values that it covers. The
+     * matches are read in index order and sorted back into collection order.
+     */
+    private FruitQueryPlan.AccessPath rangePath(String description, FruitQuery.Condition condition,
+                                                FruitQueryPlan.Bounds bounds,
+                                                ConcurrentSkipListMap<RangeKey, Entry> index, int cap, int size) {
+        NavigableMap<RangeKey, Entry> range = bounds.min() > bounds.max()
+                ? Collections.emptyNavigableMap()
+                : index.subMap(new RangeKey(bounds.min(), Long.MIN_VALUE), true,
+                        new RangeKey(bounds.max(), Long.MAX_VALUE), true);
+        int estimate = 0;
+        Iterator<RangeKey> keys = range.keySet().iterator();
+        int countLimit = Math.min(cap, EXACT_COUNT_LIMIT);
+        while (estimate < countLimit && keys.hasNext()) {
+            keys.next();
+            estimate++;
+        }
+        Map.Entry<RangeKey, Entry> lowest = index.firstEntry();
+        Map.Entry<RangeKey, Entry> highest = index.lastEntry();
+        if (estimate == EXACT_COUNT_LIMIT && keys.hasNext() && lowest != null && highest != null) {
+            long low = Math.max(bounds.min(), lowest.getKey().value());
+            long high = Math.min(bounds.max(), highest.getKey().value());
+            double covered = (high - low + 1.0) / (highest.getKey().value() - (long) lowest.getKey().value() + 1.0);
+            estimate = (int) Math.max(estimate, Math.min(size, Math.ceil(size * covered)));
+        }
+        return new FruitQueryPlan.AccessPath(description, condition, bounds.exact(), estimate,
+                () -> range.entrySet().stream()
+                        .sorted(Comparator.comparingLong(entry -> entry.getKey().sequence()))
+                        .<Fruit>map(entry -> entry.getValue().fruit())
+                        .iterator());
+    }
+
+    /**
+     * Takes the count entries with the highest values from the top of an index
+     * Runs of equal values are put back into sequence order, and the lowest value taken contributes
+     * its earliest fruits rather than the ones met first on the way down.
+     */
+    private static List<Fruit> highest(ConcurrentSkipListMap<RangeKey, Entry> index, int count) {
+        List<Map.Entry<RangeKey, Entry>> walked = new ArrayList<>();
+        for (Map.Entry<RangeKey, Entry> entry : index.descendingMap().entrySet()) {
+            if (walked.size() >= count) break;
+            walked.add(entry);
+        }
+        List<Fruit> result = new ArrayList<>(walked.size());
+        if (walked.isEmpty()) {
+            return result;
+        }
+
+        int boundary = walked.getLast().getKey().value();
+        int above = 0;
+        while (walked.get(above).getKey().value() != boundary) {
+            above++;
+        }
+        for (int end = 0; end < above; ) {
+            int start = end;
+            int value = walked.get(start).getKey().value();
+            while (end < above && walked.get(end).getKey().value() == value) {
+                end++;
+            }
+            for (int i = end - 1; i >= start; i--) {
+                result.add(walked.get(i).getValue().fruit());
+            }
+        }
+        for (Entry entry : index.subMap(new RangeKey(boundary, Long.MIN_VALUE), true,
+                new RangeKey(boundary, Long.MAX_VALUE), true).values()) {
+            if (result.size() >= walked.size()) break;
+            result.add(entry.fruit());
+        }
+        return result;
+    }
+
+    private void indexName(Entry entry, String name) {
+        exactNameIndex.compute(name, (k, matches) -> {
+            if (matches == null) {
+                return List.of(entry);
+            }
+            List<Entry> updated = new ArrayList<>(matches.size() + 1);
+            updated.addAll(matches);
+            updated.add(entry);
+            return List.copyOf(updated);
+        });
+        foldedNameIndex.merge(NameFolding.fold(name), 1, Integer::sum);
+    }
+
+    private void unindexName(Entry entry, String name) {
+        exactNameIndex.computeIfPresent(name, (k, matches) -> {
+            List<Entry> updated = new ArrayList<>(matches);
+            updated.remove(entry);
+            return updated.isEmpty() ? null : List.copyOf(updated);
+        });
+        foldedNameIndex.computeIfPresent(NameFolding.fold(name), (k, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Place of a fruit in the collection: the sequence that orders it and its current immutable
+     * version, replaced as a whole by every update
+     */
+    private static final class Entry {
+        private final long sequence;
+        private volatile ImmutableFruit fruit;
+
+        private Entry(long sequence, ImmutableFruit fruit) {
+            this.sequence = sequence;
+            this.fruit = fruit;
+        }
+
+        private long sequence() {
+            return sequence;
+        }
+
+        private ImmutableFruit fruit() {
+            return fruit;
+        }
+    }
+
+    /**
+     * Position of a fruit in a range index: the indexed value, then the insertion sequence
+     */
+    private record RangeKey(int value, long sequence) implements Comparable<RangeKey> {
+        @Override
+        public int compareTo(RangeKey other) {
+            int order = Integer.compare(value, other.value);
+            return order != 0 ? order : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * Count-min estimate of how often each value occurs, in fixed memory
+ * Every value increments one counter in each of depth rows of width counters, and its estimate
+ * is the smallest of its counters. As long as no value's true count goes negative, the estimate
+ * is never below the true count and, with probability 1 - e^-depth, exceeds it by at most
+ * e / width times the total count.
+ */
+public class CountMinSketch {
+    public static final int DEFAULT_WIDTH = 2048;
+    public static final int DEFAULT_DEPTH = 5;
+
+    private final int width;
+    private final int depth;
+    // Row r occupies counts[r * width] to counts[(r + 1) * width - 1]
+    private final int[] counts;
+    private long total;
+
+    public CountMinSketch() {
+        this(DEFAULT_WIDTH, DEFAULT_DEPTH);
+    }
+
+    /**
+     * @param width Counters per row, rounded up to a power of two
+     * @param depth Number of rows
+     */
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("Width and depth must be positive: " + width + "x" + depth);
+        }
+        this.width = Integer.highestOneBit(Math.max(1, width - 1)) << 1;
+        this.depth = depth;
+        this.counts = new int[this.width * depth];
+    }
+
+    private CountMinSketch(CountMinSketch source) {
+        this.width = source.width;
+        this.depth = source.depth;
+        this.counts = source.counts.clone();
+        this.total = source.total;
+    }
+
+    /**
+     * Changes the count of a value
+     * @param hash 64-bit hash of the value, such as from HyperLogLog.hash
+     * @param delta Amount to add; negative to take back earlier additions
+     */
+    public void add(long hash, int delta) {
+        int first = (int) hash;
+        int step = (int) (hash >>> 32) | 1;
+        for (int row = 0; row < depth; row++) {
+            counts[row * width + ((first + row * step) & (width - 1))] += delta;
+        }
+        total += delta;
+    }
+
+    /**
+     * Estimates the count of a value
+     * @param hash 64-bit hash of the value
+     * @return Estimated count, never below the true count
+     */
+    public long estimate(long hash) {
+        int first = (int) hash;
+        int step = (int) (hash >>> 32) | 1;
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts[row * width + ((first + row * step) & (width - 1))]);
+        }
+        return Math.max(0, estimate);
+    }
+
+    /**
+     * @return Sum of all counts
+     */
+    public long total() {
+        return total;
+    }
+
+    /**
+     * Forgets every count
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        total = 0;
+    }
+
+    /**
+     * @return Independent copy that later changes to this sketch do not affect
+     */
+    public CountMinSketch copy() {
+        return new CountMinSketch(this);
+    }
+
+    /**
+     * @return Bound on the overestimate as a share of the total count, e / width
+     */
+    public double errorRate() {
+        return Math.E / width;
+    }
+
+    /**
+     * @return Probability that an estimate exceeds the error bound, e^-depth
+     */
+    public double failureProbability() {
+        return Math.exp(-depth);
+    }
+
+    /**
+     * @return Bytes of counter memory, fixed by width and depth
+     */
+    public int sizeInBytes() {
+        return counts.length * Integer.BYTES;
+    }
+}
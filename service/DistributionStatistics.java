@@ -0,0 +1,160 @@
+package service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Exact percentiles and fixed-bucket histograms of weight, calories per 100g and total calories
+ * Percentiles use the nearest-rank method: p90 is the smallest value with at least 90% of the fruits
+ * at or below it. Each histogram has equal-width buckets, the last one open-ended.
+ */
+public class DistributionStatistics {
+    private final Distribution weight;
+    private final Distribution caloriesPer100g;
+    private final Distribution totalCalories;
+
+    public DistributionStatistics(Distribution weight, Distribution caloriesPer100g, Distribution totalCalories) {
+        this.weight = weight;
+        this.caloriesPer100g = caloriesPer100g;
+        this.totalCalories = totalCalories;
+    }
+
+    /**
+     * Summary of one attribute over all fruits
+     */
+    public static final class Distribution {
+        private final String unit;
+        private final long count;
+        private final double min;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+        private final double max;
+        private final Map<String, Long> histogram;
+
+        public Distribution(String unit, long count, double min, double p50, double p90, double p99, double max,
+                            Map<String, Long> histogram) {
+            this.unit = unit;
+            this.count = count;
+            this.min = min;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+            this.histogram = Collections.unmodifiableMap(histogram);
+        }
+
+        /**
+         * Reads a distribution whose values are stored scaled up to integers
+         * @param values Distribution to read
+         * @param scale Stored value of one unit
+         * @param bucketWidth Width of the histogram buckets of values, in units
+         * @param unit Unit of the values, for labels
+         */
+        static Distribution of(ValueDistribution values, double scale, int bucketWidth, String unit) {
+            long[] buckets = values.histogram();
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < buckets.length; i++) {
+                histogram.put(bucketLabel(i, bucketWidth, buckets.length, unit), buckets[i]);
+            }
+            return new Distribution(unit, values.count(), values.min() / scale, values.percentile(50) / scale,
+                    values.percentile(90) / scale, values.percentile(99) / scale, values.max() / scale, histogram);
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getP50() {
+            return p50;
+        }
+
+        public double getP90() {
+            return p90;
+        }
+
+        public double getP99() {
+            return p99;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        /**
+         * @return Bucket label -> number of fruits in the bucket, lowest bucket first
+         */
+        public Map<String, Long> getHistogram() {
+            return histogram;
+        }
+    }
+
+    /**
+     * Label of a histogram bucket, such as "100-199 g"
+     * Values are placed by their whole part, so a fruit of 99.5 kcal counts in "50-99 kcal".
+     * @param bucket Bucket from 0 to bucketCount - 1
+     * @param width Width of each bucket
+     * @param bucketCount Number of buckets, the last one open-ended
+     * @param unit Unit appended to the label
+     * @return Label naming the values in the bucket
+     */
+    public static String bucketLabel(int bucket, int width, int bucketCount, String unit) {
+        int low = bucket * width;
+        if (bucket == 0) {
+            return "under " + width + " " + unit;
+        }
+        if (bucket == bucketCount - 1) {
+            return low + " " + unit + " and over";
+        }
+        return low + "-" + (low + width - 1) + " " + unit;
+    }
+
+    public Distribution getWeight() {
+        return weight;
+    }
+
+    public Distribution getCaloriesPer100g() {
+        return caloriesPer100g;
+    }
+
+    public Distribution getTotalCalories() {
+        return totalCalories;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append("DISTRIBUTIONS\n\n");
+        sb.append(String.format(Locale.ROOT, "%-24s %9s %9s %9s %9s %9s%n", "", "Min", "p50", "p90", "p99", "Max"));
+        appendSummary(sb, "Weight (g)", weight);
+        appendSummary(sb, "Calories per 100g", caloriesPer100g);
+        appendSummary(sb, "Total calories (kcal)", totalCalories);
+        appendHistogram(sb, "Weight", weight);
+        appendHistogram(sb, "Calories per 100g", caloriesPer100g);
+        appendHistogram(sb, "Total calories", totalCalories);
+        return sb.toString();
+    }
+
+    private static void appendSummary(StringBuilder sb, String title, Distribution distribution) {
+        sb.append(String.format(Locale.ROOT, "%-24s %9.1f %9.1f %9.1f %9.1f %9.1f%n", title, distribution.getMin(),
+                distribution.getP50(), distribution.getP90(), distribution.getP99(), distribution.getMax()));
+    }
+
+    private static void appendHistogram(StringBuilder sb, String title, Distribution distribution) {
+        sb.append(String.format(Locale.ROOT, "%n%-24s %9s %8s%n", title, "Fruits", "Share"));
+        for (Map.Entry<String, Long> bucket : distribution.getHistogram().entrySet()) {
+            double share = distribution.getCount() == 0 ? 0 : (double) bucket.getValue() / distribution.getCount() * 100;
+            sb.append(String.format(Locale.ROOT, "%-24s %9d %7.1f%%%n", bucket.getKey(), bucket.getValue(), share));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package service;
+
+import constants.FruitConstants;
+import model.Fruit;
+
+/**
+ * Exact distributions of weight, calories per 100g and total calories, updated on every mutation
+ * Total calories are kept in hundredths of a kcal, weight times calories per 100g, so every value
+ * is an exact integer. Like FruitStatisticsAccumulator, a fruit must be removed before any of its
+ * attributes change and added back afterwards. Safe for concurrent use; each call holds the monitor
+ * while it touches one leaf of each distribution.
+ */
+public class FruitDistributions {
+    private final ValueDistribution weights;
+    private final ValueDistribution caloriesPer100g;
+    // Weight times calories per 100g, in hundredths of a kcal
+    private final ValueDistribution totalCalories;
+
+    public FruitDistributions() {
+        this.weights = new ValueDistribution(FruitConstants.WEIGHT_BUCKET_GRAMS, FruitConstants.WEIGHT_BUCKETS);
+        this.caloriesPer100g = new ValueDistribution(FruitConstants.CALORIE_BUCKET_WIDTH, FruitConstants.CALORIE_BUCKETS);
+        this.totalCalories = new ValueDistribution(
+                (long) (FruitConstants.TOTAL_CALORIE_BUCKET_WIDTH * FruitConstants.CALORIES_PER_100G_TO_GRAM_RATIO),
+                FruitConstants.TOTAL_CALORIE_BUCKETS);
+    }
+
+    /**
+     * Builds the distributions of a whole collection in one pass
+     * @param fruits Fruits to account for
+     * @return Distributions of the fruits
+     */
+    public static FruitDistributions of(Iterable<? extends Fruit> fruits) {
+        FruitDistributions distributions = new FruitDistributions();
+        for (Fruit fruit : fruits) {
+            distributions.add(fruit.getWeight(), fruit.getCaloriesPer100g());
+        }
+        return distributions;
+    }
+
+    /**
+     * Accounts for a fruit by its weight and calories
+     * @param weight Weight in grams
+     * @param calories Calories per 100g
+     */
+    public synchronized void add(int weight, int calories) {
+        weights.add(weight);
+        caloriesPer100g.add(calories);
+        totalCalories.add((long) weight * calories);
+    }
+
+    /**
+     * Stops accounting for a fruit, using the weight and calories it was added with
+     * @param weight Weight in grams
+     * @param calories Calories per 100g
+     */
+    public synchronized void remove(int weight, int calories) {
+        weights.remove(weight);
+        caloriesPer100g.remove(calories);
+        totalCalories.remove((long) weight * calories);
+    }
+
+    /**
+     * Reads the percentiles and histograms into an immutable result
+     * @return DistributionStatistics of the fruits currently accounted for
+     */
+    public synchronized DistributionStatistics toStatistics() {
+        return new DistributionStatistics(
+                DistributionStatistics.Distribution.of(weights, 1, FruitConstants.WEIGHT_BUCKET_GRAMS, "g"),
+                DistributionStatistics.Distribution.of(caloriesPer100g, 1, FruitConstants.CALORIE_BUCKET_WIDTH, "kcal/100g"),
+                DistributionStatistics.Distribution.of(totalCalories, FruitConstants.CALORIES_PER_100G_TO_GRAM_RATIO,
+                        FruitConstants.TOTAL_CALORIE_BUCKET_WIDTH, "kcal"));
+    }
+}
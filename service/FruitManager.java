@@ -2,9 +2,23 @@ package service;
 
 import interfaces.IFruitManager;
 import model.Fruit;
+import model.FruitQuery;
+import model.FruitUpdate;
+import util.DecimalAppender;
+import util.NameFolding;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.ToIntFunction;
 
 /**
  * Manages the collection of fruits and provides business logic operations
@@ -25,6 +39,15 @@ public class FruitManager implements IFruitManager {
         fruits.add(fruit);
     }
 
+    /**
+     * Adds several fruits to the collection, in order
+     *
+     * @param newFruits Fruits to add
+     */
+    public void addAll(List<Fruit> newFruits) {
+        fruits.addAll(newFruits);
+    }
+
     /**
      * Checks if a fruit with the given name already exists
      *
@@ -44,6 +67,19 @@ public class FruitManager implements IFruitManager {
         return new ArrayList<>(fruits);
     }
 
+    /**
+     * Gets one page of the collection
+     *
+     * @param offset Number of fruits to skip
+     * @param limit Maximum number of fruits to return
+     * @return Fruits in collection order
+     */
+    public List<Fruit> getFruits(int offset, int limit) {
+        int from = Math.min(offset, fruits.size());
+        int to = (int) Math.min((long) from + limit, fruits.size());
+        return new ArrayList<>(fruits.subList(from, to));
+    }
+
     /**
      * Checks if the collection is empty
      *
@@ -75,6 +111,23 @@ public class FruitManager implements IFruitManager {
                 .orElse(null);
     }
 
+    /**
+     * Searches for all fruits whose name contains the given text (case-insensitive), one page at a time
+     *
+     * @param name Name to search for
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of matches to return
+     * @return Matching fruits in collection order
+     */
+    public List<Fruit> searchFruitsByName(String name, int offset, int limit) {
+        String query = name.toLowerCase();
+        return fruits.stream()
+                .filter(f -> f.getName().toLowerCase().contains(query))
+                .skip(offset)
+                .limit(limit)
+                .toList();
+    }
+
     /**
      * Searches for a fruit by exact name match
      *
@@ -88,6 +141,134 @@ public class FruitManager implements IFruitManager {
                 .orElse(null);
     }
 
+    /**
+     * Gets all fruits of a color
+     *
+     * @param color Exact color to search for
+     * @return Fruits of that color in collection order
+     */
+    public List<Fruit> getFruitsByColor(String color) {
+        return fruits.stream()
+                .filter(f -> f.getColor().equals(color))
+                .toList();
+    }
+
+    /**
+     * Counts the fruits of each color
+     *
+     * @return Color -> number of fruits of that color
+     */
+    public Map<String, Integer> countFruitsByColor() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Fruit fruit : fruits) {
+            counts.merge(fruit.getColor(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the fruits whose weight lies in a range
+     *
+     * @param minWeight Lowest weight in grams, inclusive
+     * @param maxWeight Highest weight in grams, inclusive
+     * @return Matching fruits from lightest to heaviest, equal weights in collection order
+     */
+    public List<Fruit> getFruitsByWeight(int minWeight, int maxWeight) {
+        return fruits.stream()
+                .filter(f -> f.getWeight() >= minWeight && f.getWeight() <= maxWeight)
+                .sorted(Comparator.comparingInt(Fruit::getWeight))
+                .toList();
+    }
+
+    /**
+     * Gets the fruits whose calories per 100g lie in a range
+     *
+     * @param minCalories Lowest calories per 100g, inclusive
+     * @param maxCalories Highest calories per 100g, inclusive
+     * @return Matching fruits from fewest to most calories, equal values in collection order
+     */
+    public List<Fruit> getFruitsByCalories(int minCalories, int maxCalories) {
+        return fruits.stream()
+                .filter(f -> f.getCaloriesPer100g() >= minCalories && f.getCaloriesPer100g() <= maxCalories)
+                .sorted(Comparator.comparingInt(Fruit::getCaloriesPer100g))
+                .toList();
+    }
+
+    /**
+     * Gets the heaviest fruits with a heap of the best count candidates
+     *
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from heaviest down, equal weights in collection order
+     */
+    public List<Fruit> getHeaviestFruits(int count) {
+        return top(fruits, Fruit::getWeight, true, count);
+    }
+
+    /**
+     * Gets the lightest fruits with a heap of the best count candidates
+     *
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from lightest up, equal weights in collection order
+     */
+    public List<Fruit> getLightestFruits(int count) {
+        return top(fruits, Fruit::getWeight, false, count);
+    }
+
+    /**
+     * Gets the fruits with the most calories per 100g with a heap of the best count candidates
+     *
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from most calories down, equal values in collection order
+     */
+    public List<Fruit> getMostCaloricFruits(int count) {
+        return top(fruits, Fruit::getCaloriesPer100g, true, count);
+    }
+
+    /**
+     * Plans a query; without indexes the only access path is a scan of the list
+     *
+     * @param query Conditions, offset and limit
+     * @return Plan that tests every fruit in order, stopping once the limit is reached
+     */
+    public FruitQueryPlan query(FruitQuery query) {
+        return FruitQueryPlan.choose(query, fruits.size(),
+                List.of(FruitQueryPlan.AccessPath.fullScan(fruits.size(), fruits::iterator)));
+    }
+
+    /**
+     * Selects the count fruits with the highest or lowest value in O(n log count)
+     * The heap holds positions with the weakest candidate on top, so each fruit costs one
+     * comparison unless it beats that candidate.
+     */
+    static List<Fruit> top(List<Fruit> fruits, ToIntFunction<Fruit> value, boolean highest, int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        Comparator<Integer> weakestFirst = (a, b) -> compareCandidates(fruits, value, highest, b, a);
+        PriorityQueue<Integer> candidates = new PriorityQueue<>(weakestFirst);
+        for (int position = 0; position < fruits.size(); position++) {
+            if (candidates.size() < count) {
+                candidates.add(position);
+            } else if (compareCandidates(fruits, value, highest, position, candidates.peek()) < 0) {
+                candidates.poll();
+                candidates.add(position);
+            }
+        }
+        Fruit[] result = new Fruit[candidates.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = fruits.get(candidates.poll());
+        }
+        return new ArrayList<>(List.of(result));
+    }
+
+    /**
+     * @return Negative if the fruit at position a ranks before the one at position b
+     */
+    private static int compareCandidates(List<Fruit> fruits, ToIntFunction<Fruit> value, boolean highest, int a, int b) {
+        int order = Integer.compare(value.applyAsInt(fruits.get(a)), value.applyAsInt(fruits.get(b)));
+        return order != 0 ? (highest ? -order : order) : Integer.compare(a, b);
+    }
+
     /**
      * Gets array of all fruit names
      *
@@ -110,33 +291,94 @@ public class FruitManager implements IFruitManager {
     }
 
     /**
-     * Calculates statistics about the fruit collection
+     * Applies several updates in order, only if every one of them succeeds
      *
-     * @return FruitStatistics object containing calculated stats
+     * @param updates Updates to apply
+     * @return true if all updates were applied, false if none was
      */
-    public FruitStatistics calculateStatistics() {
-        if (fruits.isEmpty()) {
-            return new FruitStatistics(0, 0, 0, 0.0, 0.0, 0.0, null);
+    public boolean updateAll(List<FruitUpdate> updates) {
+        if (!BatchValidator.canUpdateAll(countNames(), updates)) {
+            return false;
         }
+        for (FruitUpdate update : updates) {
+            updateFruit(update.oldName(), update.newName(), update.weight(), update.color(),
+                    update.isEdible(), update.caloriesPer100g());
+        }
+        return true;
+    }
 
-        int healthy = 0, edible = 0;
-        double totalCaloriesPer100g = 0;
-        Fruit heaviest = fruits.getFirst();
+    /**
+     * Removes fruits by name with one pass over the list, only if every name is found
+     *
+     * @param names Names of the fruits to remove
+     * @return true if all were removed, false if none was
+     */
+    public boolean removeAll(List<String> names) {
+        if (!BatchValidator.canRemoveAll(countNames(), names)) {
+            return false;
+        }
+        Set<String> removed = new HashSet<>(names);
+        fruits.removeIf(f -> removed.contains(f.getName()));
+        return true;
+    }
 
+    /**
+     * Counts names in one pass so a batch is validated without a scan per lookup
+     */
+    private BatchValidator.NameCounts countNames() {
+        Map<String, Integer> exact = new HashMap<>();
+        Map<String, Integer> folded = new HashMap<>();
         for (Fruit fruit : fruits) {
-            if (fruit.isHealthy()) healthy++;
-            if (fruit.canBeEaten()) edible++;
-            totalCaloriesPer100g += fruit.getCaloriesPer100g(); // Suma calorías por 100g para promedio
-            if (fruit.isHeavierThan(heaviest)) heaviest = fruit;
+            exact.merge(fruit.getName(), 1, Integer::sum);
+            folded.merge(NameFolding.fold(fruit.getName()), 1, Integer::sum);
         }
+        return new BatchValidator.NameCounts() {
+            @Override
+            public int exactCount(String name) {
+                return exact.getOrDefault(name, 0);
+            }
 
-        double healthyPercentage = (double) healthy / fruits.size() * 100;
-        double ediblePercentage = (double) edible / fruits.size() * 100;
-        double averageCaloriesPer100g = totalCaloriesPer100g / fruits.size(); // Promedio de calorías por 100g
+            @Override
+            public int foldedCount(String foldedName) {
+                return folded.getOrDefault(foldedName, 0);
+            }
+        };
+    }
 
-        return new FruitStatistics(fruits.size(), healthy, edible,
-                healthyPercentage, ediblePercentage,
-                averageCaloriesPer100g, heaviest);
+    /**
+     * Calculates statistics about the fruit collection, splitting large lists across the common pool
+     *
+     * @return FruitStatistics object containing calculated stats
+     */
+    public FruitStatistics calculateStatistics() {
+        return StatisticsAggregator.compute(fruits);
+    }
+
+    /**
+     * Calculates overall and per-group statistics in one pass, splitting large lists across the common pool
+     *
+     * @return GroupedStatistics holding the overall and per-group stats
+     */
+    public GroupedStatistics calculateGroupedStatistics() {
+        return StatisticsAggregator.computeGrouped(fruits);
+    }
+
+    /**
+     * Sketches the whole list in one pass; the other managers keep their sketches up to date instead
+     *
+     * @return ApproximateStatistics with the estimates and their error bounds
+     */
+    public ApproximateStatistics calculateApproximateStatistics() {
+        return FruitSketches.of(fruits).toStatistics();
+    }
+
+    /**
+     * Builds the distributions of the whole list in one pass; the other managers keep theirs up to date instead
+     *
+     * @return DistributionStatistics with the percentiles and histograms
+     */
+    public DistributionStatistics calculateDistributionStatistics() {
+        return FruitDistributions.of(fruits).toStatistics();
     }
 
     /**
@@ -236,19 +478,73 @@ public class FruitManager implements IFruitManager {
             this.heaviestFruit = heaviestFruit;
         }
 
+        public int getTotalFruits() {
+            return totalFruits;
+        }
+
+        public int getHealthyFruits() {
+            return healthyFruits;
+        }
+
+        public int getEdibleFruits() {
+            return edibleFruits;
+        }
+
+        public double getHealthyPercentage() {
+            return healthyPercentage;
+        }
+
+        public double getEdiblePercentage() {
+            return ediblePercentage;
+        }
+
+        public double getAverageCaloriesPer100g() {
+            return averageCaloriesPer100g;
+        }
+
+        /**
+         * @return Heaviest fruit, or null if the collection is empty
+         */
+        public Fruit getHeaviestFruit() {
+            return heaviestFruit;
+        }
+
         @Override
         public String toString() {
-            StringBuilder sb = new StringBuilder("GENERAL STATISTICS\n\n");
-            sb.append("Total fruits: ").append(totalFruits).append("\n");
-            sb.append("Healthy fruits: ").append(healthyFruits)
-                    .append(" (").append(String.format("%.1f", healthyPercentage)).append("%)\n");
-            sb.append("Edible fruits: ").append(edibleFruits)
-                    .append(" (").append(String.format("%.1f", ediblePercentage)).append("%)\n");
-            if (heaviestFruit != null) {
-                sb.append("Heaviest fruit: ").append(heaviestFruit.getName()).append("\n");
+            StringBuilder sb = new StringBuilder(192);
+            try {
+                appendTo(sb);
+            } catch (IOException e) {
+                // A StringBuilder never throws
+                throw new UncheckedIOException(e);
             }
-            sb.append("Average calories per 100g: ").append(String.format("%.1f", averageCaloriesPer100g)).append("\n");
             return sb.toString();
         }
+
+        /**
+         * Writes the same text as toString into a caller-supplied buffer or writer, without allocating
+         * @param out Destination of the text
+         * @throws IOException if the destination cannot be written
+         */
+        public void appendTo(Appendable out) throws IOException {
+            out.append("GENERAL STATISTICS\n\n");
+            out.append("Total fruits: ");
+            DecimalAppender.appendLong(out, totalFruits);
+            out.append("\nHealthy fruits: ");
+            DecimalAppender.appendLong(out, healthyFruits);
+            out.append(" (");
+            DecimalAppender.append(out, healthyPercentage, 1);
+            out.append("%)\nEdible fruits: ");
+            DecimalAppender.appendLong(out, edibleFruits);
+            out.append(" (");
+            DecimalAppender.append(out, ediblePercentage, 1);
+            out.append("%)\n");
+            if (heaviestFruit != null) {
+                out.append("Heaviest fruit: ").append(heaviestFruit.getName()).append('\n');
+            }
+            out.append("Average calories per 100g: ");
+            DecimalAppender.append(out, averageCaloriesPer100g, 1);
+            out.append('\n');
+        }
     }
 }
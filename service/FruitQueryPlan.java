@@ -0,0 +1,213 @@
+package service;
+
+import constants.FruitConstants;
+import model.Fruit;
+import model.FruitQuery;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.StringJoiner;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Query over a manager's fruits together with the way it will be answered
+ * Each manager lists its access paths: a full scan, plus one index lookup per condition one of its
+ * indexes can answer, or a scan that tests the conditions on its own storage. The path expected to
+ * produce the fewest candidates is chosen; only the conditions it does not already guarantee are
+ * tested on each candidate. Nothing is read until the plan is iterated, and iteration stops once
+ * the limit is reached. Matches come in collection order whichever path is chosen. Iterate before
+ * the collection changes again.
+ */
+public class FruitQueryPlan implements Iterable<Fruit> {
+    private static final int INDEX_SHARE_DIVISOR = 4;
+
+    private final String query;
+    private final int offset;
+    private final int limit;
+    private final int collectionSize;
+    private final AccessPath chosen;
+    private final List<AccessPath> considered;
+    private final List<FruitQuery.Condition> residual;
+
+    /**
+     * One way to produce candidate fruits in collection order
+     * @param description Name of the index, or of the scan
+     * @param conditions Conditions every candidate meets, empty for a plain full scan
+     * @param exact true if the candidates are exactly the fruits meeting the conditions, so they are not tested again
+     * @param estimate Expected number of candidates
+     * @param source Produces the candidates when the plan is iterated
+     */
+    public record AccessPath(String description, List<FruitQuery.Condition> conditions, boolean exact,
+                             int estimate, Supplier<Iterator<Fruit>> source) {
+        /**
+         * Index lookup answering a single condition
+         */
+        public AccessPath(String description, FruitQuery.Condition condition, boolean exact,
+                          int estimate, Supplier<Iterator<Fruit>> source) {
+            this(description, List.of(condition), exact, estimate, source);
+        }
+
+        public static AccessPath fullScan(int size, Supplier<Iterator<Fruit>> source) {
+            return new AccessPath("full scan", List.of(), false, size, source);
+        }
+    }
+
+    /**
+     * Range an indexed attribute must lie in for a condition to hold
+     * @param exact true if lying in the range is also enough for the condition to hold
+     */
+    public record Bounds(int min, int max, boolean exact) {
+    }
+
+    private FruitQueryPlan(FruitQuery query, int collectionSize, AccessPath chosen, List<AccessPath> considered) {
+        this.query = query.toString();
+        this.offset = query.getOffset();
+        this.limit = query.getLimit();
+        this.collectionSize = collectionSize;
+        this.chosen = chosen;
+        this.considered = considered;
+        this.residual = new ArrayList<>(query.getConditions());
+        if (chosen.exact()) {
+            residual.removeAll(chosen.conditions());
+        }
+    }
+
+    /**
+     * Picks the access path with the lowest estimate, the first one listed winning a tie
+     * Index lookups usually hand over their candidates out of collection order and must sort them
+     * back, so one is only chosen over the scan when it reads at most a quarter of the collection.
+     * @param query Query to answer
+     * @param collectionSize Number of fruits in the collection
+     * @param paths Available access paths, starting with the scan
+     * @return Plan ready to iterate
+     */
+    public static FruitQueryPlan choose(FruitQuery query, int collectionSize, List<AccessPath> paths) {
+        AccessPath best = paths.getFirst();
+        for (AccessPath path : paths.subList(1, paths.size())) {
+            if (path.estimate() < best.estimate() && path.estimate() <= collectionSize / INDEX_SHARE_DIVISOR) {
+                best = path;
+            }
+        }
+        return new FruitQueryPlan(query, collectionSize, best, List.copyOf(paths));
+    }
+
+    /**
+     * Weight range implied by a condition, for managers with a weight index
+     * @param condition Condition of the query
+     * @return Range, or null if the condition does not bound the weight
+     */
+    public static Bounds weightBounds(FruitQuery.Condition condition) {
+        return switch (condition) {
+            case FruitQuery.WeightBetween range -> new Bounds(range.min(), range.max(), true);
+            // Edible fruits above the minimum weight; the index covers the weight half
+            case FruitQuery.CanBeEaten eaten when eaten.value() ->
+                    new Bounds(FruitConstants.MIN_WEIGHT_FOR_CONSUMPTION + 1, Integer.MAX_VALUE, false);
+            default -> null;
+        };
+    }
+
+    /**
+     * Calorie range implied by a condition, for managers with a calorie index
+     * @param condition Condition of the query
+     * @return Range, or null if the condition does not bound the calories
+     */
+    public static Bounds calorieBounds(FruitQuery.Condition condition) {
+        return switch (condition) {
+            case FruitQuery.CaloriesBetween range -> new Bounds(range.min(), range.max(), true);
+            case FruitQuery.Healthy healthy -> healthy.value()
+                    ? new Bounds(Integer.MIN_VALUE, FruitConstants.HEALTHY_CALORIE_THRESHOLD - 1, true)
+                    : new Bounds(FruitConstants.HEALTHY_CALORIE_THRESHOLD, Integer.MAX_VALUE, true);
+            default -> null;
+        };
+    }
+
+    /**
+     * Runs the plan lazily
+     * @return Matches in collection order, after the offset and up to the limit
+     */
+    public Iterator<Fruit> iterator() {
+        return stream().iterator();
+    }
+
+    /**
+     * @return Matches in collection order, after the offset and up to the limit
+     */
+    public Stream<Fruit> stream() {
+        Iterator<Fruit> candidates = chosen.source().get();
+        Stream<Fruit> fruits = StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(candidates, Spliterator.ORDERED), false);
+        if (!residual.isEmpty()) {
+            fruits = fruits.filter(this::meetsResidual);
+        }
+        return fruits.skip(offset).limit(limit);
+    }
+
+    /**
+     * Runs the plan and collects the matches
+     * @return Matches in collection order, after the offset and up to the limit
+     */
+    public List<Fruit> toList() {
+        List<Fruit> result = new ArrayList<>();
+        forEach(result::add);
+        return result;
+    }
+
+    /**
+     * Describes the chosen path, the conditions left to test and the alternatives
+     * @return Plan description, one line per part
+     */
+    public String explain() {
+        StringBuilder text = new StringBuilder();
+        text.append("Query: ").append(query).append('\n');
+        text.append("Access: ").append(describe(chosen));
+        text.append(String.format(", about %,d of %,d fruits%n", chosen.estimate(), collectionSize));
+
+        StringJoiner filters = new StringJoiner(", ");
+        for (FruitQuery.Condition condition : residual) {
+            filters.add(condition.toString());
+        }
+        text.append("Filter: ").append(residual.isEmpty() ? "none" : filters.toString()).append('\n');
+
+        StringJoiner alternatives = new StringJoiner(", ");
+        for (AccessPath path : considered) {
+            alternatives.add(String.format("%s (%,d)", describe(path), path.estimate()));
+        }
+        text.append("Considered: ").append(alternatives);
+        return text.toString();
+    }
+
+    /**
+     * @return Description of the chosen access path
+     */
+    public String getAccessPath() {
+        return describe(chosen);
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+
+    private boolean meetsResidual(Fruit fruit) {
+        for (FruitQuery.Condition condition : residual) {
+            if (!condition.test(fruit)) return false;
+        }
+        return true;
+    }
+
+    private static String describe(AccessPath path) {
+        if (path.conditions().isEmpty()) {
+            return path.description();
+        }
+        StringJoiner conditions = new StringJoiner(" and ", path.description() + " on ", "");
+        for (FruitQuery.Condition condition : path.conditions()) {
+            conditions.add(condition.toString());
+        }
+        return conditions.toString();
+    }
+}
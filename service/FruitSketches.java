@@ -0,0 +1,192 @@
+package service;
+
+import model.Fruit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Streaming sketches behind ApproximateStatistics, updated in constant time on every mutation
+ * HyperLogLogs count distinct names and colors, KLL sketches of added and removed values track the
+ * weight and calorie distributions, and a count-min sketch counts colors, with the colors it rates
+ * highest kept as candidates for the most common ones. Memory stays under a hundred kilobytes
+ * however many fruits pass.
+ * Like FruitStatisticsAccumulator, a fruit must be removed before any of its attributes change and
+ * added back afterwards. Removed fruits cannot be taken out of the distinct counts, so once removals
+ * since the last rebuild pass a sixteenth of the live fruits, isStale reports that the owner should
+ * rebuild from its live fruits; at most one rebuild per that many removals keeps the cost per
+ * mutation constant on average. Safe for concurrent use; each call holds the monitor briefly,
+ * except a rebuild, which holds it until the new sketches replace the old ones.
+ */
+public class FruitSketches {
+    private static final int TOP_COLORS = 16;
+    private static final int STALE_DIVISOR = 16;
+
+    // Replaced as a whole by rebuildIfStale
+    private HyperLogLog names;
+    private HyperLogLog colors;
+    private KllSketch addedWeights;
+    private KllSketch removedWeights;
+    private KllSketch addedCalories;
+    private KllSketch removedCalories;
+    private CountMinSketch colorCounts;
+    // Color -> hash, for the colors whose estimate was among the highest when they were last added
+    private Map<String, Long> topColors;
+    // Lowest estimate among the candidates when last scanned; additions only raise it, removals reset it
+    private long weakestTopCount;
+    private long fruits;
+    private long removedSinceRebuild;
+
+    public FruitSketches() {
+        this.names = new HyperLogLog();
+        this.colors = new HyperLogLog();
+        this.addedWeights = new KllSketch();
+        this.removedWeights = new KllSketch();
+        this.addedCalories = new KllSketch();
+        this.removedCalories = new KllSketch();
+        this.colorCounts = new CountMinSketch();
+        this.topColors = new HashMap<>();
+    }
+
+    /**
+     * Builds sketches of a whole collection in one pass
+     * @param fruits Fruits to account for
+     * @return Sketches of the fruits
+     */
+    public static FruitSketches of(Iterable<? extends Fruit> fruits) {
+        FruitSketches sketches = new FruitSketches();
+        for (Fruit fruit : fruits) {
+            sketches.add(fruit);
+        }
+        return sketches;
+    }
+
+    /**
+     * Accounts for a fruit with its current attributes
+     * @param fruit Fruit being added
+     */
+    public void add(Fruit fruit) {
+        add(fruit.getName(), fruit.getColor(), fruit.getWeight(), fruit.getCaloriesPer100g());
+    }
+
+    /**
+     * Accounts for a fruit given by its attributes, for stores that keep no Fruit objects
+     * @param name Name of the fruit
+     * @param color Color of the fruit
+     * @param weight Weight in grams
+     * @param calories Calories per 100g
+     */
+    public synchronized void add(String name, String color, int weight, int calories) {
+        long colorHash = HyperLogLog.hash(color);
+        names.add(HyperLogLog.hash(name));
+        colors.add(colorHash);
+        addedWeights.update(weight);
+        addedCalories.update(calories);
+        colorCounts.add(colorHash, 1);
+        fruits++;
+        offerTopColor(color, colorHash);
+    }
+
+    /**
+     * Stops accounting for a fruit, using the attributes it was added with
+     * @param fruit Fruit being removed
+     */
+    public void remove(Fruit fruit) {
+        remove(fruit.getColor(), fruit.getWeight(), fruit.getCaloriesPer100g());
+    }
+
+    /**
+     * Stops accounting for a fruit given by the attributes it was added with
+     * @param color Color of the fruit
+     * @param weight Weight in grams
+     * @param calories Calories per 100g
+     */
+    public synchronized void remove(String color, int weight, int calories) {
+        removedWeights.update(weight);
+        removedCalories.update(calories);
+        colorCounts.add(HyperLogLog.hash(color), -1);
+        weakestTopCount = 0;
+        fruits--;
+        removedSinceRebuild++;
+    }
+
+    /**
+     * @return true if enough fruits were removed since the last rebuild that the distinct counts
+     *         and rank errors have grown past their documented bounds
+     */
+    public synchronized boolean isStale() {
+        return removedSinceRebuild > fruits / STALE_DIVISOR;
+    }
+
+    /**
+     * Replaces the sketches with ones built from the live fruits, if isStale reports they are due
+     * The staleness is checked again under the monitor, so readers that found the sketches stale
+     * at the same time rebuild them only once. The new sketches are built completely before they
+     * replace the old ones, and no other call sees them half built.
+     * The caller must keep the collection from changing until this returns.
+     * @param liveFruits Adds every fruit currently in the collection to the sketches it is given
+     */
+    public synchronized void rebuildIfStale(Consumer<FruitSketches> liveFruits) {
+        if (!isStale()) {
+            return;
+        }
+        FruitSketches rebuilt = new FruitSketches();
+        liveFruits.accept(rebuilt);
+        names = rebuilt.names;
+        colors = rebuilt.colors;
+        addedWeights = rebuilt.addedWeights;
+        removedWeights = rebuilt.removedWeights;
+        addedCalories = rebuilt.addedCalories;
+        removedCalories = rebuilt.removedCalories;
+        colorCounts = rebuilt.colorCounts;
+        topColors = rebuilt.topColors;
+        weakestTopCount = rebuilt.weakestTopCount;
+        fruits = rebuilt.fruits;
+        removedSinceRebuild = 0;
+    }
+
+    /**
+     * Reads the sketches into an immutable result
+     * @return Estimates of the fruits currently accounted for
+     */
+    public synchronized ApproximateStatistics toStatistics() {
+        return new ApproximateStatistics(fruits, names.estimate(), colors.estimate(),
+                addedWeights.sortedView(removedWeights), addedCalories.sortedView(removedCalories),
+                colorCounts.copy(), topColors.keySet(), names.standardError(),
+                addedWeights.rankError() * (addedWeights.count() + removedWeights.count()) / Math.max(1, fruits),
+                colorCounts.errorRate(), colorCounts.failureProbability());
+    }
+
+    /**
+     * Keeps a color among the candidates for the most common ones if its estimate beats the weakest candidate
+     */
+    private void offerTopColor(String color, long colorHash) {
+        if (topColors.containsKey(color)) {
+            return;
+        }
+        if (topColors.size() < TOP_COLORS) {
+            topColors.put(color, colorHash);
+            return;
+        }
+        long count = colorCounts.estimate(colorHash);
+        if (count <= weakestTopCount) {
+            return;
+        }
+        String weakest = null;
+        long weakestCount = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> candidate : topColors.entrySet()) {
+            long candidateCount = colorCounts.estimate(candidate.getValue());
+            if (candidateCount < weakestCount) {
+                weakest = candidate.getKey();
+                weakestCount = candidateCount;
+            }
+        }
+        weakestTopCount = weakestCount;
+        if (count > weakestCount) {
+            topColors.remove(weakest);
+            topColors.put(color, colorHash);
+            weakestTopCount = 0;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package service;
+
+import model.Fruit;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals behind FruitStatistics and the distributions behind DistributionStatistics,
+ * updated on every mutation instead of recomputed
+ * A fruit must be removed before any of its attributes change and added back afterwards.
+ * Safe for concurrent use; statistics read while writers are active may mix totals from
+ * before and after an in-flight update.
+ */
+public class FruitStatisticsAccumulator {
+    // Heaviest first; among equal weights the earliest added fruit wins, like FruitManager
+    private static final Comparator<WeightEntry> HEAVIEST_FIRST =
+            Comparator.comparingInt(WeightEntry::weight).reversed()
+                    .thenComparingLong(WeightEntry::sequence);
+
+    private final ConcurrentSkipListSet<WeightEntry> byWeight;
+    private final LongAdder totalFruits;
+    private final LongAdder healthyFruits;
+    private final LongAdder edibleFruits;
+    private final LongAdder totalCaloriesPer100g;
+    private final FruitDistributions distributions;
+
+    public FruitStatisticsAccumulator() {
+        this.byWeight = new ConcurrentSkipListSet<>(HEAVIEST_FIRST);
+        this.totalFruits = new LongAdder();
+        this.healthyFruits = new LongAdder();
+        this.edibleFruits = new LongAdder();
+        this.totalCaloriesPer100g = new LongAdder();
+        this.distributions = new FruitDistributions();
+    }
+
+    /**
+     * Accounts for a fruit with its current attributes
+     * @param fruit Fruit being added
+     * @param sequence Insertion sequence of the fruit in its manager
+     */
+    public void add(Fruit fruit, long sequence) {
+        totalFruits.increment();
+        if (fruit.isHealthy()) healthyFruits.increment();
+        if (fruit.canBeEaten()) edibleFruits.increment();
+        totalCaloriesPer100g.add(fruit.getCaloriesPer100g());
+        byWeight.add(new WeightEntry(fruit.getWeight(), sequence, fruit));
+        distributions.add(fruit.getWeight(), fruit.getCaloriesPer100g());
+    }
+
+    /**
+     * Stops accounting for a fruit, using the attributes it was added with
+     * @param fruit Fruit being removed
+     * @param sequence Insertion sequence of the fruit in its manager
+     */
+    public void remove(Fruit fruit, long sequence) {
+        totalFruits.decrement();
+        if (fruit.isHealthy()) healthyFruits.decrement();
+        if (fruit.canBeEaten()) edibleFruits.decrement();
+        totalCaloriesPer100g.add(-fruit.getCaloriesPer100g());
+        byWeight.remove(new WeightEntry(fruit.getWeight(), sequence, fruit));
+        distributions.remove(fruit.getWeight(), fruit.getCaloriesPer100g());
+    }
+
+    /**
+     * Builds statistics from the running totals
+     * @return FruitStatistics object with the current stats
+     */
+    public FruitManager.FruitStatistics toStatistics() {
+        int total = totalFruits.intValue();
+        if (total <= 0) {
+            return new FruitManager.FruitStatistics(0, 0, 0, 0.0, 0.0, 0.0, null);
+        }
+
+        int healthy = healthyFruits.intValue();
+        int edible = edibleFruits.intValue();
+        double healthyPercentage = (double) healthy / total * 100;
+        double ediblePercentage = (double) edible / total * 100;
+        double averageCaloriesPer100g = (double) totalCaloriesPer100g.sum() / total;
+
+        // Iterator instead of first(), the set may be emptied by a concurrent removal
+        Iterator<WeightEntry> heaviest = byWeight.iterator();
+        return new FruitManager.FruitStatistics(total, healthy, edible,
+                healthyPercentage, ediblePercentage,
+                averageCaloriesPer100g, heaviest.hasNext() ? heaviest.next().fruit() : null);
+    }
+
+    /**
+     * Reads the percentiles and histograms kept next to the running totals
+     * @return DistributionStatistics of the fruits currently accounted for
+     */
+    public DistributionStatistics toDistributionStatistics() {
+        return distributions.toStatistics();
+    }
+
+    /**
+     * Weight captured when the fruit was added, so later changes to the fruit don't corrupt the ordering
+     */
+    private record WeightEntry(int weight, long sequence, Fruit fruit) {
+    }
+}
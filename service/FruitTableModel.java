@@ -0,0 +1,215 @@
+package service;
+
+import constants.UIConstants;
+import interfaces.IFruitManager;
+import model.Fruit;
+
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Table model over an IFruitManager that only reads the rows being displayed
+ * Rows are fetched in blocks with getFruits on a background thread and kept in a small
+ * least-recently-used cache; a row whose block is still loading shows empty until it arrives.
+ * Sorting and filtering also run in the background and replace the view with the resulting
+ * order of fruits when done. The model's state is only touched on the event dispatch thread,
+ * and the collection must not change while the model is in use.
+ */
+@SuppressWarnings("serial")
+final class FruitTableModel extends AbstractTableModel {
+    private static final int BLOCK_SIZE = 256;
+    private static final int CACHED_BLOCKS = 64;
+
+    private final IFruitManager fruitManager;
+    private final ExecutorService loader;
+    // Block number -> fruits of that block, in least-recently-used order
+    private final Map<Integer, List<Fruit>> blocks;
+    private final Set<Integer> loadingBlocks;
+
+    // Sorted or filtered fruits, or null to show the collection in its own order
+    private List<Fruit> view;
+    private int rowCount;
+    // Incremented whenever the view changes so blocks loaded for an older view are dropped
+    private int generation;
+    // Incremented by every sort or filter request so only the latest one is applied
+    private int viewRequests;
+
+    FruitTableModel(IFruitManager fruitManager) {
+        this.fruitManager = fruitManager;
+        this.loader = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "fruit-table-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.blocks = new LinkedHashMap<>(CACHED_BLOCKS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<Fruit>> eldest) {
+                return size() > CACHED_BLOCKS;
+            }
+        };
+        this.loadingBlocks = new HashSet<>();
+        this.rowCount = fruitManager.getSize();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return UIConstants.FRUIT_TABLE_COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return UIConstants.FRUIT_TABLE_COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return switch (column) {
+            case 2, 3 -> Integer.class;
+            case 4 -> Double.class;
+            case 5, 6 -> Boolean.class;
+            default -> String.class;
+        };
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Fruit fruit = fruitAt(row);
+        if (fruit == null) {
+            return null;
+        }
+        return switch (column) {
+            case 0 -> fruit.getName();
+            case 1 -> fruit.getColor();
+            case 2 -> fruit.getWeight();
+            case 3 -> fruit.getCaloriesPer100g();
+            case 4 -> fruit.getTotalCalories();
+            case 5 -> fruit.isEdible();
+            case 6 -> fruit.isHealthy();
+            default -> null;
+        };
+    }
+
+    /**
+     * Gets the fruit shown in a row, starting to load it if it is not available yet
+     * @param row Row index in the current view
+     * @return Fruit of the row, or null while it is loading
+     */
+    Fruit fruitAt(int row) {
+        if (view != null) {
+            return row < view.size() ? view.get(row) : null;
+        }
+        int block = row / BLOCK_SIZE;
+        List<Fruit> fruits = blocks.get(block);
+        if (fruits == null) {
+            loadBlock(block);
+            return null;
+        }
+        int index = row % BLOCK_SIZE;
+        return index < fruits.size() ? fruits.get(index) : null;
+    }
+
+    /**
+     * Filters by name and sorts by a column in the background, then shows the result
+     * @param filter Case-insensitive part of the name, or blank for all fruits
+     * @param sortColumn Column to sort by, or -1 for collection order
+     * @param ascending Sort direction
+     * @param onApplied Receives the new row count on the event dispatch thread once the view is shown
+     */
+    void applyView(String filter, int sortColumn, boolean ascending, IntConsumer onApplied) {
+        int request = ++viewRequests;
+        loader.execute(() -> {
+            List<Fruit> result = computeView(filter.trim(), sortColumn, ascending);
+            SwingUtilities.invokeLater(() -> {
+                if (request != viewRequests) return;
+                generation++;
+                view = result;
+                rowCount = result != null ? result.size() : fruitManager.getSize();
+                blocks.clear();
+                loadingBlocks.clear();
+                fireTableDataChanged();
+                onApplied.accept(rowCount);
+            });
+        });
+    }
+
+    /**
+     * Stops the background thread and waits for a running sort or page load to
+     * finish, so the caller can use the manager again; the model cannot load rows afterwards
+     */
+    void close() {
+        loader.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (loader.awaitTermination(1, TimeUnit.MINUTES)) break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void loadBlock(int block) {
+        if (!loadingBlocks.add(block)) return;
+        int blockGeneration = generation;
+        loader.execute(() -> {
+            List<Fruit> fruits = fruitManager.getFruits(block * BLOCK_SIZE, BLOCK_SIZE);
+            SwingUtilities.invokeLater(() -> {
+                if (blockGeneration != generation) return;
+                loadingBlocks.remove(block);
+                blocks.put(block, fruits);
+                int first = block * BLOCK_SIZE;
+                int last = Math.min(rowCount, first + fruits.size()) - 1;
+                if (last >= first) {
+                    fireTableRowsUpdated(first, last);
+                }
+            });
+        });
+    }
+
+    private List<Fruit> computeView(String filter, int sortColumn, boolean ascending) {
+        if (filter.isEmpty() && sortColumn < 0) {
+            return null;
+        }
+        List<Fruit> fruits = filter.isEmpty()
+                ? fruitManager.getAllFruits()
+                : fruitManager.searchFruitsByName(filter, 0, Integer.MAX_VALUE);
+        if (sortColumn >= 0) {
+            // Managers may hand out read-only lists, so sort a copy
+            fruits = new ArrayList<>(fruits);
+            Comparator<Fruit> comparator = comparator(sortColumn);
+            fruits.sort(ascending ? comparator : comparator.reversed());
+        }
+        return fruits;
+    }
+
+    private static Comparator<Fruit> comparator(int column) {
+        return switch (column) {
+            case 1 -> Comparator.comparing(Fruit::getColor, String.CASE_INSENSITIVE_ORDER);
+            case 2 -> Comparator.comparingInt(Fruit::getWeight);
+            case 3 -> Comparator.comparingInt(Fruit::getCaloriesPer100g);
+            case 4 -> Comparator.comparingDouble(Fruit::getTotalCalories);
+            case 5 -> Comparator.comparing(Fruit::isEdible);
+            case 6 -> Comparator.comparing(Fruit::isHealthy);
+            default -> Comparator.comparing(Fruit::getName, String.CASE_INSENSITIVE_ORDER);
+        };
+    }
+}
@@ -0,0 +1,465 @@
+package service;
+
+import model.Fruit;
+import model.ImmutableFruit;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * One immutable version of a collection of fruits, ordered by the insertion sequence of each fruit
+ * The fruits sit in a B+tree of nodes holding up to NODE_CAPACITY entries. A change copies only
+ * the path from the root to the leaf it touches and shares every other node with the previous
+ * version, so publishing a new version costs O(log n) and keeping an old one costs nothing.
+ * Holding only immutable fruits, a version can be read by any number of threads without locking
+ * and never changes under them. Reading by position descends the tree; iterators remember the
+ * leaf they are in, so a full scan reads each leaf once.
+ */
+public final class FruitVersion extends AbstractList<Fruit> {
+    private static final int NODE_CAPACITY = 32;
+    private static final FruitVersion EMPTY = new FruitVersion(new Leaf(new long[0], new ImmutableFruit[0]));
+
+    private final Node root;
+
+    private FruitVersion(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @return Version without any fruit
+     */
+    public static FruitVersion empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Stores a fruit under its insertion sequence
+     * @param sequence Insertion sequence, which orders the fruit in the collection
+     * @param fruit Fruit to store, replacing any fruit with the same sequence
+     * @return New version with the fruit
+     */
+    public FruitVersion with(long sequence, ImmutableFruit fruit) {
+        Node updated = root.put(sequence, fruit, true);
+        if (updated.width() > NODE_CAPACITY) {
+            Node[] halves = updated.split(true);
+            updated = Branch.of(halves);
+        }
+        return new FruitVersion(updated);
+    }
+
+    /**
+     * Drops the fruit stored under an insertion sequence
+     * @param sequence Insertion sequence of the fruit
+     * @return New version without the fruit, or this version if there was none
+     */
+    public FruitVersion without(long sequence) {
+        Node updated = root.remove(sequence);
+        if (updated == root) {
+            return this;
+        }
+        while (updated instanceof Branch branch && branch.children.length == 1) {
+            updated = branch.children[0];
+        }
+        return updated == null ? EMPTY : new FruitVersion(updated);
+    }
+
+    @Override
+    public Fruit get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+        }
+        Node node = root;
+        while (node instanceof Branch branch) {
+            int child = branch.childAt(index);
+            index -= branch.startOf(child);
+            node = branch.children[child];
+        }
+        return ((Leaf) node).fruits[index];
+    }
+
+    @Override
+    public int size() {
+        return root.size();
+    }
+
+    @Override
+    public ListIterator<Fruit> iterator() {
+        return listIterator(0);
+    }
+
+    @Override
+    public ListIterator<Fruit> listIterator(int index) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+        }
+        return new Cursor(index);
+    }
+
+    /**
+     * Node of the tree; width is its number of entries or children, size its number of fruits
+     */
+    private abstract static sealed class Node permits Leaf, Branch {
+        abstract int width();
+
+        abstract int size();
+
+        abstract long low();
+
+        /**
+         * @param rightmost Whether no node lies to the right of this one, so inserts are likely appends
+         * @return Node with the fruit stored, which may hold one entry more than NODE_CAPACITY
+         */
+        abstract Node put(long sequence, ImmutableFruit fruit, boolean rightmost);
+
+        /**
+         * @return This node if the sequence is absent, null if the node became empty, otherwise the new node
+         */
+        abstract Node remove(long sequence);
+
+        /**
+         * Splits an overfull node in two; the rightmost node keeps its left half full, since
+         * sequences grow and later inserts will land in the right half
+         */
+        abstract Node[] split(boolean rightmost);
+
+        abstract Node merge(Node next);
+
+        static int splitPoint(int width, boolean rightmost) {
+            return rightmost ? NODE_CAPACITY : width / 2;
+        }
+    }
+
+    /**
+     * Sequences and their fruits, sorted by sequence
+     */
+    private static final class Leaf extends Node {
+        private final long[] sequences;
+        private final ImmutableFruit[] fruits;
+
+        private Leaf(long[] sequences, ImmutableFruit[] fruits) {
+            this.sequences = sequences;
+            this.fruits = fruits;
+        }
+
+        @Override
+        int width() {
+            return sequences.length;
+        }
+
+        @Override
+        int size() {
+            return sequences.length;
+        }
+
+        @Override
+        long low() {
+            return sequences.length == 0 ? Long.MIN_VALUE : sequences[0];
+        }
+
+        @Override
+        Node put(long sequence, ImmutableFruit fruit, boolean rightmost) {
+            int position = Arrays.binarySearch(sequences, sequence);
+            if (position >= 0) {
+                ImmutableFruit[] replaced = fruits.clone();
+                replaced[position] = fruit;
+                return new Leaf(sequences, replaced);
+            }
+            position = -(position + 1);
+            long[] newSequences = new long[sequences.length + 1];
+            ImmutableFruit[] newFruits = new ImmutableFruit[fruits.length + 1];
+            System.arraycopy(sequences, 0, newSequences, 0, position);
+            System.arraycopy(fruits, 0, newFruits, 0, position);
+            newSequences[position] = sequence;
+            newFruits[position] = fruit;
+            System.arraycopy(sequences, position, newSequences, position + 1, sequences.length - position);
+            System.arraycopy(fruits, position, newFruits, position + 1, fruits.length - position);
+            return new Leaf(newSequences, newFruits);
+        }
+
+        @Override
+        Node remove(long sequence) {
+            int position = Arrays.binarySearch(sequences, sequence);
+            if (position < 0) {
+                return this;
+            }
+            if (sequences.length == 1) {
+                return null;
+            }
+            long[] newSequences = new long[sequences.length - 1];
+            ImmutableFruit[] newFruits = new ImmutableFruit[fruits.length - 1];
+            System.arraycopy(sequences, 0, newSequences, 0, position);
+            System.arraycopy(fruits, 0, newFruits, 0, position);
+            System.arraycopy(sequences, position + 1, newSequences, position, sequences.length - position - 1);
+            System.arraycopy(fruits, position + 1, newFruits, position, fruits.length - position - 1);
+            return new Leaf(newSequences, newFruits);
+        }
+
+        @Override
+        Node[] split(boolean rightmost) {
+            int at = splitPoint(sequences.length, rightmost);
+            return new Node[] {
+                    new Leaf(Arrays.copyOfRange(sequences, 0, at), Arrays.copyOfRange(fruits, 0, at)),
+                    new Leaf(Arrays.copyOfRange(sequences, at, sequences.length),
+                            Arrays.copyOfRange(fruits, at, fruits.length))
+            };
+        }
+
+        @Override
+        Node merge(Node next) {
+            Leaf other = (Leaf) next;
+            long[] newSequences = Arrays.copyOf(sequences, sequences.length + other.sequences.length);
+            ImmutableFruit[] newFruits = Arrays.copyOf(fruits, fruits.length + other.fruits.length);
+            System.arraycopy(other.sequences, 0, newSequences, sequences.length, other.sequences.length);
+            System.arraycopy(other.fruits, 0, newFruits, fruits.length, other.fruits.length);
+            return new Leaf(newSequences, newFruits);
+        }
+    }
+
+    /**
+     * Children in sequence order, with the lowest sequence under each and the running count of fruits
+     */
+    private static final class Branch extends Node {
+        private final Node[] children;
+        // lows[i] is at most the lowest sequence under children[i] and above every sequence under children[i - 1]
+        private final long[] lows;
+        // ends[i] is the number of fruits under children[0] to children[i]
+        private final int[] ends;
+
+        private Branch(Node[] children, long[] lows, int[] ends) {
+            this.children = children;
+            this.lows = lows;
+            this.ends = ends;
+        }
+
+        static Branch of(Node[] children) {
+            long[] lows = new long[children.length];
+            int[] ends = new int[children.length];
+            int total = 0;
+            for (int i = 0; i < children.length; i++) {
+                lows[i] = children[i].low();
+                total += children[i].size();
+                ends[i] = total;
+            }
+            return new Branch(children, lows, ends);
+        }
+
+        @Override
+        int width() {
+            return children.length;
+        }
+
+        @Override
+        int size() {
+            return ends[ends.length - 1];
+        }
+
+        @Override
+        long low() {
+            return lows[0];
+        }
+
+        /**
+         * @return Index of the child that holds the sequence or would receive it
+         */
+        int childFor(long sequence) {
+            int low = 0;
+            int high = lows.length - 1;
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (lows[middle] <= sequence) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return Index of the child that holds the fruit at a position
+         */
+        int childAt(int index) {
+            int low = 0;
+            int high = ends.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (ends[middle] > index) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return low;
+        }
+
+        int startOf(int child) {
+            return child == 0 ? 0 : ends[child - 1];
+        }
+
+        @Override
+        Node put(long sequence, ImmutableFruit fruit, boolean rightmost) {
+            int child = childFor(sequence);
+            boolean last = child == children.length - 1;
+            Node updated = children[child].put(sequence, fruit, rightmost && last);
+            if (updated.width() <= NODE_CAPACITY) {
+                return replace(child, updated);
+            }
+            Node[] halves = updated.split(rightmost && last);
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, child);
+            newChildren[child] = halves[0];
+            newChildren[child + 1] = halves[1];
+            System.arraycopy(children, child + 1, newChildren, child + 2, children.length - child - 1);
+            return of(newChildren);
+        }
+
+        @Override
+        Node remove(long sequence) {
+            int child = childFor(sequence);
+            Node updated = children[child].remove(sequence);
+            if (updated == children[child]) {
+                return this;
+            }
+            if (updated == null) {
+                if (children.length == 1) {
+                    return null;
+                }
+                Node[] newChildren = new Node[children.length - 1];
+                System.arraycopy(children, 0, newChildren, 0, child);
+                System.arraycopy(children, child + 1, newChildren, child, children.length - child - 1);
+                return of(newChildren);
+            }
+
+            // Fold a thin child into its successor so removals cannot leave long chains of nearly empty nodes
+            if (updated.width() < NODE_CAPACITY / 4 && child + 1 < children.length
+                    && updated.width() + children[child + 1].width() <= NODE_CAPACITY / 2) {
+                Node[] newChildren = new Node[children.length - 1];
+                System.arraycopy(children, 0, newChildren, 0, child);
+                newChildren[child] = updated.merge(children[child + 1]);
+                System.arraycopy(children, child + 2, newChildren, child + 1, children.length - child - 2);
+                return of(newChildren);
+            }
+            return replace(child, updated);
+        }
+
+        @Override
+        Node[] split(boolean rightmost) {
+            int at = splitPoint(children.length, rightmost);
+            return new Node[] {
+                    of(Arrays.copyOfRange(children, 0, at)),
+                    of(Arrays.copyOfRange(children, at, children.length))
+            };
+        }
+
+        @Override
+        Node merge(Node next) {
+            Branch other = (Branch) next;
+            Node[] newChildren = Arrays.copyOf(children, children.length + other.children.length);
+            System.arraycopy(other.children, 0, newChildren, children.length, other.children.length);
+            return of(newChildren);
+        }
+
+        /**
+         * Copies this branch with one child swapped, keeping its lowest sequence unless the new child starts lower
+         */
+        private Branch replace(int child, Node updated) {
+            Node[] newChildren = children.clone();
+            newChildren[child] = updated;
+            long[] newLows = lows;
+            if (updated.low() < lows[child]) {
+                newLows = lows.clone();
+                newLows[child] = updated.low();
+            }
+            int delta = updated.size() - children[child].size();
+            int[] newEnds = ends;
+            if (delta != 0) {
+                newEnds = ends.clone();
+                for (int i = child; i < newEnds.length; i++) {
+                    newEnds[i] += delta;
+                }
+            }
+            return new Branch(newChildren, newLows, newEnds);
+        }
+    }
+
+    /**
+     * Read-only list iterator that keeps the leaf it is in and descends again only to change leaves
+     */
+    private final class Cursor implements ListIterator<Fruit> {
+        private int next;
+        private ImmutableFruit[] leaf;
+        private int leafStart;
+
+        private Cursor(int next) {
+            this.next = next;
+            this.leaf = new ImmutableFruit[0];
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < size();
+        }
+
+        @Override
+        public Fruit next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return at(next++);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return next > 0;
+        }
+
+        @Override
+        public Fruit previous() {
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            return at(--next);
+        }
+
+        @Override
+        public int nextIndex() {
+            return next;
+        }
+
+        @Override
+        public int previousIndex() {
+            return next - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("A fruit version cannot be changed");
+        }
+
+        @Override
+        public void set(Fruit fruit) {
+            throw new UnsupportedOperationException("A fruit version cannot be changed");
+        }
+
+        @Override
+        public void add(Fruit fruit) {
+            throw new UnsupportedOperationException("A fruit version cannot be changed");
+        }
+
+        private Fruit at(int index) {
+            if (index < leafStart || index >= leafStart + leaf.length) {
+                Node node = root;
+                leafStart = 0;
+                while (node instanceof Branch branch) {
+                    int child = branch.childAt(index - leafStart);
+                    leafStart += branch.startOf(child);
+                    node = branch.children[child];
+                }
+                leaf = ((Leaf) node).fruits;
+            }
+            return leaf[index - leafStart];
+        }
+    }
+}
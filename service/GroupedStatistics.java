@@ -0,0 +1,100 @@
+package service;
+
+import constants.FruitConstants;
+import model.Fruit;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Statistics of the whole collection broken down by color, by health and by weight range
+ * Every group carries the same figures as the overall FruitStatistics. Colors are listed
+ * alphabetically and only when at least one fruit has them; the health and weight groups are
+ * always all present, empty ones with zero fruits.
+ */
+public class GroupedStatistics {
+    public static final String HEALTHY = "Healthy";
+    public static final String UNHEALTHY = "Unhealthy";
+
+    private final FruitManager.FruitStatistics overall;
+    private final Map<String, FruitManager.FruitStatistics> byColor;
+    private final Map<String, FruitManager.FruitStatistics> byHealth;
+    private final Map<String, FruitManager.FruitStatistics> byWeight;
+
+    public GroupedStatistics(FruitManager.FruitStatistics overall,
+                             Map<String, FruitManager.FruitStatistics> byColor,
+                             Map<String, FruitManager.FruitStatistics> byHealth,
+                             Map<String, FruitManager.FruitStatistics> byWeight) {
+        this.overall = overall;
+        this.byColor = Collections.unmodifiableMap(byColor);
+        this.byHealth = Collections.unmodifiableMap(byHealth);
+        this.byWeight = Collections.unmodifiableMap(byWeight);
+    }
+
+    /**
+     * Index of the weight histogram bucket a weight falls into
+     * @param weight Weight in grams
+     * @return Bucket from 0 to WEIGHT_BUCKETS - 1; weights below zero go to the first one
+     */
+    public static int weightBucket(int weight) {
+        return Math.max(0, Math.min(FruitConstants.WEIGHT_BUCKETS - 1, weight / FruitConstants.WEIGHT_BUCKET_GRAMS));
+    }
+
+    /**
+     * Label of a weight histogram bucket, such as "100-199 g"
+     * @param bucket Bucket from 0 to WEIGHT_BUCKETS - 1
+     * @return Label naming the weights in the bucket
+     */
+    public static String weightBucketLabel(int bucket) {
+        return DistributionStatistics.bucketLabel(bucket, FruitConstants.WEIGHT_BUCKET_GRAMS, FruitConstants.WEIGHT_BUCKETS, "g");
+    }
+
+    public FruitManager.FruitStatistics getOverall() {
+        return overall;
+    }
+
+    /**
+     * @return Color -> statistics of the fruits of that color, alphabetically
+     */
+    public Map<String, FruitManager.FruitStatistics> getByColor() {
+        return byColor;
+    }
+
+    /**
+     * @return HEALTHY and UNHEALTHY -> statistics of the fruits on that side of the calorie threshold
+     */
+    public Map<String, FruitManager.FruitStatistics> getByHealth() {
+        return byHealth;
+    }
+
+    /**
+     * @return Weight bucket label -> statistics of the fruits in that bucket, lightest first
+     */
+    public Map<String, FruitManager.FruitStatistics> getByWeight() {
+        return byWeight;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append(overall);
+        appendGroups(sb, "By color", byColor);
+        appendGroups(sb, "By health", byHealth);
+        appendGroups(sb, "By weight", byWeight);
+        return sb.toString();
+    }
+
+    private static void appendGroups(StringBuilder sb, String title, Map<String, FruitManager.FruitStatistics> groups) {
+        sb.append(String.format(Locale.ROOT, "%n%-16s %8s %8s %8s %10s  %s%n",
+                title, "Fruits", "Healthy", "Edible", "Avg kcal", "Heaviest"));
+        for (Map.Entry<String, FruitManager.FruitStatistics> group : groups.entrySet()) {
+            FruitManager.FruitStatistics statistics = group.getValue();
+            Fruit heaviest = statistics.getHeaviestFruit();
+            sb.append(String.format(Locale.ROOT, "%-16s %8d %7.1f%% %7.1f%% %10.1f  %s%n",
+                    group.getKey(), statistics.getTotalFruits(), statistics.getHealthyPercentage(),
+                    statistics.getEdiblePercentage(), statistics.getAverageCaloriesPer100g(),
+                    heaviest == null ? "-" : heaviest.getName()));
+        }
+    }
+}
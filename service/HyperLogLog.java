@@ -0,0 +1,105 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog estimate of the number of distinct values added
+ * Each value's 64-bit hash picks one of 2^precision registers with its leading bits, and the
+ * register keeps the longest run of leading zeros seen in the remaining bits. The estimate has a
+ * relative standard error of 1.04 / sqrt(2^precision) in 2^precision bytes, whatever the number of
+ * values; small counts fall back to linear counting over the empty registers. Values cannot be
+ * removed, so callers rebuild the sketch when too many of the values it saw are gone.
+ */
+public class HyperLogLog {
+    public static final int DEFAULT_PRECISION = 12;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param precision Number of hash bits that pick a register, from 4 to 18
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be between 4 and 18: " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Accounts for a value by its hash
+     * @param hash 64-bit hash of the value, such as from hash(CharSequence)
+     */
+    public void add(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // The guard bit caps the run at 64 - precision zeros when the remaining bits are all zero
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Estimates the number of distinct values added
+     * @return Estimated count
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int empty = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) empty++;
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double raw = alpha * m * m / sum;
+        if (raw <= 2.5 * m && empty > 0) {
+            return Math.round(m * Math.log((double) m / empty));
+        }
+        return Math.round(raw);
+    }
+
+    /**
+     * Forgets every value
+     */
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+
+    /**
+     * @return Relative standard error of the estimate
+     */
+    public double standardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    /**
+     * @return Bytes of register memory, fixed by the precision
+     */
+    public int sizeInBytes() {
+        return registers.length;
+    }
+
+    /**
+     * 64-bit hash of a string: FNV-1a over its chars followed by the MurmurHash3 finalizer,
+     * so every output bit depends on every input char
+     * @param value String to hash
+     * @return Hash suitable for add and for CountMinSketch
+     */
+    public static long hash(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,646 @@
+package service;
+
+import interfaces.IFruitManager;
+import model.Fruit;
+import model.FruitQuery;
+import model.FruitUpdate;
+import util.NameFolding;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fruit manager that keeps hash indexes over fruit names
+ * Exact and case-insensitive name lookups run in O(1) instead of scanning the whole collection,
+ * colors are interned with per-color posting lists, weights and calories are kept in sorted
+ * range indexes, and statistics are maintained incrementally on every mutation.
+ * Fruits must be modified through this manager so the indexes stay in sync.
+ */
+public class IndexedFruitManager implements IFruitManager {
+    // Insertion-ordered store of fruit -> insertion sequence, fruits are compared by identity
+    private final LinkedHashMap<Fruit, Long> fruits;
+    // Exact name -> fruits with that name, in insertion order
+    private final Map<String, List<Fruit>> exactNameIndex;
+    // Folded name -> number of fruits whose name folds to it
+    private final Map<String, Integer> foldedNameIndex;
+    // Trigram index for partial name matches
+    private final NameSearchIndex searchIndex;
+    private final FruitStatisticsAccumulator statistics;
+    private final FruitSketches sketches;
+    // Interned colors with per-color posting lists
+    private final ColorIndex colorIndex;
+    // (weight, sequence) and (calories per 100g, sequence) -> fruit, for range queries
+    private final RangeIndex<Fruit> weightIndex;
+    private final RangeIndex<Fruit> calorieIndex;
+    private long nextSequence;
+
+    public IndexedFruitManager() {
+        this.fruits = new LinkedHashMap<>();
+        this.exactNameIndex = new HashMap<>();
+        this.foldedNameIndex = new HashMap<>();
+        this.searchIndex = new NameSearchIndex();
+        this.statistics = new FruitStatisticsAccumulator();
+        this.sketches = new FruitSketches();
+        this.colorIndex = new ColorIndex();
+        this.weightIndex = new RangeIndex<>();
+        this.calorieIndex = new RangeIndex<>();
+    }
+
+    /**
+     * Adds a fruit to the collection
+     * Fruits are stored by identity, so the same instance cannot be added twice; add a copy instead.
+     *
+     * @param fruit Fruit to add
+     * @throws IllegalArgumentException if this instance is already in the collection
+     */
+    public void addFruit(Fruit fruit) {
+        if (fruits.containsKey(fruit)) {
+            throw alreadyAdded(fruit);
+        }
+        store(fruit);
+    }
+
+    private void store(Fruit fruit) {
+        long sequence = nextSequence++;
+        fruits.put(fruit, sequence);
+        indexName(fruit);
+        searchIndex.add(fruit, sequence);
+        colorIndex.add(fruit, sequence);
+        weightIndex.add(fruit.getWeight(), sequence, fruit);
+        calorieIndex.add(fruit.getCaloriesPer100g(), sequence, fruit);
+        statistics.add(fruit, sequence);
+        sketches.add(fruit);
+    }
+
+    /**
+     * Adds several fruits to the collection, in order
+     * Every instance is checked before any is added, so a rejected batch changes nothing.
+     *
+     * @param newFruits Fruits to add
+     * @throws IllegalArgumentException if an instance is already in the collection or appears twice in the batch
+     */
+    public void addAll(List<Fruit> newFruits) {
+        Set<Fruit> batch = new HashSet<>();
+        for (Fruit fruit : newFruits) {
+            if (fruits.containsKey(fruit) || !batch.add(fruit)) {
+                throw alreadyAdded(fruit);
+            }
+        }
+        for (Fruit fruit : newFruits) {
+            store(fruit);
+        }
+    }
+
+    private static IllegalArgumentException alreadyAdded(Fruit fruit) {
+        return new IllegalArgumentException("This " + fruit.getName() + " instance is already in the collection; add a copy instead");
+    }
+
+    /**
+     * Checks if a fruit with the given name already exists (case-insensitive)
+     *
+     * @param name Name to search for
+     * @return true if fruit exists, false otherwise
+     */
+    public boolean fruitExists(String name) {
+        return foldedNameIndex.containsKey(NameFolding.fold(name));
+    }
+
+    /**
+     * Gets all fruits in the collection
+     *
+     * @return List of all fruits
+     */
+    public List<Fruit> getAllFruits() {
+        return new ArrayList<>(fruits.keySet());
+    }
+
+    /**
+     * Gets one page of the collection by walking the insertion-ordered store
+     *
+     * @param offset Number of fruits to skip
+     * @param limit Maximum number of fruits to return
+     * @return Fruits in collection order
+     */
+    public List<Fruit> getFruits(int offset, int limit) {
+        return page(fruits.keySet(), offset, limit);
+    }
+
+    /**
+     * Copies the fruits at positions offset to offset + limit of an ordered collection
+     */
+    static List<Fruit> page(Iterable<Fruit> ordered, int offset, int limit) {
+        List<Fruit> result = new ArrayList<>(Math.max(0, Math.min(limit, 1024)));
+        int position = 0;
+        for (Fruit fruit : ordered) {
+            if (result.size() >= limit) break;
+            if (position++ >= offset) {
+                result.add(fruit);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if the collection is empty
+     *
+     * @return true if empty, false otherwise
+     */
+    public boolean isEmpty() {
+        return fruits.isEmpty();
+    }
+
+    /**
+     * Gets the total number of fruits
+     *
+     * @return Number of fruits in collection
+     */
+    public int getSize() {
+        return fruits.size();
+    }
+
+    /**
+     * Searches for a fruit by name (case-insensitive partial match)
+     *
+     * @param name Name to search for
+     * @return First matching fruit or null if not found
+     */
+    public Fruit searchFruitByName(String name) {
+        return searchIndex.findFirst(name);
+    }
+
+    /**
+     * Searches for all fruits whose name contains the given text (case-insensitive), one page at a time
+     *
+     * @param name Name to search for
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of matches to return
+     * @return Matching fruits in insertion order
+     */
+    public List<Fruit> searchFruitsByName(String name, int offset, int limit) {
+        return searchIndex.find(name, offset, limit);
+    }
+
+    /**
+     * Searches for a fruit by exact name match
+     *
+     * @param name Exact name to search for
+     * @return Matching fruit or null if not found
+     */
+    public Fruit searchFruitByExactName(String name) {
+        List<Fruit> matches = exactNameIndex.get(name);
+        return matches == null ? null : matches.getFirst();
+    }
+
+    /**
+     * Gets all fruits of a color from the color posting lists
+     *
+     * @param color Exact color to search for
+     * @return Fruits of that color in collection order
+     */
+    public List<Fruit> getFruitsByColor(String color) {
+        return colorIndex.find(color);
+    }
+
+    /**
+     * Counts the fruits of each color from the posting list sizes
+     *
+     * @return Color -> number of fruits of that color
+     */
+    public Map<String, Integer> countFruitsByColor() {
+        return colorIndex.countByColor();
+    }
+
+    /**
+     * Gets the fruits whose weight lies in a range from the weight index
+     *
+     * @param minWeight Lowest weight in grams, inclusive
+     * @param maxWeight Highest weight in grams, inclusive
+     * @return Matching fruits from lightest to heaviest, equal weights in collection order
+     */
+    public List<Fruit> getFruitsByWeight(int minWeight, int maxWeight) {
+        return weightIndex.find(minWeight, maxWeight);
+    }
+
+    /**
+     * Gets the fruits whose calories per 100g lie in a range from the calorie index
+     *
+     * @param minCalories Lowest calories per 100g, inclusive
+     * @param maxCalories Highest calories per 100g, inclusive
+     * @return Matching fruits from fewest to most calories, equal values in collection order
+     */
+    public List<Fruit> getFruitsByCalories(int minCalories, int maxCalories) {
+        return calorieIndex.find(minCalories, maxCalories);
+    }
+
+    /**
+     * Gets the heaviest fruits from the end of the weight index
+     *
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from heaviest down, equal weights in collection order
+     */
+    public List<Fruit> getHeaviestFruits(int count) {
+        return weightIndex.highest(count);
+    }
+
+    /**
+     * Gets the lightest fruits from the start of the weight index
+     *
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from lightest up, equal weights in collection order
+     */
+    public List<Fruit> getLightestFruits(int count) {
+        return weightIndex.lowest(count);
+    }
+
+    /**
+     * Gets the fruits with the most calories per 100g from the end of the calorie index
+     *
+     * @param count Maximum number of fruits to return
+     * @return Up to count fruits from most calories down, equal values in collection order
+     */
+    public List<Fruit> getMostCaloricFruits(int count) {
+        return calorieIndex.highest(count);
+    }
+
+    /**
+     * Plans a query over the indexes: exact name, trigram name search, color posting lists and the
+     * weight and calorie ranges, including those implied by healthy and can be eaten
+     * Each index reports its candidate count cheaply, so the smallest one is read.
+     *
+     * @param query Conditions, offset and limit
+     * @return Plan that finds the matches in collection order when iterated
+     */
+    public FruitQueryPlan query(FruitQuery query) {
+        List<FruitQueryPlan.AccessPath> paths = new ArrayList<>();
+        paths.add(FruitQueryPlan.AccessPath.fullScan(fruits.size(), () -> fruits.keySet().iterator()));
+        for (FruitQuery.Condition condition : query.getConditions()) {
+            switch (condition) {
+                case FruitQuery.NameIs name -> {
+                    List<Fruit> matches = exactNameIndex.getOrDefault(name.name(), List.of());
+                    paths.add(new FruitQueryPlan.AccessPath("exact name index", condition, true, matches.size(),
+                            () -> inCollectionOrder(new ArrayList<>(matches))));
+                }
+                case FruitQuery.NameContains name -> paths.add(new FruitQueryPlan.AccessPath("trigram name index",
+                        condition, true, searchIndex.estimate(name.text()), () -> searchIndex.matches(name.text())));
+                case FruitQuery.ColorIs color -> paths.add(new FruitQueryPlan.AccessPath("color index", condition,
+                        true, colorIndex.count(color.color()), () -> colorIndex.view(color.color()).iterator()));
+                default -> { }
+            }
+            FruitQueryPlan.Bounds weight = FruitQueryPlan.weightBounds(condition);
+            if (weight != null) {
+                paths.add(new FruitQueryPlan.AccessPath("weight index", condition, weight.exact(),
+                        weightIndex.count(weight.min(), weight.max()),
+                        () -> weightIndex.findInSequenceOrder(weight.min(), weight.max()).iterator()));
+            }
+            FruitQueryPlan.Bounds calories = FruitQueryPlan.calorieBounds(condition);
+            if (calories != null) {
+                paths.add(new FruitQueryPlan.AccessPath("calorie index", condition, calories.exact(),
+                        calorieIndex.count(calories.min(), calories.max()),
+                        () -> calorieIndex.findInSequenceOrder(calories.min(), calories.max()).iterator()));
+            }
+        }
+        return FruitQueryPlan.choose(query, fruits.size(), paths);
+    }
+
+    /**
+     * Gets array of all fruit names
+     *
+     * @return Array of fruit names
+     */
+    public String[] getFruitNames() {
+        String[] names = new String[fruits.size()];
+        int i = 0;
+        for (Fruit fruit : fruits.keySet()) {
+            names[i++] = fruit.getName();
+        }
+        return names;
+    }
+
+    /**
+     * Removes every fruit with the given name
+     *
+     * @param name Name of fruit to remove
+     * @return true if fruit was removed, false if not found
+     */
+    public boolean removeFruitByName(String name) {
+        List<Fruit> matches = exactNameIndex.get(name);
+        if (matches == null) {
+            return false;
+        }
+
+        for (Fruit fruit : new ArrayList<>(matches)) {
+            long sequence = fruits.remove(fruit);
+            unindexName(fruit);
+            searchIndex.remove(fruit);
+            colorIndex.remove(fruit, sequence);
+            weightIndex.remove(fruit.getWeight(), sequence);
+            calorieIndex.remove(fruit.getCaloriesPer100g(), sequence);
+            statistics.remove(fruit, sequence);
+            sketches.remove(fruit);
+        }
+        return true;
+    }
+
+    /**
+     * Applies several updates in order, only if every one of them succeeds
+     * Renamed fruits are re-indexed for partial search once, after the whole batch.
+     *
+     * @param updates Updates to apply
+     * @return true if all updates were applied, false if none was
+     */
+    public boolean updateAll(List<FruitUpdate> updates) {
+        if (!BatchValidator.canUpdateAll(nameCounts(), updates)) {
+            return false;
+        }
+
+        // The trigram index is brought up to date once, after all renames
+        Set<Fruit> renamed = new LinkedHashSet<>();
+        for (FruitUpdate update : updates) {
+            Fruit fruit = searchFruitByExactName(update.oldName());
+            long sequence = fruits.get(fruit);
+            statistics.remove(fruit, sequence);
+            sketches.remove(fruit);
+            if (!fruit.getName().equals(update.newName())) {
+                unindexName(fruit);
+                fruit.setName(update.newName());
+                indexName(fruit);
+                renamed.add(fruit);
+            }
+            reweighFruit(fruit, sequence, update.weight());
+            recolorFruit(fruit, sequence, update.color());
+            fruit.setEdible(update.isEdible());
+            changeCalories(fruit, sequence, update.caloriesPer100g());
+            statistics.add(fruit, sequence);
+            sketches.add(fruit);
+        }
+        searchIndex.renameAll(renamed);
+        return true;
+    }
+
+    /**
+     * Removes fruits by name, only if every name is found
+     * Each affected search and color posting list is rewritten once for the whole batch.
+     *
+     * @param names Names of the fruits to remove
+     * @return true if all were removed, false if none was
+     */
+    public boolean removeAll(List<String> names) {
+        if (!BatchValidator.canRemoveAll(nameCounts(), names)) {
+            return false;
+        }
+
+        List<Fruit> removed = new ArrayList<>();
+        for (String name : names) {
+            List<Fruit> matches = exactNameIndex.remove(name);
+            if (matches == null) continue;
+            int count = matches.size();
+            foldedNameIndex.computeIfPresent(NameFolding.fold(name), (k, folded) -> folded == count ? null : folded - count);
+            removed.addAll(matches);
+        }
+
+        long[] sequences = new long[removed.size()];
+        for (int i = 0; i < sequences.length; i++) {
+            Fruit fruit = removed.get(i);
+            sequences[i] = fruits.remove(fruit);
+            weightIndex.remove(fruit.getWeight(), sequences[i]);
+            calorieIndex.remove(fruit.getCaloriesPer100g(), sequences[i]);
+            statistics.remove(fruit, sequences[i]);
+            sketches.remove(fruit);
+        }
+        searchIndex.removeAll(removed);
+        colorIndex.removeAll(removed, sequences);
+        return true;
+    }
+
+    /**
+     * Returns statistics about the fruit collection from the running totals
+     *
+     * @return FruitStatistics object containing calculated stats
+     */
+    public FruitManager.FruitStatistics calculateStatistics() {
+        return statistics.toStatistics();
+    }
+
+    /**
+     * Calculates overall and per-group statistics in one pass over a copy of the fruit order,
+     * splitting large collections across the common pool
+     *
+     * @return GroupedStatistics holding the overall and per-group stats
+     */
+    public GroupedStatistics calculateGroupedStatistics() {
+        return StatisticsAggregator.computeGrouped(new ArrayList<>(fruits.keySet()));
+    }
+
+    /**
+     * Reads the sketches kept up to date by every mutation, first rebuilding them from the live
+     * fruits if too many fruits were removed since the last rebuild
+     *
+     * @return ApproximateStatistics with the estimates and their error bounds
+     */
+    public ApproximateStatistics calculateApproximateStatistics() {
+        sketches.rebuildIfStale(target -> fruits.keySet().forEach(target::add));
+        return sketches.toStatistics();
+    }
+
+    /**
+     * Reads the percentiles and histograms kept up to date by every mutation
+     *
+     * @return DistributionStatistics with the percentiles and histograms
+     */
+    public DistributionStatistics calculateDistributionStatistics() {
+        return statistics.toDistributionStatistics();
+    }
+
+    /**
+     * Updates a fruit's attributes
+     *
+     * @param oldName Original name of the fruit to update
+     * @param newName New name (can be same as old)
+     * @param newWeight New weight
+     * @param newColor New color
+     * @param newIsEdible New edible status
+     * @param newCaloriesPer100g New calories per 100g
+     * @return true if fruit was updated successfully, false if not found
+     */
+    public boolean updateFruit(String oldName, String newName, int newWeight,
+                               String newColor, boolean newIsEdible, int newCaloriesPer100g) {
+        Fruit fruit = searchFruitByExactName(oldName);
+        if (fruit == null) {
+            return false;
+        }
+
+        // Check if new name conflicts with existing fruit (only if name is changing)
+        if (!oldName.equals(newName) && fruitExists(newName)) {
+            return false;
+        }
+
+        long sequence = fruits.get(fruit);
+        statistics.remove(fruit, sequence);
+        sketches.remove(fruit);
+        renameFruit(fruit, newName);
+        reweighFruit(fruit, sequence, newWeight);
+        recolorFruit(fruit, sequence, newColor);
+        fruit.setEdible(newIsEdible);
+        changeCalories(fruit, sequence, newCaloriesPer100g);
+        statistics.add(fruit, sequence);
+        sketches.add(fruit);
+
+        return true;
+    }
+
+    /**
+     * Updates only specific attributes of a fruit
+     *
+     * @param fruitName Name of the fruit to update
+     * @param attribute Attribute to update ("name", "weight", "color", "edible", "calories")
+     * @param newValue New value for the attribute
+     * @return true if updated successfully, false otherwise
+     */
+    public boolean updateFruitAttribute(String fruitName, String attribute, Object newValue) {
+        Fruit fruit = searchFruitByExactName(fruitName);
+        if (fruit == null) {
+            return false;
+        }
+
+        // Re-account the fruit even if the new value has the wrong type
+        long sequence = fruits.get(fruit);
+        statistics.remove(fruit, sequence);
+        sketches.remove(fruit);
+        try {
+            switch (attribute.toLowerCase()) {
+                case "name":
+                    String newName = (String) newValue;
+                    if (!fruitName.equals(newName) && fruitExists(newName)) {
+                        return false; // Name conflict
+                    }
+                    renameFruit(fruit, newName);
+                    break;
+                case "weight":
+                    reweighFruit(fruit, sequence, (Integer) newValue);
+                    break;
+                case "color":
+                    recolorFruit(fruit, sequence, (String) newValue);
+                    break;
+                case "edible":
+                    fruit.setEdible((Boolean) newValue);
+                    break;
+                case "calories":
+                    changeCalories(fruit, sequence, (Integer) newValue);
+                    break;
+                default:
+                    return false;
+            }
+        } finally {
+            statistics.add(fruit, sequence);
+            sketches.add(fruit);
+        }
+
+        return true;
+    }
+
+    /**
+     * Changes a fruit's name and moves it in the name indexes
+     * Keeping the same name leaves the fruit's position among duplicates untouched
+     */
+    private void renameFruit(Fruit fruit, String newName) {
+        if (fruit.getName().equals(newName)) {
+            return;
+        }
+        unindexName(fruit);
+        fruit.setName(newName);
+        indexName(fruit);
+        searchIndex.rename(fruit);
+    }
+
+    /**
+     * Changes a fruit's color and moves it to the posting list of the new color
+     */
+    private void recolorFruit(Fruit fruit, long sequence, String newColor) {
+        if (fruit.getColor().equals(newColor)) {
+            return;
+        }
+        colorIndex.remove(fruit, sequence);
+        fruit.setColor(newColor);
+        colorIndex.add(fruit, sequence);
+    }
+
+    /**
+     * Changes a fruit's weight and moves it to its new place in the weight index
+     */
+    private void reweighFruit(Fruit fruit, long sequence, int newWeight) {
+        if (fruit.getWeight() == newWeight) {
+            return;
+        }
+        weightIndex.remove(fruit.getWeight(), sequence);
+        fruit.setWeight(newWeight);
+        weightIndex.add(newWeight, sequence, fruit);
+    }
+
+    /**
+     * Changes a fruit's calories per 100g and moves it to its new place in the calorie index
+     */
+    private void changeCalories(Fruit fruit, long sequence, int newCaloriesPer100g) {
+        if (fruit.getCaloriesPer100g() == newCaloriesPer100g) {
+            return;
+        }
+        calorieIndex.remove(fruit.getCaloriesPer100g(), sequence);
+        fruit.setCaloriesPer100g(newCaloriesPer100g);
+        calorieIndex.add(newCaloriesPer100g, sequence, fruit);
+    }
+
+    /**
+     * Sorts index results by insertion sequence, for query plans
+     */
+    private Iterator<Fruit> inCollectionOrder(List<Fruit> matches) {
+        matches.sort(Comparator.comparingLong(fruits::get));
+        return matches.iterator();
+    }
+
+    /**
+     * Registers a fruit's current name in the hash indexes
+     */
+    private void indexName(Fruit fruit) {
+        exactNameIndex.computeIfAbsent(fruit.getName(), k -> new ArrayList<>(1)).add(fruit);
+        foldedNameIndex.merge(NameFolding.fold(fruit.getName()), 1, Integer::sum);
+    }
+
+    /**
+     * Name counts read straight from the hash indexes, for batch validation
+     */
+    private BatchValidator.NameCounts nameCounts() {
+        return new BatchValidator.NameCounts() {
+            @Override
+            public int exactCount(String name) {
+                List<Fruit> matches = exactNameIndex.get(name);
+                return matches == null ? 0 : matches.size();
+            }
+
+            @Override
+            public int foldedCount(String foldedName) {
+                return foldedNameIndex.getOrDefault(foldedName, 0);
+            }
+        };
+    }
+
+    /**
+     * Removes a fruit's current name from the hash indexes
+     * Must be called before the name is changed
+     */
+    private void unindexName(Fruit fruit) {
+        String name = fruit.getName();
+        List<Fruit> matches = exactNameIndex.get(name);
+        matches.remove(fruit);
+        if (matches.isEmpty()) {
+            exactNameIndex.remove(name);
+        }
+        foldedNameIndex.computeIfPresent(NameFolding.fold(name), (k, count) -> count == 1 ? null : count - 1);
+    }
+}
@@ -0,0 +1,257 @@
+package service;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * KLL quantile sketch over int values
+ * Values enter level 0; an item at level h stands for 2^h values. When the sketch holds more items
+ * than its capacity, the lowest full level is sorted and every other item, starting at a random
+ * offset, moves up a level while the rest are dropped. Level capacities shrink by 2/3 from the top
+ * down, so about 3k items are kept however many values are added. With k = 200 the rank of any
+ * value is off by at most about 1.65% of the count with 99% confidence.
+ * Values cannot be removed; a stream with removals keeps a second sketch of the removed values and
+ * reads both through sortedView(KllSketch).
+ */
+public final class KllSketch {
+    public static final int DEFAULT_K = 200;
+    private static final double CAPACITY_RATIO = 2.0 / 3.0;
+    private static final int MIN_CAPACITY = 8;
+
+    private final int k;
+    // Fixed seed so runs are reproducible; the offsets only need to be unbiased
+    private final SplittableRandom random = new SplittableRandom(0x5eed);
+    // Items per level; level h holds sizes[h] items in levels[h], each weighing 2^h
+    private int[][] levels;
+    private int[] sizes;
+    // Capacity of each level and their sum, recomputed when a level is added
+    private int[] capacities;
+    private int retained;
+    private int capacity;
+    private long count;
+
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * @param k Capacity of the top level; the rank error shrinks roughly as 1 / k
+     */
+    public KllSketch(int k) {
+        if (k < MIN_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_CAPACITY + ": " + k);
+        }
+        this.k = k;
+        clear();
+    }
+
+    /**
+     * Adds a value
+     * @param value Value to add
+     */
+    public void update(int value) {
+        append(0, value);
+        count++;
+        if (retained > capacity) {
+            compress();
+        }
+    }
+
+    /**
+     * Forgets every value
+     */
+    public void clear() {
+        levels = new int[][] {new int[k]};
+        sizes = new int[1];
+        retained = 0;
+        count = 0;
+        computeCapacities();
+    }
+
+    /**
+     * @return Number of values added
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return Number of items currently kept, which bounds the memory of the sketch
+     */
+    public int retained() {
+        return retained;
+    }
+
+    /**
+     * Rank error bound of a sketch with this k, as a share of the count
+     * @return Approximate normalized rank error at 99% confidence
+     */
+    public double rankError() {
+        return 1.65 * DEFAULT_K / k / 100;
+    }
+
+    /**
+     * Freezes the values of this sketch into a sorted view for rank and quantile queries
+     * @return View of the values added
+     */
+    public SortedView sortedView() {
+        return sortedView(null);
+    }
+
+    /**
+     * Freezes the values of this sketch minus those of a sketch of removed values
+     * The rank error of the view is the sum of the errors of both sketches.
+     * @param removed Sketch of values removed from the stream, or null
+     * @return View of the values still present
+     */
+    public SortedView sortedView(KllSketch removed) {
+        int removedItems = removed == null ? 0 : removed.retained;
+        // Value (made unsigned), level and removed flag packed into one long so a plain sort orders them
+        long[] packed = new long[retained + removedItems];
+        int length = pack(packed, 0, false);
+        if (removed != null) {
+            length = removed.pack(packed, length, true);
+        }
+        Arrays.sort(packed, 0, length);
+
+        int[] values = new int[length];
+        long[] cumulative = new long[length];
+        long total = count - (removed == null ? 0 : removed.count);
+        long running = 0;
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            int value = (int) ((packed[i] >>> 8) + Integer.MIN_VALUE);
+            long weight = 1L << ((packed[i] >>> 1) & 0x7f);
+            running += (packed[i] & 1) == 0 ? weight : -weight;
+            // Errors in the two sketches can make the net count dip; keep it monotone and within the total
+            long clamped = Math.max(distinct == 0 ? 0 : cumulative[distinct - 1], Math.min(total, running));
+            if (distinct > 0 && values[distinct - 1] == value) {
+                cumulative[distinct - 1] = clamped;
+            } else {
+                values[distinct] = value;
+                cumulative[distinct++] = clamped;
+            }
+        }
+        return new SortedView(Arrays.copyOf(values, distinct), Arrays.copyOf(cumulative, distinct), Math.max(0, total));
+    }
+
+    /**
+     * Values and their estimated cumulative counts, frozen when the view was made
+     */
+    public static final class SortedView {
+        private final int[] values;
+        // cumulative[i] estimates how many values are at most values[i]
+        private final long[] cumulative;
+        private final long count;
+
+        private SortedView(int[] values, long[] cumulative, long count) {
+            this.values = values;
+            this.cumulative = cumulative;
+            this.count = count;
+        }
+
+        /**
+         * @return Number of values the view describes
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Estimates the value at a normalized rank
+         * @param fraction Rank from 0 to 1, such as 0.5 for the median
+         * @return Smallest kept value with at least that share of the values at or below it, or 0 if there are none
+         */
+        public int quantile(double fraction) {
+            if (count == 0 || values.length == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(Math.max(0, Math.min(1, fraction)) * count));
+            int low = 0;
+            int high = values.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] >= target) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return values[low];
+        }
+
+        /**
+         * Estimates the share of values at or below a value
+         * @param value Value to rank
+         * @return Normalized rank from 0 to 1
+         */
+        public double rank(int value) {
+            if (count == 0) {
+                return 0;
+            }
+            int position = Arrays.binarySearch(values, value);
+            int below = position >= 0 ? position : -(position + 1) - 1;
+            return below < 0 ? 0 : (double) cumulative[below] / count;
+        }
+    }
+
+    private int pack(long[] packed, int offset, boolean removed) {
+        for (int level = 0; level < sizes.length; level++) {
+            for (int i = 0; i < sizes[level]; i++) {
+                packed[offset++] = ((long) levels[level][i] - Integer.MIN_VALUE) << 8 | (long) level << 1 | (removed ? 1 : 0);
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Compacts the lowest level that is over its capacity, adding a level on top if needed
+     */
+    private void compress() {
+        for (int level = 0; level < sizes.length; level++) {
+            if (sizes[level] > capacities[level]) {
+                if (level == sizes.length - 1) {
+                    levels = Arrays.copyOf(levels, level + 2);
+                    levels[level + 1] = new int[k];
+                    sizes = Arrays.copyOf(sizes, level + 2);
+                    computeCapacities();
+                }
+                compact(level);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sorts a level and promotes every other item; an odd item out stays behind at its level
+     */
+    private void compact(int level) {
+        int[] items = levels[level];
+        int size = sizes[level];
+        Arrays.sort(items, 0, size);
+        int kept = size & 1;
+        for (int i = kept + random.nextInt(2); i < size; i += 2) {
+            append(level + 1, items[i]);
+        }
+        sizes[level] = kept;
+        retained -= size - kept;
+    }
+
+    private void append(int level, int value) {
+        if (sizes[level] == levels[level].length) {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+        retained++;
+    }
+
+    private void computeCapacities() {
+        capacities = new int[sizes.length];
+        capacity = 0;
+        for (int level = 0; level < sizes.length; level++) {
+            int depth = sizes.length - level - 1;
+            capacities[level] = Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_RATIO, depth)));
+            capacity += capacities[level];
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package service;
+
+import model.Fruit;
+import util.NameFolding;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trigram inverted index for case-insensitive partial name matching
+ * Names are folded once when indexed, so queries never lowercase the stored names again.
+ * Results are returned in the order the fruits were added; renaming a fruit keeps its position.
+ */
+public class NameSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    // Fruit -> its index entry, in insertion order
+    private final Map<Fruit, Entry> entries;
+    // Trigram -> entries whose folded name contains it, ordered by sequence number
+    private final Map<String, PostingList<Entry>> postings;
+
+    public NameSearchIndex() {
+        this.entries = new LinkedHashMap<>();
+        this.postings = new HashMap<>();
+    }
+
+    /**
+     * Adds a fruit to the index under its current name
+     * @param fruit Fruit to add
+     * @param sequence Insertion sequence of the fruit in its manager, higher than any indexed so far
+     */
+    public void add(Fruit fruit, long sequence) {
+        Entry entry = new Entry(sequence, fruit, NameFolding.fold(fruit.getName()));
+        entries.put(fruit, entry);
+        addPostings(entry);
+    }
+
+    /**
+     * Removes a fruit from the index
+     * @param fruit Fruit to remove
+     */
+    public void remove(Fruit fruit) {
+        Entry entry = entries.remove(fruit);
+        if (entry != null) {
+            removePostings(entry);
+        }
+    }
+
+    /**
+     * Removes several fruits, rewriting each affected posting list once
+     * @param fruits Fruits to remove
+     */
+    public void removeAll(Collection<Fruit> fruits) {
+        Map<String, List<Long>> removedByGram = new HashMap<>();
+        for (Fruit fruit : fruits) {
+            Entry entry = entries.remove(fruit);
+            if (entry == null) continue;
+            for (String gram : grams(entry.foldedName)) {
+                removedByGram.computeIfAbsent(gram, k -> new ArrayList<>()).add(entry.sequence);
+            }
+        }
+        for (Map.Entry<String, List<Long>> removed : removedByGram.entrySet()) {
+            PostingList<Entry> list = postings.get(removed.getKey());
+            if (list != null) {
+                list.removeAll(PostingList.sorted(removed.getValue()));
+                if (list.isEmpty()) {
+                    postings.remove(removed.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-indexes a fruit after its name has changed, keeping its position in the results
+     * @param fruit Fruit whose name was changed
+     */
+    public void rename(Fruit fruit) {
+        Entry entry = entries.get(fruit);
+        if (entry == null) {
+            return;
+        }
+        removePostings(entry);
+        entry.foldedName = NameFolding.fold(fruit.getName());
+        addPostings(entry);
+    }
+
+    /**
+     * Re-indexes several fruits after their names have changed, rewriting each affected posting list once
+     * @param fruits Fruits whose names were changed, each listed once
+     */
+    public void renameAll(Collection<Fruit> fruits) {
+        Map<String, List<Long>> removedByGram = new HashMap<>();
+        Map<String, List<Entry>> addedByGram = new HashMap<>();
+        for (Fruit fruit : fruits) {
+            Entry entry = entries.get(fruit);
+            String foldedName = NameFolding.fold(fruit.getName());
+            if (entry == null || entry.foldedName.equals(foldedName)) continue;
+
+            Set<String> oldGrams = grams(entry.foldedName);
+            Set<String> newGrams = grams(foldedName);
+            for (String gram : oldGrams) {
+                if (!newGrams.contains(gram)) {
+                    removedByGram.computeIfAbsent(gram, k -> new ArrayList<>()).add(entry.sequence);
+                }
+            }
+            for (String gram : newGrams) {
+                if (!oldGrams.contains(gram)) {
+                    addedByGram.computeIfAbsent(gram, k -> new ArrayList<>()).add(entry);
+                }
+            }
+            entry.foldedName = foldedName;
+        }
+
+        for (Map.Entry<String, List<Long>> removed : removedByGram.entrySet()) {
+            PostingList<Entry> list = postings.get(removed.getKey());
+            list.removeAll(PostingList.sorted(removed.getValue()));
+            if (list.isEmpty()) {
+                postings.remove(removed.getKey());
+            }
+        }
+        for (Map.Entry<String, List<Entry>> added : addedByGram.entrySet()) {
+            List<Entry> newEntries = added.getValue();
+            newEntries.sort(Comparator.comparingLong(entry -> entry.sequence));
+            long[] sequences = new long[newEntries.size()];
+            for (int i = 0; i < sequences.length; i++) {
+                sequences[i] = newEntries.get(i).sequence;
+            }
+            postings.computeIfAbsent(added.getKey(), k -> new PostingList<>()).addAll(sequences, newEntries);
+        }
+    }
+
+    /**
+     * Finds the first fruit whose name contains the query, ignoring case
+     * @param query Text to search for
+     * @return First matching fruit or null if not found
+     */
+    public Fruit findFirst(String query) {
+        List<Fruit> matches = find(query, 0, 1);
+        return matches.isEmpty() ? null : matches.getFirst();
+    }
+
+    /**
+     * Finds a page of fruits whose names contain the query, ignoring case
+     * @param query Text to search for
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of matches to return
+     * @return Matching fruits in insertion order
+     */
+    public List<Fruit> find(String query, int offset, int limit) {
+        List<Fruit> results = new ArrayList<>();
+        if (limit <= 0) {
+            return results;
+        }
+
+        String foldedQuery = NameFolding.fold(query);
+        int skipped = 0;
+        for (Entry entry : candidates(foldedQuery)) {
+            if (!entry.foldedName.contains(foldedQuery)) continue;
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            results.add(entry.fruit);
+            if (results.size() == limit) break;
+        }
+        return results;
+    }
+
+    /**
+     * Counts the entries a search would have to check, an upper bound on the matches
+     * @param query Text to search for
+     * @return Size of the smallest posting list of the query, or of the whole index for short queries
+     */
+    public int estimate(String query) {
+        return candidates(NameFolding.fold(query)).size();
+    }
+
+    /**
+     * Finds the fruits whose names contain the query lazily, checking candidates as they are read
+     * Valid until the index is next modified.
+     * @param query Text to search for
+     * @return Matching fruits in insertion order
+     */
+    public Iterator<Fruit> matches(String query) {
+        String foldedQuery = NameFolding.fold(query);
+        return candidates(foldedQuery).stream()
+                .filter(entry -> entry.foldedName.contains(foldedQuery))
+                .map(entry -> entry.fruit)
+                .iterator();
+    }
+
+    /**
+     * Picks the smallest posting list that every match must appear in
+     * Queries shorter than a trigram fall back to all entries in insertion order.
+     */
+    private Collection<Entry> candidates(String foldedQuery) {
+        if (foldedQuery.length() < GRAM_LENGTH) {
+            return entries.values();
+        }
+
+        PostingList<Entry> smallest = null;
+        for (String gram : grams(foldedQuery)) {
+            PostingList<Entry> list = postings.get(gram);
+            if (list == null) {
+                return List.of();
+            }
+            if (smallest == null || list.size() < smallest.size()) {
+                smallest = list;
+            }
+        }
+        return smallest.items();
+    }
+
+    private void addPostings(Entry entry) {
+        for (String gram : grams(entry.foldedName)) {
+            postings.computeIfAbsent(gram, k -> new PostingList<>()).add(entry.sequence, entry);
+        }
+    }
+
+    private void removePostings(Entry entry) {
+        for (String gram : grams(entry.foldedName)) {
+            PostingList<Entry> list = postings.get(gram);
+            if (list != null && list.remove(entry.sequence) && list.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * Distinct trigrams of a folded name
+     */
+    private static Set<String> grams(String foldedName) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= foldedName.length(); i++) {
+            grams.add(foldedName.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * Indexed fruit with its folded name and insertion sequence
+     */
+    private static class Entry {
+        private final long sequence;
+        private final Fruit fruit;
+        private String foldedName;
+
+        private Entry(long sequence, Fruit fruit, String foldedName) {
+            this.sequence = sequence;
+            this.fruit = fruit;
+            this.foldedName = foldedName;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package service;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Items kept in ascending order of the insertion sequence their manager assigned them
+ * New items usually carry the highest sequence so most additions append at the end.
+ *
+ * @param <T> Type of the indexed items
+ */
+public class PostingList<T> {
+    private long[] sequences = new long[4];
+    private Object[] items = new Object[4];
+    private int size;
+
+    /**
+     * Inserts an item at the position of its sequence
+     * @param sequence Insertion sequence of the item
+     * @param item Item to insert
+     */
+    public void add(long sequence, T item) {
+        int position = search(sequence);
+        if (position >= 0) {
+            items[position] = item;
+            return;
+        }
+        position = -(position + 1);
+        if (size == items.length) {
+            sequences = Arrays.copyOf(sequences, size * 2);
+            items = Arrays.copyOf(items, size * 2);
+        }
+        System.arraycopy(sequences, position, sequences, position + 1, size - position);
+        System.arraycopy(items, position, items, position + 1, size - position);
+        sequences[position] = sequence;
+        items[position] = item;
+        size++;
+    }
+
+    /**
+     * Removes the item with the given sequence
+     * @param sequence Insertion sequence of the item
+     * @return true if an item was removed
+     */
+    public boolean remove(long sequence) {
+        int position = search(sequence);
+        if (position < 0) {
+            return false;
+        }
+        System.arraycopy(sequences, position + 1, sequences, position, size - position - 1);
+        System.arraycopy(items, position + 1, items, position, size - position - 1);
+        items[--size] = null;
+        return true;
+    }
+
+    /**
+     * Inserts several items with one merge pass, moving each existing item at most once
+     * @param sortedSequences Sequences of the new items in ascending order, none of them already in the list
+     * @param newItems New items, at the same positions as their sequences
+     */
+    public void addAll(long[] sortedSequences, List<T> newItems) {
+        int count = sortedSequences.length;
+        if (size + count > items.length) {
+            int capacity = Math.max(size + count, size * 2);
+            sequences = Arrays.copyOf(sequences, capacity);
+            items = Arrays.copyOf(items, capacity);
+        }
+        // Merge from the back so no item is overwritten before it has been moved
+        int read = size - 1;
+        int write = size + count - 1;
+        for (int next = count - 1; next >= 0; write--) {
+            if (read >= 0 && sequences[read] > sortedSequences[next]) {
+                sequences[write] = sequences[read];
+                items[write] = items[read];
+                read--;
+            } else {
+                sequences[write] = sortedSequences[next];
+                items[write] = newItems.get(next);
+                next--;
+            }
+        }
+        size += count;
+    }
+
+    /**
+     * Removes the items with any of the given sequences, moving each remaining item at most once
+     * @param sortedSequences Sequences of the items to remove, in ascending order
+     * @return Number of items removed
+     */
+    public int removeAll(long[] sortedSequences) {
+        // Items before read are settled; the run from read up to the next removed item moves down to write
+        int read = 0;
+        int write = -1;
+        for (long sequence : sortedSequences) {
+            int position = Arrays.binarySearch(sequences, read, size, sequence);
+            if (position < 0) continue;
+            if (write < 0) {
+                write = position;
+            } else {
+                write = moveRun(read, position, write);
+            }
+            read = position + 1;
+        }
+        if (write < 0) {
+            return 0;
+        }
+        write = moveRun(read, size, write);
+        Arrays.fill(items, write, size, null);
+        int removed = size - write;
+        size = write;
+        return removed;
+    }
+
+    /**
+     * Collects sequences into the sorted array removeAll expects
+     * @param sequences Sequences in any order
+     * @return The same sequences in ascending order
+     */
+    public static long[] sorted(List<Long> sequences) {
+        long[] sorted = new long[sequences.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = sequences.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Read-only view of the items in sequence order, valid until the list is next modified
+     * @return Items in sequence order
+     */
+    public List<T> items() {
+        return new AbstractList<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public T get(int index) {
+                return (T) items[index];
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int moveRun(int from, int to, int destination) {
+        System.arraycopy(sequences, from, sequences, destination, to - from);
+        System.arraycopy(items, from, items, destination, to - from);
+        return destination + to - from;
+    }
+
+    private int search(long sequence) {
+        return Arrays.binarySearch(sequences, 0, size, sequence);
+    }
+}
@@ -0,0 +1,319 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Items ordered by an int key and then by the insertion sequence their manager assigned them
+ * The entries live in sorted leaves of up to LEAF_CAPACITY primitive slots, found by binary search
+ * over the leaves, so an insertion or removal shifts at most one leaf and a range query reads only
+ * the leaves that overlap the range.
+ *
+ * @param <T> Type of the indexed items
+ */
+public class RangeIndex<T> {
+    private static final int LEAF_CAPACITY = 256;
+
+    // Leaves in key order; every entry of a leaf sorts before every entry of the next one
+    private final List<Leaf> leaves;
+    private int size;
+
+    /**
+     * Sorted run of entries, full leaves are split in half
+     */
+    private static final class Leaf {
+        private final int[] keys = new int[LEAF_CAPACITY];
+        private final long[] sequences = new long[LEAF_CAPACITY];
+        private final Object[] items = new Object[LEAF_CAPACITY];
+        private int size;
+
+        /**
+         * @return Position of the entry, or -(insertion point + 1) if it is not in the leaf
+         */
+        private int search(int key, long sequence) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int order = compare(keys[middle], sequences[middle], key, sequence);
+                if (order < 0) {
+                    low = middle + 1;
+                } else if (order > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void moveTo(Leaf target, int from, int to, int destination) {
+            System.arraycopy(keys, from, target.keys, destination, to - from);
+            System.arraycopy(sequences, from, target.sequences, destination, to - from);
+            System.arraycopy(items, from, target.items, destination, to - from);
+        }
+    }
+
+    public RangeIndex() {
+        this.leaves = new ArrayList<>();
+    }
+
+    /**
+     * Inserts an item at the position of its key and sequence
+     * @param key Indexed value of the item
+     * @param sequence Insertion sequence of the item
+     * @param item Item to insert
+     */
+    public void add(int key, long sequence, T item) {
+        if (leaves.isEmpty()) {
+            leaves.add(new Leaf());
+        }
+        int index = leafFor(key, sequence);
+        Leaf leaf = leaves.get(index);
+        int position = leaf.search(key, sequence);
+        if (position >= 0) {
+            leaf.items[position] = item;
+            return;
+        }
+        position = -(position + 1);
+
+        if (leaf.size == LEAF_CAPACITY) {
+            Leaf upper = new Leaf();
+            int half = LEAF_CAPACITY / 2;
+            leaf.moveTo(upper, half, LEAF_CAPACITY, 0);
+            Arrays.fill(leaf.items, half, LEAF_CAPACITY, null);
+            upper.size = LEAF_CAPACITY - half;
+            leaf.size = half;
+            leaves.add(index + 1, upper);
+            if (position > half) {
+                leaf = upper;
+                position -= half;
+            }
+        }
+        leaf.moveTo(leaf, position, leaf.size, position + 1);
+        leaf.keys[position] = key;
+        leaf.sequences[position] = sequence;
+        leaf.items[position] = item;
+        leaf.size++;
+        size++;
+    }
+
+    /**
+     * Removes the item with the given key and sequence
+     * Must be called with the key the item was added under, before its value changes
+     * @param key Indexed value of the item
+     * @param sequence Insertion sequence of the item
+     * @return true if an item was removed
+     */
+    public boolean remove(int key, long sequence) {
+        if (leaves.isEmpty()) {
+            return false;
+        }
+        int index = leafFor(key, sequence);
+        Leaf leaf = leaves.get(index);
+        int position = leaf.search(key, sequence);
+        if (position < 0) {
+            return false;
+        }
+        leaf.moveTo(leaf, position + 1, leaf.size, position);
+        leaf.items[--leaf.size] = null;
+        size--;
+
+        // Fold a thin leaf into its successor so removals cannot leave long chains of tiny leaves
+        if (leaf.size == 0) {
+            leaves.remove(index);
+        } else if (index + 1 < leaves.size() && leaf.size + leaves.get(index + 1).size <= LEAF_CAPACITY / 2) {
+            Leaf next = leaves.remove(index + 1);
+            next.moveTo(leaf, 0, next.size, leaf.size);
+            leaf.size += next.size;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the items whose key lies in a range
+     * @param min Lowest key, inclusive
+     * @param max Highest key, inclusive
+     * @return Items by ascending key, equal keys in sequence order
+     */
+    public List<T> find(int min, int max) {
+        List<T> result = new ArrayList<>();
+        collect(min, max, Integer.MAX_VALUE, result);
+        return result;
+    }
+
+    /**
+     * Gets the items whose key lies in a range, ordered by their sequence instead of their key
+     * @param min Lowest key, inclusive
+     * @param max Highest key, inclusive
+     * @return Items in sequence order
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> findInSequenceOrder(int min, int max) {
+        List<Hit> hits = new ArrayList<>();
+        if (!leaves.isEmpty() && min <= max) {
+            int index = leafFor(min, Long.MIN_VALUE);
+            int found = leaves.get(index).search(min, Long.MIN_VALUE);
+            int position = found >= 0 ? found : -(found + 1);
+            scan:
+            for (; index < leaves.size(); index++, position = 0) {
+                Leaf leaf = leaves.get(index);
+                for (; position < leaf.size; position++) {
+                    if (leaf.keys[position] > max) {
+                        break scan;
+                    }
+                    hits.add(new Hit(leaf.sequences[position], leaf.items[position]));
+                }
+            }
+        }
+        hits.sort(Comparator.comparingLong(Hit::sequence));
+        List<T> result = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            result.add((T) hit.item());
+        }
+        return result;
+    }
+
+    /**
+     * Gets the items with the lowest keys by reading the first leaves
+     * @param count Maximum number of items
+     * @return Up to count items by ascending key, equal keys in sequence order
+     */
+    public List<T> lowest(int count) {
+        List<T> result = new ArrayList<>(Math.max(0, Math.min(count, size)));
+        collect(Integer.MIN_VALUE, Integer.MAX_VALUE, count, result);
+        return result;
+    }
+
+    /**
+     * Gets the items with the highest keys by reading the last leaves backwards
+     * Items with equal keys still come in sequence order, so when the last key that fits has more
+     * items than there is room for, its earliest items are taken.
+     * @param count Maximum number of items
+     * @return Up to count items by descending key, equal keys in sequence order
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> highest(int count) {
+        int taken = Math.max(0, Math.min(count, size));
+        List<T> result = new ArrayList<>(taken);
+        if (taken == 0) {
+            return result;
+        }
+
+        Object[] items = new Object[taken];
+        int[] keys = new int[taken];
+        int index = leaves.size() - 1;
+        int position = leaves.get(index).size - 1;
+        for (int i = 0; i < taken; i++) {
+            Leaf leaf = leaves.get(index);
+            items[i] = leaf.items[position];
+            keys[i] = leaf.keys[position];
+            if (--position < 0 && index > 0) {
+                position = leaves.get(--index).size - 1;
+            }
+        }
+
+        // Every key above the boundary is complete; reverse each such run back into sequence order
+        int boundary = keys[taken - 1];
+        int above = 0;
+        while (keys[above] != boundary) {
+            above++;
+        }
+        for (int end = 0; end < above; ) {
+            int start = end;
+            while (end < above && keys[end] == keys[start]) {
+                end++;
+            }
+            for (int i = end - 1; i >= start; i--) {
+                result.add((T) items[i]);
+            }
+        }
+        collect(boundary, boundary, taken - above, result);
+        return result;
+    }
+
+    /**
+     * Counts the items whose key lies in a range, reading whole leaves by their size
+     * @param min Lowest key, inclusive
+     * @param max Highest key, inclusive
+     * @return Number of items in the range
+     */
+    public int count(int min, int max) {
+        if (leaves.isEmpty() || min > max) {
+            return 0;
+        }
+        int index = leafFor(min, Long.MIN_VALUE);
+        int found = leaves.get(index).search(min, Long.MIN_VALUE);
+        int position = found >= 0 ? found : -(found + 1);
+        int count = 0;
+        for (; index < leaves.size(); index++, position = 0) {
+            Leaf leaf = leaves.get(index);
+            if (leaf.size > 0 && leaf.keys[leaf.size - 1] <= max) {
+                count += leaf.size - position;
+                continue;
+            }
+            int end = -(leaf.search(max, Long.MAX_VALUE) + 1);
+            return count + Math.max(0, end - position);
+        }
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends up to limit items with keys from min to max, in index order
+     */
+    @SuppressWarnings("unchecked")
+    private void collect(int min, int max, int limit, List<T> result) {
+        if (leaves.isEmpty() || min > max || limit <= 0) {
+            return;
+        }
+        int index = leafFor(min, Long.MIN_VALUE);
+        int found = leaves.get(index).search(min, Long.MIN_VALUE);
+        int position = found >= 0 ? found : -(found + 1);
+        for (int added = 0; index < leaves.size(); index++, position = 0) {
+            Leaf leaf = leaves.get(index);
+            for (; position < leaf.size; position++) {
+                if (leaf.keys[position] > max || added++ == limit) {
+                    return;
+                }
+                result.add((T) leaf.items[position]);
+            }
+        }
+    }
+
+    /**
+     * Finds the leaf that holds the entry or would receive it: the last leaf whose first entry
+     * does not sort after it, or the first leaf
+     */
+    private int leafFor(int key, long sequence) {
+        int low = 0;
+        int high = leaves.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            Leaf leaf = leaves.get(middle);
+            if (compare(leaf.keys[0], leaf.sequences[0], key, sequence) <= 0) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private record Hit(long sequence, Object item) {
+    }
+
+    private static int compare(int key, long sequence, int otherKey, long otherSequence) {
+        int order = Integer.compare(key, otherKey);
+        return order != 0 ? order : Long.compare(sequence, otherSequence);
+    }
+}
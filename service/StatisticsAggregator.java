@@ -0,0 +1,333 @@
+package service;
+
+import constants.FruitConstants;
+import model.Fruit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+
+/**
+ * Computes FruitStatistics, overall or grouped, over a store addressed by position, in parallel for large stores
+ * The positions are halved recursively on a fork-join pool until the pieces are small; each piece
+ * counts into its own Partial and the partials are merged left to right, so the heaviest fruit is
+ * the earliest one of the greatest weight, exactly as in a sequential loop. Stores smaller than
+ * PARALLEL_THRESHOLD, or pools with a single thread, are scanned sequentially on the caller's thread.
+ * The store must not change until the computation returns.
+ */
+public final class StatisticsAggregator {
+    // Below this many positions splitting costs more than it saves
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+    // Smallest piece a task scans on its own
+    private static final int MIN_PIECE = 1 << 13;
+    // Pieces per pool thread, so threads that finish early can steal the remaining work
+    private static final int PIECES_PER_THREAD = 8;
+
+    // Private constructor to prevent instantiation
+    private StatisticsAggregator() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Adds the fruits at positions from (inclusive) to to (exclusive) to a partial
+     */
+    public interface RangeScanner {
+        void scan(int from, int to, Partial partial);
+    }
+
+    /**
+     * Counts, calorie sum and heaviest position over one piece of the store
+     */
+    public static final class Partial {
+        private int total;
+        private int healthy;
+        private int edible;
+        private long caloriesPer100g;
+        private int heaviest = -1;
+        private int heaviestWeight;
+
+        /**
+         * Accounts for one fruit; positions must be added in ascending order
+         * @param position Position of the fruit in the store
+         * @param weight Weight in grams
+         * @param calories Calories per 100g
+         * @param isEdible Edible flag
+         */
+        public void add(int position, int weight, int calories, boolean isEdible) {
+            total++;
+            if (calories < FruitConstants.HEALTHY_CALORIE_THRESHOLD) healthy++;
+            if (isEdible && weight > FruitConstants.MIN_WEIGHT_FOR_CONSUMPTION) edible++;
+            caloriesPer100g += calories;
+            if (heaviest < 0 || weight > heaviestWeight) {
+                heaviest = position;
+                heaviestWeight = weight;
+            }
+        }
+
+        /**
+         * Folds in the partial of the piece that follows this one
+         */
+        private Partial merge(Partial later) {
+            total += later.total;
+            healthy += later.healthy;
+            edible += later.edible;
+            caloriesPer100g += later.caloriesPer100g;
+            if (later.heaviest >= 0 && (heaviest < 0 || later.heaviestWeight > heaviestWeight)) {
+                heaviest = later.heaviest;
+                heaviestWeight = later.heaviestWeight;
+            }
+            return this;
+        }
+
+        private FruitManager.FruitStatistics toStatistics(IntFunction<Fruit> fruitAt) {
+            if (total == 0) {
+                return new FruitManager.FruitStatistics(0, 0, 0, 0.0, 0.0, 0.0, null);
+            }
+            return new FruitManager.FruitStatistics(total, healthy, edible,
+                    (double) healthy / total * 100, (double) edible / total * 100,
+                    (double) caloriesPer100g / total, fruitAt.apply(heaviest));
+        }
+    }
+
+    /**
+     * Adds the fruits at positions from (inclusive) to to (exclusive) to a grouped partial
+     */
+    public interface GroupedRangeScanner {
+        void scan(int from, int to, GroupedPartial partial);
+    }
+
+    /**
+     * Partials of one piece for the whole piece and for each color, health and weight group
+     */
+    public static final class GroupedPartial {
+        private final Partial overall = new Partial();
+        private final Partial[] byHealth = newPartials(2);
+        private final Partial[] byWeight = newPartials(FruitConstants.WEIGHT_BUCKETS);
+        // Colors in the order this piece met them, each with its partial at the same slot
+        private final List<String> colors = new ArrayList<>();
+        private final Map<String, Integer> colorSlots = new HashMap<>();
+        private Partial[] byColor = new Partial[0];
+
+        /**
+         * Gets the slot of a color in this partial, adding the color the first time it is met
+         * @param color Exact color value
+         * @return Slot to pass to add
+         */
+        public int colorSlot(String color) {
+            Integer slot = colorSlots.get(color);
+            if (slot != null) {
+                return slot;
+            }
+            colors.add(color);
+            colorSlots.put(color, colors.size() - 1);
+            byColor = Arrays.copyOf(byColor, colors.size());
+            byColor[colors.size() - 1] = new Partial();
+            return colors.size() - 1;
+        }
+
+        /**
+         * Accounts for one fruit in the overall partial and in each of its groups
+         * @param position Position of the fruit in the store
+         * @param weight Weight in grams
+         * @param calories Calories per 100g
+         * @param isEdible Edible flag
+         * @param colorSlot Slot returned by colorSlot for the fruit's color
+         */
+        public void add(int position, int weight, int calories, boolean isEdible, int colorSlot) {
+            overall.add(position, weight, calories, isEdible);
+            byHealth[calories < FruitConstants.HEALTHY_CALORIE_THRESHOLD ? 0 : 1].add(position, weight, calories, isEdible);
+            byWeight[GroupedStatistics.weightBucket(weight)].add(position, weight, calories, isEdible);
+            byColor[colorSlot].add(position, weight, calories, isEdible);
+        }
+
+        /**
+         * Folds in the partial of the piece that follows this one, matching colors by name
+         */
+        private GroupedPartial merge(GroupedPartial later) {
+            overall.merge(later.overall);
+            for (int i = 0; i < byHealth.length; i++) {
+                byHealth[i].merge(later.byHealth[i]);
+            }
+            for (int i = 0; i < byWeight.length; i++) {
+                byWeight[i].merge(later.byWeight[i]);
+            }
+            for (int i = 0; i < later.colors.size(); i++) {
+                byColor[colorSlot(later.colors.get(i))].merge(later.byColor[i]);
+            }
+            return this;
+        }
+
+        private GroupedStatistics toStatistics(IntFunction<Fruit> fruitAt) {
+            Map<String, FruitManager.FruitStatistics> colorGroups = new TreeMap<>();
+            for (int i = 0; i < colors.size(); i++) {
+                if (byColor[i].total > 0) {
+                    colorGroups.put(colors.get(i), byColor[i].toStatistics(fruitAt));
+                }
+            }
+            Map<String, FruitManager.FruitStatistics> healthGroups = new LinkedHashMap<>();
+            healthGroups.put(GroupedStatistics.HEALTHY, byHealth[0].toStatistics(fruitAt));
+            healthGroups.put(GroupedStatistics.UNHEALTHY, byHealth[1].toStatistics(fruitAt));
+            Map<String, FruitManager.FruitStatistics> weightGroups = new LinkedHashMap<>();
+            for (int i = 0; i < byWeight.length; i++) {
+                weightGroups.put(GroupedStatistics.weightBucketLabel(i), byWeight[i].toStatistics(fruitAt));
+            }
+            return new GroupedStatistics(overall.toStatistics(fruitAt), new LinkedHashMap<>(colorGroups),
+                    healthGroups, weightGroups);
+        }
+
+        private static Partial[] newPartials(int count) {
+            Partial[] partials = new Partial[count];
+            for (int i = 0; i < count; i++) {
+                partials[i] = new Partial();
+            }
+            return partials;
+        }
+    }
+
+    /**
+     * Computes statistics over a list of fruits on the common pool
+     * @param fruits Fruits to aggregate
+     * @return Statistics of the list
+     */
+    public static FruitManager.FruitStatistics compute(List<Fruit> fruits) {
+        return compute(fruits, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes statistics over a list of fruits on the given pool
+     * @param fruits Fruits to aggregate, each piece read through an iterator of its sub-list
+     * @param pool Pool to split the work across
+     * @return Statistics of the list
+     */
+    public static FruitManager.FruitStatistics compute(List<Fruit> fruits, ForkJoinPool pool) {
+        return compute(fruits.size(), (from, to, partial) -> {
+            int i = from;
+            for (Fruit fruit : fruits.subList(from, to)) {
+                partial.add(i++, fruit.getWeight(), fruit.getCaloriesPer100g(), fruit.isEdible());
+            }
+        }, fruits::get, pool);
+    }
+
+    /**
+     * Computes statistics over any store on the given pool
+     * @param size Number of positions in the store, including any the scanner skips
+     * @param scanner Adds the fruits of a range of positions to a partial
+     * @param fruitAt Fruit at a position, used for the heaviest fruit
+     * @param pool Pool to split the work across
+     * @return Statistics of the store
+     */
+    public static FruitManager.FruitStatistics compute(int size, RangeScanner scanner, IntFunction<Fruit> fruitAt,
+                                                       ForkJoinPool pool) {
+        return aggregate(size, (from, to) -> {
+            Partial partial = new Partial();
+            scanner.scan(from, to, partial);
+            return partial;
+        }, Partial::merge, pool).toStatistics(fruitAt);
+    }
+
+    /**
+     * Computes overall and grouped statistics over a list of fruits in one pass on the common pool
+     * @param fruits Fruits to aggregate
+     * @return Statistics of the list and of each group
+     */
+    public static GroupedStatistics computeGrouped(List<Fruit> fruits) {
+        return computeGrouped(fruits, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Computes overall and grouped statistics over a list of fruits in one pass on the given pool
+     * @param fruits Fruits to aggregate, each piece read through an iterator of its sub-list
+     * @param pool Pool to split the work across
+     * @return Statistics of the list and of each group
+     */
+    public static GroupedStatistics computeGrouped(List<Fruit> fruits, ForkJoinPool pool) {
+        return computeGrouped(fruits.size(), (from, to, partial) -> {
+            String lastColor = null;
+            int slot = -1;
+            int i = from;
+            for (Fruit fruit : fruits.subList(from, to)) {
+                // Fruits of one color often come in runs; skip the lookup while the color repeats
+                if (!fruit.getColor().equals(lastColor)) {
+                    lastColor = fruit.getColor();
+                    slot = partial.colorSlot(lastColor);
+                }
+                partial.add(i++, fruit.getWeight(), fruit.getCaloriesPer100g(), fruit.isEdible(), slot);
+            }
+        }, fruits::get, pool);
+    }
+
+    /**
+     * Computes overall and grouped statistics over any store in one pass on the given pool
+     * @param size Number of positions in the store, including any the scanner skips
+     * @param scanner Adds the fruits of a range of positions to a grouped partial
+     * @param fruitAt Fruit at a position, used for the heaviest fruits
+     * @param pool Pool to split the work across
+     * @return Statistics of the store and of each group
+     */
+    public static GroupedStatistics computeGrouped(int size, GroupedRangeScanner scanner, IntFunction<Fruit> fruitAt,
+                                                   ForkJoinPool pool) {
+        return aggregate(size, (from, to) -> {
+            GroupedPartial partial = new GroupedPartial();
+            scanner.scan(from, to, partial);
+            return partial;
+        }, GroupedPartial::merge, pool).toStatistics(fruitAt);
+    }
+
+    /**
+     * Builds the partial of a range of positions
+     */
+    private interface PieceScanner<P> {
+        P scan(int from, int to);
+    }
+
+    /**
+     * Scans the whole store on the caller's thread, or splits it across the pool when it is large
+     */
+    private static <P> P aggregate(int size, PieceScanner<P> scanner, BinaryOperator<P> merge, ForkJoinPool pool) {
+        if (size < PARALLEL_THRESHOLD || pool.getParallelism() < 2) {
+            return scanner.scan(0, size);
+        }
+        int piece = Math.max(MIN_PIECE, size / (pool.getParallelism() * PIECES_PER_THREAD));
+        return pool.invoke(new PieceTask<>(scanner, merge, 0, size, piece));
+    }
+
+    /**
+     * Scans a range directly once it is no larger than a piece, otherwise forks its halves
+     */
+    @SuppressWarnings("serial")
+    private static final class PieceTask<P> extends RecursiveTask<P> {
+        private final PieceScanner<P> scanner;
+        private final BinaryOperator<P> merge;
+        private final int from;
+        private final int to;
+        private final int piece;
+
+        private PieceTask(PieceScanner<P> scanner, BinaryOperator<P> merge, int from, int to, int piece) {
+            this.scanner = scanner;
+            this.merge = merge;
+            this.from = from;
+            this.to = to;
+            this.piece = piece;
+        }
+
+        @Override
+        protected P compute() {
+            if (to - from <= piece) {
+                return scanner.scan(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            PieceTask<P> upper = new PieceTask<>(scanner, merge, middle, to, piece);
+            upper.fork();
+            P lower = new PieceTask<>(scanner, merge, from, middle, piece).compute();
+            return merge.apply(lower, upper.join());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package service;
+
+import constants.UIConstants;
+import interfaces.IFruitManager;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.TableColumn;
+import java.awt.BorderLayout;
+import java.awt.Frame;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+/**
+ * Swing user interface that shows the fruit collection in a table instead of a text dialog
+ * The table only reads the rows on screen, and sorting (click a column header) and filtering
+ * (type part of a name) run in the background, so it stays responsive with millions of fruits.
+ * All other interactions use the dialogs of UserInterface.
+ */
+public class TableUserInterface extends UserInterface {
+
+    /**
+     * Shows the collection in a sortable, filterable table
+     */
+    @Override
+    public void showFruitList(IFruitManager fruitManager, String title) {
+        new FruitTableDialog(fruitManager, title).show();
+    }
+
+    /**
+     * Modal dialog with the filter field, the row count and the table
+     */
+    private static final class FruitTableDialog {
+        private final JDialog dialog;
+        private final FruitTableModel model;
+        private final JTable table;
+        private final JTextField filterField;
+        private final JLabel status;
+        private final Timer filterTimer;
+        private int sortColumn = -1;
+        private boolean ascending = true;
+
+        FruitTableDialog(IFruitManager fruitManager, String title) {
+            model = new FruitTableModel(fruitManager);
+            table = new JTable(model);
+            table.setFillsViewportHeight(true);
+            table.getTableHeader().setReorderingAllowed(false);
+            table.getTableHeader().setToolTipText("Click to sort, click again to reverse");
+
+            filterField = new JTextField(20);
+            status = new JLabel(rowsText(model.getRowCount()));
+
+            // Wait for a pause in typing so every keystroke does not start a new search
+            filterTimer = new Timer(UIConstants.FILTER_DELAY_MILLIS, e -> applyView());
+            filterTimer.setRepeats(false);
+            filterField.getDocument().addDocumentListener(new DocumentListener() {
+                @Override
+                public void insertUpdate(DocumentEvent e) {
+                    filterTimer.restart();
+                }
+
+                @Override
+                public void removeUpdate(DocumentEvent e) {
+                    filterTimer.restart();
+                }
+
+                @Override
+                public void changedUpdate(DocumentEvent e) {
+                    filterTimer.restart();
+                }
+            });
+
+            table.getTableHeader().addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    int column = table.columnAtPoint(e.getPoint());
+                    if (column < 0) return;
+                    sortBy(table.convertColumnIndexToModel(column));
+                }
+            });
+
+            JPanel top = new JPanel(new BorderLayout(8, 0));
+            top.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+            top.add(new JLabel("Filter by name:"), BorderLayout.WEST);
+            top.add(filterField, BorderLayout.CENTER);
+            top.add(status, BorderLayout.EAST);
+
+            dialog = new JDialog((Frame) null, title, true);
+            dialog.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+            dialog.add(top, BorderLayout.NORTH);
+            dialog.add(new JScrollPane(table), BorderLayout.CENTER);
+            dialog.setSize(UIConstants.FRUIT_TABLE_WIDTH, UIConstants.FRUIT_TABLE_HEIGHT);
+            dialog.setLocationRelativeTo(null);
+        }
+
+        /**
+         * Shows the dialog and waits until it is closed
+         */
+        void show() {
+            dialog.setVisible(true);
+            filterTimer.stop();
+            model.close();
+        }
+
+        private void sortBy(int column) {
+            if (column == sortColumn) {
+                ascending = !ascending;
+            } else {
+                sortColumn = column;
+                ascending = true;
+            }
+            for (int i = 0; i < table.getColumnCount(); i++) {
+                TableColumn tableColumn = table.getColumnModel().getColumn(i);
+                int modelColumn = tableColumn.getModelIndex();
+                String arrow = modelColumn == sortColumn ? (ascending ? " ▲" : " ▼") : "";
+                tableColumn.setHeaderValue(model.getColumnName(modelColumn) + arrow);
+            }
+            table.getTableHeader().repaint();
+            applyView();
+        }
+
+        private void applyView() {
+            status.setText("Working...");
+            model.applyView(filterField.getText(), sortColumn, ascending, rows -> status.setText(rowsText(rows)));
+        }
+
+        private static String rowsText(int rows) {
+            return String.format("%,d fruits", rows);
+        }
+    }
+}
@@ -1,9 +1,19 @@
 package service;
 
 import  constants.UIConstants;
+import interfaces.IFruitManager;
 import  interfaces.IUserInterface;
+import model.Fruit;
+import util.FruitDisplayFormatter;
 
 import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.DoubleSupplier;
 
 /**
  * Handles all user interface interactions using JOptionPane dialogs
@@ -20,7 +30,7 @@ public class UserInterface implements IUserInterface {
 
     /**
      * Displays the main menu and returns the selected option
-     * @return Selected menu option (1-7) or 0 for exit, -1 for cancel
+     * @return Selected menu option (1-8) or 0 for exit, -1 for cancel
      */
     public int showMainMenu() {
         // Create a simple JList for vertical display
@@ -41,7 +51,7 @@ public class UserInterface implements IUserInterface {
         }
 
         int selection = list.getSelectedIndex();
-        return selection == 7 ? 0 : selection + 1;
+        return selection == UIConstants.MAIN_MENU_OPTIONS.length - 1 ? 0 : selection + 1;
     }
 
     /**
@@ -129,6 +139,94 @@ public class UserInterface implements IUserInterface {
         JOptionPane.showMessageDialog(null, message, title, JOptionPane.INFORMATION_MESSAGE);
     }
 
+    /**
+     * Shows one page of a long text in a scrollable area with navigation buttons
+     */
+    public int showPagedMessage(String message, String title, String[] options) {
+        JTextArea text = new JTextArea(message, UIConstants.PAGE_ROWS, UIConstants.PAGE_COLUMNS);
+        text.setEditable(false);
+        text.setCaretPosition(0);
+        return JOptionPane.showOptionDialog(null, new JScrollPane(text), title,
+                JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null, options, options[options.length - 1]);
+    }
+
+    /**
+     * Shows the collection as text, one page of fruits per dialog
+     * Only the visible page is fetched and formatted, so large collections open instantly.
+     */
+    public void showFruitList(IFruitManager fruitManager, String title) {
+        int offset = 0;
+        while (true) {
+            int total = fruitManager.getSize();
+            if (total == 0) {
+                return;
+            }
+            offset = Math.min(offset, (total - 1) / UIConstants.FRUITS_PER_PAGE * UIConstants.FRUITS_PER_PAGE);
+            List<Fruit> page = fruitManager.getFruits(offset, UIConstants.FRUITS_PER_PAGE);
+            String text = FruitDisplayFormatter.formatFruitPage(page, offset, total);
+
+            int choice = showPagedMessage(text, title, UIConstants.PAGE_OPTIONS);
+            if (choice == UIConstants.PAGE_PREVIOUS) {
+                offset = Math.max(0, offset - UIConstants.FRUITS_PER_PAGE);
+            } else if (choice == UIConstants.PAGE_NEXT) {
+                if (offset + UIConstants.FRUITS_PER_PAGE < total) {
+                    offset += UIConstants.FRUITS_PER_PAGE;
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits for a background task, showing a progress bar with a Cancel button if it takes a moment
+     * The dialog is modal, so the event dispatch thread keeps painting while this thread waits.
+     */
+    public boolean awaitTask(Future<?> task, String message, String title, DoubleSupplier progress) {
+        // Quick tasks finish without a dialog flashing on screen
+        try {
+            task.get(UIConstants.PROGRESS_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            // Still running, show the dialog below
+        } catch (ExecutionException | CancellationException e) {
+            // Finished; the caller reads the outcome from the task
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.cancel(true);
+            return false;
+        }
+
+        JProgressBar progressBar = new JProgressBar(0, 1000);
+        progressBar.setIndeterminate(true);
+        JOptionPane pane = new JOptionPane(new Object[]{message, progressBar}, JOptionPane.INFORMATION_MESSAGE,
+                JOptionPane.DEFAULT_OPTION, null, UIConstants.PROGRESS_OPTIONS);
+        JDialog dialog = pane.createDialog(title);
+
+        // Repeats until stopped, so it also closes the dialog if the task ends before it is shown
+        Timer refresh = new Timer(UIConstants.PROGRESS_REFRESH_MILLIS, e -> {
+            if (task.isDone()) {
+                dialog.dispose();
+                return;
+            }
+            double fraction = progress.getAsDouble();
+            if (fraction >= 0) {
+                progressBar.setIndeterminate(false);
+                progressBar.setValue((int) (Math.min(fraction, 1) * 1000));
+            }
+        });
+        refresh.start();
+        dialog.setVisible(true);
+        refresh.stop();
+
+        if (task.isDone()) {
+            return true;
+        }
+        task.cancel(true);
+        return false;
+    }
+
     /**
      * Shows an error message to the user
      */
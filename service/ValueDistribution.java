@@ -0,0 +1,296 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * Multiset of long values that answers exact percentiles and fixed-width histograms without sorting
+ * Distinct values live with their counts in sorted leaves of up to LEAF_CAPACITY slots, like
+ * RangeIndex, and each leaf keeps the total of its counts. The first value of every leaf is copied
+ * into one array so finding a leaf reads no leaf but the one it finds. A value whose count drops to
+ * zero keeps its slot until the leaf fills up, so churn over the same values never shifts a leaf.
+ * A percentile adds up leaf totals until it reaches the leaf holding the wanted rank.
+ */
+public class ValueDistribution {
+    private static final int LEAF_CAPACITY = 256;
+
+    // Leaves in value order; every value of a leaf is below every value of the next one
+    private Leaf[] leaves;
+    // firstValues[i] is leaves[i].values[0], kept apart so the search for a leaf stays in one array
+    private long[] firstValues;
+    private int leafCount;
+    private final long bucketWidth;
+    // Values per bucket of bucketWidth, the first bucket also taking values below zero and the last one all larger values
+    private final long[] buckets;
+    private long count;
+
+    /**
+     * Sorted distinct values with their counts, some of which may be zero
+     * A full leaf first drops its zero slots and is split in half if that frees too little room.
+     */
+    private static final class Leaf {
+        private final long[] values = new long[LEAF_CAPACITY];
+        private final int[] counts = new int[LEAF_CAPACITY];
+        private int size;
+        // Slots with a count above zero
+        private int live;
+        private long total;
+
+        /**
+         * @return Position of the value, or -(insertion point + 1) if it is not in the leaf
+         */
+        private int search(long value) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] < value) {
+                    low = middle + 1;
+                } else if (values[middle] > value) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void moveTo(Leaf target, int from, int to, int destination) {
+            System.arraycopy(values, from, target.values, destination, to - from);
+            System.arraycopy(counts, from, target.counts, destination, to - from);
+        }
+
+        /**
+         * Drops the slots whose count is zero
+         */
+        private void purge() {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (counts[i] > 0) {
+                    values[kept] = values[i];
+                    counts[kept++] = counts[i];
+                }
+            }
+            size = kept;
+        }
+
+        private long sum(int from, int to) {
+            long sum = 0;
+            for (int i = from; i < to; i++) {
+                sum += counts[i];
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * @param bucketWidth Width of each histogram bucket
+     * @param bucketCount Number of histogram buckets, the last one open-ended
+     */
+    public ValueDistribution(long bucketWidth, int bucketCount) {
+        if (bucketWidth < 1 || bucketCount < 1) {
+            throw new IllegalArgumentException("Bucket width and count must be positive: " + bucketWidth + ", " + bucketCount);
+        }
+        this.leaves = new Leaf[] {new Leaf()};
+        this.firstValues = new long[1];
+        this.leafCount = 1;
+        this.bucketWidth = bucketWidth;
+        this.buckets = new long[bucketCount];
+    }
+
+    /**
+     * Adds one occurrence of a value
+     * @param value Value to add
+     */
+    public void add(long value) {
+        int index = leafFor(value);
+        Leaf leaf = leaves[index];
+        int position = leaf.search(value);
+        if (position < 0) {
+            if (leaf.size == LEAF_CAPACITY) {
+                leaf.purge();
+                if (leaf.size > LEAF_CAPACITY * 3 / 4) {
+                    split(index);
+                    if (value >= firstValues[index + 1]) {
+                        leaf = leaves[++index];
+                    }
+                }
+                position = leaf.search(value);
+            }
+            position = -(position + 1);
+            leaf.moveTo(leaf, position, leaf.size, position + 1);
+            leaf.values[position] = value;
+            leaf.counts[position] = 0;
+            leaf.size++;
+            firstValues[index] = leaf.values[0];
+        }
+        if (leaf.counts[position]++ == 0) {
+            leaf.live++;
+        }
+        leaf.total++;
+        buckets[bucketOf(value)]++;
+        count++;
+    }
+
+    /**
+     * Removes one occurrence of a value
+     * @param value Value to remove
+     * @return true if the value was present
+     */
+    public boolean remove(long value) {
+        int index = leafFor(value);
+        Leaf leaf = leaves[index];
+        int position = leaf.search(value);
+        if (position < 0 || leaf.counts[position] == 0) {
+            return false;
+        }
+        leaf.total--;
+        buckets[bucketOf(value)]--;
+        count--;
+        if (--leaf.counts[position] > 0 || --leaf.live >= LEAF_CAPACITY / 4) {
+            return true;
+        }
+
+        // Fold a thin leaf into its successor so removals cannot leave long chains of nearly empty leaves
+        if (leaf.live == 0) {
+            leaf.size = 0;
+            if (leafCount > 1) {
+                removeLeaf(index);
+            }
+        } else if (index + 1 < leafCount && leaf.live + leaves[index + 1].live <= LEAF_CAPACITY / 2) {
+            Leaf next = leaves[index + 1];
+            leaf.purge();
+            next.purge();
+            next.moveTo(leaf, 0, next.size, leaf.size);
+            leaf.size += next.size;
+            leaf.live += next.live;
+            leaf.total += next.total;
+            removeLeaf(index + 1);
+            firstValues[index] = leaf.values[0];
+        }
+        return true;
+    }
+
+    /**
+     * Gets the value at a percentile by the nearest-rank method
+     * @param percentile Percentile from 0 to 100
+     * @return Smallest value with at least that percentage of the values at or below it, or 0 if there are none
+     */
+    public long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100 * count));
+        for (int index = 0; index < leafCount; index++) {
+            Leaf leaf = leaves[index];
+            if (rank > leaf.total) {
+                rank -= leaf.total;
+                continue;
+            }
+            for (int i = 0; i < leaf.size; i++) {
+                rank -= leaf.counts[i];
+                if (rank <= 0) {
+                    return leaf.values[i];
+                }
+            }
+        }
+        return max();
+    }
+
+    /**
+     * @return Smallest value, or 0 if there are none
+     */
+    public long min() {
+        for (int index = 0; index < leafCount; index++) {
+            Leaf leaf = leaves[index];
+            for (int i = 0; leaf.total > 0 && i < leaf.size; i++) {
+                if (leaf.counts[i] > 0) {
+                    return leaf.values[i];
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return Largest value, or 0 if there are none
+     */
+    public long max() {
+        for (int index = leafCount - 1; index >= 0; index--) {
+            Leaf leaf = leaves[index];
+            for (int i = leaf.size - 1; leaf.total > 0 && i >= 0; i--) {
+                if (leaf.counts[i] > 0) {
+                    return leaf.values[i];
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return Number of values in each histogram bucket, lowest bucket first
+     */
+    public long[] histogram() {
+        return buckets.clone();
+    }
+
+    /**
+     * @return Number of values, counting repeats
+     */
+    public long count() {
+        return count;
+    }
+
+    private int bucketOf(long value) {
+        return (int) Math.max(0, Math.min(buckets.length - 1, value / bucketWidth));
+    }
+
+    /**
+     * Finds the leaf that holds the value or would receive it: the last leaf whose first value
+     * is not above it, or the first leaf
+     */
+    private int leafFor(long value) {
+        int low = 0;
+        int high = leafCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (firstValues[middle] <= value) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Moves the upper half of a purged leaf into a new leaf right after it
+     */
+    private void split(int index) {
+        Leaf leaf = leaves[index];
+        Leaf upper = new Leaf();
+        int half = leaf.size / 2;
+        leaf.moveTo(upper, half, leaf.size, 0);
+        upper.size = leaf.size - half;
+        upper.live = upper.size;
+        upper.total = leaf.sum(half, leaf.size);
+        leaf.size = half;
+        leaf.live = half;
+        leaf.total -= upper.total;
+        if (leafCount == leaves.length) {
+            leaves = Arrays.copyOf(leaves, leafCount * 2);
+            firstValues = Arrays.copyOf(firstValues, leafCount * 2);
+        }
+        System.arraycopy(leaves, index + 1, leaves, index + 2, leafCount - index - 1);
+        System.arraycopy(firstValues, index + 1, firstValues, index + 2, leafCount - index - 1);
+        leaves[index + 1] = upper;
+        firstValues[index] = leaf.values[0];
+        firstValues[index + 1] = upper.values[0];
+        leafCount++;
+    }
+
+    private void removeLeaf(int index) {
+        System.arraycopy(leaves, index + 1, leaves, index, leafCount - index - 1);
+        System.arraycopy(firstValues, index + 1, firstValues, index, leafCount - index - 1);
+        leaves[--leafCount] = null;
+    }
+}
@@ -0,0 +1,144 @@
+package util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Writes numbers with a fixed number of decimals straight into an Appendable, without allocating
+ * The output is the same as String.format("%.Nf", value) in the default format locale: the shortest
+ * decimal representation of the double is rounded half up. Values too large for the exact fast path
+ * (beyond about 10^14 / 10^decimals) fall back to BigDecimal.
+ */
+public final class DecimalAppender {
+    public static final int MAX_DECIMALS = 9;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L
+    };
+    // Largest value * 10^(decimals + 1) handled exactly with double arithmetic
+    private static final double FAST_PATH_LIMIT = 1e15;
+    // Read once: String.format would follow later changes of the default locale, this does not
+    private static final char DECIMAL_SEPARATOR =
+            DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator();
+
+    // Private constructor to prevent instantiation
+    private DecimalAppender() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Appends a number rounded to a fixed number of decimals
+     * @param out Buffer to append to
+     * @param value Number to write
+     * @param decimals Digits after the decimal separator, 0 to MAX_DECIMALS
+     * @return The same buffer
+     */
+    public static StringBuilder append(StringBuilder out, double value, int decimals) {
+        try {
+            append((Appendable) out, value, decimals);
+            return out;
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends a number rounded to a fixed number of decimals
+     * @param out Destination to append to
+     * @param value Number to write
+     * @param decimals Digits after the decimal separator, 0 to MAX_DECIMALS
+     * @throws IOException if the destination cannot be written
+     */
+    public static void append(Appendable out, double value, int decimals) throws IOException {
+        if (decimals < 0 || decimals > MAX_DECIMALS) {
+            throw new IllegalArgumentException("Decimals must be between 0 and " + MAX_DECIMALS);
+        }
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+            return;
+        }
+        if (Double.isInfinite(value)) {
+            out.append(value > 0 ? "Infinity" : "-Infinity");
+            return;
+        }
+
+        // Like String.format, negative zero and negatives that round to zero keep their sign
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            out.append('-');
+            value = -value;
+        }
+        if (value * POWERS_OF_TEN[decimals + 1] >= FAST_PATH_LIMIT) {
+            appendSlow(out, value, decimals);
+            return;
+        }
+
+        long scaled = roundHalfUp(value, POWERS_OF_TEN[decimals]);
+        appendLong(out, scaled / POWERS_OF_TEN[decimals]);
+        if (decimals > 0) {
+            out.append(DECIMAL_SEPARATOR);
+            long fraction = scaled % POWERS_OF_TEN[decimals];
+            for (int digit = decimals - 1; digit >= 0; digit--) {
+                out.append((char) ('0' + fraction / POWERS_OF_TEN[digit] % 10));
+            }
+        }
+    }
+
+    /**
+     * Appends a whole number
+     * @param out Destination to append to
+     * @param value Number to write
+     * @throws IOException if the destination cannot be written
+     */
+    public static void appendLong(Appendable out, long value) throws IOException {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                out.append("-9223372036854775808");
+                return;
+            }
+            out.append('-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Rounds value * scale to a whole number the way String.format does
+     * The exact product is value * scale = high + low. When value is the double nearest to a decimal
+     * that lies exactly halfway, that decimal is what Double.toString shows and String.format rounds
+     * it up, even if the binary value is a hair below halfway.
+     */
+    private static long roundHalfUp(double value, long scale) {
+        double factor = scale;
+        double high = value * factor;
+        double low = Math.fma(value, factor, -high);
+        double floor = Math.floor(high);
+        if (high == floor && low < 0) {
+            floor -= 1;
+        }
+
+        // high - floor and 0.5 are multiples of ulp(high), so this difference is exact
+        double aboveHalf = (high - floor) - 0.5;
+        boolean up = aboveHalf > 0 || (aboveHalf == 0 && low >= 0);
+        if (!up && (2 * floor + 1) / (2 * factor) == value) {
+            up = true;
+        }
+        return (long) floor + (up ? 1 : 0);
+    }
+
+    private static void appendSlow(Appendable out, double value, int decimals) throws IOException {
+        String text = new BigDecimal(Double.toString(value)).setScale(decimals, RoundingMode.HALF_UP).toPlainString();
+        out.append(text.replace('.', DECIMAL_SEPARATOR));
+    }
+}
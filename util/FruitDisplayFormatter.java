@@ -2,6 +2,8 @@ package util;
 
 import model.Fruit;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
@@ -13,32 +15,96 @@ public class FruitDisplayFormatter {
      * Formats a single fruit for detailed display
      */
     public static String formatFruitDetails(Fruit fruit) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(fruit.getInfo()).append("\n\n");
-        sb.append("Additional information:\n");
-        sb.append("• Calories per gram: ").append(String.format("%.4f", fruit.getCaloriesPerGram())).append("\n");
-        sb.append("• Is healthy?: ").append(fruit.isHealthy() ? "Yes" : "No").append("\n");
-        sb.append("• Can be consumed?: ").append(fruit.canBeEaten() ? "Yes" : "No").append("\n");
+        StringBuilder sb = new StringBuilder(256);
+        try {
+            writeFruitDetails(sb, fruit);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
         return sb.toString();
     }
 
+    /**
+     * Writes the detailed display of a fruit into a caller-supplied buffer or writer, without allocating
+     * @param out Destination of the text
+     * @param fruit Fruit to describe
+     * @throws IOException if the destination cannot be written
+     */
+    public static void writeFruitDetails(Appendable out, Fruit fruit) throws IOException {
+        fruit.appendInfo(out);
+        out.append("\n\nAdditional information:\n");
+        out.append("• Calories per gram: ");
+        DecimalAppender.append(out, fruit.getCaloriesPerGram(), 4);
+        out.append("\n• Is healthy?: ").append(fruit.isHealthy() ? "Yes" : "No");
+        out.append("\n• Can be consumed?: ").append(fruit.canBeEaten() ? "Yes" : "No");
+        out.append('\n');
+    }
+
     /**
      * Formats all fruits in a list for display
+     * Builds the whole text in memory; prefer writeAllFruits or formatFruitPage for large collections.
      */
     public static String formatAllFruits(List<Fruit> fruits) {
-        StringBuilder sb = new StringBuilder("COMPLETE FRUIT LIST\n\n");
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeAllFruits(sb, fruits);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Streams the complete fruit list to a writer or buffer, one fruit at a time
+     * @param out Destination of the text
+     * @param fruits Fruits to list
+     * @throws IOException if the destination cannot be written
+     */
+    public static void writeAllFruits(Appendable out, List<Fruit> fruits) throws IOException {
+        out.append("COMPLETE FRUIT LIST\n\n");
+        writeFruitEntries(out, fruits, 1);
+    }
+
+    /**
+     * Formats one page of the fruit list
+     * @param page Fruits on the page
+     * @param offset Position of the first fruit of the page in the collection
+     * @param total Number of fruits in the collection
+     * @return Text of the page
+     */
+    public static String formatFruitPage(List<Fruit> page, int offset, int total) {
+        // About 220 characters per fruit entry
+        StringBuilder sb = new StringBuilder(64 + page.size() * 224);
+        try {
+            sb.append("COMPLETE FRUIT LIST\n");
+            sb.append("Fruits ").append(offset + 1).append("-").append(offset + page.size())
+                    .append(" of ").append(total).append("\n\n");
+            writeFruitEntries(sb, page, offset + 1);
+        } catch (IOException e) {
+            // A StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
 
+    /**
+     * Writes numbered fruit entries without building intermediate strings
+     */
+    private static void writeFruitEntries(Appendable out, List<Fruit> fruits, int firstNumber) throws IOException {
         for (int i = 0; i < fruits.size(); i++) {
             Fruit fruit = fruits.get(i);
-            sb.append("FRUIT ").append(i + 1).append(":\n");
-            sb.append(fruit.getInfo()).append("\n");
-            sb.append("Calories per gram: ").append(String.format("%.4f", fruit.getCaloriesPerGram())).append("\n");
-            sb.append("Is healthy?: ").append(fruit.isHealthy() ? "Yes" : "No").append("\n");
-            sb.append("Can be consumed?: ").append(fruit.canBeEaten() ? "Yes" : "No").append("\n");
-            sb.append("-----------------------------\n");
+            out.append("FRUIT ");
+            DecimalAppender.appendLong(out, firstNumber + i);
+            out.append(":\n");
+            fruit.appendInfo(out);
+            out.append("\nCalories per gram: ");
+            DecimalAppender.append(out, fruit.getCaloriesPerGram(), 4);
+            out.append("\nIs healthy?: ").append(fruit.isHealthy() ? "Yes" : "No");
+            out.append("\nCan be consumed?: ").append(fruit.canBeEaten() ? "Yes" : "No");
+            out.append("\n-----------------------------\n");
         }
-
-        return sb.toString();
     }
 
     /**
@@ -0,0 +1,176 @@
+package util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads one flat JSON object: string, number, boolean and null values, no nesting
+ * Malformed input is reported with an IllegalArgumentException naming the problem.
+ */
+public final class JsonObjectReader {
+    private final String text;
+    private int position;
+    private boolean first = true;
+
+    public JsonObjectReader(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Reads a whole object into a map
+     * @param text JSON text of one flat object
+     * @return Keys and values in the order they appear; numbers are Long or Double
+     */
+    public static Map<String, Object> readObject(String text) {
+        JsonObjectReader reader = new JsonObjectReader(text);
+        Map<String, Object> fields = new LinkedHashMap<>();
+        reader.begin();
+        while (reader.hasNextField()) {
+            String key = reader.readKey();
+            fields.put(key, reader.readValue());
+        }
+        reader.end();
+        return fields;
+    }
+
+    /**
+     * Reads the opening brace
+     */
+    public void begin() {
+        expect('{');
+    }
+
+    /**
+     * @return true if another field follows, false at the closing brace
+     */
+    public boolean hasNextField() {
+        skipWhitespace();
+        if (peek() == '}') return false;
+        if (!first) expect(',');
+        first = false;
+        return true;
+    }
+
+    /**
+     * @return Key of the next field
+     */
+    public String readKey() {
+        skipWhitespace();
+        String key = readString();
+        expect(':');
+        return key;
+    }
+
+    /**
+     * @return Value of the current field: String, Long, Double, Boolean or null
+     */
+    public Object readValue() {
+        skipWhitespace();
+        char c = peek();
+        if (c == '"') return readString();
+        if (c == '-' || (c >= '0' && c <= '9')) return readNumber();
+        if (text.startsWith("true", position)) {
+            position += 4;
+            return Boolean.TRUE;
+        }
+        if (text.startsWith("false", position)) {
+            position += 5;
+            return Boolean.FALSE;
+        }
+        if (text.startsWith("null", position)) {
+            position += 4;
+            return null;
+        }
+        throw new IllegalArgumentException("unsupported JSON value at column " + (position + 1));
+    }
+
+    /**
+     * Reads the closing brace and checks that nothing follows it
+     */
+    public void end() {
+        expect('}');
+        skipWhitespace();
+        if (position != text.length()) {
+            throw new IllegalArgumentException("unexpected text after the JSON object");
+        }
+    }
+
+    private String readString() {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"', '\\', '/' -> sb.append(escaped);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (position + 4 > text.length()) {
+                        throw new IllegalArgumentException("truncated \\u escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(text, position, position + 4, 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("invalid \\u escape");
+                    }
+                    position += 4;
+                }
+                default -> throw new IllegalArgumentException("invalid escape \\" + escaped);
+            }
+        }
+    }
+
+    /**
+     * Reads a number; whole numbers become Long, anything with a fraction or exponent a Double
+     */
+    private Object readNumber() {
+        int start = position;
+        boolean whole = true;
+        if (peek() == '-') position++;
+        while (position < text.length() && "0123456789.eE+-".indexOf(text.charAt(position)) >= 0) {
+            whole &= Character.isDigit(text.charAt(position));
+            position++;
+        }
+        String number = text.substring(start, position);
+        try {
+            return whole ? (Object) Long.parseLong(number) : (Object) Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid number '" + number + "'");
+        }
+    }
+
+    private void expect(char expected) {
+        skipWhitespace();
+        if (next() != expected) {
+            throw new IllegalArgumentException("expected '" + expected + "' at column " + position);
+        }
+    }
+
+    private char peek() {
+        if (position >= text.length()) {
+            throw new IllegalArgumentException("unexpected end of input");
+        }
+        return text.charAt(position);
+    }
+
+    private char next() {
+        char c = peek();
+        position++;
+        return c;
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+}
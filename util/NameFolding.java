@@ -0,0 +1,64 @@
+package util;
+
+/**
+ * Case folding helpers for fruit names
+ * Folded names compare equal exactly when the originals match with String.equalsIgnoreCase
+ */
+public final class NameFolding {
+
+    // Private constructor to prevent instantiation
+    private NameFolding() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Folds a name so it can be used as a case-insensitive hash key
+     * @param name Name to fold
+     * @return Folded name, or the same instance if it is already folded
+     */
+    public static String fold(String name) {
+        int length = name.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = name.codePointAt(i);
+            if (foldCodePoint(codePoint) != codePoint) break;
+            i += Character.charCount(codePoint);
+        }
+        if (i == length) {
+            return name;
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        sb.append(name, 0, i);
+        while (i < length) {
+            int codePoint = name.codePointAt(i);
+            sb.appendCodePoint(foldCodePoint(codePoint));
+            i += Character.charCount(codePoint);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Hash of the folded name, computed without building the folded string
+     * Names that match with String.equalsIgnoreCase always have the same folded hash.
+     * @param name Name to hash
+     * @return Same value as fold(name).hashCode() for names made of BMP characters
+     */
+    public static int foldedHashCode(String name) {
+        int hash = 0;
+        int length = name.length();
+        for (int i = 0; i < length; ) {
+            int codePoint = name.codePointAt(i);
+            hash = 31 * hash + foldCodePoint(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return hash;
+    }
+
+    /**
+     * Folds a single code point the same way String.equalsIgnoreCase compares characters
+     */
+    public static int foldCodePoint(int codePoint) {
+        return Character.toLowerCase(Character.toUpperCase(codePoint));
+    }
+}